@@ -777,7 +777,20 @@ public class Utils
      */
     public static String getBufferAsString(ByteBuffer buffer, int limit)
     {
-        String input = decodeBasic(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + buffer.position());
+        String input;
+        if (buffer.hasArray())
+        {
+            input = decodeBasic(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + buffer.position());
+        }
+        else
+        {
+            // direct buffer - copy what we will print
+            byte[] bytes = new byte[Math.min(buffer.position(), limit)];
+            ByteBuffer dup = buffer.duplicate();
+            dup.position(0);
+            dup.get(bytes);
+            input = decodeBasic(bytes);
+        }
         return getPrintableString(input, limit);
     }
 
@@ -0,0 +1,563 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.comms;
+
+import com.donohoedigital.base.*;
+import org.apache.log4j.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Compact binary form of the DataMarshal wire format.  Each value is a one byte
+ * tag followed by its payload.  Integers and longs are zigzag varints, counts and
+ * lengths are plain varints and strings are UTF-8.  TokenizedList, DMArrayList,
+ * DMTypedHashMap and NameValueToken are encoded natively; any other DataMarshal
+ * is stored as its type char and its text <code>marshal()</code>, so every
+ * class that works with DataMarshaller works here too.
+ * <p>
+ * Text data never starts with a zero byte, so callers that write a whole
+ * payload (DDMessage, GameState) lead with BINARY_MARKER and readers pick the
+ * format from the first byte.
+ *
+ * @see DataMarshaller
+ */
+public class BinaryMarshaller
+{
+    static Logger logger = Logger.getLogger(BinaryMarshaller.class);
+
+    /**
+     * first byte of a binary payload
+     */
+    public static final byte BINARY_MARKER = 0;
+
+    // value tags
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INT = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_STRING = 3;
+    private static final byte TAG_TRUE = 4;
+    private static final byte TAG_FALSE = 5;
+    private static final byte TAG_DOUBLE = 6;
+    private static final byte TAG_LIST = 7;
+    private static final byte TAG_ARRAY = 8;
+    private static final byte TAG_MAP = 9;
+    private static final byte TAG_NAME_VALUE = 10;
+    private static final byte TAG_MARSHAL = 11;
+
+    /**
+     * Marshal given DataMarshal to bytes
+     */
+    public static byte[] marshal(MsgState state, DataMarshal dm)
+    {
+        ApplicationError.assertNotNull(dm, "DataMarshal must not be null");
+        DDByteArrayOutputStream out = new DDByteArrayOutputStream(256);
+        write(state, out, dm);
+        return out.toByteArray();
+    }
+
+    /**
+     * Demarshal bytes to associated object
+     */
+    public static DataMarshal demarshal(MsgState state, byte[] data)
+    {
+        return read(state, new Input(data));
+    }
+
+    ////
+    //// values
+    ////
+
+    /**
+     * Write a tagged value.  Value can be null, a String, Integer, Long,
+     * Double, Boolean or anything that implements DataMarshal.
+     */
+    public static void write(MsgState state, DDByteArrayOutputStream out, Object o)
+    {
+        if (o instanceof DataMarshaller.DMWrapper)
+        {
+            o = ((DataMarshaller.DMWrapper) o).value();
+        }
+
+        if (o == null)
+        {
+            out.write(TAG_NULL);
+        }
+        else if (o instanceof Integer)
+        {
+            out.write(TAG_INT);
+            writeVarLong(out, zigzag((Integer) o));
+        }
+        else if (o instanceof Long)
+        {
+            out.write(TAG_LONG);
+            writeVarLong(out, zigzag((Long) o));
+        }
+        else if (o instanceof String)
+        {
+            out.write(TAG_STRING);
+            writeString(out, (String) o);
+        }
+        else if (o instanceof Boolean)
+        {
+            out.write((Boolean) o ? TAG_TRUE : TAG_FALSE);
+        }
+        else if (o instanceof Double)
+        {
+            out.write(TAG_DOUBLE);
+            writeFixedLong(out, Double.doubleToLongBits((Double) o));
+        }
+        else if (o instanceof DataMarshal)
+        {
+            writeMarshal(state, out, (DataMarshal) o);
+        }
+        else
+        {
+            throw new ApplicationError(ErrorCodes.ERROR_CODE_ERROR, "Unsupported value", o.getClass().getName(), null);
+        }
+    }
+
+    /**
+     * Write a DataMarshal, natively for the container types and as text otherwise.
+     * Unregistered subclasses of the containers may customize marshal() (e.g., to
+     * cache it), so they are written as text too.
+     */
+    private static void writeMarshal(MsgState state, DDByteArrayOutputStream out, DataMarshal dm)
+    {
+        char cType = DataMarshaller.getTypeForCoder(dm);
+        if (dm.getClass() != DataMarshaller.getCoderForType(cType))
+        {
+            writeText(state, out, cType, dm);
+            return;
+        }
+
+        switch (cType)
+        {
+            case 't':
+                out.write(TAG_LIST);
+                ((TokenizedList) dm).write(state, out);
+                break;
+
+            case 'a':
+                out.write(TAG_ARRAY);
+                writeArray(state, out, (List<?>) dm);
+                break;
+
+            case 'h':
+                out.write(TAG_MAP);
+                writeMap(state, out, (DMTypedHashMap) dm);
+                break;
+
+            case '$':
+                NameValueToken nvt = (NameValueToken) dm;
+                out.write(TAG_NAME_VALUE);
+                writeString(out, nvt.getName());
+                write(state, out, nvt.getValue());
+                break;
+
+            default:
+                writeText(state, out, cType, dm);
+                break;
+        }
+    }
+
+    /**
+     * Write a DataMarshal as its type and text marshal
+     */
+    private static void writeText(MsgState state, DDByteArrayOutputStream out, char cType, DataMarshal dm)
+    {
+        out.write(TAG_MARSHAL);
+        writeVarInt(out, cType);
+        writeString(out, dm.marshal(state));
+    }
+
+    /**
+     * Read a tagged value.  Simple values are returned in their DataMarshaller
+     * wrapper, as a TokenizedList holds them (null is returned as null).
+     */
+    @SuppressWarnings({"unchecked"})
+    public static DataMarshal read(MsgState state, Input in)
+    {
+        byte tag = in.readByte();
+        switch (tag)
+        {
+            case TAG_NULL:
+                return null;
+
+            case TAG_INT:
+                return new DataMarshaller.DMInteger((int) unzigzag(readVarLong(in)));
+
+            case TAG_LONG:
+                return new DataMarshaller.DMLong(unzigzag(readVarLong(in)));
+
+            case TAG_STRING:
+                return new DataMarshaller.DMString(readString(in));
+
+            case TAG_TRUE:
+                return new DataMarshaller.DMBoolean(true);
+
+            case TAG_FALSE:
+                return new DataMarshaller.DMBoolean(false);
+
+            case TAG_DOUBLE:
+                return new DataMarshaller.DMDouble(Double.longBitsToDouble(readFixedLong(in)));
+
+            case TAG_LIST:
+                TokenizedList list = (TokenizedList) DataMarshaller.newInstance('t');
+                list.read(state, in, TokenizedList.TOKEN_READ_ALL);
+                return list;
+
+            case TAG_ARRAY:
+                DMArrayList<Object> array = (DMArrayList<Object>) DataMarshaller.newInstance('a');
+                readArray(state, in, array);
+                return array;
+
+            case TAG_MAP:
+                DMTypedHashMap map = (DMTypedHashMap) DataMarshaller.newInstance('h');
+                readMap(state, in, map);
+                return map;
+
+            case TAG_NAME_VALUE:
+                String sName = readString(in);
+                DataMarshal dmValue = read(state, in);
+                return new NameValueToken(sName, dmValue == null ? new DataMarshaller.DMNull() : dmValue);
+
+            case TAG_MARSHAL:
+                char cType = (char) readVarInt(in);
+                DataMarshal dm = DataMarshaller.newInstance(cType);
+                dm.demarshal(state, readString(in));
+                return dm;
+
+            default:
+                throw new ApplicationError(ErrorCodes.ERROR_CODE_ERROR, "Unknown binary tag", Byte.toString(tag), null);
+        }
+    }
+
+    /**
+     * Read a tagged value, unwrapping simple values (as stored in lists and maps)
+     */
+    public static Object readObject(MsgState state, Input in)
+    {
+        DataMarshal dm = read(state, in);
+        if (dm instanceof DataMarshaller.DMWrapper)
+        {
+            return ((DataMarshaller.DMWrapper) dm).value();
+        }
+        return dm;
+    }
+
+    ////
+    //// containers
+    ////
+
+    /**
+     * Write list contents (count followed by values)
+     */
+    private static void writeArray(MsgState state, DDByteArrayOutputStream out, List<?> list)
+    {
+        int nNum = list.size();
+        writeVarInt(out, nNum);
+        Object oValue;
+        for (int i = 0; i < nNum; i++)
+        {
+            oValue = list.get(i);
+            if (!isSupported(oValue))
+            {
+                logger.debug("Warning: writing null for unsupported array entry #" + i +
+                             " class is " + oValue.getClass().getName());
+                oValue = null;
+            }
+            write(state, out, oValue);
+        }
+    }
+
+    /**
+     * Read list contents written by writeArray
+     */
+    private static void readArray(MsgState state, Input in, List<Object> list)
+    {
+        int nNum = readVarInt(in);
+        for (int i = 0; i < nNum; i++)
+        {
+            list.add(readObject(state, in));
+        }
+    }
+
+    /**
+     * Write map contents (count followed by name/value pairs).  Unsupported
+     * values are skipped, as NameValueToken.loadNameValueTokensIntoList does.
+     */
+    public static void writeMap(MsgState state, DDByteArrayOutputStream out, Map<String, Object> map)
+    {
+        int nNum = 0;
+        for (Object oValue : map.values())
+        {
+            if (isSupported(oValue)) nNum++;
+        }
+
+        writeVarInt(out, nNum);
+        Object oValue;
+        for (Map.Entry<String, Object> entry : map.entrySet())
+        {
+            oValue = entry.getValue();
+            if (!isSupported(oValue))
+            {
+                logger.debug("Warning: skipping unsupported map entry '" + entry.getKey() +
+                             "' class is " + oValue.getClass().getName());
+                continue;
+            }
+            writeString(out, entry.getKey());
+            write(state, out, oValue);
+        }
+    }
+
+    /**
+     * Read map contents written by writeMap
+     */
+    public static void readMap(MsgState state, Input in, Map<String, Object> map)
+    {
+        int nNum = readVarInt(in);
+        String sName;
+        for (int i = 0; i < nNum; i++)
+        {
+            sName = readString(in);
+            map.put(sName, readObject(state, in));
+        }
+    }
+
+    /**
+     * can value be written?
+     */
+    private static boolean isSupported(Object o)
+    {
+        return o == null || o instanceof DataMarshal || o instanceof String || o instanceof Integer ||
+               o instanceof Long || o instanceof Boolean || o instanceof Double;
+    }
+
+    ////
+    //// primitives
+    ////
+
+    /**
+     * Write unsigned varint (7 bits per byte, high bit set on all but the last byte)
+     */
+    public static void writeVarInt(DDByteArrayOutputStream out, int n)
+    {
+        while ((n & ~0x7F) != 0)
+        {
+            out.write((n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        out.write(n);
+    }
+
+    /**
+     * Read unsigned varint
+     */
+    public static int readVarInt(Input in)
+    {
+        int n = 0;
+        int b;
+        for (int shift = 0; shift < 32; shift += 7)
+        {
+            b = in.readByte();
+            n |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return n;
+        }
+        throw new ApplicationError(ErrorCodes.ERROR_CODE_ERROR, "Malformed varint", in.toString(), null);
+    }
+
+    /**
+     * Write unsigned varlong
+     */
+    private static void writeVarLong(DDByteArrayOutputStream out, long n)
+    {
+        while ((n & ~0x7FL) != 0)
+        {
+            out.write((int) ((n & 0x7F) | 0x80));
+            n >>>= 7;
+        }
+        out.write((int) n);
+    }
+
+    /**
+     * Read unsigned varlong
+     */
+    private static long readVarLong(Input in)
+    {
+        long n = 0;
+        int b;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            b = in.readByte();
+            n |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return n;
+        }
+        throw new ApplicationError(ErrorCodes.ERROR_CODE_ERROR, "Malformed varlong", in.toString(), null);
+    }
+
+    /**
+     * zigzag encode so small negative numbers stay small
+     */
+    private static long zigzag(long n)
+    {
+        return (n << 1) ^ (n >> 63);
+    }
+
+    /**
+     * zigzag decode
+     */
+    private static long unzigzag(long n)
+    {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    /**
+     * Write 8 bytes, high byte first
+     */
+    private static void writeFixedLong(DDByteArrayOutputStream out, long n)
+    {
+        for (int shift = 56; shift >= 0; shift -= 8)
+        {
+            out.write((int) (n >>> shift));
+        }
+    }
+
+    /**
+     * Read 8 bytes, high byte first
+     */
+    private static long readFixedLong(Input in)
+    {
+        long n = 0;
+        for (int i = 0; i < 8; i++)
+        {
+            n = (n << 8) | (in.readByte() & 0xFF);
+        }
+        return n;
+    }
+
+    /**
+     * Write string as varint length and UTF-8 bytes
+     */
+    public static void writeString(DDByteArrayOutputStream out, String s)
+    {
+        byte[] bytes = Utils.encode(s);
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Read string written by writeString
+     */
+    public static String readString(Input in)
+    {
+        int nLength = readVarInt(in);
+        int nOffset = in.skip(nLength);
+        return Utils.decode(in.data_, nOffset, nLength);
+    }
+
+    /**
+     * A position within a byte array being read
+     */
+    public static class Input
+    {
+        private final byte[] data_;
+        private final int end_;
+        private int pos_;
+
+        public Input(byte[] data)
+        {
+            this(data, 0, data.length);
+        }
+
+        public Input(byte[] data, int nOffset, int nLength)
+        {
+            data_ = data;
+            pos_ = nOffset;
+            end_ = nOffset + nLength;
+        }
+
+        /**
+         * any data left?
+         */
+        public boolean hasMore()
+        {
+            return pos_ < end_;
+        }
+
+        /**
+         * read next byte
+         */
+        public byte readByte()
+        {
+            if (pos_ >= end_) throw new ApplicationError(new EOFException("End of binary data at " + pos_));
+            return data_[pos_++];
+        }
+
+        /**
+         * Skip given number of bytes, returning the offset of the first
+         */
+        public int skip(int nLength)
+        {
+            if (nLength < 0 || nLength > end_ - pos_)
+            {
+                throw new ApplicationError(new EOFException("Bad length " + nLength + " at " + pos_));
+            }
+            int nOffset = pos_;
+            pos_ += nLength;
+            return nOffset;
+        }
+
+        /**
+         * Copy next nLength bytes into given array at given offset
+         */
+        public void readBytes(byte[] dest, int nOffset, int nLength)
+        {
+            System.arraycopy(data_, skip(nLength), dest, nOffset, nLength);
+        }
+
+        /**
+         * Return input covering the next nLength bytes, and skip past them here
+         */
+        public Input slice(int nLength)
+        {
+            return new Input(data_, skip(nLength), nLength);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "position " + pos_ + " of " + end_;
+        }
+    }
+}
@@ -67,6 +67,11 @@ public class DDMessage extends TypedHashMap implements PostWriter, PostReader, D
      * param used to store num chunks, used in transport
      */
     private static final String PARAM_NUM_CHUNKS = "_#_";
+
+    /**
+     * initial buffer size reading binary params (grows as data arrives)
+     */
+    private static final int BINARY_READ_SIZE = 8192;
     
     /**
      * RESERVED - param "cat"
@@ -138,6 +143,7 @@ public class DDMessage extends TypedHashMap implements PostWriter, PostReader, D
 
     // transient data only
     private int nStatus_ = DDMessageListener.STATUS_NONE;
+    private boolean bBinary_ = false;
     
     // class to represent data chunks
     private class MessageData
@@ -538,6 +544,24 @@ public class DDMessage extends TypedHashMap implements PostWriter, PostReader, D
         return nStatus_;
     }
     
+    /**
+     * Set whether write() uses the binary format (see BinaryMarshaller)
+     * for params.  Only set when the receiver is known to support it
+     * (see isBinarySupported()).  Like status, this is not sent.
+     */
+    public void setBinary(boolean b)
+    {
+        bBinary_ = b;
+    }
+
+    /**
+     * Is binary format used for params?
+     */
+    public boolean isBinary()
+    {
+        return bBinary_;
+    }
+
     /**
      * Get params marshalled from tokenized list
      */
@@ -668,7 +692,15 @@ public class DDMessage extends TypedHashMap implements PostWriter, PostReader, D
      * Write this message out to the given writer.  Sync added
      * due to possible simulaneous write attempts in DD Poker.
      */
-    public synchronized void write(OutputStream output) throws IOException
+    public void write(OutputStream output) throws IOException
+    {
+        write(output, bBinary_);
+    }
+
+    /**
+     * Write this message, with params in binary or text
+     */
+    private synchronized void write(OutputStream output, boolean bBinary) throws IOException
     {    
         // data
         if (msgdata_ != null && !msgdata_.isEmpty())
@@ -686,15 +718,22 @@ public class DDMessage extends TypedHashMap implements PostWriter, PostReader, D
         }
         
         // params
-        String sParams = marshalParams();
-        byte[] baparam = Utils.encode(sParams);
-        output.write(baparam);
+        if (bBinary)
+        {
+            writeBinaryParams(output);
+        }
+        else
+        {
+            String sParams = marshalParams();
+            byte[] baparam = Utils.encode(sParams);
+            output.write(baparam);
+        }
         
         // remove list data
         removeList(PARAM_NUM_CHUNKS);
  
-        // delim
-        for (int i = 0; i < DELIM_CNT; i++)
+        // delim (binary params are length prefixed)
+        for (int i = 0; !bBinary && i < DELIM_CNT; i++)
         {
             output.write(DELIM);
         }
@@ -741,63 +780,53 @@ public class DDMessage extends TypedHashMap implements PostWriter, PostReader, D
     }
     
     /**
-     * parse byte data into params and data.  Length is ignored.
+     * Write params in binary: marker byte, length, then params
+     */
+    private void writeBinaryParams(OutputStream output) throws IOException
+    {
+        DDByteArrayOutputStream params = new DDByteArrayOutputStream(500);
+        BinaryMarshaller.writeMap(state_, params, this);
+
+        DDByteArrayOutputStream header = new DDByteArrayOutputStream(params.size() + 6);
+        header.write(BinaryMarshaller.BINARY_MARKER);
+        BinaryMarshaller.writeVarInt(header, params.size());
+        header.write(params.getBuffer(), 0, params.size());
+        output.write(header.getBuffer(), 0, header.size());
+    }
+
+    /**
+     * parse byte data into params and data.  Length (-1 if unknown) bounds
+     * the data lengths given in the message.
+     * Params can be text or binary (determined by the first byte).
      */
     public void read(InputStream input, int nLength) throws IOException
     {
         int nRead = 0;
-        boolean bDoneParams = false;
         boolean bEmpty = true;
         
         int n;
-        DDByteArrayOutputStream out = new DDByteArrayOutputStream(500);
          
         try {
             // load params
-            char c;
-            int nDelimCnt = 0;
-                       
-            while (!bDoneParams)
+            n = input.read();
+            if (n == -1)
             {
-                n = input.read();
-                if (n == -1)
-                {
-                    throw new EOFException("End of file decoding header portion of DDMessage");
-                }
-                c = (char) n;
-                bEmpty = false;
-                nRead += n;
+                throw new EOFException("End of file decoding header portion of DDMessage");
+            }
+            bEmpty = false;
 
-                //logger.debug("Read: " + c + " #"+nRead);
-                if (c == DELIM)
+            if (n == BinaryMarshaller.BINARY_MARKER)
+            {
+                if (binaryVersion_ == null)
                 {
-                    nDelimCnt++;
-                    // done when all delims read in a row
-                    if (nDelimCnt == DELIM_CNT)
-                    {
-                        bDoneParams = true;
-                    }
-                }
-                else
-                {
-                    // if we previously got a delim char, but now we have
-                    // a non-delim char, then write the previous delim chars
-                    // received and reset count
-                    if (nDelimCnt > 0)
-                    {
-                        for (int i = 0; i < nDelimCnt; i++)
-                        {
-                            out.write(DELIM);
-                        }
-                        nDelimCnt = 0;
-                    }
-                    out.write(n);
+                    throw new ApplicationError(ErrorCodes.ERROR_INVALID_MESSAGE, "Binary message not supported", null);
                 }
+                readBinaryParams(input, nLength);
+            }
+            else
+            {
+                readTextParams(input, n);
             }
-
-            String sParams = Utils.decode(out.getBuffer(), 0, out.size());
-            //logger.debug("PARAMS: " + sParams);
-            demarshalParams(sParams);
 
             // get rest of data
             DMArrayList<Integer> sizes = (DMArrayList<Integer>) removeList(PARAM_NUM_CHUNKS);
@@ -810,6 +839,10 @@ public class DDMessage extends TypedHashMap implements PostWriter, PostReader, D
             {
                 nRead = 0;
                 length = sizes.get(i);
+                if (length < 0 || (nLength >= 0 && length > nLength))
+                {
+                    throw new ApplicationError(ErrorCodes.ERROR_INVALID_MESSAGE, "Bad message data length", "length " + length, null);
+                }
                 bytedata = new byte[length];
                 while (nRead != length)
                 {
@@ -832,6 +865,108 @@ public class DDMessage extends TypedHashMap implements PostWriter, PostReader, D
         }
     }
     
+    /**
+     * Read text params, up to the delimiter.  First byte already read.
+     */
+    private void readTextParams(InputStream input, int n) throws IOException
+    {
+        boolean bDoneParams = false;
+        DDByteArrayOutputStream out = new DDByteArrayOutputStream(500);
+        char c;
+        int nDelimCnt = 0;
+
+        while (!bDoneParams)
+        {
+            c = (char) n;
+
+            //logger.debug("Read: " + c);
+            if (c == DELIM)
+            {
+                nDelimCnt++;
+                // done when all delims read in a row
+                if (nDelimCnt == DELIM_CNT)
+                {
+                    bDoneParams = true;
+                    continue;
+                }
+            }
+            else
+            {
+                // if we previously got a delim char, but now we have
+                // a non-delim char, then write the previous delim chars
+                // received and reset count
+                if (nDelimCnt > 0)
+                {
+                    for (int i = 0; i < nDelimCnt; i++)
+                    {
+                        out.write(DELIM);
+                    }
+                    nDelimCnt = 0;
+                }
+                out.write(n);
+            }
+
+            n = input.read();
+            if (n == -1)
+            {
+                throw new EOFException("End of file decoding header portion of DDMessage");
+            }
+        }
+
+        String sParams = Utils.decode(out.getBuffer(), 0, out.size());
+        //logger.debug("PARAMS: " + sParams);
+        demarshalParams(sParams);
+    }
+
+    /**
+     * Read binary params written by writeBinaryParams().  Marker already read.
+     * The length sent is checked against the message length (if known), and
+     * the buffer only grows as data arrives, so a bogus length can't cause
+     * a huge allocation.
+     */
+    private void readBinaryParams(InputStream input, int nMessageLength) throws IOException
+    {
+        // length is a varint
+        int nLength = 0;
+        int nHeader = 1;
+        int b;
+        int shift = 0;
+        do
+        {
+            b = input.read();
+            if (b == -1)
+            {
+                throw new EOFException("End of file decoding header portion of DDMessage");
+            }
+            nHeader++;
+            nLength |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0 && shift < 32);
+
+        if (nLength < 0 || (nMessageLength >= 0 && nLength > nMessageLength - nHeader))
+        {
+            throw new ApplicationError(ErrorCodes.ERROR_INVALID_MESSAGE, "Bad binary params length", "length " + nLength, null);
+        }
+
+        byte[] params = new byte[Math.min(nLength, BINARY_READ_SIZE)];
+        int nRead = 0;
+        while (nRead != nLength)
+        {
+            if (nRead == params.length)
+            {
+                params = Arrays.copyOf(params, (int) Math.min((long) nLength, params.length * 2L));
+            }
+            int n = input.read(params, nRead, params.length - nRead);
+            if (n == -1)
+            {
+                throw new EOFException("End of file decoding header portion of DDMessage");
+            }
+            nRead += n;
+        }
+        BinaryMarshaller.readMap(state_, new BinaryMarshaller.Input(params), this);
+    }
+
     public void demarshal(MsgState state, String sData)
     {
         InputStream stream = new ByteArrayInputStream(Utils.encode(sData));
@@ -850,7 +985,8 @@ public class DDMessage extends TypedHashMap implements PostWriter, PostReader, D
         DDByteArrayOutputStream out = new DDByteArrayOutputStream();
         
         try {
-            write(out);
+            // always text, since result is a String
+            write(out, false);
             return Utils.decode(out.getBuffer(), 0, out.size());
         }
         catch (IOException ioe)
@@ -885,6 +1021,32 @@ public class DDMessage extends TypedHashMap implements PostWriter, PostReader, D
         return version_;
     }
     
+    /////
+    ///// Binary
+    /////
+
+    /**
+     * first version that reads binary messages (null means binary isn't used)
+     */
+    private static Version binaryVersion_ = null;
+
+    /**
+     * Set first version of the software that can read binary params
+     * (see setBinary()).  Null turns binary off.
+     */
+    public static void setBinaryVersion(Version version)
+    {
+        binaryVersion_ = version;
+    }
+
+    /**
+     * Can a peer running the given version read binary params?
+     */
+    public static boolean isBinarySupported(Version version)
+    {
+        return binaryVersion_ != null && version != null && !version.isBefore(binaryVersion_);
+    }
+
     /////
     ///// License 
     /////
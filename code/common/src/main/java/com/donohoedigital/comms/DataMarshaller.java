@@ -82,13 +82,21 @@ public class DataMarshaller
      */
     public static DataMarshal demarshal(MsgState state, String sData)
     {
-        Class<?> dmType = getCoderForType(sData.charAt(0));
+        DataMarshal dm = newInstance(sData.charAt(0));
+        dm.demarshal(state, sData.substring(1));
+        return dm;
+    }
+
+    /**
+     * Create empty instance of the class registered for the given type
+     */
+    static DataMarshal newInstance(char cType)
+    {
+        Class<?> dmType = getCoderForType(cType);
 
         try
         {
-            DataMarshal dm = (DataMarshal) ConfigUtils.newInstance(dmType);
-            dm.demarshal(state, sData.substring(1));
-            return dm;
+            return (DataMarshal) ConfigUtils.newInstance(dmType);
         }
         catch (ClassCastException cce)
         {
@@ -156,7 +164,7 @@ public class DataMarshaller
     /**
      * Get class associated with type
      */
-    private static Class<? extends DataMarshal> getCoderForType(char cType)
+    static Class<? extends DataMarshal> getCoderForType(char cType)
     {
         Class<? extends DataMarshal> cExist = typeToCoder_.get(cType);
         ApplicationError.assertNotNull(cExist, "Missing definition for DataMarshal", cType);
@@ -164,12 +172,18 @@ public class DataMarshaller
     }
 
     /**
-     * Return char type for given data marshaller
+     * Return char type for given data marshaller.  An unregistered subclass
+     * of a registered class (e.g., one that caches its marshalled form)
+     * uses its superclass's type, so it demarshals as the superclass.
      */
-    private static char getTypeForCoder(DataMarshal cCoder)
+    static char getTypeForCoder(DataMarshal cCoder)
     {
-        Class<? extends DataMarshal> cClass = cCoder.getClass();
+        Class<?> cClass = cCoder.getClass();
         Character cType = coderToType_.get(cClass);
+        while (cType == null && (cClass = cClass.getSuperclass()) != null)
+        {
+            cType = coderToType_.get(cClass);
+        }
         ApplicationError.assertNotNull(cType, "No type for DataMarshal", cCoder.getClass());
         return cType;
     }
@@ -63,6 +63,8 @@ public class TokenizedList implements DataMarshal
     // data
     protected List<DataMarshal> tokens_ = new ArrayList<DataMarshal>();
     protected EscapeStringTokenizer tokenizer_;
+    private BinaryMarshaller.Input binary_;
+    private int nBinaryLeft_;
     
     /**
      * Empty constructor needed for demarshalling
@@ -81,13 +83,29 @@ public class TokenizedList implements DataMarshal
         read(state, tokenizer_, nReadNumTokens);
     }
 
-        
+    /**
+     * Create a new TokenizedList from binary data, previously generated
+     * by write(MsgState, DDByteArrayOutputStream).  Same as above, up to
+     * nReadNumTokens are read and the rest wait for finishParsing().  The
+     * input should cover just this list, since it is held onto.
+     */
+    public TokenizedList(MsgState state, BinaryMarshaller.Input in, int nReadNumTokens)
+    {
+        binary_ = in;
+        read(state, in, nReadNumTokens);
+    }
+
     /**
      * Finish parsing any remaining tokens from the data stream created 
-     * by the above constructor
+     * by the above constructors
      */
     public void finishParsing(MsgState state)
     {
+        if (binary_ != null)
+        {
+            _read(state, binary_, TOKEN_READ_ALL);
+            binary_ = null;
+        }
         if (tokenizer_ == null) return;
         _read(state, tokenizer_, TOKEN_READ_ALL);
         tokenizer_ = null;
@@ -442,6 +460,41 @@ public class TokenizedList implements DataMarshal
         }
     }    
 
+    /**
+     * Write this entry out in binary (see BinaryMarshaller) - count followed by tokens
+     */
+    public void write(MsgState state, DDByteArrayOutputStream out)
+    {
+        BinaryMarshaller.writeVarInt(out, tokens_.size());
+        for (DataMarshal token : tokens_)
+        {
+            BinaryMarshaller.write(state, out, token);
+        }
+    }
+
+    /**
+     * Init this list from binary data (opposite of write)
+     */
+    public void read(MsgState state, BinaryMarshaller.Input in, int nReadNumTokens)
+    {
+        nBinaryLeft_ = BinaryMarshaller.readVarInt(in);
+        _read(state, in, nReadNumTokens);
+    }
+
+    /**
+     * binary read logic
+     */
+    private void _read(MsgState state, BinaryMarshaller.Input in, int nReadNumTokens)
+    {
+        int nCnt = 0;
+        while (nBinaryLeft_ > 0 && nCnt < nReadNumTokens)
+        {
+            tokens_.add(BinaryMarshaller.read(state, in));
+            nBinaryLeft_--;
+            nCnt++;
+        }
+    }
+
     /**
      * Don't allow toString() calls
      */
@@ -127,6 +127,15 @@ public class ConfigManager
         new StylesConfig(modules);
     }
 
+    /**
+     * load client messages not already loaded (command line apps using
+     * game objects - see PropertyConfig.loadClientMessages())
+     */
+    public void loadClientMessages()
+    {
+        PropertyConfig.loadClientMessages(modules, locale);
+    }
+
     /**
      * Get configuration directory for application
      */
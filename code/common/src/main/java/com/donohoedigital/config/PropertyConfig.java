@@ -159,7 +159,39 @@ public class PropertyConfig extends Properties
         }
     }
 
+    /**
+     * Add messages (msg.*) from each module's client.properties that aren't already
+     * loaded - for command line apps using game objects which get names, etc.
+     * from client messages
+     */
+    public static void loadClientMessages(String[] modules, String sLocale)
+    {
+        ApplicationError.assertNotNull(propConfig, "PropertyConfig not initialized");
+
+        Properties client = new Properties();
+        for (String module : modules)
+        {
+            loadURL(client, new File(module, PROPS_CONFIG_CLIENT), sLocale, false);
+        }
+
+        synchronized (propConfig)
+        {
+            for (String sKey : client.stringPropertyNames())
+            {
+                if (sKey.startsWith("msg.") && !propConfig.containsKey(sKey))
+                {
+                    propConfig.setProperty(sKey, client.getProperty(sKey));
+                }
+            }
+        }
+    }
+
     private void loadURL(File file, String sLocale, boolean bOverride)
+    {
+        loadURL(this, file, sLocale, bOverride);
+    }
+
+    private static void loadURL(Properties target, File file, String sLocale, boolean bOverride)
     {
         URL props = null;
 
@@ -190,7 +222,7 @@ public class PropertyConfig extends Properties
         try
         {
             is = props.openStream();
-            load(is);
+            target.load(is);
         }
         // since we verified, file should exist
         catch (Exception e)
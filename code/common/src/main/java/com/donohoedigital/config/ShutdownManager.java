@@ -73,9 +73,21 @@ public class ShutdownManager implements Thread.UncaughtExceptionHandler
      * Install our own shutdown manager.
      */
     public synchronized static void install()
+    {
+        install(true);
+    }
+
+    /**
+     * Install our own shutdown manager, optionally without making it the default
+     * uncaught exception handler (which exits on any uncaught exception).  Has no
+     * effect if already installed.
+     *
+     * @param handleUncaughtExceptions if true, register as default uncaught exception handler
+     */
+    public synchronized static void install(boolean handleUncaughtExceptions)
     {
         if (manager == null) {
-            manager = new ShutdownManager();
+            manager = new ShutdownManager(handleUncaughtExceptions);
         }
     }
 
@@ -119,7 +131,7 @@ public class ShutdownManager implements Thread.UncaughtExceptionHandler
      * exceptions, and log what's going on
      */
     @SuppressWarnings({"ThisEscapedInObjectConstruction"})
-    private ShutdownManager()
+    private ShutdownManager(boolean handleUncaughtExceptions)
     {
         // add shutdown handler to JVM (which calls this class)
         Thread hook = new Thread()
@@ -132,7 +144,7 @@ public class ShutdownManager implements Thread.UncaughtExceptionHandler
         Runtime.getRuntime().addShutdownHook(hook);
 
         // set this as default uncaught exception handler
-        Thread.setDefaultUncaughtExceptionHandler(this);
+        if (handleUncaughtExceptions) Thread.setDefaultUncaughtExceptionHandler(this);
     }
 
     /**
@@ -160,7 +172,7 @@ public class ShutdownManager implements Thread.UncaughtExceptionHandler
     private synchronized void shuttingDown()
     {
         // prevent infinite loop if there's a problem in the shutdown hooks
-        Thread.setDefaultUncaughtExceptionHandler(null);
+        if (Thread.getDefaultUncaughtExceptionHandler() == this) Thread.setDefaultUncaughtExceptionHandler(null);
 
         // log message if non-normal or if we ran shutdown hooks
         boolean log = verbose && (shutdownType != NORMAL || !listeners.isEmpty());
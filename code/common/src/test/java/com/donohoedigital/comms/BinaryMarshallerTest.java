@@ -0,0 +1,268 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.comms;
+
+import com.donohoedigital.base.*;
+import junit.framework.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * BinaryMarshaller and binary DDMessage round trips
+ */
+public class BinaryMarshallerTest extends TestCase
+{
+    private static DMTypedHashMap createMap()
+    {
+        DMTypedHashMap map = new DMTypedHashMap();
+        map.setString("name", "Tournament of Champions é中");
+        map.setString("escaped", "a:b=c~d\\e\"f\ng");
+        map.setString("empty", "");
+        map.setInteger("level", 12);
+        map.setInteger("min", Integer.MIN_VALUE);
+        map.setInteger("max", Integer.MAX_VALUE);
+        map.setInteger("negative", -1);
+        map.setLong("time", System.currentTimeMillis());
+        map.setLong("minlong", Long.MIN_VALUE);
+        map.setBoolean("online", Boolean.TRUE);
+        map.setBoolean("over", Boolean.FALSE);
+        map.setDouble("avg", -1234.5d);
+        map.setObject("version", new Version(3, 1, 0, true));
+        map.put("null", null);
+
+        DMArrayList<Object> list = new DMArrayList<Object>();
+        list.add(1000);
+        list.add(null);
+        list.add("two");
+        list.add(3L);
+        DMArrayList<Integer> inner = new DMArrayList<Integer>();
+        inner.add(1);
+        inner.add(-2);
+        list.add(inner);
+        map.setList("list", list);
+
+        DMTypedHashMap nested = new DMTypedHashMap();
+        nested.setInteger("id", 7);
+        map.setObject("nested", nested);
+        return map;
+    }
+
+    public void testMapRoundTrip()
+    {
+        DMTypedHashMap map = createMap();
+        byte[] data = BinaryMarshaller.marshal(null, map);
+        DataMarshal copy = BinaryMarshaller.demarshal(null, data);
+
+        assertEquals(DMTypedHashMap.class, copy.getClass());
+        assertEquals(map.keySet(), ((DMTypedHashMap) copy).keySet());
+        assertEquals(map.getString("name"), ((DMTypedHashMap) copy).getString("name"));
+        assertEquals(map.getString("escaped"), ((DMTypedHashMap) copy).getString("escaped"));
+        assertEquals(map.getLong("minlong"), ((DMTypedHashMap) copy).getLong("minlong"));
+        assertEquals(map.getList("list"), ((DMTypedHashMap) copy).getList("list"));
+        assertEquals(map.getObject("version").toString(), ((DMTypedHashMap) copy).getObject("version").toString());
+        assertTrue(copy.marshal(null).equals(map.marshal(null)));
+
+        // smaller than text
+        assertTrue(data.length < Utils.encode(DataMarshaller.marshal(map)).length);
+    }
+
+    public void testTokenizedList()
+    {
+        TokenizedList list = new TokenizedList();
+        list.addToken(1);
+        list.addTokenNull();
+        list.addToken("two");
+        list.addToken(-3L);
+        list.addToken(true);
+        list.addToken(4.5d);
+        list.addNameValueToken("nvt", 6);
+
+        DDByteArrayOutputStream out = new DDByteArrayOutputStream();
+        list.write(null, out);
+        TokenizedList copy = new TokenizedList(null, new BinaryMarshaller.Input(out.toByteArray()), 2);
+
+        // only two read so far
+        assertEquals(1, copy.removeIntToken());
+        assertNull(copy.removeToken());
+        assertFalse(copy.hasMoreTokens());
+
+        copy.finishParsing(null);
+        assertEquals("two", copy.removeStringToken());
+        assertEquals(-3L, copy.removeLongToken());
+        assertTrue(copy.removeBooleanToken());
+        assertEquals(4.5d, copy.removeDoubleToken());
+        NameValueToken nvt = copy.removeNameValueToken();
+        assertEquals("nvt", nvt.getName());
+        assertEquals(6, ((DataMarshaller.DMWrapper) nvt.getValue()).value());
+        assertFalse(copy.hasMoreTokens());
+    }
+
+    /**
+     * unregistered subclass is written as text, so its marshal() is honored
+     */
+    public void testSubclass()
+    {
+        DMArrayList<String> list = new DMArrayList<String>()
+        {
+            @Override
+            public String marshal(MsgState state)
+            {
+                return "i1:sone";
+            }
+        };
+
+        DataMarshal copy = BinaryMarshaller.demarshal(null, BinaryMarshaller.marshal(null, list));
+        assertEquals(DMArrayList.class, copy.getClass());
+        assertEquals(Collections.singletonList("one"), copy);
+    }
+
+    public void testTruncated()
+    {
+        byte[] data = BinaryMarshaller.marshal(null, createMap());
+        try
+        {
+            BinaryMarshaller.demarshal(null, Arrays.copyOf(data, data.length / 2));
+            fail("truncated data should fail");
+        }
+        catch (ApplicationError expected)
+        {
+            assertTrue(expected.getException() instanceof EOFException);
+        }
+    }
+
+    public void testMessage() throws IOException
+    {
+        DDMessage.setBinaryVersion(new Version(3, 2, 0, true));
+        try
+        {
+            checkMessage();
+        }
+        finally
+        {
+            DDMessage.setBinaryVersion(null);
+        }
+    }
+
+    private void checkMessage() throws IOException
+    {
+        DDMessage msg = new DDMessage(DDMessage.CAT_TESTING, "chunk one\n\n\n");
+        msg.addData(new byte[] {0, 1, 2});
+        msg.putAll(createMap());
+
+        for (boolean bBinary : new boolean[] {false, true})
+        {
+            msg.setBinary(bBinary);
+            DDByteArrayOutputStream out = new DDByteArrayOutputStream();
+            msg.write(out);
+            assertEquals(bBinary, out.getBuffer()[0] == BinaryMarshaller.BINARY_MARKER);
+
+            DDMessage copy = new DDMessage();
+            copy.read(new ByteArrayInputStream(out.toByteArray()), out.size());
+            assertEquals(DDMessage.CAT_TESTING, copy.getCategory());
+            assertEquals(msg.getCreateTimeStamp(), copy.getCreateTimeStamp());
+            assertEquals(msg.keySet(), copy.keySet());
+            assertEquals(msg.getString("escaped"), copy.getString("escaped"));
+            assertEquals(2, copy.getNumData());
+            assertEquals("chunk one\n\n\n", copy.getDataAsString());
+            assertTrue(Arrays.equals(new byte[] {0, 1, 2}, copy.getDataAt(1)));
+        }
+
+        // marshal() is always text
+        assertTrue(msg.isBinary());
+        assertTrue(msg.marshal(null).charAt(0) != BinaryMarshaller.BINARY_MARKER);
+    }
+
+    public void testBadLength() throws IOException
+    {
+        byte[] huge = {0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        byte[] negative = {0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+
+        // binary not read unless turned on
+        assertBadMessage(huge, huge.length);
+
+        DDMessage.setBinaryVersion(new Version(3, 2, 0, true));
+        try
+        {
+            // longer than the message, or negative
+            assertBadMessage(huge, huge.length);
+            assertBadMessage(negative, negative.length);
+
+            // length unknown - fails when data runs out, without allocating it all up front
+            try
+            {
+                new DDMessage().read(new ByteArrayInputStream(huge), -1);
+                fail("truncated message should fail");
+            }
+            catch (ApplicationError expected)
+            {
+                assertTrue(expected.getException() instanceof EOFException);
+            }
+        }
+        finally
+        {
+            DDMessage.setBinaryVersion(null);
+        }
+    }
+
+    private void assertBadMessage(byte[] data, int nLength) throws IOException
+    {
+        try
+        {
+            new DDMessage().read(new ByteArrayInputStream(data), nLength);
+            fail("bad message should fail");
+        }
+        catch (ApplicationError expected)
+        {
+            assertEquals(ErrorCodes.ERROR_INVALID_MESSAGE, expected.getErrorCode());
+        }
+    }
+
+    public void testBinarySupported()
+    {
+        try
+        {
+            assertFalse(DDMessage.isBinarySupported(new Version(3, 2, 0, true)));
+
+            DDMessage.setBinaryVersion(new Version(3, 2, 0, true));
+            assertFalse(DDMessage.isBinarySupported(null));
+            assertFalse(DDMessage.isBinarySupported(new Version(3, 1, 0, true)));
+            assertTrue(DDMessage.isBinarySupported(new Version(3, 2, 0, true)));
+            assertTrue(DDMessage.isBinarySupported(new Version(4, 0, 0, true)));
+        }
+        finally
+        {
+            DDMessage.setBinaryVersion(null);
+        }
+    }
+}
@@ -47,4 +47,20 @@ public class DataMarshallerTest extends TestCase
     {
         new DataMarshaller();
     }
+
+    /**
+     * unregistered subclass marshals as its registered superclass
+     */
+    public void testSubclass()
+    {
+        DMArrayList<String> list = new DMArrayList<String>()
+        {
+        };
+        list.add("one");
+        list.add("two");
+
+        DataMarshal copy = DataMarshaller.demarshal(DataMarshaller.marshal(list));
+        assertEquals(DMArrayList.class, copy.getClass());
+        assertEquals(list, copy);
+    }
 }
@@ -36,6 +36,7 @@ import com.donohoedigital.base.*;
 
 import java.sql.*;
 import java.text.*;
+import java.util.*;
 
 /**
  * Represents a logical database.
@@ -51,6 +52,7 @@ public class Database
     private String driverFormattedURL_ = null;
     private String username_ = null;
     private String password_ = null;
+    private Map<String, String> params_ = null;
 
     /**
      * Create an uninitialized database.
@@ -154,6 +156,30 @@ public class Database
         password_ = password;
     }
 
+    /**
+     * Set all parameters given to DatabaseManager, for use by subclasses
+     * needing additional settings.
+     *
+     * @param params database parameters
+     */
+    void setParams(Map<String, String> params)
+    {
+        params_ = params;
+    }
+
+    /**
+     * Get a parameter given to DatabaseManager.
+     *
+     * @param paramName parameter name (without <code>settings.database.</code><i>name</i> prefix)
+     * @param defaultValue value if not set
+     * @return the parameter value
+     */
+    protected String getParam(String paramName, String defaultValue)
+    {
+        String value = (params_ == null) ? null : DatabaseManager.getParamValue(name_, paramName, params_);
+        return (value == null) ? defaultValue : value;
+    }
+
     /**
      * Get a connection to the database.  Implementation is driver/data source specific.
      *
@@ -209,6 +235,14 @@ public class Database
         return buffer.toString();
     }
 
+    /**
+     * Release any connections held open by this database (e.g., prior to
+     * shutting the database down).  Default implementation does nothing.
+     */
+    public void closeConnections()
+    {
+    }
+
     /**
      * Execute database-specific startup logic.
      */
@@ -61,6 +61,11 @@ public class DatabaseManager
     public static final String PARAM_USERNAME = "username";
     public static final String PARAM_PASSWORD = "password";
 
+    // PooledDatabase
+    public static final String PARAM_POOL_SIZE = "pool.size";
+    public static final String PARAM_POOL_TIMEOUT = "pool.timeout";
+    public static final String PARAM_STATEMENT_CACHE_SIZE = "statement.cache.size";
+
     private static boolean initialized_ = false;
     private static Map<String, Database> hmDatabases_ = new HashMap<String, Database>();
 
@@ -131,6 +136,7 @@ public class DatabaseManager
         String password = getParamValue(name, PARAM_PASSWORD, htParams);
 
         database.setPassword(password);
+        database.setParams(htParams);
 
         // Initialize the database.
         database.init();
@@ -148,7 +154,7 @@ public class DatabaseManager
      *
      * @return the parameter value, or <code>null</code> if it could not be found
      */
-    private static String getParamValue(String databaseName, String paramName, Map<String, String> htParams)
+    static String getParamValue(String databaseName, String paramName, Map<String, String> htParams)
     {
         // First look up the value using the database name (as in the property configuration).
         String databaseParamName = PROPERTY_PREFIX + databaseName + "." + paramName;
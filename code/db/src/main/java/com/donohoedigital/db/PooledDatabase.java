@@ -0,0 +1,649 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.db;
+
+import com.donohoedigital.base.*;
+import org.apache.log4j.*;
+
+import java.lang.reflect.*;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * A database which keeps a bounded pool of open connections rather than
+ * opening a new one for each call to {@link #getConnection()}.  Connections
+ * handed out are wrappers - calling <code>close()</code> returns the underlying
+ * connection to the pool.  Each pooled connection also keeps an LRU cache of
+ * prepared statements keyed by SQL, so <code>prepareStatement(sql)</code> on a
+ * statement used before skips the parse/plan step.  Closing a cached statement
+ * just clears its parameters.
+ * <p>
+ * Enable by setting the database <code>class</code> parameter to this class.  Optional parameters:
+ * <ul>
+ * <li><code>pool.size</code> - max open connections (default {@value #DEFAULT_POOL_SIZE})</li>
+ * <li><code>pool.timeout</code> - millis to wait for a free connection (default {@value #DEFAULT_POOL_TIMEOUT})</li>
+ * <li><code>statement.cache.size</code> - prepared statements cached per connection,
+ * 0 to disable (default {@value #DEFAULT_STATEMENT_CACHE_SIZE})</li>
+ * </ul>
+ */
+public class PooledDatabase extends Database
+{
+    static Logger logger = Logger.getLogger(PooledDatabase.class);
+
+    public static final int DEFAULT_POOL_SIZE = 4;
+    public static final int DEFAULT_POOL_TIMEOUT = 30000;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+    // settings
+    private int poolSize_ = DEFAULT_POOL_SIZE;
+    private long poolTimeout_ = DEFAULT_POOL_TIMEOUT;
+    private int statementCacheSize_ = DEFAULT_STATEMENT_CACHE_SIZE;
+
+    // pool (guarded by this)
+    private final LinkedList<PooledConnection> idle_ = new LinkedList<PooledConnection>();
+    private int nOpen_ = 0;
+    private int nActive_ = 0;
+    private int generation_ = 0;
+
+    // stats (guarded by this)
+    private long nBorrows_ = 0;
+    private long nWaits_ = 0;
+    private long waitMillisTotal_ = 0;
+    private long waitMillisMax_ = 0;
+    private long nCreated_ = 0;
+    private long nCacheHits_ = 0;
+    private long nCacheMisses_ = 0;
+
+    /**
+     * Create an uninitialized pooled database.
+     *
+     * @param name database name
+     */
+    public PooledDatabase(String name)
+    {
+        super(name);
+    }
+
+    /**
+     * Read pool settings, then initialize as usual.
+     */
+    @Override
+    void init()
+    {
+        poolSize_ = Math.max(1, Integer.parseInt(getParam(DatabaseManager.PARAM_POOL_SIZE,
+                                                          Integer.toString(DEFAULT_POOL_SIZE))));
+        poolTimeout_ = Long.parseLong(getParam(DatabaseManager.PARAM_POOL_TIMEOUT,
+                                               Integer.toString(DEFAULT_POOL_TIMEOUT)));
+        statementCacheSize_ = Math.max(0, Integer.parseInt(getParam(DatabaseManager.PARAM_STATEMENT_CACHE_SIZE,
+                                                                    Integer.toString(DEFAULT_STATEMENT_CACHE_SIZE))));
+        super.init();
+    }
+
+    /**
+     * Get a connection from the pool, opening a new one if none are idle and the pool
+     * is not full, otherwise waiting up to <code>pool.timeout</code> millis for one
+     * to be returned.  Callers must <code>close()</code> the connection when done.
+     *
+     * @return the database connection
+     * @throws ApplicationError if no connection is available in time or one cannot be opened
+     */
+    @Override
+    public Connection getConnection() throws ApplicationError
+    {
+        PooledConnection pooled = borrow();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                   new Class[] {Connection.class},
+                                                   new Lease(pooled));
+    }
+
+    /**
+     * Take a connection from the pool
+     */
+    private PooledConnection borrow()
+    {
+        long start = System.currentTimeMillis();
+        boolean bWaited = false;
+        int generation;
+
+        synchronized (this)
+        {
+            nBorrows_++;
+            while (true)
+            {
+                // reuse idle connection, discarding any the driver has closed
+                while (!idle_.isEmpty())
+                {
+                    PooledConnection pooled = idle_.removeFirst();
+                    if (pooled.isValid())
+                    {
+                        nActive_++;
+                        recordWait(start, bWaited);
+                        return pooled;
+                    }
+                    nOpen_--;
+                    pooled.closeQuietly();
+                }
+
+                // room for a new one - open it outside the lock
+                if (nOpen_ < poolSize_)
+                {
+                    nOpen_++;
+                    nActive_++;
+                    generation = generation_;
+                    recordWait(start, bWaited);
+                    break;
+                }
+
+                // wait for one to be returned
+                long remaining = poolTimeout_ - (System.currentTimeMillis() - start);
+                if (remaining <= 0)
+                {
+                    throw new ApplicationError(ErrorCodes.ERROR_UNEXPECTED_EXCEPTION,
+                                               "Timed out after " + poolTimeout_ + " millis waiting for connection",
+                                               toString(), null);
+                }
+                bWaited = true;
+                try
+                {
+                    wait(remaining);
+                }
+                catch (InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new ApplicationError(ie);
+                }
+            }
+        }
+
+        try
+        {
+            Connection conn = super.getConnection();
+            synchronized (this)
+            {
+                nCreated_++;
+            }
+            return new PooledConnection(conn, generation);
+        }
+        catch (RuntimeException e)
+        {
+            synchronized (this)
+            {
+                nOpen_--;
+                nActive_--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * record wait stats (called while synchronized)
+     */
+    private void recordWait(long start, boolean bWaited)
+    {
+        if (!bWaited) return;
+        long wait = System.currentTimeMillis() - start;
+        nWaits_++;
+        waitMillisTotal_ += wait;
+        if (wait > waitMillisMax_) waitMillisMax_ = wait;
+    }
+
+    /**
+     * Return a connection to the pool.  It is reset first; if that fails
+     * or it predates the last closeConnections(), it is closed instead.
+     */
+    private void release(PooledConnection pooled)
+    {
+        boolean bKeep = pooled.reset();
+
+        synchronized (this)
+        {
+            nActive_--;
+            if (bKeep && pooled.generation == generation_)
+            {
+                idle_.addFirst(pooled);
+            }
+            else
+            {
+                nOpen_--;
+                bKeep = false;
+            }
+            notifyAll();
+        }
+
+        if (!bKeep) pooled.closeQuietly();
+    }
+
+    /**
+     * Close all idle connections.  Connections currently in use are closed
+     * when they are returned.
+     */
+    @Override
+    public void closeConnections()
+    {
+        List<PooledConnection> close;
+        synchronized (this)
+        {
+            generation_++;
+            close = new ArrayList<PooledConnection>(idle_);
+            nOpen_ -= idle_.size();
+            idle_.clear();
+            notifyAll();
+        }
+
+        for (PooledConnection pooled : close)
+        {
+            pooled.closeQuietly();
+        }
+
+        if (logger.isInfoEnabled()) logger.info("Closed connections: " + toString());
+    }
+
+    ////
+    //// stats
+    ////
+
+    public synchronized int getPoolSize()
+    {
+        return poolSize_;
+    }
+
+    public synchronized int getNumOpen()
+    {
+        return nOpen_;
+    }
+
+    public synchronized int getNumActive()
+    {
+        return nActive_;
+    }
+
+    public synchronized int getNumIdle()
+    {
+        return idle_.size();
+    }
+
+    public synchronized long getNumBorrows()
+    {
+        return nBorrows_;
+    }
+
+    public synchronized long getNumCreated()
+    {
+        return nCreated_;
+    }
+
+    /**
+     * Number of borrows which had to wait for a connection to be returned
+     */
+    public synchronized long getNumWaits()
+    {
+        return nWaits_;
+    }
+
+    public synchronized long getWaitMillisTotal()
+    {
+        return waitMillisTotal_;
+    }
+
+    public synchronized long getWaitMillisMax()
+    {
+        return waitMillisMax_;
+    }
+
+    public synchronized long getStatementCacheHits()
+    {
+        return nCacheHits_;
+    }
+
+    public synchronized long getStatementCacheMisses()
+    {
+        return nCacheMisses_;
+    }
+
+    /**
+     * Statement cache hit rate, 0 to 1
+     */
+    public synchronized double getStatementCacheHitRate()
+    {
+        long total = nCacheHits_ + nCacheMisses_;
+        return total == 0 ? 0.0d : (double) nCacheHits_ / total;
+    }
+
+    private synchronized void recordCache(boolean bHit)
+    {
+        if (bHit) nCacheHits_++;
+        else nCacheMisses_++;
+    }
+
+    /**
+     * Returns a string representation of the object, including pool stats.
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return super.toString() +
+               ", pool=" + poolSize_ +
+               ", open=" + nOpen_ +
+               ", active=" + nActive_ +
+               ", idle=" + idle_.size() +
+               ", borrows=" + nBorrows_ +
+               ", created=" + nCreated_ +
+               ", waits=" + nWaits_ +
+               ", waitTotal=" + waitMillisTotal_ +
+               ", waitMax=" + waitMillisMax_ +
+               ", stmtHits=" + nCacheHits_ +
+               ", stmtMisses=" + nCacheMisses_ +
+               ", stmtHitRate=" + Math.round(getStatementCacheHitRate() * 100) + "%";
+    }
+
+    ////
+    //// implementation
+    ////
+
+    /**
+     * A real connection owned by the pool, plus its statement cache
+     */
+    private class PooledConnection
+    {
+        private final Connection conn;
+        private final int generation;
+        private final Map<String, PreparedStatement> cache;
+        private final List<Statement> open = new ArrayList<Statement>();
+        private final Set<PreparedStatement> inUse = new HashSet<PreparedStatement>();
+
+        PooledConnection(Connection conn, int generation)
+        {
+            this.conn = conn;
+            this.generation = generation;
+            cache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest)
+                {
+                    if (size() <= statementCacheSize_) return false;
+
+                    // if still in use, close when released
+                    PreparedStatement ps = eldest.getValue();
+                    if (inUse.remove(ps)) open.add(ps);
+                    else closeQuietly(ps);
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * Get cached prepared statement, preparing (and caching) if not there.
+         * If the cached statement is already in use by this borrower (same SQL
+         * prepared twice without closing), an uncached one is returned.
+         *
+         * @return statement, or null if an uncached one was tracked instead (returned via track())
+         */
+        PreparedStatement prepare(String sql) throws SQLException
+        {
+            PreparedStatement ps = cache.get(sql);
+            recordCache(ps != null);
+            if (ps == null)
+            {
+                ps = conn.prepareStatement(sql);
+                cache.put(sql, ps);
+            }
+            else if (inUse.contains(ps))
+            {
+                return null;
+            }
+            inUse.add(ps);
+            return ps;
+        }
+
+        /**
+         * Cached statement closed by borrower
+         */
+        void done(PreparedStatement ps)
+        {
+            inUse.remove(ps);
+        }
+
+        /**
+         * Remember an uncached statement so it is closed when the connection is released
+         */
+        <T extends Statement> T track(T stmt)
+        {
+            open.add(stmt);
+            return stmt;
+        }
+
+        /**
+         * Is the connection still usable?
+         */
+        boolean isValid()
+        {
+            try
+            {
+                return !conn.isClosed();
+            }
+            catch (SQLException e)
+            {
+                return false;
+            }
+        }
+
+        /**
+         * Reset for the next borrower: close uncached statements, roll back
+         * anything uncommitted and restore auto-commit.
+         *
+         * @return false if the connection should be discarded
+         */
+        boolean reset()
+        {
+            for (Statement stmt : open)
+            {
+                closeQuietly(stmt);
+            }
+            open.clear();
+
+            // borrower may have left cached statements unclosed
+            for (PreparedStatement ps : inUse)
+            {
+                try
+                {
+                    ps.clearParameters();
+                    ps.clearBatch();
+                }
+                catch (SQLException e)
+                {
+                    return false;
+                }
+            }
+            inUse.clear();
+
+            try
+            {
+                if (conn.isClosed()) return false;
+                if (!conn.getAutoCommit())
+                {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+                conn.clearWarnings();
+                return true;
+            }
+            catch (SQLException e)
+            {
+                logger.warn("Discarding connection after reset failed: " + Utils.formatExceptionText(e));
+                return false;
+            }
+        }
+
+        void closeQuietly()
+        {
+            for (PreparedStatement ps : cache.values())
+            {
+                closeQuietly(ps);
+            }
+            cache.clear();
+            try
+            {
+                conn.close();
+            }
+            catch (SQLException ignored)
+            {
+            }
+        }
+
+        private void closeQuietly(Statement stmt)
+        {
+            try
+            {
+                stmt.close();
+            }
+            catch (SQLException ignored)
+            {
+            }
+        }
+    }
+
+    /**
+     * Connection handed out by getConnection(); valid until closed
+     */
+    private class Lease implements InvocationHandler
+    {
+        private PooledConnection pooled_;
+
+        Lease(PooledConnection pooled)
+        {
+            pooled_ = pooled;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            int nArgs = (args == null) ? 0 : args.length;
+
+            if (name.equals("close") && nArgs == 0)
+            {
+                if (pooled_ != null)
+                {
+                    PooledConnection pooled = pooled_;
+                    pooled_ = null;
+                    release(pooled);
+                }
+                return null;
+            }
+            if (name.equals("isClosed") && nArgs == 0)
+            {
+                return pooled_ == null || !pooled_.isValid();
+            }
+            if (name.equals("equals") && nArgs == 1) return proxy == args[0];
+            if (name.equals("hashCode") && nArgs == 0) return System.identityHashCode(proxy);
+            if (name.equals("toString") && nArgs == 0) return "PooledConnection[" + getName() + "]";
+
+            if (pooled_ == null) throw new SQLException("Connection is closed");
+
+            if (name.equals("prepareStatement") && nArgs == 1 && statementCacheSize_ > 0)
+            {
+                PreparedStatement ps = pooled_.prepare((String) args[0]);
+                if (ps != null)
+                {
+                    return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                                  new Class[] {PreparedStatement.class},
+                                                  new CachedStatement(pooled_, ps, (Connection) proxy));
+                }
+            }
+
+            Object result = delegate(pooled_.conn, method, args);
+            if (result instanceof Statement)
+            {
+                pooled_.track((Statement) result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Cached statement handed out by prepareStatement(sql); close() leaves it open for reuse
+     */
+    private static class CachedStatement implements InvocationHandler
+    {
+        private PooledConnection pooled_;
+        private final PreparedStatement ps_;
+        private final Connection conn_;
+
+        CachedStatement(PooledConnection pooled, PreparedStatement ps, Connection conn)
+        {
+            pooled_ = pooled;
+            ps_ = ps;
+            conn_ = conn;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            int nArgs = (args == null) ? 0 : args.length;
+
+            if (name.equals("close") && nArgs == 0)
+            {
+                if (pooled_ != null)
+                {
+                    ps_.clearParameters();
+                    ps_.clearBatch();
+                    pooled_.done(ps_);
+                    pooled_ = null;
+                }
+                return null;
+            }
+            if (name.equals("isClosed") && nArgs == 0) return pooled_ == null;
+            if (name.equals("getConnection") && nArgs == 0) return conn_;
+            if (name.equals("equals") && nArgs == 1) return proxy == args[0];
+            if (name.equals("hashCode") && nArgs == 0) return System.identityHashCode(proxy);
+
+            if (pooled_ == null) throw new SQLException("Statement is closed");
+            return delegate(ps_, method, args);
+        }
+    }
+
+    /**
+     * invoke method on target, unwrapping the reflection exception
+     */
+    private static Object delegate(Object target, Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+}
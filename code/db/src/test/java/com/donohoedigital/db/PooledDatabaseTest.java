@@ -0,0 +1,228 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.db;
+
+import com.donohoedigital.base.*;
+import junit.framework.*;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Tests for PooledDatabase, using an in-memory hsqldb database.
+ */
+public class PooledDatabaseTest extends TestCase
+{
+    private static int seq_ = 0;
+
+    private PooledDatabase create(int poolSize, int timeout, int cacheSize)
+    {
+        String name = "pooltest" + (seq_++);
+        Map<String, String> params = new HashMap<String, String>();
+        params.put(DatabaseManager.PARAM_CLASS, PooledDatabase.class.getName());
+        params.put(DatabaseManager.PARAM_DRIVER_CLASS, "org.hsqldb.jdbcDriver");
+        params.put(DatabaseManager.PARAM_DRIVER_URL, "jdbc:hsqldb:mem:" + name);
+        params.put(DatabaseManager.PARAM_USERNAME, "sa");
+        params.put(DatabaseManager.PARAM_PASSWORD, "");
+        params.put(DatabaseManager.PARAM_POOL_SIZE, Integer.toString(poolSize));
+        params.put(DatabaseManager.PARAM_POOL_TIMEOUT, Integer.toString(timeout));
+        params.put(DatabaseManager.PARAM_STATEMENT_CACHE_SIZE, Integer.toString(cacheSize));
+        DatabaseManager.addDatabase(name, params);
+        return (PooledDatabase) DatabaseManager.getDatabase(name);
+    }
+
+    public void testReuse() throws SQLException
+    {
+        PooledDatabase db = create(2, 1000, 8);
+
+        for (int i = 0; i < 5; i++)
+        {
+            Connection conn = db.getConnection();
+            assertEquals(1, db.getNumActive());
+            conn.close();
+            assertTrue(conn.isClosed());
+            conn.close(); // second close is a no-op
+        }
+
+        assertEquals(5, db.getNumBorrows());
+        assertEquals(1, db.getNumCreated());
+        assertEquals(1, db.getNumIdle());
+        assertEquals(0, db.getNumActive());
+    }
+
+    public void testStatementCache() throws SQLException
+    {
+        PooledDatabase db = create(1, 1000, 2);
+
+        Connection conn = db.getConnection();
+        conn.createStatement().executeUpdate("CREATE TABLE T (ID INTEGER, NAME VARCHAR(16))");
+        conn.close();
+
+        for (int i = 0; i < 10; i++)
+        {
+            conn = db.getConnection();
+            PreparedStatement ps = conn.prepareStatement("INSERT INTO T VALUES (?, ?)");
+            ps.setInt(1, i);
+            ps.setString(2, "n" + i);
+            assertEquals(1, ps.executeUpdate());
+            assertSame(conn, ps.getConnection());
+            ps.close();
+            conn.close();
+        }
+
+        assertEquals(1, db.getStatementCacheMisses());
+        assertEquals(9, db.getStatementCacheHits());
+
+        // same sql prepared twice while first still open gets a separate statement
+        conn = db.getConnection();
+        PreparedStatement ps1 = conn.prepareStatement("SELECT NAME FROM T WHERE ID = ?");
+        PreparedStatement ps2 = conn.prepareStatement("SELECT NAME FROM T WHERE ID = ?");
+        ps1.setInt(1, 3);
+        ps2.setInt(1, 4);
+        ResultSet rs1 = ps1.executeQuery();
+        ResultSet rs2 = ps2.executeQuery();
+        assertTrue(rs1.next());
+        assertTrue(rs2.next());
+        assertEquals("n3", rs1.getString(1));
+        assertEquals("n4", rs2.getString(1));
+        ps1.close();
+        ps2.close();
+
+        // closed statement can't be used
+        try
+        {
+            ps1.executeQuery();
+            fail("closed statement used");
+        }
+        catch (SQLException expected)
+        {
+        }
+        conn.close();
+
+        // exceed cache size (2) to force eviction, then verify counts still right
+        conn = db.getConnection();
+        for (int i = 0; i < 3; i++)
+        {
+            PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM T WHERE ID > " + i);
+            ResultSet rs = ps.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(9 - i, rs.getInt(1));
+            ps.close();
+        }
+        conn.close();
+    }
+
+    public void testResetOnRelease() throws SQLException
+    {
+        PooledDatabase db = create(1, 1000, 8);
+
+        Connection conn = db.getConnection();
+        conn.createStatement().executeUpdate("CREATE TABLE R (ID INTEGER)");
+        conn.setAutoCommit(false);
+        conn.createStatement().executeUpdate("INSERT INTO R VALUES (1)");
+        conn.close(); // uncommitted - rolled back
+
+        conn = db.getConnection();
+        assertTrue(conn.getAutoCommit());
+        ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM R");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+        conn.close();
+
+        try
+        {
+            conn.createStatement();
+            fail("closed connection used");
+        }
+        catch (SQLException expected)
+        {
+        }
+    }
+
+    public void testBounded() throws Exception
+    {
+        final PooledDatabase db = create(2, 200, 8);
+
+        Connection c1 = db.getConnection();
+        Connection c2 = db.getConnection();
+        assertEquals(2, db.getNumOpen());
+
+        // pool exhausted - times out
+        try
+        {
+            db.getConnection();
+            fail("pool not bounded");
+        }
+        catch (ApplicationError expected)
+        {
+        }
+
+        // waiter gets connection when one is returned
+        final Connection[] got = new Connection[1];
+        Thread t = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                got[0] = db.getConnection();
+            }
+        };
+        t.start();
+        Thread.sleep(50);
+        c1.close();
+        t.join(1000);
+        assertNotNull(got[0]);
+        assertEquals(2, db.getNumOpen());
+        assertTrue(db.getNumWaits() >= 1);
+
+        got[0].close();
+        c2.close();
+        assertEquals(2, db.getNumIdle());
+
+        db.closeConnections();
+        assertEquals(0, db.getNumOpen());
+        assertEquals(0, db.getNumIdle());
+    }
+
+    public void testCloseWhileActive() throws SQLException
+    {
+        PooledDatabase db = create(2, 1000, 8);
+
+        Connection conn = db.getConnection();
+        db.closeConnections();
+        assertEquals(1, db.getNumOpen());
+        conn.close();
+        assertEquals(0, db.getNumOpen());
+        assertEquals(0, db.getNumIdle());
+    }
+}
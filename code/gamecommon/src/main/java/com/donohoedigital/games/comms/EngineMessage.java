@@ -189,6 +189,8 @@ public class EngineMessage extends DDMessage
     public static final String PARAM_WAIT_ADD_PER = "waitaddper";
     public static final String PARAM_WAIT_MAX = "waitmax";
     public static final String PARAM_WAIT_ERROR = "waiterror";
+    public static final String PARAM_POLL_WAIT = "pollwait";    // long-poll: seconds server may hold poll (on reply, max server allows)
+    public static final String PARAM_POLL_ACTION = "pollact";   // long-poll: fingerprint of action in last reply (client echoes it back)
 
     public static final String PARAM_IP = "ipaddr";             // IP address return for P2P
 
@@ -399,6 +399,55 @@ public class GameState extends MsgState implements SaveFile
     } 
 
     
+    /**
+     * Write in binary (see BinaryMarshaller) to the given stream.  Used for
+     * online messages to clients that support it; save files remain text.
+     * Each entry is preceded by its length so it can be parsed lazily on read.
+     */
+    public void write(DDByteArrayOutputStream out)
+    {
+        out.write(BinaryMarshaller.BINARY_MARKER);
+        DDByteArrayOutputStream entryOut = new DDByteArrayOutputStream(256);
+        for (GameStateEntry entry : entries_)
+        {
+            entry.write(this, entryOut);
+            BinaryMarshaller.writeVarInt(out, entryOut.size());
+            out.write(entryOut.getBuffer(), 0, entryOut.size());
+            entryOut.reset();
+        }
+    }
+
+    /**
+     * Encode a single entry as write(Writer) would at the given index,
+     * including the trailing newline.  Used when one save is sent to
+     * several recipients and only some entries differ between them.
+     */
+    public String encodeEntryText(int nIndex, GameStateEntry entry)
+    {
+        try {
+            StringWriter writer = new StringWriter();
+            entry.write(this, writer);
+            Hide.obfuscate(writer.getBuffer(), nIndex);
+            writer.write(ENTRY_ENDLINE);
+            return writer.toString();
+        }
+        catch (IOException ioe)
+        {
+            throw new ApplicationError(ioe);
+        }
+    }
+
+    /**
+     * Encode a single entry in binary, as written (after its length)
+     * by write(DDByteArrayOutputStream)
+     */
+    public byte[] encodeEntryBinary(GameStateEntry entry)
+    {
+        DDByteArrayOutputStream out = new DDByteArrayOutputStream(256);
+        entry.write(this, out);
+        return out.toByteArray();
+    }
+
     /**
      * Read data in from file associated with this game state
      */
@@ -409,6 +458,11 @@ public class GameState extends MsgState implements SaveFile
         {
             reader = ConfigUtils.getReader(file_);
         }
+        else if (savedata_ != null && savedata_.length > 0 && savedata_[0] == BinaryMarshaller.BINARY_MARKER)
+        {
+            read(bFull, new BinaryMarshaller.Input(savedata_, 1, savedata_.length - 1));
+            return;
+        }
         else if (savedata_ != null)
         {
             //logger.debug("Reading data: ");
@@ -440,22 +494,7 @@ public class GameState extends MsgState implements SaveFile
                 sbLine.append(sLine);
                 Hide.deobfuscate(sbLine, nEntry);
                 entry = new GameStateEntry(this, sbLine.toString());
-
-                // take 1st entry and fill in game name and description
-                if (nEntry == 0)
-                {
-                    entry.finishParsing(this);
-                    initFromGameStateEntry(entry);
-                }
-                else if (nEntry == 1)
-                {
-                    entry.finishParsing(this);
-                    initClassIdsFromTokenizedList(entry);
-                }
-                else
-                {
-                    addEntry(entry);
-                }
+                initFromReadEntry(entry, nEntry);
 
                 if (!bFull)
                 {
@@ -473,6 +512,49 @@ public class GameState extends MsgState implements SaveFile
         }
     }
     
+    /**
+     * read binary data written by write(DDByteArrayOutputStream).  If bFull
+     * is false, only the first entry is read.
+     */
+    private void read(boolean bFull, BinaryMarshaller.Input in)
+    {
+        int nEntry = -1;
+        GameStateEntry entry;
+        while (in.hasMore())
+        {
+            nEntry++;
+            entry = new GameStateEntry(this, in.slice(BinaryMarshaller.readVarInt(in)));
+            initFromReadEntry(entry, nEntry);
+
+            if (!bFull)
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Handle entry just read.  First entry has game name and description,
+     * second has class ids, rest are added to our list.
+     */
+    private void initFromReadEntry(GameStateEntry entry, int nEntry)
+    {
+        if (nEntry == 0)
+        {
+            entry.finishParsing(this);
+            initFromGameStateEntry(entry);
+        }
+        else if (nEntry == 1)
+        {
+            entry.finishParsing(this);
+            initClassIdsFromTokenizedList(entry);
+        }
+        else
+        {
+            addEntry(entry);
+        }
+    }
+
     /**
      * Ask each game state entry to finish parsing.  Called
      * after read is done (and all Object ids are known)
@@ -549,6 +631,31 @@ public class GameState extends MsgState implements SaveFile
         return entries_.remove(0);
     }
     
+    /**
+     * Number of entries
+     */
+    public int getNumEntries()
+    {
+        return entries_.size();
+    }
+
+    /**
+     * Get entry at given index
+     */
+    public GameStateEntry getEntry(int nIndex)
+    {
+        return entries_.get(nIndex);
+    }
+
+    /**
+     * Remove the entry at the end of the list
+     */
+    public GameStateEntry removeLastEntry()
+    {
+        ApplicationError.assertTrue(entries_.size() > 0, "No more entries");
+        return entries_.remove(entries_.size() - 1);
+    }
+
     /**
      * Get entry at top of list w/out removing it
      */
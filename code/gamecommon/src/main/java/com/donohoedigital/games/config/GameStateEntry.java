@@ -92,6 +92,17 @@ public class GameStateEntry extends TokenizedList
         super(state, sData, 2); // only load two tokens
         initAfterRead(state);
     }
+
+    /**
+     * Create a new instance of GameStateEntry from binary data,
+     * previously generated with write(MsgState, DDByteArrayOutputStream).
+     * Like the String version, only the id/classname are parsed here.
+     */
+    public GameStateEntry(MsgState state, BinaryMarshaller.Input in)
+    {
+        super(state, in, 2); // only load two tokens
+        initAfterRead(state);
+    }
     
     /**
      * Init the entry after it was loaded via read
@@ -182,6 +193,24 @@ public class GameStateEntry extends TokenizedList
         super.read(state, tokenizer, nReadNumTokens);
     }
 
+    /**
+     * Write this list in binary
+     */
+    public void write(MsgState state, DDByteArrayOutputStream out)
+    {
+        out.write(cType_);
+        super.write(state, out);
+    }
+
+    /**
+     * Init this list from binary data (opposite of write)
+     */
+    public void read(MsgState state, BinaryMarshaller.Input in, int nReadNumTokens)
+    {
+        cType_ = (char) (in.readByte() & 0xFF);
+        super.read(state, in, nReadNumTokens);
+    }
+
     /**
      * Recreate list from string
      */
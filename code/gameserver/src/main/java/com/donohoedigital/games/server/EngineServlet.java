@@ -80,6 +80,8 @@ public abstract class EngineServlet extends BaseServlet
     protected DDPostalService postalService;
 
     private ActionHandler handler_;
+    private ServerSideGameCache gameCache_;
+    private LongPollManager longPolls_;
     private Version version_;
     private File messageFile;
     private File upgradeFile;
@@ -93,6 +95,23 @@ public abstract class EngineServlet extends BaseServlet
         super.afterConfigInit();
 
         // init various engine stuff
+        initEngine();
+        postalService.addErrorHandler(ConfigManager.getAppName(), new EngineMailErrorHandler(this));
+
+        // message location
+        File dir = new File(ConfigManager.getServerHome(), "messages");
+        ApplicationError.assertTrue(dir.exists() && dir.isDirectory(), "Messages dir missing", dir);
+        messageFile = new File(dir, ConfigManager.getAppName() + ".html");
+        ApplicationError.assertTrue(messageFile.exists() && messageFile.isFile(), "Messages file missing", messageFile);
+        upgradeFile = new File(dir, ConfigManager.getAppName() + "-upgrade.html");
+        ApplicationError.assertTrue(upgradeFile.exists() && upgradeFile.isFile(), "Upgrade file missing", upgradeFile);
+    }
+
+    /**
+     * Init version, action handler, game cache and long polls (also used by tests)
+     */
+    void initEngine()
+    {
         version_ = getLatestVersion();
         DDMessage.setDefaultVersion(version_);
         handler_ = getActionHandler();
@@ -101,16 +120,46 @@ public abstract class EngineServlet extends BaseServlet
         if (handler_ != null)
         {
             handler_.init();
+
+            // keep games in memory (size 0 means load from disk for each request)
+            int nCacheSize = PropertyConfig.getIntegerProperty("settings.server.gamecache.size", 500);
+            if (nCacheSize > 0)
+            {
+                gameCache_ = new ServerSideGameCache(nCacheSize,
+                                                     PropertyConfig.getIntegerProperty("settings.server.gamecache.flush.millis", 5000),
+                                                     PropertyConfig.getIntegerProperty("settings.server.status.log.seconds", 3600) * 1000L);
+            }
+
+            // hold polls until there is something to return (max 0 means clients poll on a timer)
+            int nMaxWaiting = PropertyConfig.getIntegerProperty("settings.server.longpoll.max", 1000);
+            if (nMaxWaiting > 0)
+            {
+                longPolls_ = new LongPollManager(this, nMaxWaiting,
+                                                 PropertyConfig.getIntegerProperty("settings.server.longpoll.seconds", 60),
+                                                 PropertyConfig.getIntegerProperty("settings.server.longpoll.threads", 4),
+                                                 PropertyConfig.getIntegerProperty("settings.server.status.log.seconds", 3600) * 1000L);
+            }
         }
-        postalService.addErrorHandler(ConfigManager.getAppName(), new EngineMailErrorHandler(this));
+    }
 
-        // message location
-        File dir = new File(ConfigManager.getServerHome(), "messages");
-        ApplicationError.assertTrue(dir.exists() && dir.isDirectory(), "Messages dir missing", dir);
-        messageFile = new File(dir, ConfigManager.getAppName() + ".html");
-        ApplicationError.assertTrue(messageFile.exists() && messageFile.isFile(), "Messages file missing", messageFile);
-        upgradeFile = new File(dir, ConfigManager.getAppName() + "-upgrade.html");
-        ApplicationError.assertTrue(upgradeFile.exists() && upgradeFile.isFile(), "Upgrade file missing", upgradeFile);
+    /**
+     * Responses only need to be suspendable if polls are held
+     */
+    @Override
+    public boolean isSuspendSupported()
+    {
+        return longPolls_ != null;
+    }
+
+    /**
+     * Answer waiting polls, write out cached games
+     */
+    @Override
+    public void destroy()
+    {
+        if (longPolls_ != null) longPolls_.stop();
+        if (gameCache_ != null) gameCache_.stop();
+        super.destroy();
     }
 
     /**
@@ -478,6 +527,7 @@ public abstract class EngineServlet extends BaseServlet
                                                      EngineMessage received) throws IOException
     {
         DDByteArrayOutputStream retdata;
+        boolean bParked = false;
 
         // get an object unique to the game to prevent multiple requests accessing
         // game at the same time.
@@ -492,8 +542,25 @@ public abstract class EngineServlet extends BaseServlet
                 // load game
                 try
                 {
-                    ServerSideGame game = ServerSideGame.loadServerSideGame(received, handler_);
-                    ret = processExistingGameMessageLocked(game, received);
+                    ServerSideGame game = loadGame(sGameID);
+                    boolean bProcessed = false;
+                    try
+                    {
+                        ret = processExistingGameMessageLocked(game, received);
+                        bProcessed = true;
+
+                        // long-poll - nothing new, so hold response until there is
+                        bParked = parkPoll(game, response, received, ret);
+                    }
+                    finally
+                    {
+                        if (gameCache_ != null)
+                        {
+                            // on error, write what was saved and reload next time
+                            if (bProcessed) gameCache_.release(game);
+                            else gameCache_.discard(game);
+                        }
+                    }
                 }
                 catch (ApplicationError ae)
                 {
@@ -523,7 +590,11 @@ public abstract class EngineServlet extends BaseServlet
                 // need to write out message now (while game is locked)
                 // so we can return the data when game is not locked
                 retdata = new DDByteArrayOutputStream();
-                ret.write(retdata);
+                if (!bParked && ret != null)
+                {
+                    ret.setBinary(DDMessage.isBinarySupported(received.getVersion()));
+                    ret.write(retdata);
+                }
             }
         }
         // in finally block so this is always done
@@ -533,7 +604,7 @@ public abstract class EngineServlet extends BaseServlet
         }
 
         // we process the message here using retdata
-        if (response != null)
+        if (response != null && !bParked)
         {
             returnMessage(response, retdata);
         }
@@ -542,6 +613,75 @@ public abstract class EngineServlet extends BaseServlet
         return null;
     }
 
+    /**
+     * If the client asked to wait for updates and the given reply to its poll
+     * has nothing new, hold the poll (see LongPollManager) and return true.
+     * Polls carrying messages are answered right away, so those messages are
+     * never processed twice.
+     */
+    private boolean parkPoll(ServerSideGame game, HttpServletResponse response, EngineMessage received, EngineMessage ret)
+    {
+        if (longPolls_ == null || received.getCategory() != EngineMessage.CAT_POLL_UPDATES) return false;
+        if (!(response instanceof GameServletResponse) || !((GameServletResponse) response).isSuspendSupported()) return false;
+
+        Integer nWait = received.getInteger(EngineMessage.PARAM_POLL_WAIT);
+        if (nWait == null || nWait <= 0 || received.getNumData() > 0) return false;
+        if (ret == null || ret.getCategory() != EngineMessage.CAT_COMPOSITE_MESSAGE) return false;
+
+        // action changed since client's last reply
+        Integer action = ret.getInteger(EngineMessage.PARAM_POLL_ACTION);
+        Integer seen = received.getInteger(EngineMessage.PARAM_POLL_ACTION);
+        if (action == null ? seen != null : !action.equals(seen)) return false;
+
+        // messages not yet received (getClientUpdate() removed those already seen)
+        DMArrayList<Integer> ids = (DMArrayList<Integer>) received.getList(EngineMessage.PARAM_PLAYER_IDS);
+        for (Integer id : ids)
+        {
+            if (game.getPlayerQueue(id).getNumMessages() > 0) return false;
+        }
+
+        return longPolls_.park(game.getGameID(), ids, (GameServletResponse) response, received, nWait);
+    }
+
+    /**
+     * Answer a poll held by LongPollManager (called without game lock, from its threads)
+     */
+    void answerPoll(GameServletResponse response, EngineMessage received)
+    {
+        // answer now
+        received.remove(EngineMessage.PARAM_POLL_WAIT);
+        try
+        {
+            processExistingGameMessage(response, received);
+        }
+        catch (Throwable t)
+        {
+            logger.warn("Error answering poll " + received.getDebugInfo() + ": " + Utils.formatExceptionText(t));
+        }
+        finally
+        {
+            response.resume();
+        }
+    }
+
+    /**
+     * Answer polls waiting for the given players (null for all players) in the given game.
+     * Caller must hold game lock.
+     */
+    private void wakePolls(ServerSideGame game, List<Integer> ids)
+    {
+        if (longPolls_ != null) longPolls_.wake(game.getGameID(), ids);
+    }
+
+    /**
+     * Get game from cache or disk (caller must have game lock)
+     */
+    private ServerSideGame loadGame(String sGameID)
+    {
+        if (gameCache_ != null) return gameCache_.get(sGameID, handler_);
+        return ServerSideGame.loadServerSideGame(sGameID, handler_);
+    }
+
     /**
      * Assume game lock exists, used to re-enter this method w/out reacquiring lock
      */
@@ -648,7 +788,6 @@ public abstract class EngineServlet extends BaseServlet
                     ApplicationError.assertNotNull(toIDs, "No ids to send message to");
                     received.setCreateTimeStamp(); // update to server time
                     nNum = toIDs.size();
-                    File file;
                     long lasttime;
                     for (int i = 0; i < nNum; i++)
                     {
@@ -659,18 +798,18 @@ public abstract class EngineServlet extends BaseServlet
                         // WAR PATCH 2 
                         // preserve last modified time stamp so
                         // "last online" in client is correct
-                        file = queue.getFile();
-                        lasttime = file.lastModified();
+                        lasttime = queue.getLastAccess();
                         queue.save();
-                        //noinspection ResultOfMethodCallIgnored
-                        file.setLastModified(lasttime);
+                        queue.setLastAccess(lasttime);
                     }
+                    wakePolls(game, toIDs);
                     break;
 
                 case EngineMessage.CAT_ACTION_DONE:
                     ret = verifyPassword(game, received);
                     if (ret != null) break;
                     game.processActionDone(received);
+                    wakePolls(game, null);
                     bSaveGame = true;
                     break;
 
@@ -678,6 +817,7 @@ public abstract class EngineServlet extends BaseServlet
                     ret = verifyPassword(game, received);
                     if (ret != null) break;
                     game.processActionRequest(received);
+                    wakePolls(game, null);
                     bSaveGame = true;
                     break;
 
@@ -685,6 +825,7 @@ public abstract class EngineServlet extends BaseServlet
                     ret = verifyPassword(game, received, true);
                     if (ret != null) break;
                     game.processPlayerUpdate(received);
+                    wakePolls(game, null);
                     bSaveGame = true;
                     break;
 
@@ -843,9 +984,12 @@ public abstract class EngineServlet extends BaseServlet
         ApplicationError.assertNotNull(stamps, "Timestamp list null");
         ApplicationError.assertTrue(stamps.size() == nNum, "Timestamp list not same size as id list");
 
-        // create list of player queue files for each id (player) the client is
+        // create the message
+        EngineMessage ret = new EngineMessage(game.getGameID(), EngineMessage.PLAYER_SERVER,
+                                              EngineMessage.CAT_COMPOSITE_MESSAGE);
+
+        // add player queue contents for each id (player) the client is
         // representing.  Remove messages already received
-        File[] files = new File[nNum];
         int id;
         long timestamp;
         PlayerQueue queue;
@@ -854,26 +998,27 @@ public abstract class EngineServlet extends BaseServlet
             id = ids.get(i);
             timestamp = stamps.get(i);
             queue = game.getPlayerQueue(id);
-            queue.removeMessagesUpTo(timestamp);
-            queue.save();
-            files[i] = queue.getFile();
-
-            // WAR PATCH 2 - this should not be needed
-            // since the file was saved above
-            // BUG 42 - player polled, update timestamp
-            // files[i].setLastModified(System.currentTimeMillis());
+
+            // BUG 42 - player polled, update timestamp (saving does so too)
+            if (queue.removeMessagesUpTo(timestamp))
+            {
+                queue.save();
+            }
+            else
+            {
+                queue.setLastAccess(System.currentTimeMillis());
+            }
+            ret.addData(queue.getContents());
         }
 
         // get action needed to be performed
         ActionItem last = game.getLastActionItem();
-
-        // create the message
-        EngineMessage ret = new EngineMessage(game.getGameID(), EngineMessage.PLAYER_SERVER,
-                                              EngineMessage.CAT_COMPOSITE_MESSAGE,
-                                              files);
         if (last != null)
         {
             ret.setObject(EngineMessage.PARAM_ACTION, last);
+
+            // long-poll - lets the client's next poll tell us which action it has seen
+            ret.setInteger(EngineMessage.PARAM_POLL_ACTION, last.marshal(null).hashCode());
         }
 
         // update settings if to control polling behavior
@@ -883,7 +1028,7 @@ public abstract class EngineServlet extends BaseServlet
         DMArrayList<Long> list = new DMArrayList<>();
         for (int i = 0; i < game.getNumPlayers(); i++)
         {
-            list.add(game.getPlayerQueueFile(i).lastModified());
+            list.add(game.getPlayerQueue(i).getLastAccess());
         }
         ret.setList(EngineMessage.PARAM_PLAYER_TIMESTAMPS, list);
 
@@ -922,7 +1067,7 @@ public abstract class EngineServlet extends BaseServlet
 
                     try
                     {
-                        game = ServerSideGame.loadServerSideGame(id, handler_);
+                        game = loadGame(id);
                     }
                     catch (ApplicationError ae)
                     {
@@ -1108,6 +1253,12 @@ public abstract class EngineServlet extends BaseServlet
         ret.setInteger(EngineMessage.PARAM_WAIT_ADD_PER, 120);   // default is 120
         ret.setInteger(EngineMessage.PARAM_WAIT_MAX, 180);       // default is 120
         ret.setInteger(EngineMessage.PARAM_WAIT_ERROR, 10);     // default is 10
+
+        // tell clients they may ask us to hold polls (and for how long)
+        if (longPolls_ != null)
+        {
+            ret.setInteger(EngineMessage.PARAM_POLL_WAIT, longPolls_.getMaxWaitSeconds());
+        }
     }
 
     // registration file constants
@@ -0,0 +1,305 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.server;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.games.comms.*;
+import com.donohoedigital.server.*;
+import org.apache.log4j.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Holds poll requests (long-polling) which have nothing new to return, so clients hear
+ * about changes right away instead of polling on a timer.  The response is suspended
+ * (see {@link GameServletResponse#suspend()}), so no worker thread is tied up while a
+ * poll waits.  A poll is answered when a message is queued for one of its players
+ * or the game's action changes (see {@link #wake}), or when its wait runs out.
+ * Answers are written by a small pool of threads.
+ * <p/>
+ * {@link #park} and {@link #wake} are called holding the game lock, so a change can't
+ * slip in between a poll finding nothing and it being parked.
+ */
+class LongPollManager
+{
+    private static Logger logger = Logger.getLogger(LongPollManager.class);
+
+    private final EngineServlet servlet_;
+    private final int maxWaiting;
+    private final int maxWaitSeconds;
+    private final ScheduledThreadPoolExecutor executor_;
+
+    // waiting polls by game
+    private final Map<String, List<Waiter>> waiting_ = new HashMap<String, List<Waiter>>();
+    private int numWaiting_;
+    private boolean done_ = false;
+
+    // stats
+    private long parked_;
+    private long woken_;
+    private long expired_;
+    private long refused_;
+
+    /**
+     * Create manager holding up to maxWaiting polls for up to maxWaitSeconds each,
+     * answering them using the given number of threads.  Stats logged every logMillis.
+     */
+    LongPollManager(EngineServlet servlet, int maxWaiting, int maxWaitSeconds, int nThreads, long logMillis)
+    {
+        servlet_ = servlet;
+        this.maxWaiting = maxWaiting;
+        this.maxWaitSeconds = maxWaitSeconds;
+
+        executor_ = new ScheduledThreadPoolExecutor(nThreads, new ThreadFactory()
+        {
+            private int nNum = 0;
+
+            public synchronized Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "LongPoll-" + (nNum++));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        executor_.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        if (logMillis > 0)
+        {
+            executor_.scheduleAtFixedRate(new Runnable()
+            {
+                public void run()
+                {
+                    logger.info("STATUS: " + LongPollManager.this);
+                }
+            }, logMillis, logMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Longest a poll is held, in seconds
+     */
+    int getMaxWaitSeconds()
+    {
+        return maxWaitSeconds;
+    }
+
+    /**
+     * Hold the poll until one of the given players has a message, the game's
+     * action changes, or the given number of seconds pass.  Returns false if
+     * too many polls are already waiting, in which case the caller should answer
+     * now.  Caller must hold the game lock.
+     */
+    synchronized boolean park(String sGameID, List<Integer> ids, GameServletResponse response,
+                              EngineMessage received, int nSeconds)
+    {
+        if (done_ || numWaiting_ >= maxWaiting)
+        {
+            refused_++;
+            return false;
+        }
+
+        final Waiter waiter = new Waiter(sGameID, ids, response, received);
+        List<Waiter> list = waiting_.get(sGameID);
+        if (list == null)
+        {
+            list = new ArrayList<Waiter>(2);
+            waiting_.put(sGameID, list);
+        }
+
+        // a newer poll from same client replaces the older one (e.g., client timed out and retried)
+        for (int i = list.size() - 1; i >= 0; i--)
+        {
+            Waiter old = list.get(i);
+            if (old.ids.equals(ids))
+            {
+                list.remove(i);
+                numWaiting_--;
+                answer(old);
+            }
+        }
+
+        list.add(waiter);
+        numWaiting_++;
+        parked_++;
+
+        response.suspend();
+        waiter.timeout = executor_.schedule(new Runnable()
+        {
+            public void run()
+            {
+                if (remove(waiter))
+                {
+                    synchronized (LongPollManager.this)
+                    {
+                        expired_++;
+                    }
+                    servlet_.answerPoll(waiter.response, waiter.received);
+                }
+            }
+        }, Math.min(nSeconds, maxWaitSeconds), TimeUnit.SECONDS);
+
+        return true;
+    }
+
+    /**
+     * Answer polls waiting on the given game for any of the given players (all
+     * polls if ids is null).  Caller must hold the game lock.
+     */
+    synchronized void wake(String sGameID, List<Integer> ids)
+    {
+        List<Waiter> list = waiting_.get(sGameID);
+        if (list == null) return;
+
+        Iterator<Waiter> iter = list.iterator();
+        while (iter.hasNext())
+        {
+            Waiter waiter = iter.next();
+            if (ids == null || !Collections.disjoint(waiter.ids, ids))
+            {
+                iter.remove();
+                numWaiting_--;
+                woken_++;
+                answer(waiter);
+            }
+        }
+        if (list.isEmpty()) waiting_.remove(sGameID);
+    }
+
+    /**
+     * Remove waiter, returning false if it was already answered
+     */
+    private synchronized boolean remove(Waiter waiter)
+    {
+        List<Waiter> list = waiting_.get(waiter.sGameID);
+        if (list == null || !list.remove(waiter)) return false;
+        if (list.isEmpty()) waiting_.remove(waiter.sGameID);
+        numWaiting_--;
+        return true;
+    }
+
+    /**
+     * Answer waiter using the executor (must already be removed from waiting_)
+     */
+    private void answer(final Waiter waiter)
+    {
+        if (waiter.timeout != null) waiter.timeout.cancel(false);
+        try
+        {
+            executor_.execute(new Runnable()
+            {
+                public void run()
+                {
+                    servlet_.answerPoll(waiter.response, waiter.received);
+                }
+            });
+        }
+        catch (RejectedExecutionException ree)
+        {
+            // shutting down
+            waiter.response.resume();
+        }
+    }
+
+    /**
+     * Answer all waiting polls and stop
+     */
+    void stop()
+    {
+        synchronized (this)
+        {
+            done_ = true;
+            for (List<Waiter> list : waiting_.values())
+            {
+                for (Waiter waiter : list)
+                {
+                    answer(waiter);
+                }
+            }
+            waiting_.clear();
+            numWaiting_ = 0;
+        }
+
+        executor_.shutdown();
+        try
+        {
+            executor_.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.interrupted();
+        }
+        logger.info("Stopped " + this);
+    }
+
+    /**
+     * Number of polls waiting
+     */
+    synchronized int getNumWaiting()
+    {
+        return numWaiting_;
+    }
+
+    /**
+     * stats for logging
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return "LongPollManager waiting: " + numWaiting_ + '/' + maxWaiting +
+               ",  parked: " + parked_ +
+               ",  woken: " + woken_ +
+               ",  expired: " + expired_ +
+               ",  refused: " + refused_;
+    }
+
+    /**
+     * A waiting poll
+     */
+    private static class Waiter
+    {
+        final String sGameID;
+        final List<Integer> ids;
+        final GameServletResponse response;
+        final EngineMessage received;
+        ScheduledFuture<?> timeout;
+
+        Waiter(String sGameID, List<Integer> ids, GameServletResponse response, EngineMessage received)
+        {
+            this.sGameID = sGameID;
+            this.ids = ids;
+            this.response = response;
+            this.received = received;
+        }
+    }
+}
@@ -64,6 +64,8 @@ public class PlayerQueue extends ServerDataFile
     // instance data
     private Integer nPlayerID_;
     private DMArrayList msgList_;  // list of actions to send to player
+    private long lastAccess_;      // last time player polled (stored as file last modified)
+    private boolean accessChanged_;// last access not yet written
     
     /**
      * Create a PlayerQueue from an existing file
@@ -119,6 +121,7 @@ public class PlayerQueue extends ServerDataFile
             ConfigUtils.verifyFile(file_);
             load();
         }
+        lastAccess_ = file_.lastModified();
     }
     
     /**
@@ -137,17 +140,26 @@ public class PlayerQueue extends ServerDataFile
         msgList_.add(msg);
     }
     
+    /**
+     * Get number of messages in the queue
+     */
+    public int getNumMessages()
+    {
+        return msgList_.size();
+    }
+
     /** 
      * Remove all messages in queue up to and including the
-     * given timestamp
+     * given timestamp.  Returns true if any were removed.
      */
-    public void removeMessagesUpTo(long timestamp)
+    public boolean removeMessagesUpTo(long timestamp)
     {
         // shortcut
-        if (timestamp == 0) return;
+        if (timestamp == 0) return false;
         
         EngineMessage msg;
         boolean bDone = false;
+        boolean bRemoved = false;
         
         // keep getting head of list (earlier messages are first)
         // remove from head of list as long as timestamp is less
@@ -158,12 +170,101 @@ public class PlayerQueue extends ServerDataFile
             if (msg.getCreateTimeStamp() <= timestamp)
             {
                 msgList_.remove(0);
+                bRemoved = true;
             }
             else
             {
                 bDone = true;
             }
         }
+        return bRemoved;
+    }
+
+    /**
+     * Get last time player accessed this queue (saving the queue counts as access,
+     * so callers saving on behalf of another player reset it - see setLastAccess())
+     */
+    public long getLastAccess()
+    {
+        return lastAccess_;
+    }
+
+    /**
+     * Set last access time (stored as the file's last modified time)
+     */
+    public void setLastAccess(long time)
+    {
+        lastAccess_ = time;
+        if (isWriteBehind())
+        {
+            accessChanged_ = true;
+        }
+        else
+        {
+            //noinspection ResultOfMethodCallIgnored
+            file_.setLastModified(time);
+            lastMod_ = file_.lastModified();
+        }
+    }
+
+    /**
+     * Is there a last access time which hasn't been written?
+     */
+    public boolean isAccessChanged()
+    {
+        return accessChanged_;
+    }
+
+    /**
+     * Save, which updates last access
+     */
+    @Override
+    public void save()
+    {
+        super.save();
+        if (isWriteBehind())
+        {
+            lastAccess_ = System.currentTimeMillis();
+            accessChanged_ = true;
+        }
+        else
+        {
+            lastAccess_ = file_.lastModified();
+        }
+    }
+
+    /**
+     * Write contents if modified, and last access if changed
+     */
+    @Override
+    public int persist()
+    {
+        int nWritten = super.persist();
+        if (accessChanged_)
+        {
+            //noinspection ResultOfMethodCallIgnored
+            file_.setLastModified(lastAccess_);
+            lastMod_ = file_.lastModified();
+            accessChanged_ = false;
+        }
+        return nWritten;
+    }
+
+    /**
+     * Get contents as they would be written to the file
+     */
+    public byte[] getContents()
+    {
+        StringWriter writer = new StringWriter();
+        try
+        {
+            write(writer);
+        }
+        catch (IOException ioe)
+        {
+            throw new ApplicationError(ioe);
+        }
+        return Utils.encode(writer.toString());
     }
     
     /** 
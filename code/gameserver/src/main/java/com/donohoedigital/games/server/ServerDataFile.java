@@ -54,6 +54,8 @@ public abstract class ServerDataFile extends BaseDataFile
     
     // instance data
     protected File SAVE_DIR;    // root save directory
+    private boolean writeBehind_; // save() defers writing until persist()
+    private boolean modified_;    // save() called since last written
     
     /** 
      * Creates a new instance of ServerDataFile 
@@ -62,4 +64,56 @@ public abstract class ServerDataFile extends BaseDataFile
     {
         SAVE_DIR = GameConfigUtils.getSaveDir();
     }
+
+    /**
+     * Set whether save() writes to disk now (the default) or just notes the change, with
+     * writing done later by persist() (used when kept in {@link ServerSideGameCache})
+     */
+    public void setWriteBehind(boolean b)
+    {
+        writeBehind_ = b;
+    }
+
+    /**
+     * Is save() deferred?
+     */
+    public boolean isWriteBehind()
+    {
+        return writeBehind_;
+    }
+
+    /**
+     * Save this to disk (or, if write behind, note that it needs to be)
+     */
+    @Override
+    public void save()
+    {
+        if (writeBehind_)
+        {
+            modified_ = true;
+        }
+        else
+        {
+            super.save();
+        }
+    }
+
+    /**
+     * Has save() been called since contents were last written?
+     */
+    public boolean isModified()
+    {
+        return modified_;
+    }
+
+    /**
+     * Write contents if modified since last written.  Returns number of files written.
+     */
+    public int persist()
+    {
+        if (!modified_) return 0;
+        super.save();
+        modified_ = false;
+        return 1;
+    }
 }
@@ -94,6 +94,7 @@ public class ServerSideGame extends ServerDataFile implements GameInfo
     private DMTypedHashMap options_; // game options
     private ActionHandler handler_; // handler to get actions
     private DMTypedHashMap timestamps_; // activation key mapped to time stamp of last message processed
+    private PlayerQueue[] queues_;  // queues loaded so far
 
     /**
      * Create new online game from the message
@@ -540,7 +541,6 @@ public class ServerSideGame extends ServerDataFile implements GameInfo
         update.setInteger(EngineMessage.PARAM_UPDATE_TYPE, nUpdateType);
 
         // add message to appropriate queues
-        File file;
         long lasttime;
         for (int i = 0; i < nNumPlayers_; i++)
         {
@@ -553,22 +553,83 @@ public class ServerSideGame extends ServerDataFile implements GameInfo
             // WAR PATCH 2 
             // preserve last modified time stamp so
             // "last online" in client is correct
-            file = queue.getFile();
-            lasttime = file.lastModified();
+            lasttime = queue.getLastAccess();
             queue.addMessage(update);
             queue.save();
-            file.setLastModified(lasttime);
+            queue.setLastAccess(lasttime);
         }
     }
 
     /**
-     * Return a new player queue for the given index
-     * Returns a new object every time, so cache return for perf
+     * Return the player queue for the given index, loading it the first time
      */
     public PlayerQueue getPlayerQueue(int i)
     {
         ApplicationError.assertTrue(i >= 0 && i < nNumPlayers_, "Index out of bounds");
-        return PlayerQueue.loadPlayerQueue(dir_, sFileNum_, i);
+        if (queues_ == null) queues_ = new PlayerQueue[nNumPlayers_];
+        if (queues_[i] == null)
+        {
+            queues_[i] = PlayerQueue.loadPlayerQueue(dir_, sFileNum_, i);
+            queues_[i].setWriteBehind(isWriteBehind());
+        }
+        return queues_[i];
+    }
+
+    /**
+     * Set write behind for game and loaded queues
+     */
+    @Override
+    public void setWriteBehind(boolean b)
+    {
+        super.setWriteBehind(b);
+        if (queues_ == null) return;
+        for (PlayerQueue queue : queues_)
+        {
+            if (queue != null) queue.setWriteBehind(b);
+        }
+    }
+
+    /**
+     * Is game or any loaded queue modified?
+     */
+    @Override
+    public boolean isModified()
+    {
+        if (super.isModified()) return true;
+        if (queues_ == null) return false;
+        for (PlayerQueue queue : queues_)
+        {
+            if (queue != null && queue.isModified()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Does any loaded queue have a last access time not written yet?
+     */
+    public boolean isAccessChanged()
+    {
+        if (queues_ == null) return false;
+        for (PlayerQueue queue : queues_)
+        {
+            if (queue != null && queue.isAccessChanged()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Write game and loaded queues, if modified.  Returns number of files written.
+     */
+    @Override
+    public int persist()
+    {
+        int nWritten = super.persist();
+        if (queues_ == null) return nWritten;
+        for (PlayerQueue queue : queues_)
+        {
+            if (queue != null) nWritten += queue.persist();
+        }
+        return nWritten;
     }
 
     /**
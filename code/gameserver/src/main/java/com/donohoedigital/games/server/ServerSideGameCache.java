@@ -0,0 +1,340 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.server;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.games.config.*;
+import org.apache.log4j.*;
+
+import java.util.*;
+
+/**
+ * In-memory cache of {@link ServerSideGame}s (and their {@link PlayerQueue}s), so requests
+ * which don't change a game don't touch the file system.  Games are kept in
+ * write-behind mode:  save() just notes the change and a background thread writes
+ * modified games out every so often.  The least recently used game is dropped when
+ * the cache is full (after being written, if needed).
+ * <p/>
+ * All access to a game, including {@link #get} and {@link #release}, must be done
+ * holding the game's lock from {@link GameConfigUtils#getGameLockingObject}.  The writer
+ * thread takes the same lock, so a game is never written while being changed.
+ * A game waiting to be written is found by {@link #get}, so files are never re-read
+ * while out of date.
+ * <p/>
+ * A player polling only updates the queue's last access time (the file's last
+ * modified time).  That is written when the queue is next written, or when the game
+ * is dropped from the cache or the cache is stopped.
+ */
+public class ServerSideGameCache
+{
+    private static Logger logger = Logger.getLogger(ServerSideGameCache.class);
+
+    private final int maxSize;
+    private final long flushMillis;
+    private final long logMillis;
+
+    // games, least recently used first
+    private final LinkedHashMap<String, ServerSideGame> games_;
+
+    // games needing to be written
+    private final Map<String, ServerSideGame> pending_ = new LinkedHashMap<String, ServerSideGame>();
+
+    private final Thread writer_;
+    private boolean done_ = false;
+
+    // stats
+    private long hits_;
+    private long misses_;
+    private long filesWritten_;
+    private long gamesWritten_;
+
+    /**
+     * Create cache holding up to maxSize games, writing changes every flushMillis
+     * and logging stats every logMillis
+     */
+    public ServerSideGameCache(int maxSize, long flushMillis, long logMillis)
+    {
+        this.maxSize = maxSize;
+        this.flushMillis = flushMillis;
+        this.logMillis = logMillis;
+
+        games_ = new LinkedHashMap<String, ServerSideGame>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ServerSideGame> eldest)
+            {
+                if (size() <= ServerSideGameCache.this.maxSize) return false;
+
+                // still needs writing - writer will finish with it
+                ServerSideGame game = eldest.getValue();
+                if (game.isModified() || game.isAccessChanged())
+                {
+                    pending_.put(eldest.getKey(), game);
+                }
+                return true;
+            }
+        };
+
+        writer_ = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                writeLoop();
+            }
+        }, "ServerSideGameCache");
+        writer_.setDaemon(true);
+        writer_.start();
+    }
+
+    /**
+     * Get the given game, loading it if not in the cache.  Caller must hold the game lock.
+     *
+     * @throws ApplicationError with code ErrorCodes.ERROR_FILE_NOT_FOUND if game doesn't exist
+     */
+    public ServerSideGame get(String sGameID, ActionHandler handler)
+    {
+        ServerSideGame game;
+        synchronized (this)
+        {
+            game = games_.get(sGameID);
+            if (game == null)
+            {
+                // dropped from cache before being written
+                game = pending_.get(sGameID);
+                if (game != null) games_.put(sGameID, game);
+            }
+
+            if (game != null)
+            {
+                hits_++;
+                return game;
+            }
+
+            misses_++;
+        }
+
+        game = ServerSideGame.loadServerSideGame(sGameID, handler);
+        game.setWriteBehind(true);
+        synchronized (this)
+        {
+            games_.put(sGameID, game);
+        }
+        return game;
+    }
+
+    /**
+     * Done using the given game.  If it was modified, it is queued to be written.
+     * Caller must hold the game lock.
+     */
+    public synchronized void release(ServerSideGame game)
+    {
+        // access time changes are normally written when dropped from the cache,
+        // but this game may have been dropped while in use
+        if (game.isModified() ||
+            (game.isAccessChanged() && games_.get(game.getGameID()) != game))
+        {
+            pending_.put(game.getGameID(), game);
+        }
+    }
+
+    /**
+     * Write any changes and remove the given game from the cache, so it is loaded again
+     * from disk on next use (e.g., after an error processing a request).
+     * Caller must hold the game lock.
+     */
+    public void discard(ServerSideGame game)
+    {
+        synchronized (this)
+        {
+            games_.remove(game.getGameID());
+            pending_.remove(game.getGameID());
+        }
+        write(game);
+    }
+
+    /**
+     * Stop writer thread, writing all changes (including last access times) first
+     */
+    public void stop()
+    {
+        synchronized (this)
+        {
+            done_ = true;
+            notifyAll();
+        }
+
+        try
+        {
+            writer_.join();
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        List<ServerSideGame> all;
+        synchronized (this)
+        {
+            all = new ArrayList<ServerSideGame>(pending_.values());
+            for (ServerSideGame game : games_.values())
+            {
+                if (!pending_.containsKey(game.getGameID())) all.add(game);
+            }
+            pending_.clear();
+            games_.clear();
+        }
+
+        for (ServerSideGame game : all)
+        {
+            writeLocked(game);
+        }
+        logger.info("Stopped " + this);
+    }
+
+    /**
+     * write pending games every flushMillis until stopped
+     */
+    private void writeLoop()
+    {
+        long lastLog = System.currentTimeMillis();
+        while (true)
+        {
+            List<ServerSideGame> games;
+            synchronized (this)
+            {
+                if (!done_)
+                {
+                    try
+                    {
+                        wait(flushMillis);
+                    }
+                    catch (InterruptedException ie)
+                    {
+                        return;
+                    }
+                }
+                if (done_) return;
+
+                games = new ArrayList<ServerSideGame>(pending_.values());
+            }
+
+            for (ServerSideGame game : games)
+            {
+                try
+                {
+                    writeLocked(game);
+                }
+                catch (Throwable t)
+                {
+                    logger.error("Error writing game " + game.getGameID() + ": " + Utils.formatExceptionText(t));
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastLog > logMillis)
+            {
+                lastLog = now;
+                logger.info("STATUS: " + this);
+            }
+        }
+    }
+
+    /**
+     * write game, getting game lock first
+     */
+    private void writeLocked(ServerSideGame game)
+    {
+        ObjectLock lock = GameConfigUtils.getGameLockingObject(game.getGameID());
+        try
+        {
+            synchronized (lock)
+            {
+                synchronized (this)
+                {
+                    // if a newer instance was loaded, this one was already written
+                    if (pending_.get(game.getGameID()) == game) pending_.remove(game.getGameID());
+                }
+                write(game);
+            }
+        }
+        finally
+        {
+            GameConfigUtils.removeGameLockingObject(lock);
+        }
+    }
+
+    /**
+     * write game (caller has game lock)
+     */
+    private void write(ServerSideGame game)
+    {
+        int nWritten = game.persist();
+        if (nWritten > 0)
+        {
+            synchronized (this)
+            {
+                filesWritten_ += nWritten;
+                gamesWritten_++;
+            }
+        }
+    }
+
+    /**
+     * Cache hit rate (0 - 100)
+     */
+    public synchronized int getHitRate()
+    {
+        long total = hits_ + misses_;
+        return total == 0 ? 0 : (int) (hits_ * 100 / total);
+    }
+
+    /**
+     * Number of files written
+     */
+    public synchronized long getFilesWritten()
+    {
+        return filesWritten_;
+    }
+
+    /**
+     * stats
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return "ServerSideGameCache games: " + games_.size() + '/' + maxSize +
+               ",  hits: " + hits_ + ",  misses: " + misses_ + ",  hit rate: " + getHitRate() + '%' +
+               ",  pending: " + pending_.size() + ",  games written: " + gamesWritten_ +
+               ",  files written: " + filesWritten_;
+    }
+}
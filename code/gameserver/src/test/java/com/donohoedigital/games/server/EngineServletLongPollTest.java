@@ -0,0 +1,367 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.server;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.comms.*;
+import com.donohoedigital.games.comms.*;
+import com.donohoedigital.games.server.model.*;
+import com.donohoedigital.games.server.service.*;
+import com.donohoedigital.server.*;
+import org.junit.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test EngineServlet holding polls (LongPollManager, GameServletResponse suspend/resume).
+ * Uses settings.server.longpoll.max=2 and .seconds=2 from gameservertest config.
+ */
+public class EngineServletLongPollTest
+{
+    private static final long WAIT_MILLIS = 5000;
+
+    private TestEngineServlet servlet;
+    private ServerSideGame game;
+
+    @BeforeClass
+    public static void initConfig()
+    {
+        ServerTestData.initConfig();
+    }
+
+    @Before
+    public void createServlet()
+    {
+        servlet = new TestEngineServlet();
+        servlet.initEngine();
+        game = ServerTestData.createServerSideGame(servlet.getActionHandler(), 3);
+    }
+
+    @After
+    public void destroyServlet()
+    {
+        servlet.destroy();
+    }
+
+    @Test
+    public void shouldAnswerWhenWoken() throws Exception
+    {
+        // nothing for player 0 - poll held
+        TestResponse poll = poll(0, 60);
+        assertTrue(poll.isSuspended());
+        assertFalse(poll.isAnswered());
+
+        // chat to player 1 doesn't wake it
+        TestResponse chat = chat(2, 1);
+        assertTrue(chat.isAnswered());
+        assertFalse(chat.isSuspended());
+        Thread.sleep(200);
+        assertFalse(poll.isAnswered());
+
+        // chat to player 0 does
+        long start = System.currentTimeMillis();
+        chat(1, 0);
+        EngineMessage reply = poll.waitForAnswer();
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(EngineMessage.CAT_COMPOSITE_MESSAGE, reply.getCategory());
+        assertEquals(1, getNumMessages(reply, 0));
+        assertEquals(1, poll.getResumeCount());
+
+        // next poll gets chat right away
+        TestResponse again = poll(0, 60);
+        assertFalse(again.isSuspended());
+        assertEquals(1, getNumMessages(again.waitForAnswer(), 0));
+    }
+
+    @Test
+    public void shouldAnswerWhenWaitExpires() throws Exception
+    {
+        long start = System.currentTimeMillis();
+        TestResponse poll = poll(0, 1);
+        assertTrue(poll.isSuspended());
+
+        EngineMessage reply = poll.waitForAnswer();
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("answered after " + elapsed, elapsed >= 1000);
+        assertEquals(EngineMessage.CAT_COMPOSITE_MESSAGE, reply.getCategory());
+        assertEquals(0, getNumMessages(reply, 0));
+        assertEquals(1, poll.getResumeCount());
+
+        // server max (2 seconds) limits requested wait
+        start = System.currentTimeMillis();
+        poll = poll(0, 60);
+        poll.waitForAnswer();
+        elapsed = System.currentTimeMillis() - start;
+        assertTrue("answered after " + elapsed, elapsed >= 2000 && elapsed < 2000 + WAIT_MILLIS);
+    }
+
+    @Test
+    public void shouldAnswerNowWhenFull() throws Exception
+    {
+        TestResponse poll0 = poll(0, 60);
+        TestResponse poll1 = poll(1, 60);
+        assertTrue(poll0.isSuspended());
+        assertTrue(poll1.isSuspended());
+
+        // over max waiting - answered now
+        TestResponse poll2 = poll(2, 60);
+        assertFalse(poll2.isSuspended());
+        assertEquals(EngineMessage.CAT_COMPOSITE_MESSAGE, poll2.waitForAnswer().getCategory());
+
+        // waiting polls still answered
+        chat(2, 0, 1);
+        assertEquals(1, getNumMessages(poll0.waitForAnswer(), 0));
+        assertEquals(1, getNumMessages(poll1.waitForAnswer(), 0));
+    }
+
+    @Test
+    public void shouldReplaceOlderPoll() throws Exception
+    {
+        // client retried - older poll answered, newer one held
+        TestResponse first = poll(0, 60);
+        TestResponse second = poll(0, 60);
+        assertEquals(EngineMessage.CAT_COMPOSITE_MESSAGE, first.waitForAnswer().getCategory());
+        assertTrue(second.isSuspended());
+        assertFalse(second.isAnswered());
+
+        chat(1, 0);
+        assertEquals(1, getNumMessages(second.waitForAnswer(), 0));
+    }
+
+    /**
+     * poll for updates for given player, asking server to wait up to nWait seconds
+     */
+    private TestResponse poll(int nPlayer, int nWait) throws IOException
+    {
+        EngineMessage msg = new EngineMessage(game.getGameID(), EngineMessage.PLAYER_GROUP, EngineMessage.CAT_POLL_UPDATES);
+        msg.setString(EngineMessage.PARAM_PASSWORD, game.getPasswordAt(nPlayer));
+        DMArrayList<Integer> ids = new DMArrayList<Integer>();
+        ids.add(nPlayer);
+        msg.setList(EngineMessage.PARAM_PLAYER_IDS, ids);
+        DMArrayList<Long> stamps = new DMArrayList<Long>();
+        stamps.add(0L);
+        msg.setList(EngineMessage.PARAM_LAST_TIMESTAMPS, stamps);
+        msg.setInteger(EngineMessage.PARAM_POLL_WAIT, nWait);
+        return send(msg);
+    }
+
+    /**
+     * send chat from given player to others
+     */
+    private TestResponse chat(int nFrom, int... to) throws IOException
+    {
+        EngineMessage msg = new EngineMessage(game.getGameID(), nFrom, EngineMessage.CAT_CHAT, "hello");
+        msg.setString(EngineMessage.PARAM_PASSWORD, game.getPasswordAt(nFrom));
+        DMArrayList<Integer> ids = new DMArrayList<Integer>();
+        for (int id : to) ids.add(id);
+        msg.setList(EngineMessage.PARAM_PLAYER_IDS, ids);
+        return send(msg);
+    }
+
+    /**
+     * process message like BaseServlet.doGet()
+     */
+    private TestResponse send(EngineMessage msg) throws IOException
+    {
+        msg.setKey("0000-0000-1111-2222");
+        TestResponse response = new TestResponse();
+        assertNull(servlet.processMessage(new GameServletRequest(), response, msg));
+        return response;
+    }
+
+    /**
+     * number of messages in queue contents returned for given index
+     */
+    private static int getNumMessages(EngineMessage reply, int i) throws IOException
+    {
+        String contents = Utils.decode(reply.getDataAt(i));
+        DMArrayList<?> list = new DMArrayList<Object>();
+        list.demarshal(null, new BufferedReader(new StringReader(contents)).readLine());
+        return list.size();
+    }
+
+    /**
+     * EngineServlet with test ActionHandler and no key checks
+     */
+    private static class TestEngineServlet extends EngineServlet
+    {
+        private final ActionHandler handler = new TestActionHandler();
+
+        TestEngineServlet()
+        {
+            bannedKeyService = new TestBannedKeyService();
+        }
+
+        @Override
+        public ActionHandler getActionHandler()
+        {
+            return handler;
+        }
+
+        @Override
+        public Version getLatestVersion()
+        {
+            return new Version(3, 0, 0, true);
+        }
+
+        @Override
+        public Version getLatestClientVersion(String os)
+        {
+            return getLatestVersion();
+        }
+
+        @Override
+        public int getKeyStart(Version received)
+        {
+            return 0;
+        }
+
+        @Override
+        protected boolean isCategoryValidated(EngineMessage received)
+        {
+            return false;
+        }
+
+        @Override
+        protected ActionItem getMissingGameAction()
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Nothing banned
+     */
+    private static class TestBannedKeyService implements BannedKeyService
+    {
+        public List<BannedKey> getAllBannedKeys()
+        {
+            return new ArrayList<BannedKey>();
+        }
+
+        public boolean isBanned(String... keys)
+        {
+            return false;
+        }
+
+        public BannedKey getIfBanned(String... keys)
+        {
+            return null;
+        }
+
+        public void saveBannedKey(BannedKey key)
+        {
+        }
+
+        public void deleteBannedKey(String key)
+        {
+        }
+    }
+
+    /**
+     * Response which can be suspended, capturing what is written
+     */
+    private static class TestResponse extends GameServletResponse
+    {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final CountDownLatch answered = new CountDownLatch(1);
+        private int nResumes;
+
+        TestResponse() throws IOException
+        {
+            super(SocketChannel.open());
+        }
+
+        @Override
+        public boolean isSuspendSupported()
+        {
+            return true;
+        }
+
+        @Override
+        public synchronized void resume()
+        {
+            assertTrue(isSuspended());
+            nResumes++;
+        }
+
+        synchronized int getResumeCount()
+        {
+            return nResumes;
+        }
+
+        @Override
+        public OutputStream getOutputStream2()
+        {
+            return out;
+        }
+
+        @Override
+        public void finishResponse()
+        {
+            answered.countDown();
+        }
+
+        boolean isAnswered()
+        {
+            return answered.getCount() == 0;
+        }
+
+        /**
+         * wait for response to be written, returning it
+         */
+        EngineMessage waitForAnswer() throws Exception
+        {
+            assertTrue(answered.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+            byte[] data = out.toByteArray();
+            EngineMessage reply = new EngineMessage();
+            reply.read(new ByteArrayInputStream(data), data.length);
+
+            // resume follows answer
+            if (isSuspended())
+            {
+                long start = System.currentTimeMillis();
+                while (getResumeCount() == 0 && System.currentTimeMillis() - start < WAIT_MILLIS)
+                {
+                    Thread.sleep(10);
+                }
+            }
+            return reply;
+        }
+    }
+}
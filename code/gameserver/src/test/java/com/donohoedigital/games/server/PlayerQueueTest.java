@@ -0,0 +1,188 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.server;
+
+import com.donohoedigital.games.comms.*;
+import org.junit.*;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test PlayerQueue (and ServerDataFile) write behind and last access
+ */
+public class PlayerQueueTest
+{
+    // round to seconds since some file systems don't store millis
+    private static final long ACCESS = (System.currentTimeMillis() / 1000 - 3600) * 1000;
+
+    private ServerSideGame game;
+
+    @BeforeClass
+    public static void initConfig()
+    {
+        ServerTestData.initConfig();
+    }
+
+    @Before
+    public void createGame()
+    {
+        game = ServerTestData.createServerSideGame(new TestActionHandler(), 2);
+    }
+
+    @Test
+    public void shouldWriteOnPersist() throws IOException
+    {
+        PlayerQueue queue = game.getPlayerQueue(0);
+        File file = game.getPlayerQueueFile(0);
+        byte[] before = read(file);
+
+        game.setWriteBehind(true);
+        assertTrue(queue.isWriteBehind());
+        assertFalse(queue.isModified());
+
+        queue.addMessage(newMessage());
+        queue.save();
+        assertTrue(queue.isModified());
+        assertTrue(game.isModified());
+        assertArrayEquals(before, read(file));
+
+        // queue only - game itself not changed
+        assertEquals(1, game.persist());
+        assertFalse(queue.isModified());
+        assertArrayEquals(queue.getContents(), read(file));
+        assertEquals(1, reload().getPlayerQueue(0).getNumMessages());
+
+        assertEquals(0, game.persist());
+    }
+
+    @Test
+    public void shouldWriteNow()
+    {
+        PlayerQueue queue = game.getPlayerQueue(1);
+        File file = game.getPlayerQueueFile(1);
+
+        queue.addMessage(newMessage());
+        queue.save();
+        assertFalse(queue.isModified());
+        assertArrayEquals(queue.getContents(), read(file));
+        assertEquals(file.lastModified(), queue.getLastAccess());
+        assertEquals(0, queue.persist());
+    }
+
+    @Test
+    public void shouldReplaceFileTime()
+    {
+        PlayerQueue queue = game.getPlayerQueue(0);
+        File file = game.getPlayerQueueFile(0);
+        long modified = file.lastModified();
+
+        // write behind - file time changed on persist
+        queue.setWriteBehind(true);
+        queue.setLastAccess(ACCESS);
+        assertTrue(queue.isAccessChanged());
+        assertEquals(ACCESS, queue.getLastAccess());
+        assertEquals(modified, file.lastModified());
+
+        assertEquals(0, queue.persist());
+        assertFalse(queue.isAccessChanged());
+        assertEquals(ACCESS, file.lastModified());
+
+        // save counts as access
+        long now = System.currentTimeMillis();
+        queue.save();
+        assertTrue(queue.isAccessChanged());
+        assertTrue(queue.getLastAccess() >= now);
+        assertEquals(ACCESS, file.lastModified());
+
+        // without write behind - file time changed now
+        queue.setWriteBehind(false);
+        queue.setLastAccess(ACCESS - 1000);
+        assertEquals(ACCESS - 1000, file.lastModified());
+        assertEquals(ACCESS - 1000, queue.getLastAccess());
+
+        // loaded queue gets last access from file
+        assertEquals(ACCESS - 1000, reload().getPlayerQueue(0).getLastAccess());
+    }
+
+    @Test
+    public void shouldRemoveMessages()
+    {
+        PlayerQueue queue = game.getPlayerQueue(0);
+        EngineMessage first = newMessage();
+        EngineMessage second = newMessage();
+        queue.addMessage(first);
+        queue.addMessage(second);
+
+        assertFalse(queue.removeMessagesUpTo(0));
+        assertFalse(queue.removeMessagesUpTo(first.getCreateTimeStamp() - 1));
+        assertTrue(queue.removeMessagesUpTo(first.getCreateTimeStamp()));
+        assertEquals(1, queue.getNumMessages());
+        assertFalse(queue.removeMessagesUpTo(first.getCreateTimeStamp()));
+        assertTrue(queue.removeMessagesUpTo(second.getCreateTimeStamp()));
+        assertEquals(0, queue.getNumMessages());
+    }
+
+    private ServerSideGame reload()
+    {
+        return ServerSideGame.loadServerSideGame(game.getGameID(), new TestActionHandler());
+    }
+
+    static EngineMessage newMessage()
+    {
+        return new EngineMessage(EngineMessage.GAME_NOTDEFINED, 0, EngineMessage.CAT_INFO);
+    }
+
+    static byte[] read(File file)
+    {
+        try
+        {
+            byte[] data = new byte[(int) file.length()];
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try
+            {
+                in.readFully(data);
+            }
+            finally
+            {
+                in.close();
+            }
+            return data;
+        }
+        catch (IOException ioe)
+        {
+            throw new RuntimeException(ioe);
+        }
+    }
+}
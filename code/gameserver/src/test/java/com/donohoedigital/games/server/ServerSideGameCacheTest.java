@@ -0,0 +1,269 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.server;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.games.config.*;
+import org.junit.*;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test ServerSideGameCache write behind, eviction and discard
+ */
+public class ServerSideGameCacheTest
+{
+    private static final long NEVER = 60000;
+    private static final long WAIT_MILLIS = 5000;
+
+    // round to seconds since some file systems don't store millis
+    private static final long ACCESS = (System.currentTimeMillis() / 1000 - 3600) * 1000;
+
+    private final ActionHandler handler = new TestActionHandler();
+    private ServerSideGameCache cache;
+    private ServerSideGame a;
+    private ServerSideGame b;
+
+    @BeforeClass
+    public static void initConfig()
+    {
+        ServerTestData.initConfig();
+    }
+
+    @Before
+    public void createGames()
+    {
+        a = ServerTestData.createServerSideGame(handler, 2);
+        b = ServerTestData.createServerSideGame(handler, 2);
+    }
+
+    @After
+    public void stopCache()
+    {
+        if (cache != null) cache.stop();
+    }
+
+    @Test
+    public void shouldHoldEvictedDirtyGame()
+    {
+        cache = new ServerSideGameCache(1, NEVER, NEVER);
+
+        ServerSideGame game = setTurn(a.getGameID(), 5);
+        get(b.getGameID());
+
+        // evicted before being written - same instance returned, not re-read
+        assertEquals(1, diskTurn(a));
+        assertSame(game, get(a.getGameID()));
+        assertEquals(5, get(a.getGameID()).getTurn());
+        assertEquals(0, cache.getFilesWritten());
+
+        // evicted again, written on stop
+        get(b.getGameID());
+        cache.stop();
+        cache = null;
+        assertEquals(5, diskTurn(a));
+    }
+
+    @Test
+    public void shouldWriteEvictedLastAccess() throws InterruptedException
+    {
+        cache = new ServerSideGameCache(1, 50, NEVER);
+        File file = a.getPlayerQueueFile(0);
+        long modified = file.lastModified();
+
+        // poll only changes last access - not written while cached
+        ServerSideGame game = setLastAccess(a.getGameID(), 0, ACCESS);
+        Thread.sleep(200);
+        assertEquals(modified, file.lastModified());
+
+        // written after eviction
+        get(b.getGameID());
+        long start = System.currentTimeMillis();
+        while (file.lastModified() != ACCESS && System.currentTimeMillis() - start < WAIT_MILLIS)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(ACCESS, file.lastModified());
+        assertEquals(0, cache.getFilesWritten());
+
+        // and re-read from file
+        assertNotSame(game, get(a.getGameID()));
+        assertEquals(ACCESS, get(a.getGameID()).getPlayerQueue(0).getLastAccess());
+    }
+
+    @Test
+    public void shouldWriteLastAccessOnStop()
+    {
+        cache = new ServerSideGameCache(10, NEVER, NEVER);
+        File file = a.getPlayerQueueFile(1);
+
+        setLastAccess(a.getGameID(), 1, ACCESS);
+        assertFalse(ACCESS == file.lastModified());
+
+        cache.stop();
+        cache = null;
+        assertEquals(ACCESS, file.lastModified());
+    }
+
+    @Test
+    public void shouldReloadDiscarded()
+    {
+        cache = new ServerSideGameCache(10, NEVER, NEVER);
+
+        ServerSideGame game = get(a.getGameID());
+        assertSame(game, get(a.getGameID()));
+        assertEquals(50, cache.getHitRate());
+
+        // error processing request - changes so far written, next get re-reads file
+        use(a.getGameID(), new GameChange()
+        {
+            public void change(ServerSideGame game)
+            {
+                game.setTurn(7);
+                game.save();
+            }
+        }, true);
+        assertFalse(game.isModified());
+        assertEquals(7, diskTurn(a));
+        assertEquals(1, cache.getFilesWritten());
+
+        ServerSideGame reloaded = get(a.getGameID());
+        assertNotSame(game, reloaded);
+        assertEquals(7, reloaded.getTurn());
+        assertTrue(reloaded.isWriteBehind());
+        assertEquals(50, cache.getHitRate()); // 2 hits, 2 misses
+    }
+
+    @Test
+    public void shouldWriteAfterFlushInterval() throws InterruptedException
+    {
+        long flush = 1000;
+        long created = System.currentTimeMillis();
+        cache = new ServerSideGameCache(10, flush, NEVER);
+
+        setTurn(a.getGameID(), 3);
+        Assume.assumeTrue(System.currentTimeMillis() - created < flush / 2);
+        assertEquals(0, cache.getFilesWritten());
+        assertEquals(1, diskTurn(a));
+
+        // written at the end of the first interval
+        long start = System.currentTimeMillis();
+        while (cache.getFilesWritten() == 0 && System.currentTimeMillis() - start < WAIT_MILLIS)
+        {
+            Thread.sleep(10);
+        }
+        long elapsed = System.currentTimeMillis() - created;
+        assertEquals(1, cache.getFilesWritten());
+        assertTrue("written after " + elapsed, elapsed >= flush && elapsed < flush * 3);
+        assertEquals(3, diskTurn(a));
+
+        // unchanged game not written again
+        Thread.sleep(flush + flush / 2);
+        assertEquals(1, cache.getFilesWritten());
+    }
+
+    /**
+     * get game holding game lock
+     */
+    private ServerSideGame get(String sGameID)
+    {
+        return use(sGameID, null, false);
+    }
+
+    /**
+     * change turn and save
+     */
+    private ServerSideGame setTurn(String sGameID, final int nTurn)
+    {
+        return use(sGameID, new GameChange()
+        {
+            public void change(ServerSideGame game)
+            {
+                game.setTurn(nTurn);
+                game.save();
+            }
+        }, false);
+    }
+
+    /**
+     * set last access of given player's queue
+     */
+    private ServerSideGame setLastAccess(String sGameID, final int nPlayer, final long time)
+    {
+        return use(sGameID, new GameChange()
+        {
+            public void change(ServerSideGame game)
+            {
+                game.getPlayerQueue(nPlayer).setLastAccess(time);
+            }
+        }, false);
+    }
+
+    /**
+     * get game, apply change and release (or discard) it, holding game lock like EngineServlet
+     */
+    private ServerSideGame use(String sGameID, GameChange change, boolean bDiscard)
+    {
+        ObjectLock lock = GameConfigUtils.getGameLockingObject(sGameID);
+        try
+        {
+            synchronized (lock)
+            {
+                ServerSideGame game = cache.get(sGameID, handler);
+                if (change != null) change.change(game);
+                if (bDiscard) cache.discard(game);
+                else cache.release(game);
+                return game;
+            }
+        }
+        finally
+        {
+            GameConfigUtils.removeGameLockingObject(lock);
+        }
+    }
+
+    private interface GameChange
+    {
+        void change(ServerSideGame game);
+    }
+
+    /**
+     * turn as stored on disk
+     */
+    private int diskTurn(ServerSideGame game)
+    {
+        return ServerSideGame.loadServerSideGame(game.getGameID(), handler).getTurn();
+    }
+}
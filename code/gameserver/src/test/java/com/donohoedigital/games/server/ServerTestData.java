@@ -33,8 +33,11 @@
 package com.donohoedigital.games.server;
 
 import com.donohoedigital.comms.*;
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.comms.*;
 import com.donohoedigital.games.server.model.*;
 
+import java.io.*;
 import java.util.*;
 
 /**
@@ -90,4 +93,42 @@ public class ServerTestData
 
         return key;
     }
-}
\ No newline at end of file
+
+    /**
+     * Init config for tests creating ServerSideGames.  Save files go under target/home.
+     */
+    public static void initConfig()
+    {
+        if (ConfigManager.getConfigManager() != null) return;
+        System.setProperty("user.home", new File("target/home").getAbsolutePath());
+        new ConfigManager("gameservertest", ApplicationType.SERVER);
+    }
+
+    /**
+     * Create (and save) a new game with the given number of players
+     */
+    public static ServerSideGame createServerSideGame(ActionHandler handler, int nNumPlayers)
+    {
+        DMArrayList names = new DMArrayList();
+        DMArrayList colors = new DMArrayList();
+        DMArrayList emails = new DMArrayList();
+        for (int i = 0; i < nNumPlayers; i++)
+        {
+            names.add("Player " + i);
+            colors.add("red");
+            emails.add("player" + i + "@example.com");
+        }
+
+        EngineMessage msg = new EngineMessage(EngineMessage.GAME_NOTDEFINED, EngineMessage.PLAYER_NOTDEFINED,
+                                              EngineMessage.CAT_NEW_GAME, "game data");
+        msg.setInteger(EngineMessage.PARAM_NUM_PLAYERS, nNumPlayers);
+        msg.setList(EngineMessage.PARAM_NAMES, names);
+        msg.setList(EngineMessage.PARAM_COLORS, colors);
+        msg.setList(EngineMessage.PARAM_EMAIL_ADDRS, emails);
+        msg.setObject(EngineMessage.PARAM_GAME_OPTIONS, new DMTypedHashMap());
+        msg.setKey("0000-0000-1111-2222");
+        msg.setString(ServerSideGame.PARAM_EMAIL_TEXT, "test");
+
+        return ServerSideGame.newServerSideGame(msg, handler);
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.tools;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.config.*;
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.ai.*;
+import com.donohoedigital.games.poker.model.*;
+import org.apache.log4j.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs AI-only tournaments headless (see BatchTournament), in parallel, and writes
+ * finishing results (and optionally chip counts) as CSV.  Used to tune PlayerType profiles.
+ */
+@SuppressWarnings({"UseOfSystemOutOrSystemErr"})
+public class AITournamentRunner extends BaseCommandLineApp
+{
+    private static Logger logger = Logger.getLogger(AITournamentRunner.class);
+
+    private static final String OPTION_TOURNAMENTS = "tournaments";
+    private static final String OPTION_THREADS = "threads";
+    private static final String OPTION_PROFILE = "profile";
+    private static final String OPTION_PLAYERS = "players";
+    private static final String OPTION_TYPES = "types";
+    private static final String OPTION_OUT = "out";
+    private static final String OPTION_CHIPS = "chips";
+    private static final String OPTION_INTERVAL = "interval";
+
+    /**
+     * Run tournaments
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+
+        try {
+            new AITournamentRunner("poker", args);
+        }
+        catch (ApplicationError ae)
+        {
+            System.err.println("AITournamentRunner ending due to ApplicationError: " + ae.toString());
+            System.exit(1);
+        }
+        catch (java.lang.OutOfMemoryError nomem)
+        {
+            System.err.println("Out of memory: " + nomem);
+            System.err.println(Utils.formatExceptionText(nomem));
+            System.exit(1);
+        }
+        catch (Throwable t)
+        {
+            System.err.println(Utils.formatExceptionText(t));
+            System.exit(1);
+        }
+
+        System.exit(0);
+    }
+
+    /**
+     * options
+     */
+    @Override
+    protected void setupApplicationCommandLineOptions()
+    {
+        CommandLine.addIntegerOption(OPTION_TOURNAMENTS, 100);
+        CommandLine.setDescription(OPTION_TOURNAMENTS, "number of tournaments to run", "#");
+
+        CommandLine.addIntegerOption(OPTION_THREADS, Runtime.getRuntime().availableProcessors());
+        CommandLine.setDescription(OPTION_THREADS, "tournaments to run at once (default is one per core)", "#");
+
+        CommandLine.addStringOption(OPTION_PROFILE, null);
+        CommandLine.setDescription(OPTION_PROFILE, "name of saved tournament profile (default is a new profile)", "name");
+
+        CommandLine.addIntegerOption(OPTION_PLAYERS, 0);
+        CommandLine.setDescription(OPTION_PLAYERS, "number of players (default is from profile)", "#");
+
+        CommandLine.addStringOption(OPTION_TYPES, null);
+        CommandLine.setDescription(OPTION_TYPES, "comma separated player type names, assigned round robin (default is all)", "names");
+
+        CommandLine.addStringOption(OPTION_OUT, "tournaments.csv");
+        CommandLine.setDescription(OPTION_OUT, "results file", "file");
+
+        CommandLine.addStringOption(OPTION_CHIPS, null);
+        CommandLine.setDescription(OPTION_CHIPS, "chip count file (default is none)", "file");
+
+        CommandLine.addIntegerOption(OPTION_INTERVAL, 10);
+        CommandLine.setDescription(OPTION_INTERVAL, "rounds (one hand at each table) between chip counts", "#");
+    }
+
+    public AITournamentRunner(String sConfigName, String[] args) throws Exception
+    {
+        // init app
+        super(sConfigName, args);
+
+        // PokerUtils needs styles, tables and simulator need client messages,
+        // profiles come from save dir (copied like GameEngine does)
+        ConfigManager.getConfigManager().loadGuiConfig();
+        ConfigManager.getConfigManager().loadClientMessages();
+        ConfigUtils.copyURLs("save/" + sConfigName, "**/*.*", GameConfigUtils.getSaveDir());
+
+        // nobody reads the AI reasoning, so don't record it
+        RuleEngine.setExplainDefault(false);
+
+        int nNum = htOptions_.getInteger(OPTION_TOURNAMENTS, 100);
+        int nThreads = htOptions_.getInteger(OPTION_THREADS, 1);
+        int nInterval = htOptions_.getInteger(OPTION_INTERVAL, 10);
+        TournamentProfile profile = getProfile(htOptions_.getString(OPTION_PROFILE), htOptions_.getInteger(OPTION_PLAYERS, 0));
+        List<PlayerType> types = getPlayerTypes(htOptions_.getString(OPTION_TYPES));
+        String sChips = htOptions_.getString(OPTION_CHIPS);
+
+        logger.info("Running " + nNum + " tournaments of " + profile.getNumPlayers() + " players on " +
+                    nThreads + " threads");
+
+        long time = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        List<Future<Result>> results = new ArrayList<Future<Result>>(nNum);
+        for (int i = 1; i <= nNum; i++)
+        {
+            results.add(executor.submit(new Run(i, profile, types, sChips != null, nInterval)));
+        }
+        executor.shutdown();
+
+        // write results in tournament order as they finish
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(htOptions_.getString(OPTION_OUT))));
+        PrintWriter chips = sChips == null ? null : new PrintWriter(new BufferedWriter(new FileWriter(sChips)));
+        int nHands = 0;
+        try
+        {
+            out.println("tournament,player,name,type,place,prize,rebuys,addon,hands");
+            if (chips != null) chips.println("tournament,round,player,chips");
+
+            Result result;
+            for (int i = 0; i < results.size(); i++)
+            {
+                try
+                {
+                    result = results.get(i).get();
+                }
+                catch (ExecutionException ee)
+                {
+                    logger.error("Tournament failed: " + Utils.formatExceptionText(ee.getCause()));
+                    continue;
+                }
+                finally
+                {
+                    // don't hold results already written
+                    results.set(i, null);
+                }
+                nHands += result.nHands;
+                out.print(result.sResults);
+                if (chips != null) chips.print(result.sChips);
+            }
+        }
+        finally
+        {
+            out.close();
+            if (chips != null) chips.close();
+        }
+
+        time = System.currentTimeMillis() - time;
+        logger.info("Played " + nHands + " hands in " + time + " millis (" +
+                    (nHands == 0 ? 0 : (time * 1000 / nHands)) + " micros per hand)");
+    }
+
+    /**
+     * Runs one tournament
+     */
+    private static class Run implements Callable<Result>
+    {
+        private final int nNumber;
+        private final TournamentProfile profile;
+        private final List<PlayerType> types;
+        private final boolean bChips;
+        private final int nInterval;
+
+        Run(int nNumber, TournamentProfile profile, List<PlayerType> types, boolean bChips, int nInterval)
+        {
+            this.nNumber = nNumber;
+            this.profile = profile;
+            this.types = types;
+            this.bChips = bChips;
+            this.nInterval = nInterval;
+        }
+
+        public Result call()
+        {
+            BatchTournament tournament = new BatchTournament(nNumber, profile, types, bChips ? nInterval : 0);
+            tournament.play();
+            if (nNumber % 100 == 0) logger.info("Finished tournament " + nNumber);
+            return new Result(tournament, bChips);
+        }
+    }
+
+    /**
+     * What is written for one tournament - CSV lines are formatted when it finishes,
+     * so the game (players, tables, AI) isn't kept until it is written
+     */
+    private static class Result
+    {
+        private final int nHands;
+        private final String sResults;
+        private final String sChips;
+
+        Result(BatchTournament tournament, boolean bChips)
+        {
+            nHands = tournament.getNumHands();
+
+            StringWriter results = new StringWriter();
+            PrintWriter out = new PrintWriter(results);
+            writeResults(out, tournament);
+            out.flush();
+            sResults = results.toString();
+
+            if (bChips)
+            {
+                StringWriter chips = new StringWriter();
+                out = new PrintWriter(chips);
+                writeChips(out, tournament);
+                out.flush();
+                sChips = chips.toString();
+            }
+            else
+            {
+                sChips = null;
+            }
+        }
+    }
+
+    /**
+     * Get profile - saved one by name, or a new one
+     */
+    private static TournamentProfile getProfile(String sName, int nPlayers)
+    {
+        TournamentProfile profile = null;
+        if (sName == null)
+        {
+            profile = new TournamentProfile("AITournamentRunner");
+        }
+        else
+        {
+            for (BaseProfile p : TournamentProfile.getProfileList())
+            {
+                if (p.getName().equals(sName))
+                {
+                    profile = new TournamentProfile(p.getFile(), true);
+                    break;
+                }
+            }
+            if (profile == null) throw new ApplicationError(ErrorCodes.ERROR_NOT_FOUND, "No tournament profile named " + sName, null);
+        }
+
+        if (nPlayers > 0)
+        {
+            profile.setNumPlayers(nPlayers);
+            profile.fixAll();
+        }
+        return profile;
+    }
+
+    /**
+     * Get player types - all, or those named
+     */
+    private static List<PlayerType> getPlayerTypes(String sNames)
+    {
+        List<PlayerType> types = new ArrayList<PlayerType>();
+        List<BaseProfile> all = PlayerType.getProfileListCached();
+        if (sNames == null)
+        {
+            for (BaseProfile p : all)
+            {
+                types.add((PlayerType) p);
+            }
+            return types;
+        }
+
+        StringTokenizer tokens = new StringTokenizer(sNames, ",");
+        String sName;
+        PlayerType type;
+        while (tokens.hasMoreTokens())
+        {
+            sName = tokens.nextToken().trim();
+            type = null;
+            for (BaseProfile p : all)
+            {
+                if (p.getName().equals(sName))
+                {
+                    type = (PlayerType) p;
+                    break;
+                }
+            }
+            if (type == null) throw new ApplicationError(ErrorCodes.ERROR_NOT_FOUND, "No player type named " + sName, null);
+            types.add(type);
+        }
+        return types;
+    }
+
+    /**
+     * One line per player
+     */
+    private static void writeResults(PrintWriter out, BatchTournament tournament)
+    {
+        for (PokerPlayer player : tournament.getPlayers())
+        {
+            out.println(tournament.getNumber() + "," + player.getID() + "," +
+                        Utils.encodeCSV(player.getName()) + "," +
+                        Utils.encodeCSV(player.getPlayerType().getName()) + "," +
+                        player.getPlace() + "," + player.getPrize() + "," +
+                        player.getNumRebuys() + "," + player.getAddon() + "," +
+                        player.getHandsPlayed());
+        }
+    }
+
+    /**
+     * One line per player per recorded round
+     */
+    private static void writeChips(PrintWriter out, BatchTournament tournament)
+    {
+        List<PokerPlayer> players = tournament.getPlayers();
+        for (int[] chips : tournament.getChipCounts())
+        {
+            for (int i = 0; i < players.size(); i++)
+            {
+                out.println(tournament.getNumber() + "," + chips[0] + "," + players.get(i).getID() + "," + chips[i + 1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.tools;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.poker.ai.*;
+import org.apache.log4j.*;
+
+import java.io.*;
+
+/**
+ * Writes the precomputed flop ranks table used by PocketRanks (if not already
+ * there).  Run once after install so batch runs don't compute flop ranks each time.
+ */
+@SuppressWarnings({"UseOfSystemOutOrSystemErr"})
+public class FlopRanksGenerator extends BaseCommandLineApp
+{
+    private static Logger logger = Logger.getLogger(FlopRanksGenerator.class);
+
+    private static final String OPTION_FILE = "file";
+
+    /**
+     * Run generator
+     */
+    public static void main(String[] args)
+    {
+        try {
+            new FlopRanksGenerator("poker", args);
+        }
+        catch (ApplicationError ae)
+        {
+            System.err.println("FlopRanksGenerator ending due to ApplicationError: " + ae.toString());
+            System.exit(1);
+        }
+        catch (java.lang.OutOfMemoryError nomem)
+        {
+            System.err.println("Out of memory: " + nomem);
+            System.err.println(Utils.formatExceptionText(nomem));
+            System.exit(1);
+        }
+        catch (Throwable t)
+        {
+            System.err.println(Utils.formatExceptionText(t));
+            System.exit(1);
+        }
+
+        System.exit(0);
+    }
+
+    /**
+     * options
+     */
+    @Override
+    protected void setupApplicationCommandLineOptions()
+    {
+        CommandLine.addStringOption(OPTION_FILE, null);
+        CommandLine.setDescription(OPTION_FILE, "output file (default is " + FlopRanks.FILE_NAME + " in user config dir)", "file");
+    }
+
+    public FlopRanksGenerator(String sConfigName, String[] args) throws IOException
+    {
+        // init app
+        super(sConfigName, args);
+
+        String sFile = htOptions_.getString(OPTION_FILE);
+        File file = (sFile == null) ? FlopRanks.getDefaultFile() : new File(sFile);
+
+        // same as client's background generation (temp file, lock), so safe while it runs
+        FlopRanks ranks = FlopRanks.generate(file);
+        if (ranks == null)
+        {
+            throw new ApplicationError(ErrorCodes.ERROR_CREATE, "Flop ranks being generated by another process",
+                                       file.getAbsolutePath(), null);
+        }
+        logger.info(file.getAbsolutePath() + " has " + ranks.getNumFlops() + " flops");
+    }
+}
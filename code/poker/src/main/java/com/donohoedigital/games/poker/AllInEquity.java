@@ -0,0 +1,362 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker;
+
+import com.donohoedigital.games.poker.engine.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Exact all-in equity for any number of players: every remaining board is enumerated
+ * and each hand scored with HandInfoFastest on card masks.  Work is split by the
+ * first board card across the ForkJoinPool used by HoldemSimulator.
+ * <p>
+ * Results are memoized by the canonical form of the board and hole cards (suits renamed
+ * to give the lowest masks), so the same showdown with suits swapped, or redisplayed
+ * after an option change, is not recomputed.
+ */
+public class AllInEquity
+{
+    // memoized results
+    private static final int MAX_CACHE = 256;
+
+    // only split work when there are at least this many board cards to come
+    private static final int PARALLEL_MIN_MORE = 2;
+
+    private static final Map<Key, Result> cache_ = new LinkedHashMap<Key, Result>(MAX_CACHE, .75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest)
+        {
+            return size() > MAX_CACHE;
+        }
+    };
+
+    /**
+     * Outcome of enumeration
+     */
+    public static class Result
+    {
+        private final int[] wins_;
+        private final int nBoards_;
+
+        private Result(int[] wins, int nBoards)
+        {
+            wins_ = wins;
+            nBoards_ = nBoards;
+        }
+
+        /**
+         * Number of boards on which the given player has the best hand (ties count as wins)
+         */
+        public int getWins(int nPlayer)
+        {
+            return wins_[nPlayer];
+        }
+
+        /**
+         * Number of boards enumerated
+         */
+        public int getNumBoards()
+        {
+            return nBoards_;
+        }
+
+        /**
+         * Percentage (0-100) of boards won or tied by the given player
+         */
+        public float getPercent(int nPlayer)
+        {
+            return 100.0f * wins_[nPlayer] / nBoards_;
+        }
+    }
+
+    /**
+     * Compute wins for each player's hole cards (as fingerprints) given the community
+     * cards so far.  Hole cards and community must not overlap.
+     */
+    public static Result calculate(long[] holes, long community)
+    {
+        // canonical suit permutation for memo key
+        SuitIsomorphism.Permutation perm = null;
+        long[] key = null;
+        long[] permuted = new long[holes.length + 1];
+        for (int p = 0; p < SuitIsomorphism.NUM_PERMUTATIONS; p++)
+        {
+            SuitIsomorphism.Permutation next = SuitIsomorphism.getPermutationAt(p);
+            permuted[0] = next.apply(community);
+            for (int i = 0; i < holes.length; i++)
+            {
+                permuted[i + 1] = next.apply(holes[i]);
+            }
+            Arrays.sort(permuted, 1, permuted.length);
+            if (key == null || compare(permuted, key) < 0)
+            {
+                key = permuted.clone();
+                perm = next;
+            }
+        }
+
+        // lookup or compute in canonical order
+        Key cacheKey = new Key(key);
+        Result canonical;
+        synchronized (cache_)
+        {
+            canonical = cache_.get(cacheKey);
+        }
+        if (canonical == null)
+        {
+            canonical = enumerate(Arrays.copyOfRange(key, 1, key.length), key[0]);
+            synchronized (cache_)
+            {
+                cache_.put(cacheKey, canonical);
+            }
+        }
+
+        // map back to caller's order
+        int[] wins = new int[holes.length];
+        for (int i = 0; i < holes.length; i++)
+        {
+            wins[i] = canonical.wins_[Arrays.binarySearch(key, 1, key.length, perm.apply(holes[i])) - 1];
+        }
+        return new Result(wins, canonical.nBoards_);
+    }
+
+    /**
+     * Enumerate all boards
+     */
+    private static Result enumerate(long[] holes, long community)
+    {
+        long dead = community;
+        for (long hole : holes) dead |= hole;
+
+        int[] deck = new int[52 - Long.bitCount(dead)];
+        int n = 0;
+        for (int i = 0; i < 52; i++)
+        {
+            if ((dead & (1L << i)) == 0) deck[n++] = i;
+        }
+
+        int nMore = 5 - Long.bitCount(community);
+
+        // nothing to compare - everyone wins every board
+        if (holes.length < 2)
+        {
+            int nBoards = 1;
+            for (int i = 0; i < nMore; i++)
+            {
+                nBoards = nBoards * (deck.length - i) / (i + 1);
+            }
+            int[] wins = new int[holes.length];
+            Arrays.fill(wins, nBoards);
+            return new Result(wins, nBoards);
+        }
+
+        if (nMore < PARALLEL_MIN_MORE || HoldemSimulator.getParallelism() == 1)
+        {
+            Tally tally = new Tally(holes, community, deck, nMore);
+            tally.enumerate(0, nMore, community);
+            return tally.getResult();
+        }
+
+        return ParallelSimulator.getPool(HoldemSimulator.getParallelism()).invoke(
+                new EquityTask(holes, community, deck, nMore));
+    }
+
+    /**
+     * Split by first board card
+     */
+    private static class EquityTask extends RecursiveTask<Result>
+    {
+        private final long[] holes;
+        private final long community;
+        private final int[] deck;
+        private final int nMore;
+
+        EquityTask(long[] holes, long community, int[] deck, int nMore)
+        {
+            this.holes = holes;
+            this.community = community;
+            this.deck = deck;
+            this.nMore = nMore;
+        }
+
+        @Override
+        protected Result compute()
+        {
+            List<FirstCardTask> tasks = new ArrayList<FirstCardTask>();
+            for (int first = 0; first <= deck.length - nMore; first++)
+            {
+                tasks.add(new FirstCardTask(new Tally(holes, community, deck, nMore), first));
+            }
+            invokeAll(tasks);
+
+            int[] wins = new int[holes.length];
+            int nBoards = 0;
+            for (FirstCardTask task : tasks)
+            {
+                Result result = task.join();
+                for (int i = 0; i < wins.length; i++)
+                {
+                    wins[i] += result.wins_[i];
+                }
+                nBoards += result.nBoards_;
+            }
+            return new Result(wins, nBoards);
+        }
+    }
+
+    /**
+     * Boards starting with a given card
+     */
+    private static class FirstCardTask extends RecursiveTask<Result>
+    {
+        private final Tally tally;
+        private final int first;
+
+        FirstCardTask(Tally tally, int first)
+        {
+            this.tally = tally;
+            this.first = first;
+        }
+
+        @Override
+        protected Result compute()
+        {
+            tally.enumerate(first + 1, tally.nMore - 1, tally.community | (1L << tally.deck[first]));
+            return tally.getResult();
+        }
+    }
+
+    /**
+     * Counts wins for a set of boards (one per thread)
+     */
+    private static class Tally
+    {
+        private final HandInfoFastest fast = new HandInfoFastest();
+        private final long[] holes;
+        private final long community;
+        private final int[] deck;
+        private final int nMore;
+        private final int[] scores;
+        private final int[] wins;
+        private int nBoards;
+
+        Tally(long[] holes, long community, int[] deck, int nMore)
+        {
+            this.holes = holes;
+            this.community = community;
+            this.deck = deck;
+            this.nMore = nMore;
+            scores = new int[holes.length];
+            wins = new int[holes.length];
+        }
+
+        /**
+         * add remaining nLeft cards from deck[start...]
+         */
+        void enumerate(int start, int nLeft, long board)
+        {
+            if (nLeft == 0)
+            {
+                score(board);
+                return;
+            }
+
+            for (int i = start; i <= deck.length - nLeft; i++)
+            {
+                enumerate(i + 1, nLeft - 1, board | (1L << deck[i]));
+            }
+        }
+
+        private void score(long board)
+        {
+            int max = 0;
+            for (int i = 0; i < holes.length; i++)
+            {
+                scores[i] = fast.getScore(holes[i] | board);
+                if (scores[i] > max) max = scores[i];
+            }
+            for (int i = 0; i < holes.length; i++)
+            {
+                if (scores[i] == max) wins[i]++;
+            }
+            nBoards++;
+        }
+
+        Result getResult()
+        {
+            return new Result(wins, nBoards);
+        }
+    }
+
+    /**
+     * lexicographic compare
+     */
+    private static int compare(long[] a, long[] b)
+    {
+        for (int i = 0; i < a.length; i++)
+        {
+            if (a[i] != b[i]) return a[i] < b[i] ? -1 : 1;
+        }
+        return 0;
+    }
+
+    /**
+     * memo key
+     */
+    private static class Key
+    {
+        private final long[] cards;
+        private final int hash;
+
+        Key(long[] cards)
+        {
+            this.cards = cards;
+            hash = Arrays.hashCode(cards);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof Key && Arrays.equals(cards, ((Key) o).cards);
+        }
+    }
+}
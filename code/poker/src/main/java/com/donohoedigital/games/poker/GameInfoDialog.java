@@ -212,7 +212,7 @@ public class GameInfoDialog extends DialogPhase
             setPreferredSize(new Dimension(650, 363));
 
             BindArray bindArray = new BindArray();
-            bindArray.addValue(Types.INTEGER, new Integer(PokerDatabase.storeTournament(game_)));
+            bindArray.addValue(Types.INTEGER, new Integer(PokerDatabase.getTournamentID(game_)));
 
             HoldemHand hhand = game_.getCurrentTable().getHoldemHand();
 
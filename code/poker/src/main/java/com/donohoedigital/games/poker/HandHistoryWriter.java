@@ -0,0 +1,1276 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.config.*;
+import com.donohoedigital.db.*;
+import com.donohoedigital.games.poker.engine.*;
+import org.apache.log4j.*;
+
+import java.math.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Writes hand history to the client database on a background thread.  Finished hands
+ * are copied (so the game can carry on changing) and queued.  The writer collects them
+ * into batches, flushed when <code>settings.handhistory.batch.size</code> hands are waiting
+ * or <code>settings.handhistory.batch.millis</code> after the first hand in a batch arrived.
+ * Each batch is written in one transaction using JDBC batch inserts.
+ * <p>
+ * The queue is bounded by <code>settings.handhistory.queue.size</code>; adding only blocks
+ * if the writer falls that far behind.
+ * <p>
+ * HND_IDs are assigned when a hand is queued, so the game can record the last hand
+ * stored (for removing "future" hands when a save is reloaded) without waiting for
+ * the write.  Tournament finishes go through the same queue so they are written in
+ * order with the hands.
+ */
+class HandHistoryWriter
+{
+    static Logger logger = Logger.getLogger(HandHistoryWriter.class);
+
+    private static final long FLUSH_WAIT_MILLIS = 60 * TimeConstants.SECOND;
+
+    // the writer
+    private static HandHistoryWriter writer_ = null;
+
+    // queue markers
+    private static final HandRecord FLUSH = new HandRecord();
+    private static final HandRecord QUIT = new HandRecord();
+
+    private final BlockingQueue<HandRecord> queue_;
+    private final int batchSize_;
+    private final long batchMillis_;
+    private final Thread thread_;
+    private volatile boolean stopped_ = false;
+
+    // last HND_ID assigned (guarded by this)
+    private Database idDatabase_ = null;
+    private int lastHandID_ = 0;
+
+    // stats (guarded by this)
+    private long nAdded_ = 0;
+    private long nWritten_ = 0;
+    private long nFailed_ = 0;
+    private long nBatches_ = 0;
+    private long writeMillis_ = 0;
+
+    /**
+     * Get the writer, starting it if need be
+     */
+    static synchronized HandHistoryWriter getWriter()
+    {
+        if (writer_ == null)
+        {
+            writer_ = new HandHistoryWriter(PropertyConfig.getIntegerProperty("settings.handhistory.queue.size", 1000),
+                                            PropertyConfig.getIntegerProperty("settings.handhistory.batch.size", 100),
+                                            PropertyConfig.getIntegerProperty("settings.handhistory.batch.millis", 2000));
+        }
+        return writer_;
+    }
+
+    /**
+     * Wait for any queued hands to be written (no-op if writer never started)
+     */
+    static void flushWriter()
+    {
+        HandHistoryWriter writer;
+        synchronized (HandHistoryWriter.class)
+        {
+            writer = writer_;
+        }
+        if (writer != null) writer.flush();
+    }
+
+    /**
+     * Have the writer write what is queued now rather than waiting for the batch
+     * to fill.  Doesn't wait (no-op if writer never started).
+     */
+    static void wakeWriter()
+    {
+        HandHistoryWriter writer;
+        synchronized (HandHistoryWriter.class)
+        {
+            writer = writer_;
+        }
+        if (writer != null) writer.wake();
+    }
+
+    /**
+     * Write any queued hands and stop the writer thread.  A new writer
+     * is started if more hands are stored.
+     */
+    static void stopWriter()
+    {
+        HandHistoryWriter writer;
+        synchronized (HandHistoryWriter.class)
+        {
+            writer = writer_;
+            writer_ = null;
+        }
+        if (writer != null) writer.stop();
+    }
+
+    /**
+     * Create and start a writer
+     */
+    HandHistoryWriter(int queueSize, int batchSize, long batchMillis)
+    {
+        queue_ = new ArrayBlockingQueue<HandRecord>(Math.max(queueSize, 2));
+        batchSize_ = Math.max(batchSize, 1);
+        batchMillis_ = batchMillis;
+        thread_ = new Thread("HandHistoryWriter")
+        {
+            @Override
+            public void run()
+            {
+                process();
+            }
+        };
+        thread_.setDaemon(true);
+        thread_.start();
+    }
+
+    /**
+     * Queue hand for writing, assigning its HND_ID and recording that as the game's
+     * last hand saved.  If the writer has been stopped, the hand is written immediately.
+     */
+    void add(HandRecord hand)
+    {
+        synchronized (this)
+        {
+            if (hand.isHand())
+            {
+                hand.handID = nextHandID(hand.database);
+                hand.game.setLastHandSaved(hand.handID);
+            }
+            nAdded_++;
+        }
+
+        if (stopped_)
+        {
+            write(Collections.singletonList(hand));
+            return;
+        }
+
+        if (!queue_.offer(hand))
+        {
+            logger.warn("Hand history queue full (" + queue_.size() + "), waiting for writer");
+            try
+            {
+                queue_.put(hand);
+            }
+            catch (InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+                throw new ApplicationError("Interrupted adding hand history to queue", ie);
+            }
+        }
+    }
+
+    /**
+     * Next HND_ID for given database, starting after the highest in use
+     */
+    private int nextHandID(Database database)
+    {
+        if (database != idDatabase_)
+        {
+            try
+            {
+                Connection conn = database.getConnection();
+                try
+                {
+                    lastHandID_ = maxHandID(conn);
+                }
+                finally
+                {
+                    conn.close();
+                }
+            }
+            catch (SQLException e)
+            {
+                throw new ApplicationError(e);
+            }
+            idDatabase_ = database;
+        }
+        return ++lastHandID_;
+    }
+
+    /**
+     * Write what is queued without waiting for the batch to fill
+     */
+    void wake()
+    {
+        synchronized (this)
+        {
+            if (nWritten_ + nFailed_ >= nAdded_) return;
+        }
+
+        // if queue is full, writer is busy anyhow
+        queue_.offer(FLUSH);
+    }
+
+    /**
+     * Wait for all hands queued so far to be written
+     */
+    void flush()
+    {
+        if (Thread.currentThread() == thread_) return;
+
+        long target;
+        synchronized (this)
+        {
+            target = nAdded_;
+            if (nWritten_ + nFailed_ >= target) return;
+        }
+
+        // wake the writer (if queue is full, it is busy anyhow)
+        queue_.offer(FLUSH);
+
+        long start = System.currentTimeMillis();
+        synchronized (this)
+        {
+            while (nWritten_ + nFailed_ < target && thread_.isAlive())
+            {
+                long remaining = FLUSH_WAIT_MILLIS - (System.currentTimeMillis() - start);
+                if (remaining <= 0)
+                {
+                    logger.warn("Timed out waiting for hand history: " + this);
+                    return;
+                }
+                try
+                {
+                    wait(remaining);
+                }
+                catch (InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write everything queued and end the writer thread
+     */
+    void stop()
+    {
+        stopped_ = true;
+        try
+        {
+            queue_.put(QUIT);
+            thread_.join(FLUSH_WAIT_MILLIS);
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+        }
+        if (logger.isDebugEnabled()) logger.debug("Stopped: " + this);
+    }
+
+    /**
+     * Writer thread loop
+     */
+    private void process()
+    {
+        List<HandRecord> batch = new ArrayList<HandRecord>(batchSize_);
+        long deadline = 0;
+
+        while (true)
+        {
+            HandRecord hand;
+            try
+            {
+                if (batch.isEmpty())
+                {
+                    hand = queue_.take();
+                }
+                else
+                {
+                    hand = queue_.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                }
+            }
+            catch (InterruptedException ie)
+            {
+                continue;
+            }
+
+            // a batch is written to one database
+            if (!batch.isEmpty() && hand != null && hand.database != null &&
+                hand.database != batch.get(0).database)
+            {
+                write(batch);
+                batch.clear();
+            }
+
+            if (hand == null || hand == FLUSH || hand == QUIT)
+            {
+                if (!batch.isEmpty())
+                {
+                    write(batch);
+                    batch.clear();
+                }
+                if (hand == QUIT) return;
+                continue;
+            }
+
+            if (batch.isEmpty()) deadline = System.currentTimeMillis() + batchMillis_;
+            batch.add(hand);
+            if (batch.size() >= batchSize_)
+            {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Write hands in one transaction.  If that fails, each is retried on its own
+     * so one bad hand doesn't lose the rest.
+     */
+    private void write(List<HandRecord> batch)
+    {
+        long start = System.currentTimeMillis();
+        int nWritten = 0;
+        int nFailed = 0;
+
+        try
+        {
+            writeBatch(batch);
+            nWritten = batch.size();
+        }
+        catch (Throwable t)
+        {
+            if (batch.size() == 1)
+            {
+                logger.error("Unable to store hand history: " + Utils.formatExceptionText(t));
+                nFailed = 1;
+            }
+            else
+            {
+                logger.warn("Retrying hand history batch of " + batch.size() + " individually: " +
+                            Utils.formatExceptionText(t));
+                for (HandRecord hand : batch)
+                {
+                    try
+                    {
+                        writeBatch(Collections.singletonList(hand));
+                        nWritten++;
+                    }
+                    catch (Throwable t2)
+                    {
+                        logger.error("Unable to store hand history: " + Utils.formatExceptionText(t2));
+                        nFailed++;
+                    }
+                }
+            }
+        }
+
+        synchronized (this)
+        {
+            nWritten_ += nWritten;
+            nFailed_ += nFailed;
+            nBatches_++;
+            writeMillis_ += System.currentTimeMillis() - start;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Write hands to their database in one transaction
+     */
+    private static void writeBatch(List<HandRecord> batch) throws SQLException
+    {
+        Database database = batch.get(0).database;
+        if (database == null)
+        {
+            throw new ApplicationError("Database not initialized");
+        }
+
+        Connection conn = database.getConnection();
+        boolean bCommitted = false;
+
+        try
+        {
+            conn.setAutoCommit(false);
+
+            // ids looked up / created during this batch
+            Map<Long, Integer> tournaments = new HashMap<Long, Integer>();
+            Map<Long, Integer> players = new HashMap<Long, Integer>();
+            Map<Integer, HandRecord> finishes = new LinkedHashMap<Integer, HandRecord>();
+
+            PreparedStatement psHand = conn.prepareStatement(
+                    "INSERT INTO HAND (\n" +
+                    "HND_ID,\n" +
+                    "HND_NUMBER,\n" +
+                    "HND_TABLE,\n" +
+                    "HND_TOURNAMENT_ID,\n" +
+                    "HND_GAME_STYLE,\n" +
+                    "HND_GAME_TYPE,\n" +
+                    "HND_START_DATE,\n" +
+                    "HND_END_DATE,\n" +
+                    "HND_ANTE,\n" +
+                    "HND_SMALL_BLIND,\n" +
+                    "HND_BIG_BLIND,\n" +
+                    "HND_COMMUNITY_CARDS_DEALT,\n" +
+                    "HND_COMMUNITY_CARD_1,\n" +
+                    "HND_COMMUNITY_CARD_2,\n" +
+                    "HND_COMMUNITY_CARD_3,\n" +
+                    "HND_COMMUNITY_CARD_4,\n" +
+                    "HND_COMMUNITY_CARD_5\n" +
+                    ") VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+
+            PreparedStatement psPlayer = conn.prepareStatement(
+                    "INSERT INTO PLAYER_HAND (\n" +
+                    "PLH_HAND_ID,\n" +
+                    "PLH_PLAYER_ID,\n" +
+                    "PLH_SEAT_NUMBER,\n" +
+                    "PLH_START_CHIPS,\n" +
+                    "PLH_END_CHIPS,\n" +
+                    "PLH_CARD_1,\n" +
+                    "PLH_CARD_2,\n" +
+                    "PLH_CARD_3,\n" +
+                    "PLH_CARD_4,\n" +
+                    "PLH_PREFLOP_ACTIONS,\n" +
+                    "PLH_FLOP_ACTIONS,\n" +
+                    "PLH_TURN_ACTIONS,\n" +
+                    "PLH_RIVER_ACTIONS,\n" +
+                    "PLH_CARDS_EXPOSED\n" +
+                    ") VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+
+            PreparedStatement psAction = conn.prepareStatement(
+                    "INSERT INTO PLAYER_ACTION (\n" +
+                    "ACT_HAND_ID,\n" +
+                    "ACT_PLAYER_ID,\n" +
+                    "ACT_SEQUENCE,\n" +
+                    "ACT_ROUND,\n" +
+                    "ACT_TYPE,\n" +
+                    "ACT_AMOUNT,\n" +
+                    "ACT_SUB_AMOUNT,\n" +
+                    "ACT_ALL_IN,\n" +
+                    "ACT_INTENT\n" +
+                    ") VALUES (?,?,?,?,?,?,?,?,?)");
+
+            try
+            {
+                boolean bPending = false;
+
+                for (HandRecord hand : batch)
+                {
+                    int tournamentID = storeTournament(conn, hand, tournaments);
+
+                    // only the latest finish per tournament matters
+                    if (hand.finish != null) finishes.put(tournamentID, hand);
+
+                    if (!hand.isHand()) continue;
+
+                    // remove "future" hands of a reloaded game - write earlier hands first
+                    if (hand.deleteAfterHandID != 0)
+                    {
+                        if (bPending)
+                        {
+                            executeBatches(psHand, psPlayer, psAction);
+                            bPending = false;
+                        }
+                        deleteHandsAfter(conn, tournamentID, hand.deleteAfterHandID);
+                    }
+
+                    psHand.setInt(1, hand.handID);
+                    psHand.setString(2, hand.handNumber);
+                    psHand.setString(3, hand.tableNumber);
+                    psHand.setInt(4, tournamentID);
+                    psHand.setString(5, "HOLDEM");
+                    psHand.setString(6, hand.gameType);
+                    if (hand.startDate > 0)
+                    {
+                        psHand.setTimestamp(7, new Timestamp(hand.startDate));
+                        psHand.setTimestamp(8, new Timestamp(hand.endDate));
+                    }
+                    else
+                    {
+                        psHand.setNull(7, Types.TIMESTAMP);
+                        psHand.setNull(8, Types.TIMESTAMP);
+                    }
+                    psHand.setBigDecimal(9, new BigDecimal(hand.ante));
+                    psHand.setBigDecimal(10, new BigDecimal(hand.smallBlind));
+                    psHand.setBigDecimal(11, new BigDecimal(hand.bigBlind));
+                    psHand.setByte(12, hand.communityCardsDealt);
+                    setCards(psHand, 13, hand.community, 5);
+                    psHand.addBatch();
+
+                    int playerID[] = new int[PokerConstants.SEATS];
+
+                    for (PlayerRecord player : hand.players)
+                    {
+                        playerID[player.seat] = storePlayer(conn, tournamentID, player, players);
+
+                        psPlayer.setInt(1, hand.handID);
+                        psPlayer.setInt(2, playerID[player.seat]);
+                        psPlayer.setInt(3, player.seat);
+                        psPlayer.setBigDecimal(4, new BigDecimal(player.startChips));
+                        psPlayer.setBigDecimal(5, new BigDecimal(player.endChips));
+                        setCards(psPlayer, 6, player.pocket, 4);
+                        psPlayer.setByte(10, player.actions[HoldemHand.ROUND_PRE_FLOP]);
+                        psPlayer.setByte(11, player.actions[HoldemHand.ROUND_FLOP]);
+                        psPlayer.setByte(12, player.actions[HoldemHand.ROUND_TURN]);
+                        psPlayer.setByte(13, player.actions[HoldemHand.ROUND_RIVER]);
+                        psPlayer.setBoolean(14, player.cardsExposed);
+                        psPlayer.addBatch();
+                    }
+
+                    for (int i = 0; i < hand.actions.length; ++i)
+                    {
+                        ActionRecord action = hand.actions[i];
+
+                        psAction.setInt(1, hand.handID);
+                        psAction.setInt(2, playerID[action.seat]);
+                        psAction.setInt(3, i);
+                        psAction.setInt(4, action.round);
+                        psAction.setString(5, action.type);
+                        psAction.setBigDecimal(6, new BigDecimal(action.amount));
+                        psAction.setBigDecimal(7, new BigDecimal(action.subAmount));
+                        psAction.setBoolean(8, action.allIn);
+                        psAction.setString(9, action.intent);
+                        psAction.addBatch();
+                    }
+
+                    bPending = true;
+                }
+
+                if (bPending) executeBatches(psHand, psPlayer, psAction);
+            }
+            finally
+            {
+                psHand.close();
+                psPlayer.close();
+                psAction.close();
+            }
+
+            for (Map.Entry<Integer, HandRecord> entry : finishes.entrySet())
+            {
+                storeTournamentFinish(conn, entry.getKey(), entry.getValue());
+            }
+
+            conn.commit();
+            bCommitted = true;
+        }
+        finally
+        {
+            try
+            {
+                if (!bCommitted) conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            catch (SQLException ignored)
+            {
+            }
+            try
+            {
+                conn.close();
+            }
+            catch (SQLException ignored)
+            {
+            }
+        }
+    }
+
+    /**
+     * execute pending inserts (in foreign key order)
+     */
+    private static void executeBatches(PreparedStatement psHand, PreparedStatement psPlayer,
+                                       PreparedStatement psAction) throws SQLException
+    {
+        psHand.executeBatch();
+        psPlayer.executeBatch();
+        psAction.executeBatch();
+    }
+
+    /**
+     * Set card columns, null if not present
+     */
+    private static void setCards(PreparedStatement pstmt, int start, String[] cards, int max) throws SQLException
+    {
+        for (int i = 0; i < max; ++i)
+        {
+            if (i < cards.length)
+            {
+                pstmt.setString(start + i, cards[i]);
+            }
+            else
+            {
+                pstmt.setNull(start + i, Types.VARCHAR);
+            }
+        }
+    }
+
+    /**
+     * highest HND_ID in use
+     */
+    private static int maxHandID(Connection conn) throws SQLException
+    {
+        Statement stmt = conn.createStatement();
+
+        try
+        {
+            ResultSet rs = stmt.executeQuery("SELECT MAX(HND_ID) FROM HAND");
+
+            try
+            {
+                rs.next();
+
+                return rs.getInt(1);
+            }
+            finally
+            {
+                rs.close();
+            }
+        }
+        finally
+        {
+            stmt.close();
+        }
+    }
+
+    /**
+     * Get tournament id, inserting tournament if new
+     */
+    private static int storeTournament(Connection conn, HandRecord hand, Map<Long, Integer> cache) throws SQLException
+    {
+        Integer cached = cache.get(hand.tournamentStartDate);
+        if (cached != null) return cached;
+
+        int tournamentID = -1;
+
+        PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT TRN_ID FROM TOURNAMENT\n" +
+                "WHERE TRN_START_DATE=?"
+        );
+
+        try
+        {
+            pstmt.setTimestamp(1, new Timestamp(hand.tournamentStartDate));
+
+            ResultSet rs = pstmt.executeQuery();
+
+            try
+            {
+                if (rs.next())
+                {
+                    tournamentID = rs.getInt(1);
+                }
+            }
+            finally
+            {
+                rs.close();
+            }
+        }
+        finally
+        {
+            pstmt.close();
+        }
+
+        if (tournamentID == -1)
+        {
+            pstmt = conn.prepareStatement(
+                    "INSERT INTO TOURNAMENT (\n" +
+                    "TRN_TYPE,\n" +
+                    "TRN_NAME,\n" +
+                    "TRN_TOTAL_PLAYERS,\n" +
+                    "TRN_START_DATE\n" +
+                    ") VALUES (?,?,?,?)");
+
+            try
+            {
+                pstmt.setString(1, hand.tournamentType);
+                pstmt.setString(2, hand.tournamentName);
+                pstmt.setInt(3, hand.tournamentPlayers);
+                pstmt.setTimestamp(4, new Timestamp(hand.tournamentStartDate));
+
+                pstmt.executeUpdate();
+            }
+            finally
+            {
+                pstmt.close();
+            }
+
+            tournamentID = PokerDatabase.identity(conn);
+        }
+
+        cache.put(hand.tournamentStartDate, tournamentID);
+        return tournamentID;
+    }
+
+    /**
+     * Get tournament player id, inserting player if new
+     */
+    private static int storePlayer(Connection conn, int tournamentID, PlayerRecord player,
+                                   Map<Long, Integer> cache) throws SQLException
+    {
+        long key = ((long) tournamentID << 32) | (player.id & 0xffffffffL);
+        Integer cached = cache.get(key);
+        if (cached != null) return cached;
+
+        int playerID = -1;
+
+        PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT TPL_ID FROM TOURNAMENT_PLAYER\n" +
+                "WHERE TPL_TOURNAMENT_ID=? AND TPL_SEQUENCE=?");
+
+        try
+        {
+            pstmt.setInt(1, tournamentID);
+            pstmt.setInt(2, player.id);
+
+            ResultSet rs = pstmt.executeQuery();
+
+            try
+            {
+                if (rs.next())
+                {
+                    playerID = rs.getInt(1);
+                }
+            }
+            finally
+            {
+                rs.close();
+            }
+        }
+        finally
+        {
+            pstmt.close();
+        }
+
+        if (playerID == -1)
+        {
+            pstmt = conn.prepareStatement(
+                    "INSERT INTO TOURNAMENT_PLAYER (\n" +
+                    "TPL_TOURNAMENT_ID,\n" +
+                    "TPL_SEQUENCE,\n" +
+                    "TPL_NAME,\n" +
+                    "TPL_PROFILE_CREATE_DATE\n" +
+                    ") VALUES (?,?,?,?)");
+
+            try
+            {
+                pstmt.setInt(1, tournamentID);
+                pstmt.setInt(2, player.id);
+                pstmt.setString(3, player.name);
+
+                if (player.profileCreateDate != 0)
+                {
+                    pstmt.setTimestamp(4, new Timestamp(player.profileCreateDate));
+                }
+                else
+                {
+                    pstmt.setNull(4, Types.TIMESTAMP);
+                }
+
+                pstmt.executeUpdate();
+            }
+            finally
+            {
+                pstmt.close();
+            }
+
+            playerID = PokerDatabase.identity(conn);
+        }
+
+        cache.put(key, playerID);
+        return playerID;
+    }
+
+    /**
+     * Replace the human's tournament finish with that as of the given hand
+     */
+    private static void storeTournamentFinish(Connection conn, int tournamentID, HandRecord hand) throws SQLException
+    {
+        FinishRecord finish = hand.finish;
+
+        PreparedStatement pstmt = conn.prepareStatement(
+                "DELETE FROM TOURNAMENT_FINISH\n" +
+                "WHERE TRF_PROFILE_CREATE_DATE=? AND\n" +
+                "TRF_TOURNAMENT_ID IN (SELECT TRN_ID FROM TOURNAMENT WHERE TRN_START_DATE=?)"
+        );
+
+        try
+        {
+            pstmt.setTimestamp(1, new Timestamp(finish.profileCreateDate));
+            pstmt.setTimestamp(2, new Timestamp(hand.tournamentStartDate));
+
+            pstmt.executeUpdate();
+        }
+        finally
+        {
+            pstmt.close();
+        }
+
+        pstmt = conn.prepareStatement(
+                "INSERT INTO TOURNAMENT_FINISH (\n" +
+                "TRF_PROFILE_CREATE_DATE,\n" +
+                "TRF_TOURNAMENT_ID,\n" +
+                "TRF_END_DATE,\n" +
+                "TRF_FINISH_PLACE,\n" +
+                "TRF_PRIZE,\n" +
+                "TRF_BUY_IN,\n" +
+                "TRF_TOTAL_REBUY,\n" +
+                "TRF_TOTAL_ADD_ON,\n" +
+                "TRF_PLAYERS_REMAINING\n" +
+                ") VALUES (?,?,?,?,?,?,?,?,?)");
+
+        try
+        {
+            pstmt.setTimestamp(1, new Timestamp(finish.profileCreateDate));
+            pstmt.setInt(2, tournamentID);
+            pstmt.setTimestamp(3, new Timestamp(finish.endDate));
+            pstmt.setInt(4, finish.place);
+            pstmt.setBigDecimal(5, new BigDecimal(finish.prize));
+            pstmt.setBigDecimal(6, new BigDecimal(finish.buyin));
+            pstmt.setBigDecimal(7, new BigDecimal(finish.rebuy));
+            pstmt.setBigDecimal(8, new BigDecimal(finish.addon));
+            pstmt.setInt(9, finish.playersRemaining);
+
+            pstmt.executeUpdate();
+        }
+        finally
+        {
+            pstmt.close();
+        }
+    }
+
+    /**
+     * Delete hands in tournament after given hand
+     */
+    private static void deleteHandsAfter(Connection conn, int tournamentID, int lastHand) throws SQLException
+    {
+        PreparedStatement pstmt = conn.prepareStatement(
+                "DELETE FROM PLAYER_ACTION\n" +
+                "WHERE ACT_HAND_ID > ?\n" +
+                "AND EXISTS (SELECT * FROM HAND WHERE HND_ID=ACT_HAND_ID AND HND_TOURNAMENT_ID=?)"
+        );
+
+        try
+        {
+            pstmt.setInt(1, lastHand);
+            pstmt.setInt(2, tournamentID);
+            pstmt.executeUpdate();
+        }
+        finally
+        {
+            pstmt.close();
+        }
+
+        pstmt = conn.prepareStatement(
+                "DELETE FROM PLAYER_HAND\n" +
+                "WHERE PLH_HAND_ID > ?\n" +
+                "AND PLH_PLAYER_ID IN (SELECT TPL_ID FROM TOURNAMENT_PLAYER WHERE TPL_TOURNAMENT_ID=?)"
+        );
+
+        try
+        {
+            pstmt.setInt(1, lastHand);
+            pstmt.setInt(2, tournamentID);
+            pstmt.executeUpdate();
+        }
+        finally
+        {
+            pstmt.close();
+        }
+
+        pstmt = conn.prepareStatement(
+                "DELETE FROM HAND\n" +
+                "WHERE HND_ID > ?\n" +
+                "AND HND_TOURNAMENT_ID=?"
+        );
+
+        try
+        {
+            pstmt.setInt(1, lastHand);
+            pstmt.setInt(2, tournamentID);
+            pstmt.executeUpdate();
+        }
+        finally
+        {
+            pstmt.close();
+        }
+    }
+
+    ////
+    //// stats
+    ////
+
+    synchronized long getNumAdded()
+    {
+        return nAdded_;
+    }
+
+    synchronized long getNumWritten()
+    {
+        return nWritten_;
+    }
+
+    synchronized long getNumFailed()
+    {
+        return nFailed_;
+    }
+
+    synchronized long getNumBatches()
+    {
+        return nBatches_;
+    }
+
+    synchronized long getWriteMillis()
+    {
+        return writeMillis_;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "HandHistoryWriter queued=" + queue_.size() +
+               ", added=" + nAdded_ +
+               ", written=" + nWritten_ +
+               ", failed=" + nFailed_ +
+               ", batches=" + nBatches_ +
+               ", writeMillis=" + writeMillis_;
+    }
+
+    ////
+    //// snapshot of hand
+    ////
+
+    /**
+     * Copy of everything stored for a hand, taken when the hand is finished
+     */
+    static class HandRecord
+    {
+        private PokerGame game;
+        private Database database;
+
+        private long tournamentStartDate;
+        private String tournamentType;
+        private String tournamentName;
+        private int tournamentPlayers;
+
+        private int deleteAfterHandID;
+
+        private String handNumber;
+        private String tableNumber;
+        private String gameType;
+        private long startDate;
+        private long endDate;
+        private int ante;
+        private int smallBlind;
+        private int bigBlind;
+        private byte communityCardsDealt;
+        private String[] community;
+
+        private PlayerRecord[] players;
+        private ActionRecord[] actions;
+        private FinishRecord finish;
+
+        // assigned when queued
+        private int handID;
+
+        // queue marker
+        private HandRecord()
+        {
+        }
+
+        /**
+         * Copy hand (call from game thread)
+         */
+        HandRecord(HoldemHand hhand)
+        {
+            PokerTable table = hhand.getTable();
+            game = table.getGame();
+            database = PokerDatabase.getDatabase();
+
+            List<HandAction> history = hhand.getHistoryCopy();
+
+            byte act[][] = new byte[PokerConstants.SEATS][4];
+
+            boolean bRaised = false;
+
+            int lastRound[] = new int[PokerConstants.SEATS];
+
+            for (HandAction action : history)
+            {
+                int seat = action.getPlayer().getSeat();
+                int round = action.getRound();
+
+                switch (action.getAction())
+                {
+                    case HandAction.ACTION_OVERBET:
+                    case HandAction.ACTION_WIN:
+                    case HandAction.ACTION_LOSE:
+                        break;
+                    default:
+                        lastRound[seat] = action.getRound();
+                        switch (round)
+                        {
+                            case HoldemHand.ROUND_FLOP:
+                                communityCardsDealt = 3;
+                                break;
+                            case HoldemHand.ROUND_TURN:
+                                communityCardsDealt = 4;
+                                break;
+                            case HoldemHand.ROUND_RIVER:
+                                communityCardsDealt = 5;
+                                break;
+                        }
+                        break;
+                }
+
+                if (hhand.isAllInShowdown())
+                {
+                    communityCardsDealt = 5;
+                }
+
+                switch (action.getAction())
+                {
+                    case HandAction.ACTION_CHECK:
+                    case HandAction.ACTION_CHECK_RAISE:
+                        act[seat][round] |= PokerDatabase.BIT_CHECK;
+                        break;
+                    case HandAction.ACTION_CALL:
+                        act[seat][round] |= PokerDatabase.BIT_CALL;
+                        break;
+                    case HandAction.ACTION_BET:
+                        act[seat][round] |= PokerDatabase.BIT_BET;
+                        break;
+                    case HandAction.ACTION_RAISE:
+                        act[seat][round] |= PokerDatabase.BIT_RAISE;
+                        if (bRaised)
+                        {
+                            act[seat][round] |= PokerDatabase.BIT_RERAISE;
+                        }
+                        else
+                        {
+                            bRaised = true;
+                        }
+                        break;
+                    case HandAction.ACTION_FOLD:
+                        act[seat][round] |= PokerDatabase.BIT_FOLD;
+                        break;
+                    case HandAction.ACTION_WIN:
+                        // wins are applied to the round in which the player last acted
+                        act[seat][lastRound[seat]] |= PokerDatabase.BIT_WIN;
+                        break;
+                }
+            }
+
+            setTournament();
+
+            // "future" hands of reloaded game are removed with first hand stored
+            if (game.isDeleteHandsAfterSaveDate())
+            {
+                deleteAfterHandID = game.getLastHandSaved();
+                game.setDeleteHandsAfterSaveDate(false);
+            }
+
+            // hand
+            handNumber = Integer.toString(table.getHandNum());
+            tableNumber = Integer.toString(table.getNumber());
+            gameType = hhand.isNoLimit() ? "NOLIMIT" : hhand.isPotLimit() ? "POTLIMIT" : "LIMIT";
+            startDate = hhand.getStartDate();
+            endDate = hhand.getEndDate();
+            ante = hhand.getAnte();
+            smallBlind = hhand.getSmallBlind();
+            bigBlind = hhand.getBigBlind();
+            community = toStrings(hhand.getCommunity(), 5);
+
+            // since players at table may not have been in hand,
+            // go by HoldemHand player list
+            int numPlayers = hhand.getNumPlayers();
+            players = new PlayerRecord[numPlayers];
+            for (int p = 0; p < numPlayers; ++p)
+            {
+                PokerPlayer player = hhand.getPlayerAt(p);
+                players[p] = new PlayerRecord(player, act[player.getSeat()]);
+            }
+
+            actions = new ActionRecord[history.size()];
+            for (int i = 0; i < actions.length; ++i)
+            {
+                actions[i] = new ActionRecord(history.get(i));
+            }
+
+            // results of the human
+            PokerPlayer human = game.getHumanPlayer();
+            if (human != null)
+            {
+                finish = new FinishRecord(game, human);
+            }
+        }
+
+        /**
+         * Copy player's finish in tournament, without a hand (call from game thread)
+         */
+        HandRecord(PokerGame game, PokerPlayer player)
+        {
+            this.game = game;
+            database = PokerDatabase.getDatabase();
+            setTournament();
+            finish = new FinishRecord(game, player);
+        }
+
+        private void setTournament()
+        {
+            tournamentStartDate = game.getStartDate();
+            tournamentType = game.isOnlineGame() ? "ONLINE" : "PRACTICE";
+            tournamentName = game.getProfile().getName();
+            tournamentPlayers = game.getNumPlayers();
+        }
+
+        /**
+         * false if only a tournament finish
+         */
+        boolean isHand()
+        {
+            return players != null;
+        }
+
+        int getHandID()
+        {
+            return handID;
+        }
+    }
+
+    /**
+     * Copy of player's hand
+     */
+    private static class PlayerRecord
+    {
+        private final int id;
+        private final String name;
+        private final long profileCreateDate;
+        private final int seat;
+        private final int startChips;
+        private final int endChips;
+        private final String[] pocket;
+        private final byte[] actions;
+        private final boolean cardsExposed;
+
+        PlayerRecord(PokerPlayer player, byte[] actions)
+        {
+            boolean useProfile = player.isHuman() && player.isLocallyControlled();
+
+            id = player.getID();
+            name = player.getName();
+            profileCreateDate = useProfile ? player.getProfile().getCreateDate() : 0;
+            seat = player.getSeat();
+            startChips = player.getChipCountAtStart();
+            endChips = player.getChipCount();
+            pocket = toStrings(player.getHand(), 4);
+            this.actions = actions;
+            cardsExposed = player.isCardsExposed() || useProfile;
+        }
+    }
+
+    /**
+     * Copy of an action
+     */
+    private static class ActionRecord
+    {
+        private final int seat;
+        private final int round;
+        private final String type;
+        private final int amount;
+        private final int subAmount;
+        private final boolean allIn;
+        private final String intent;
+
+        ActionRecord(HandAction action)
+        {
+            seat = action.getPlayer().getSeat();
+            round = action.getRound();
+            type = action.getActionCode();
+            amount = action.getAmount();
+            subAmount = action.getSubAmount();
+            allIn = action.isAllIn();
+
+            String debug = action.getDebug();
+            if ((debug != null) && debug.length() > PokerDatabase.INTENT_LENGTH)
+            {
+                logger.warn("Value of action.getDebug() is longer than " + PokerDatabase.INTENT_LENGTH +
+                            " characters.  Truncating.\n" + debug);
+                debug = debug.substring(0, PokerDatabase.INTENT_LENGTH);
+            }
+            intent = debug;
+        }
+    }
+
+    /**
+     * Copy of human's tournament standing
+     */
+    private static class FinishRecord
+    {
+        private final long profileCreateDate;
+        private final long endDate;
+        private final int place;
+        private final int prize;
+        private final int buyin;
+        private final int rebuy;
+        private final int addon;
+        private final int playersRemaining;
+
+        FinishRecord(PokerGame game, PokerPlayer player)
+        {
+            profileCreateDate = player.getProfile().getCreateDate();
+            endDate = System.currentTimeMillis();
+            place = player.getPlace();
+            prize = player.getPrize();
+            buyin = player.getBuyin();
+            rebuy = player.getRebuy();
+            addon = player.getAddon();
+            playersRemaining = game.getNumPlayers() - game.getNumPlayersOut();
+        }
+    }
+
+    /**
+     * cards as stored in database
+     */
+    private static String[] toStrings(Hand hand, int max)
+    {
+        String[] cards = new String[Math.min(hand.size(), max)];
+        for (int i = 0; i < cards.length; ++i)
+        {
+            cards[i] = PokerDatabase.toString(hand.getCard(i));
+        }
+        return cards;
+    }
+}
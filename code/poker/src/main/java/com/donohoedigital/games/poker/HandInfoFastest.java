@@ -0,0 +1,323 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker;
+
+import com.donohoedigital.games.poker.engine.*;
+
+/**
+ * Table driven hand evaluator.  Returns exactly the same score as
+ * {@link HandInfoFast#getScore(Hand, Hand)} (and {@link HandInfoFaster}),
+ * but works on a card mask (as returned by {@link Hand#fingerprint()}),
+ * where bit <code>n</code> is the card with {@link Card#getIndex()} of <code>n</code>.
+ * <p>
+ * The mask is split into one 13-bit rank mask per suit, and pairs, trips and quads
+ * are found with bit logic on those masks.  Straights and kickers are looked up in
+ * tables indexed by a rank mask, which are built once when the class is loaded.
+ * Nothing is allocated per call, and instances hold no state other than the
+ * last cards scored, so one instance per thread is all that is needed.
+ *
+ * @author  donohoe
+ */
+public class HandInfoFastest
+{
+    // num cards
+    private static final int NUM_CARDS = 5;
+
+    // size of rank mask tables (one bit per rank, TWO is bit 0)
+    private static final int NUM_RANKS = Card.ACE - Card.TWO + 1;
+    private static final int RANK_MASK = (1 << NUM_RANKS) - 1;
+
+    // valid card bits in a mask (excludes BLANK, which has index 52)
+    private static final long CARD_MASK = (1L << 52) - 1;
+
+    // mask of all clubs (shift by suit for others)
+    private static final long SUIT_MASK = 0x1111111111111L;
+
+    // wheel (A2345) as a rank mask
+    private static final int WHEEL = (1 << (Card.ACE - Card.TWO)) | 0xF;
+
+    /**
+     * High rank of best straight in the rank mask (0 if none)
+     */
+    private static final byte[] STRAIGHT_HIGH = new byte[1 << NUM_RANKS];
+
+    /**
+     * Top five ranks in the rank mask, stored as kickers starting at H4
+     * (e.g., AKQ32 is A*H4 + K*H3 + Q*H2 + 3*H1 + 2*H0)
+     */
+    private static final int[] TOP_FIVE = new int[1 << NUM_RANKS];
+
+    /**
+     * Eight bits of a card mask (two ranks) split into suits, with each
+     * suit's two rank bits starting at bit 16 * suit
+     */
+    private static final long[] SPLIT = new long[256];
+
+    static
+    {
+        for (int i = 0; i < 256; i++)
+        {
+            long suits = 0;
+            for (int index = 0; index < 8; index++)
+            {
+                if ((i & (1 << index)) != 0) suits |= 1L << (((index & 3) << 4) + (index >> 2));
+            }
+            SPLIT[i] = suits;
+        }
+
+        for (int mask = 0; mask <= RANK_MASK; mask++)
+        {
+            // straights - highest run of five wins, wheel is low
+            byte high = 0;
+            for (int r = Card.ACE; r >= Card.SIX && high == 0; r--)
+            {
+                int run = 0x1F << (r - Card.TWO - 4);
+                if ((mask & run) == run) high = (byte) r;
+            }
+            if (high == 0 && (mask & WHEEL) == WHEEL) high = Card.FIVE;
+            STRAIGHT_HIGH[mask] = high;
+
+            // kickers
+            int value = 0;
+            int H = HandInfo.H4;
+            for (int r = Card.ACE; r >= Card.TWO && H != 0; r--)
+            {
+                if ((mask & (1 << (r - Card.TWO))) != 0)
+                {
+                    value += r * H;
+                    H = H >> 4;
+                }
+            }
+            TOP_FIVE[mask] = value;
+        }
+    }
+
+    // last cards scored
+    private long lastCards_;
+
+    /**
+     * Get score of hole cards plus community (either may be null).  Cards
+     * are read directly (rather than using Hand.fingerprint()) so that hands whose
+     * cards were changed via Card.setValue() are scored correctly.
+     */
+    public int getScore(Hand hole, Hand community)
+    {
+        long cards = 0;
+        if (hole != null)
+        {
+            for (int i = hole.size() - 1; i >= 0; i--)
+            {
+                cards |= 1L << hole.getCard(i).getIndex();
+            }
+        }
+        if (community != null)
+        {
+            for (int i = community.size() - 1; i >= 0; i--)
+            {
+                cards |= 1L << community.getCard(i).getIndex();
+            }
+        }
+        return getScore(cards);
+    }
+
+    /**
+     * Get score of the given two card masks
+     */
+    public int getScore(long hole, long community)
+    {
+        return getScore(hole | community);
+    }
+
+    /**
+     * Get score of the cards in the given mask (up to seven cards)
+     */
+    public int getScore(long cards)
+    {
+        cards &= CARD_MASK;
+        lastCards_ = cards;
+
+        // split into rank masks by suit (each suit gets 16 bits), two ranks at a time
+        long suits = SPLIT[(int) cards & 0xFF] |
+                     SPLIT[(int) (cards >>> 8) & 0xFF] << 2 |
+                     SPLIT[(int) (cards >>> 16) & 0xFF] << 4 |
+                     SPLIT[(int) (cards >>> 24) & 0xFF] << 6 |
+                     SPLIT[(int) (cards >>> 32) & 0xFF] << 8 |
+                     SPLIT[(int) (cards >>> 40) & 0xFF] << 10 |
+                     SPLIT[(int) (cards >>> 48) & 0xFF] << 12;
+
+        int clubs = (int) suits & RANK_MASK;
+        int diamonds = (int) (suits >>> 16) & RANK_MASK;
+        int hearts = (int) (suits >>> 32) & RANK_MASK;
+        int spades = (int) (suits >>> 48) & RANK_MASK;
+
+        return getScore(clubs, diamonds, hearts, spades, Long.bitCount(cards));
+    }
+
+    /**
+     * Get score from rank masks for each suit
+     */
+    private static int getScore(int clubs, int diamonds, int hearts, int spades, int nNumCards)
+    {
+        int ranks = clubs | diamonds | hearts | spades;
+
+        // when fewer than five cards, the low kickers are dropped
+        int kickMask = nNumCards >= NUM_CARDS ? -1 : -1 << ((NUM_CARDS - nNumCards) << 2);
+
+        // flush
+        int flush = 0;
+        if (Integer.bitCount(clubs) >= NUM_CARDS) flush = clubs;
+        else if (Integer.bitCount(diamonds) >= NUM_CARDS) flush = diamonds;
+        else if (Integer.bitCount(hearts) >= NUM_CARDS) flush = hearts;
+        else if (Integer.bitCount(spades) >= NUM_CARDS) flush = spades;
+
+        if (flush != 0)
+        {
+            int high = STRAIGHT_HIGH[flush];
+            if (high != 0)
+            {
+                return (high == Card.ACE ? HandInfo.ROYAL_FLUSH : HandInfo.STRAIGHT_FLUSH) * HandInfo.BASE +
+                       high * HandInfo.H0;
+            }
+        }
+
+        // quads
+        int quads = clubs & diamonds & hearts & spades;
+        if (quads != 0)
+        {
+            int quad = highBit(quads);
+            return HandInfo.QUADS * HandInfo.BASE +
+                   rankOf(quad) * HandInfo.H1 +
+                   ((TOP_FIVE[ranks & ~quad] >> 16) & kickMask);
+        }
+
+        // trips (exactly 3) and pairs (exactly 2, since no quads)
+        int trips = ((clubs & diamonds) | (hearts & spades)) & ((clubs & hearts) | (diamonds & spades));
+        int pairs = ranks ^ (clubs ^ diamonds ^ hearts ^ spades);
+
+        if (trips != 0)
+        {
+            int trip = highBit(trips);
+            int others = trips ^ trip;
+            if (others != 0)
+            {
+                return HandInfo.FULL_HOUSE * HandInfo.BASE + rankOf(trip) * HandInfo.H1 + rankOf(highBit(others)) * HandInfo.H0;
+            }
+            if (pairs != 0)
+            {
+                return HandInfo.FULL_HOUSE * HandInfo.BASE + rankOf(trip) * HandInfo.H1 + rankOf(highBit(pairs)) * HandInfo.H0;
+            }
+        }
+
+        if (flush != 0)
+        {
+            return HandInfo.FLUSH * HandInfo.BASE + TOP_FIVE[flush];
+        }
+
+        int high = STRAIGHT_HIGH[ranks];
+        if (high != 0)
+        {
+            return HandInfo.STRAIGHT * HandInfo.BASE + high * HandInfo.H0;
+        }
+
+        if (trips != 0)
+        {
+            int trip = highBit(trips);
+            return HandInfo.TRIPS * HandInfo.BASE +
+                   rankOf(trip) * HandInfo.H2 +
+                   ((TOP_FIVE[ranks & ~trip] >> 12) & kickMask);
+        }
+
+        if (pairs != 0)
+        {
+            int pair = highBit(pairs);
+            int others = pairs ^ pair;
+            if (others != 0)
+            {
+                int pair2 = highBit(others);
+                return HandInfo.TWO_PAIR * HandInfo.BASE +
+                       rankOf(pair) * HandInfo.H2 +
+                       rankOf(pair2) * HandInfo.H1 +
+                       ((TOP_FIVE[ranks & ~(pair | pair2)] >> 16) & kickMask);
+            }
+            return HandInfo.PAIR * HandInfo.BASE +
+                   rankOf(pair) * HandInfo.H3 +
+                   ((TOP_FIVE[ranks & ~pair] >> 8) & kickMask);
+        }
+
+        return HandInfo.HIGH_CARD * HandInfo.BASE + (TOP_FIVE[ranks] & kickMask);
+    }
+
+    /**
+     * highest bit in mask
+     */
+    private static int highBit(int mask)
+    {
+        return Integer.highestOneBit(mask);
+    }
+
+    /**
+     * rank of single bit rank mask
+     */
+    private static int rankOf(int bit)
+    {
+        return Integer.numberOfTrailingZeros(bit) + Card.TWO;
+    }
+
+    /**
+     * Get suit with the most cards from last getScore() call (lowest suit on a tie)
+     */
+    public int getLastMajorSuit()
+    {
+        int nMajor = 0;
+        int nMost = -1;
+        for (int suit = 0; suit < CardSuit.NUM_SUITS; suit++)
+        {
+            int n = Long.bitCount(lastCards_ & (SUIT_MASK << suit));
+            if (n > nMost)
+            {
+                nMost = n;
+                nMajor = suit;
+            }
+        }
+        return nMajor;
+    }
+
+    /**
+     * to string - should not be used
+     */
+    @Override
+    public String toString()
+    {
+        return "Don't use HandInfoFastest.toString() - use HandInfoFast";
+    }
+}
@@ -39,6 +39,7 @@ import com.donohoedigital.base.*;
 import static com.donohoedigital.config.DebugConfig.*;
 import com.donohoedigital.config.*;
 import com.donohoedigital.games.config.*;
+import com.donohoedigital.games.poker.ai.*;
 import com.donohoedigital.games.poker.engine.*;
 import org.apache.log4j.*;
 
@@ -112,9 +113,17 @@ public class HandPotential
     private Hand pocket_;
     private Hand community_;
 
-    private int handCounts_[][] = new int[aStatKeys_.size()][2];
+    // [0] - next card, [1] - next two cards (flop only)
+    private int handCounts_[][] = new int[2][aStatKeys_.size()];
     private int totalHandCount_[] = new int[2];
 
+    // flop only - river tallies for each possible turn card (by card index),
+    // kept so the turn can be derived without re-enumerating
+    private int turnCounts_[][];
+
+    // results are fixed for a given pocket/board, so share them for the rest of the hand
+    private static final PocketCache<HandPotential> cache_ = new PocketCache<HandPotential>("HandPotential", 256);
+
     // debug
     private static boolean PERF = false;
     
@@ -217,6 +226,86 @@ public class HandPotential
         calculate();
     }
 
+    /**
+     * Constructor for the turn, derived from the river tallies kept by the flop
+     */
+    private HandPotential(Hand pocket, Hand community, HandPotential flop, Card turn)
+    {
+        pocket_ = pocket;
+        community_ = community;
+
+        System.arraycopy(flop.turnCounts_[turn.getIndex()], 0, handCounts_[0], 0, handCounts_[0].length);
+        totalHandCount_[0] = 52 - pocket.size() - community.size();
+    }
+
+    /**
+     * Get hand potential for given pocket and community, re-using a previous result
+     * for the same cards if available.  On the turn, the result is derived from
+     * the flop's result if that was previously computed.  Returned instances are
+     * shared and should not be modified.
+     */
+    public static HandPotential getInstance(Hand pocket, Hand community)
+    {
+        if (pocket.size() != 2) return new HandPotential(pocket, community);
+
+        long hole = pocket.fingerprint();
+        long board = (community == null) ? 0 : community.fingerprint();
+        long key = getKey(board, hole);
+
+        HandPotential potential = cache_.get(key);
+
+        if (potential == null)
+        {
+            // copy since instance is shared and callers may change their hands
+            pocket = new Hand(pocket);
+            if (community != null) community = new Hand(community);
+
+            if (community != null && community.size() == 4)
+            {
+                // look for the flop, trying the most recently added card first
+                for (int i = 3; i >= 0 && potential == null; i--)
+                {
+                    Card turn = community.getCard(i);
+                    HandPotential flop = cache_.get(getKey(board & ~(1L << turn.getIndex()), hole));
+                    if (flop != null)
+                    {
+                        potential = new HandPotential(pocket, community, flop, turn);
+                    }
+                }
+            }
+
+            if (potential == null)
+            {
+                potential = new HandPotential(pocket, community);
+            }
+
+            cache_.put(key, potential);
+        }
+
+        return potential;
+    }
+
+    /**
+     * Get cache of previously computed results
+     */
+    public static PocketCache<HandPotential> getCache()
+    {
+        return cache_;
+    }
+
+    /**
+     * Cache key - board fingerprint uses the low 52 bits, the pocket's
+     * index in a PocketMatrix the upper bits.
+     */
+    private static long getKey(long board, long hole)
+    {
+        int i = 63 - Long.numberOfLeadingZeros(hole);
+        int j = Long.numberOfTrailingZeros(hole);
+        long x = (i*(i-1))/2+j;
+
+        return board | (x << 52);
+    }
+
     private void calculate() {
 
         Deck deck = new Deck(false);
@@ -277,15 +366,41 @@ public class HandPotential
                     community.setCard(3, deck.getCard(i));
                     processHand(infoHand, community, 0);
                 }
+
+                // each turn/river pair is tallied for the river and also kept
+                // under both cards, since either could be the turn
+                int nStats = aStatKeys_.size();
+                int[] counts = new int[nStats];
+                turnCounts_ = new int[52][];
+                for (int i = 0; i < deck.size(); ++i)
+                {
+                    turnCounts_[deck.getCard(i).getIndex()] = new int[nStats];
+                }
+
                 community = new Hand
                         (community_.getCard(0), community_.getCard(1), community_.getCard(2), null, null);
                 for (int i = 0; i < deck.size() - 1; ++i)
                 {
+                    Card turn = deck.getCard(i);
+                    int[] turnCounts = turnCounts_[turn.getIndex()];
                     for (int j = i + 1; j < deck.size(); ++j)
                     {
-                        community.setCard(3, deck.getCard(i));
-                        community.setCard(4, deck.getCard(j));
-                        processHand(infoHand, community, 1);
+                        Card river = deck.getCard(j);
+                        int[] riverCounts = turnCounts_[river.getIndex()];
+                        community.setCard(3, turn);
+                        community.setCard(4, river);
+
+                        Arrays.fill(counts, 0);
+                        processHand(infoHand, community, counts);
+                        ++totalHandCount_[1];
+                        for (int s = 0; s < nStats; ++s)
+                        {
+                            int n = counts[s];
+                            if (n == 0) continue;
+                            handCounts_[1][s] += n;
+                            turnCounts[s] += n;
+                            riverCounts[s] += n;
+                        }
                     }
                 }
                 break;
@@ -305,7 +420,11 @@ public class HandPotential
     private void processHand(HandInfoFast infoHand, Hand community, int index)
     {
         ++totalHandCount_[index];
+        processHand(infoHand, community, handCounts_[index]);
+    }
 
+    private void processHand(HandInfoFast infoHand, Hand community, int[] counts)
+    {
         int straightDrawOuts;
 
         infoHand.getScore(pocket_, community);
@@ -314,59 +433,59 @@ public class HandPotential
 
         if (straightDrawOuts > 0)
         {
-            ++handCounts_[STRAIGHT_DRAW][index];
+            ++counts[STRAIGHT_DRAW];
         }
 
         switch (straightDrawOuts)
         {
             case 8:
-                ++handCounts_[STRAIGHT_DRAW_8_OUTS][index];
+                ++counts[STRAIGHT_DRAW_8_OUTS];
                 break;
             case 6:
-                ++handCounts_[STRAIGHT_DRAW_6_OUTS][index];
+                ++counts[STRAIGHT_DRAW_6_OUTS];
                 break;
             case 4:
-                ++handCounts_[STRAIGHT_DRAW_4_OUTS][index];
+                ++counts[STRAIGHT_DRAW_4_OUTS];
                 break;
             case 3:
-                ++handCounts_[STRAIGHT_DRAW_3_OUTS][index];
+                ++counts[STRAIGHT_DRAW_3_OUTS];
                 break;
             case 0:
                 break;
         }
         if (infoHand.hasFlushDraw())
         {
-            ++handCounts_[FLUSH_DRAW][index];
+            ++counts[FLUSH_DRAW];
             switch (infoHand.getFlushDrawPocketsPlayed())
             {
                 case 2:
-                    ++handCounts_[FLUSH_DRAW_WITH_TWO_CARDS][index];
+                    ++counts[FLUSH_DRAW_WITH_TWO_CARDS];
                     if (infoHand.hasNutFlushDraw())
                     {
-                        ++handCounts_[NUT_FLUSH_DRAW_WITH_TWO_CARDS][index];
+                        ++counts[NUT_FLUSH_DRAW_WITH_TWO_CARDS];
                     }
                     else if (infoHand.has2ndNutFlushDraw())
                     {
-                        ++handCounts_[SECOND_NUT_FLUSH_DRAW_WITH_TWO_CARDS][index];
+                        ++counts[SECOND_NUT_FLUSH_DRAW_WITH_TWO_CARDS];
                     }
                     else
                     {
-                        ++handCounts_[WEAK_FLUSH_DRAW_WITH_TWO_CARDS][index];
+                        ++counts[WEAK_FLUSH_DRAW_WITH_TWO_CARDS];
                     }
                     break;
                 case 1:
-                    ++handCounts_[FLUSH_DRAW_WITH_ONE_CARD][index];
+                    ++counts[FLUSH_DRAW_WITH_ONE_CARD];
                     if (infoHand.hasNutFlushDraw())
                     {
-                        ++handCounts_[NUT_FLUSH_DRAW_WITH_ONE_CARD][index];
+                        ++counts[NUT_FLUSH_DRAW_WITH_ONE_CARD];
                     }
                     else if (infoHand.has2ndNutFlushDraw())
                     {
-                        ++handCounts_[SECOND_NUT_FLUSH_DRAW_WITH_ONE_CARD][index];
+                        ++counts[SECOND_NUT_FLUSH_DRAW_WITH_ONE_CARD];
                     }
                     else
                     {
-                        ++handCounts_[WEAK_FLUSH_DRAW_WITH_ONE_CARD][index];
+                        ++counts[WEAK_FLUSH_DRAW_WITH_ONE_CARD];
                     }
                     break;
             }
@@ -375,90 +494,90 @@ public class HandPotential
         switch (infoHand.getHandType())
         {
             case HandInfo.ROYAL_FLUSH:
-                ++handCounts_[ROYAL_FLUSH][index];
+                ++counts[ROYAL_FLUSH];
                 break;
             case HandInfo.STRAIGHT_FLUSH:
-                ++handCounts_[STRAIGHT_FLUSH][index];
+                ++counts[STRAIGHT_FLUSH];
                 break;
             case HandInfo.QUADS:
-                ++handCounts_[FOUR_OF_A_KIND][index];
+                ++counts[FOUR_OF_A_KIND];
                 break;
             case HandInfo.FLUSH:
-                ++handCounts_[FLUSH][index];
+                ++counts[FLUSH];
                 switch (infoHand.getBetterFlushCardCount())
                 {
                     case 0:
-                        ++handCounts_[NUT_FLUSH][index];
+                        ++counts[NUT_FLUSH];
                         break;
                     case 1:
-                        ++handCounts_[SECOND_NUT_FLUSH][index];
+                        ++counts[SECOND_NUT_FLUSH];
                         break;
                     default:
-                        ++handCounts_[WEAK_FLUSH][index];
+                        ++counts[WEAK_FLUSH];
                         break;
                 }
                 break;
             case HandInfo.FULL_HOUSE:
-                ++handCounts_[FULL_HOUSE][index];
+                ++counts[FULL_HOUSE];
                 if (community.hasTrips())
                 {
-                    ++handCounts_[FULL_HOUSE_TRIPS_ON_BOARD][index];
+                    ++counts[FULL_HOUSE_TRIPS_ON_BOARD];
                 }
                 else
                 {
-                    ++handCounts_[FULL_HOUSE_PAIR_ON_BOARD][index];
+                    ++counts[FULL_HOUSE_PAIR_ON_BOARD];
                 }
                 break;
             case HandInfo.STRAIGHT:
-                ++handCounts_[STRAIGHT][index];
+                ++counts[STRAIGHT];
                 if (infoHand.getStraightHighRank() == infoHand.getNutStraightHighRank())
                 {
-                    ++handCounts_[NUT_STRAIGHT][index];
+                    ++counts[NUT_STRAIGHT];
                 }
                 else
                 {
-                    ++handCounts_[NON_NUT_STRAIGHT][index];
+                    ++counts[NON_NUT_STRAIGHT];
                 }
                 break;
             case HandInfo.TRIPS:
-                ++handCounts_[THREE_OF_A_KIND][index];
+                ++counts[THREE_OF_A_KIND];
                 if (pocket_.hasPair())
                 {
-                    ++handCounts_[SET][index];
+                    ++counts[SET];
                 }
                 else
                 {
                     if (community.hasTrips())
                     {
-                        ++handCounts_[TRIPS_ON_BOARD][index];
+                        ++counts[TRIPS_ON_BOARD];
                     }
                     else
                     {
-                        ++handCounts_[TRIPS][index];
+                        ++counts[TRIPS];
                     }
                 }
                 break;
             case HandInfo.TWO_PAIR:
-                ++handCounts_[TWO_PAIR][index];
+                ++counts[TWO_PAIR];
                 if (pocket_.hasPair())
                 {
-                    ++handCounts_[TWO_PAIR_PAIR_ON_BOARD][index];
+                    ++counts[TWO_PAIR_PAIR_ON_BOARD];
                 }
                 else
                 {
                     if (community.hasPair())
                     {
-                        ++handCounts_[TWO_PAIR_PAIR_ON_BOARD][index];
+                        ++counts[TWO_PAIR_PAIR_ON_BOARD];
                     }
                     else
                     {
-                        ++handCounts_[TWO_PAIR_NO_PAIR_ON_BOARD][index];
+                        ++counts[TWO_PAIR_NO_PAIR_ON_BOARD];
                     }
                 }
                 break;
             case HandInfo.PAIR:
 
-                ++handCounts_[PAIR][index];
+                ++counts[PAIR];
 
                 int pairRank = infoHand.getBigPairRank();
 
@@ -466,28 +585,28 @@ public class HandPotential
                 {
                     if (pairRank > infoHand.getHighestBoardRank())
                     {
-                        ++handCounts_[OVERPAIR][index];
+                        ++counts[OVERPAIR];
                     }
                     else if (pairRank < infoHand.getLowestBoardRank())
                     {
-                        ++handCounts_[UNDERPAIR][index];
+                        ++counts[UNDERPAIR];
                     }
                     else
                     {
-                        ++handCounts_[MIDPAIR][index];
+                        ++counts[MIDPAIR];
                     }
                 }
                 else if (community.hasPair())
                 {
-                    ++handCounts_[PAIR_ON_BOARD][index];
+                    ++counts[PAIR_ON_BOARD];
 
                     switch (infoHand.getOvercardCount())
                     {
                         case 2:
-                            ++handCounts_[PAIR_ON_BOARD_WITH_TWO_OVERCARDS][index];
+                            ++counts[PAIR_ON_BOARD_WITH_TWO_OVERCARDS];
                             break;
                         case 1:
-                            ++handCounts_[PAIR_ON_BOARD_WITH_ONE_OVERCARD][index];
+                            ++counts[PAIR_ON_BOARD_WITH_ONE_OVERCARD];
                             break;
                     }
                 }
@@ -495,40 +614,40 @@ public class HandPotential
                 {
                     if (pairRank == infoHand.getHighestBoardRank())
                     {
-                        ++handCounts_[TOP_PAIR][index];
+                        ++counts[TOP_PAIR];
 
                         if (infoHand.getOvercardCount() > 0)
                         {
-                            ++handCounts_[TOP_PAIR_WITH_OVERCARD][index];
+                            ++counts[TOP_PAIR_WITH_OVERCARD];
                         }
                     }
                     else
                     {
-                        ++handCounts_[MIDDLE_OR_BOTTOM_PAIR][index];
+                        ++counts[MIDDLE_OR_BOTTOM_PAIR];
 
                         if (infoHand.getOvercardCount() > 0)
                         {
                             if (pairRank == infoHand.getLowestBoardRank())
                             {
-                                ++handCounts_[BOTTOM_PAIR_WITH_OVERCARD][index];
+                                ++counts[BOTTOM_PAIR_WITH_OVERCARD];
                             }
                             else
                             {
-                                ++handCounts_[MIDDLE_PAIR_WITH_OVERCARD][index];
+                                ++counts[MIDDLE_PAIR_WITH_OVERCARD];
                             }
                         }
                     }
                 }
                 break;
             case HandInfo.HIGH_CARD:
-                ++handCounts_[HIGH_CARD][index];
+                ++counts[HIGH_CARD];
                 switch (infoHand.getOvercardCount())
                 {
                     case 2:
-                        ++handCounts_[TWO_OVERCARDS][index];
+                        ++counts[TWO_OVERCARDS];
                         break;
                     case 1:
-                        ++handCounts_[ONE_OVERCARD][index];
+                        ++counts[ONE_OVERCARD];
                         break;
                 }
                 break;
@@ -615,13 +734,13 @@ public class HandPotential
             if (twoColumns)
             {
                 a = 0;
-                handCountA = handCounts_[i][0];
-                handCountB = handCounts_[i][1];
+                handCountA = handCounts_[0][i];
+                handCountB = handCounts_[1][i];
             }
             else
             {
                 a = ((round == HoldemHand.ROUND_RIVER) && (stage == 1)) ? 1 : 0;
-                handCountA = handCounts_[i][a];
+                handCountA = handCounts_[a][i];
             }
 
             if (((handCountA > 0) || (handCountB > 0)) && ((stage != 2) || i < nFirstDrawKey_))
@@ -699,7 +818,7 @@ public class HandPotential
 
     public int getHandCount(int type, int index)
     {
-        return handCounts_[type][index];
+        return handCounts_[index][type];
     }
 
     /**
@@ -721,7 +840,7 @@ public class HandPotential
         ApplicationError.assertTrue(MORE == 2 || MORE == 1, "HandPotential called with wrong board", community);
         
         // our rank
-        HandInfoFaster FAST = new HandInfoFaster();
+        HandInfoFastest FAST = new HandInfoFastest();
         int ourscore = FAST.getScore(hole, community);
         
         // get remaining cards (new deck less hole, community)
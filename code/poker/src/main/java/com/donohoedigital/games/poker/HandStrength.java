@@ -43,6 +43,7 @@ import static com.donohoedigital.config.DebugConfig.*;
 import com.donohoedigital.games.config.*;
 import com.donohoedigital.games.poker.engine.*;
 import org.apache.log4j.*;
+import java.util.*;
 import com.donohoedigital.config.*;
 
 /**
@@ -79,30 +80,27 @@ public class HandStrength
         float nTied = 0;
         float nBehind = 0;
         nNumStraights_ = 0;
-        Hand holecopy = new Hand(hole); // copy for reuse (set to 2 cards because ...
         int nType;
         
         // our rank
-        HandInfoFaster FAST = new HandInfoFaster();
-        int ourscore = FAST.getScore(holecopy, community);
+        HandInfoFastest FAST = new HandInfoFastest();
+        long comm = community.fingerprint();
+        int ourscore = FAST.getScore(hole.fingerprint(), comm);
         
-        // get remaining cards (new deck less hole, community)
-        Deck deck = new Deck(false);
-        deck.removeCards(hole);
-        deck.removeCards(community);
+        // get remaining cards (all cards less hole, community)
+        CardSet deck = CardSet.deck();
+        deck.removeAll(hole);
+        deck.removeAll(community);
         
-        // loop through deck
+        // loop through all opponent hands
         int oppscore;
-        int nSize = deck.size();
-        for (int i = 0; i < nSize - 1; i++)
+        long opp;
+        for (int i = deck.nextIndex(0); i >= 0; i = deck.nextIndex(i + 1))
         {
-            for (int j = i+1; j < nSize; j++)
+            opp = comm | (1L << i);
+            for (int j = deck.nextIndex(i + 1); j >= 0; j = deck.nextIndex(j + 1))
             {
-                // ... replace faster than clear/add/add)
-                holecopy.setCard(0, deck.getCard(i));
-                holecopy.setCard(1, deck.getCard(j));
-                //logger.debug("Hole ["+i+","+j+"]: " + holecopy + " comm: " + community);
-                oppscore = FAST.getScore(holecopy, community);
+                oppscore = FAST.getScore(opp | (1L << j));
                 
                 if (ourscore > oppscore) nAhead++;
                 else if (ourscore == oppscore) nTied++;
@@ -170,143 +168,38 @@ public class HandStrength
     }
 
     /**
-     * Calculate all-in percentage for all players left in the hadn
+     * Calculate all-in percentage for all players left in the hand.  All remaining
+     * boards are enumerated (see AllInEquity).
      */
     public static void doAllInPercentages(HoldemHand hhand, Hand community)
     {
         int nNumPlayers = hhand.getNumPlayers();
         PokerPlayer player;
-        int nComm = community.size();
-        int MORE = 5 - nComm;        
 
-        // too expensive to calculate all 5 card boards, so just estimate
-        // from the flop
-        if (MORE > 3) MORE = 3;
-        
-        HandInfoFaster FAST = new HandInfoFaster();
-        Hand commcopy = new Hand(community); // copy for reuse
-        
-        // get remaining cards (new deck less hole, community)
-        Deck deck = new Deck(false);
-        deck.removeCards(community);
+        // hole cards of players still in hand
+        long holes[] = new long[nNumPlayers];
+        int nNumLive = 0;
         for (int i = 0; i < nNumPlayers; i++)
         {
             player = hhand.getPlayerAt(i);
             player.clearAllInWin();
             if (player.isFolded()) continue;
-            deck.removeCards(player.getHand());
+            holes[nNumLive++] = player.getHand().fingerprint();
         }
-                
-        // more init
-        int nSize = deck.size();
-        int nNumHands = 0;
-        
-        // loop over all remaining board cards
-        for (int next1 = 0; next1 < (nSize - (MORE-1)); next1++)
-        {
-            if (MORE >= 1) {
-                commcopy.addCard(deck.getCard(next1));
-                if (MORE >= 2) {
-                    for (int next2 = next1 + 1; next2 < (nSize - (MORE-2)); next2++)
-                    {
-                        commcopy.addCard(deck.getCard(next2));
-                        if (MORE >= 3) {
-                            for (int next3 = next2 + 1; next3 < (nSize - (MORE-3)); next3++)
-                            {
-                                commcopy.addCard(deck.getCard(next3));
-                                if (MORE >= 4) {
-                                    for (int next4 = next3 + 1; next4 < (nSize - (MORE-4)); next4++)
-                                    {
-                                        commcopy.addCard(deck.getCard(next4));
-                                        if (MORE == 5) {
-                                            for (int next5 = next4 + 1; next5 < nSize; next5++)
-                                            {
-                                                commcopy.addCard(deck.getCard(next5));
-                                                score(FAST, hhand, commcopy);
-                                                nNumHands++;
 
-                                                commcopy.removeCard(commcopy.size() - 1);
-                                            }
-                                        }
-                                        else
-                                        {
-                                            score(FAST, hhand, commcopy);
-                                            nNumHands++;
-                                        }
-                                        commcopy.removeCard(commcopy.size() - 1);
-                                    }
-                                }
-                                else
-                                {
-                                    score(FAST, hhand, commcopy);
-                                    nNumHands++;
-                                }
-                                commcopy.removeCard(commcopy.size() - 1);
-                            }
-                        }
-                        else
-                        {
-                            score(FAST, hhand, commcopy);
-                            nNumHands++;
-                        }
-                        commcopy.removeCard(commcopy.size() - 1);
-                    }
-                }
-                else
-                {
-                    score(FAST, hhand, commcopy);
-                    nNumHands++;
-                }
-                commcopy.removeCard(commcopy.size() - 1);
-            }
-            else
-            {
-                score(FAST, hhand, commcopy);
-                nNumHands++;
-            }
-        }
-        
-        // calc win percentage
-        //logger.debug("Num hands: " + nNumHands + " deck size: " + nSize);
-        float d;
+        AllInEquity.Result result = AllInEquity.calculate(Arrays.copyOf(holes, nNumLive), community.fingerprint());
+
+        // record wins and calc win percentage
+        int n = 0;
         for (int i = 0; i < nNumPlayers; i++)
         {
             player = hhand.getPlayerAt(i);
             if (player.isFolded()) continue;
-            d = 100.0f * (float) player.getAllInWin() / (float) nNumHands;
-            player.setAllInPerc(fPerc.form(d));
-
+            player.setAllInWin(result.getWins(n));
+            player.setAllInPerc(fPerc.form(result.getPercent(n)));
+            n++;
         }
     }
     
     private static Format fPerc = new Format("%2.1f");
-    
-    /** 
-     * figure score for each hand and record wins (ties count as wins)
-     */
-    private static void score(HandInfoFaster FAST, HoldemHand hhand, Hand comm)
-    {
-        int nNumPlayers = hhand.getNumPlayers();
-        PokerPlayer player;
-        int score;
-        int maxscore = 0;
-        for (int i = 0; i < nNumPlayers; i++)
-        {
-            player = hhand.getPlayerAt(i);
-            if (player.isFolded()) continue;
-            score = FAST.getScore(player.getHand(), comm);
-            player.setAllInScore(score);
-            if (score > maxscore) maxscore = score;
-        }
-        
-        for (int i = 0; i < nNumPlayers; i++)
-        {
-            player = hhand.getPlayerAt(i);
-            if (player.isFolded()) continue;
-            if (player.getAllInScore() == maxscore)
-            {
-                player.addAllInWin();
-            }
-        }
-    }
 }
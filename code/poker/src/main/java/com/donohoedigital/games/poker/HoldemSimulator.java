@@ -51,6 +51,25 @@ public class HoldemSimulator
     public static final String RANDOM_HANDS = PropertyConfig.getMessage("msg.sim.random");
     public static final String ALL_HANDS = PropertyConfig.getMessage("msg.sim.all");
 
+    // number of threads used by simulate() and iterate(Hand[], ...) - 1 means run on calling thread only
+    private static int nParallelism_ = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Set number of threads used by simulate() (1 or less for single-threaded)
+     */
+    public static void setParallelism(int n)
+    {
+        nParallelism_ = Math.max(n, 1);
+    }
+
+    /**
+     * Get number of threads used by simulate()
+     */
+    public static int getParallelism()
+    {
+        return nParallelism_;
+    }
+
     /**
      * get interval to update - divide handCount by given number and
      * return result - updates happen every [result] loops.  If the
@@ -82,6 +101,12 @@ public class HoldemSimulator
      */
     public static StatResults simulate(Hand hole, Hand community, int precision, DDProgressFeedback progress)
     {
+        // use multiple threads if we have them
+        if (nParallelism_ > 1)
+        {
+            return ParallelSimulator.simulate(hole, community, precision, progress, nParallelism_);
+        }
+
         Deck deck = new Deck(true);
         deck.removeCards(hole);
         if (community != null)
@@ -216,17 +241,13 @@ public class HoldemSimulator
     }
 
     /**
-     * simulate logic
+     * simulate logic.  Cards are dealt from an array of card indexes (copied from
+     * the given deck, which is not changed) using a partial Fisher-Yates shuffle, and
+     * hands are scored as card masks, so nothing is allocated once the trials start.
      */
     public static StatResult simulate(Hand hole, Hand community, int handCount, Deck deck, HandList list,
                                       DDProgressFeedback progress, int nNumDone, int nNumSims)
     {
-
-        int deckSize = deck.size();
-
-        Hand against;
-        Hand trialCommunity;
-
         //logger.debug("Simulating " + hole + " vs. " + ((list == null) ? "random hands": list.getName()) + " ("+
         //                            handCount + " hands).");
 
@@ -234,7 +255,21 @@ public class HoldemSimulator
         int lose = 0;
         int tie = 0;
 
-        HandInfoFaster fast = new HandInfoFaster();
+        HandInfoFastest fast = new HandInfoFastest();
+        MersenneTwisterFast random = deck.getRandom();
+
+        // remaining cards
+        int nNumCards = deck.size();
+        int[] cards = new int[nNumCards];
+        for (int i = 0; i < nNumCards; ++i)
+        {
+            cards[i] = deck.getCard(i).getIndex();
+        }
+
+        long holeMask = hole.fingerprint();
+        long communityMask = (community == null) ? 0 : community.fingerprint();
+        long dead = holeMask | communityMask;
+        int nBoardNeeded = 5 - ((community == null) ? 0 : community.size());
 
         boolean randomHand = (list == null);
 
@@ -242,6 +277,12 @@ public class HoldemSimulator
         int opponentCount = randomHand ? 0 : list.size();
         int handsPerOpponent = randomHand ? 0 : Math.max(handCount / opponentCount, 1);
 
+        long against;
+        long skip;
+        long board;
+        int dealt;
+        int r, c;
+
         for (int i = 0; i < handCount; ++i)
         {
             if (i % updateBarInterval == 0)
@@ -249,9 +290,21 @@ public class HoldemSimulator
                 perc(progress, nNumDone, nNumSims, i, handCount);
             }
 
+            dealt = 0;
+
             if (randomHand)
             {
-                against = new Hand(deck.nextCard(), deck.nextCard());
+                // deal opponent from top of deck
+                against = 0;
+                skip = 0;
+                for (; dealt < 2; ++dealt)
+                {
+                    r = dealt + random.nextInt(nNumCards - dealt);
+                    c = cards[r];
+                    cards[r] = cards[dealt];
+                    cards[dealt] = c;
+                    against |= 1L << c;
+                }
             }
             else
             {
@@ -260,49 +313,33 @@ public class HoldemSimulator
                 {
                     break;
                 }
-                against = list.get(opponentIndex);
-                if (hole.containsAny(against) || ((community != null) && (community.containsAny(against))))
+                against = list.get(opponentIndex).fingerprint();
+                if ((against & dead) != 0)
                 {
                     i = i + handsPerOpponent - 1;
                     continue;
                 }
-                deck.removeCards(against);
-            }
 
-            if (community == null)
-            {
-                trialCommunity = new Hand();
-            }
-            else
-            {
-                trialCommunity = new Hand(community);
+                // opponent's cards are still in the array, so skip them when dealing
+                skip = against;
             }
 
-            while (trialCommunity.size() < 5)
+            // deal rest of board
+            board = communityMask;
+            for (int n = 0; n < nBoardNeeded; ++n, ++dealt)
             {
-                trialCommunity.addCard(deck.nextCard());
-            }
-
-            //System.out.println("Getting score for player " + hole + trialCommunity);
-            //System.out.println("Getting score for opponent " + against + trialCommunity);
-
-            int result = fast.getScore(hole, trialCommunity) - fast.getScore(against, trialCommunity);
-
-            /*
-
-            // DEBUG
-
-            int f = fast.getScore(hole, trialCommunity);
-            int s = new HandInfo(hole, trialCommunity).getScore();
-
-            if (f != s) {
-                System.out.println("Fast score " + f + " differs from slow score " + s + " for " + hole + trialCommunity);
-                System.out.println("Fast says " + HandInfo.getHandTypeDesc(HandInfoFast.getTypeFromScore(f)));
-                System.out.println("Slow says " + HandInfo.getHandTypeDesc(HandInfoFast.getTypeFromScore(s)));
+                do
+                {
+                    r = dealt + random.nextInt(nNumCards - dealt);
+                    c = cards[r];
+                }
+                while ((skip & (1L << c)) != 0);
+                cards[r] = cards[dealt];
+                cards[dealt] = c;
+                board |= 1L << c;
             }
 
-            System.out.println("Fast says " + HandInfo.getHandTypeDesc(HandInfoFast.getTypeFromScore(f)) + " for " + hole + trialCommunity);
-            */
+            int result = fast.getScore(holeMask | board) - fast.getScore(against | board);
 
             if (result == 0)
             {
@@ -316,22 +353,6 @@ public class HoldemSimulator
             {
                 ++win;
             }
-
-            deck.addRandom(against);
-
-            if (community != null)
-            {
-                trialCommunity.removeAll(community);
-            }
-
-            // System.out.println("Adding back " + trialCommunity);
-
-            deck.addRandom(trialCommunity);
-        }
-
-        if (deckSize != deck.size())
-        {
-            logger.warn("Deck size mismatch in simulator!  Before, size was " + deckSize + ", after size was " + deck.size());
         }
 
         return new StatResult(hole, list, win, lose, tie);
@@ -355,7 +376,7 @@ public class HoldemSimulator
         Results results = new Results();
 
         // init
-        HandInfoFaster FAST = new HandInfoFaster();
+        HandInfoFastest FAST = new HandInfoFastest();
         Hand commcopy = new Hand(community); // copy for reuse
 
         // get remaining cards (new deck less hole, community)
@@ -451,7 +472,7 @@ public class HoldemSimulator
     /**
      * Record score from iterator and update progress meter
      */
-    private static void score(HandInfoFaster fast, Hand hole, Hand against, Hand community, Results results,
+    private static void score(HandInfoFastest fast, Hand hole, Hand against, Hand community, Results results,
                               DDProgressFeedback progress, int nNumDone, int nNumSims, int handCount)
     {
         int result = fast.getScore(hole, community) - fast.getScore(against, community);
@@ -561,7 +582,7 @@ public class HoldemSimulator
         Hand[] trialHands = new Hand[hands.length];
         Hand trialCommunity;
 
-        HandInfoFaster fast = new HandInfoFaster();
+        HandInfoFastest fast = new HandInfoFastest();
 
         Hand dealt = new Hand();
         int updateResultsInterval = getInterval(handCount, 25);
@@ -650,7 +671,7 @@ public class HoldemSimulator
     /**
      * figure out winner/loser and store results.
      */
-    private static void score(Hand[] trialHands, HandInfoFaster fast, Hand trialCommunity, StatResult[] results)
+    private static void score(Hand[] trialHands, HandInfoFastest fast, Hand trialCommunity, StatResult[] results)
     {
         int winners = 0;
         int winnerCount = 0;
@@ -749,9 +770,15 @@ public class HoldemSimulator
      */
     public static StatResult[] iterate(Hand[] hands, Hand community, DDProgressFeedback progress)
     {
+        // use multiple threads if we have them
+        if (nParallelism_ > 1)
+        {
+            return ParallelSimulator.iterate(hands, community, progress, nParallelism_);
+        }
+
         // init
         IndexKeeper ik = new IndexKeeper();
-        HandInfoFaster fast = new HandInfoFaster();
+        HandInfoFastest fast = new HandInfoFastest();
         Deck deck = new Deck(false);
         StatResult results[] = new StatResult[hands.length];
 
@@ -794,7 +821,7 @@ public class HoldemSimulator
     /**
      * recursive algorithm to iterate through all combinations
      */
-    private static void iterate(HandInfoFaster fast, StatResult results[],
+    private static void iterate(HandInfoFastest fast, StatResult results[],
                                 Deck deck, Hand[] allhands,
                                 DDProgressFeedback progress,
                                 IndexKeeper ik, int nDeckStartIdx)
@@ -0,0 +1,833 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.config.*;
+import com.donohoedigital.games.poker.engine.*;
+import com.donohoedigital.gui.*;
+import org.apache.log4j.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Multi-threaded version of {@link HoldemSimulator#simulate(Hand, Hand, int, DDProgressFeedback)}
+ * (and of the showdown calculator's {@link HoldemSimulator#iterate(Hand[], Hand, DDProgressFeedback)}).
+ * Each hand group is a task in a ForkJoinPool.  Groups that are enumerated (flop or later) are
+ * split by the first board card dealt, and groups that are simulated (pre-flop) are split
+ * into chunks of opponent hands.  Each worker has its own evaluator and deck, and the
+ * win/lose/tie counts are merged when the group is done.  Progress reporting and checking
+ * for stop happen on the calling thread.
+ */
+class ParallelSimulator
+{
+    static Logger logger = Logger.getLogger(ParallelSimulator.class);
+
+    // how often calling thread updates progress / checks for stop
+    private static final long PROGRESS_MILLIS = 100;
+
+    // number of chunks per thread when splitting simulated hands
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // pool (replaced if parallelism changes)
+    private static ForkJoinPool pool_;
+
+    /**
+     * Get pool with given parallelism.  A pool replaced because the parallelism
+     * changed isn't shut down, since simulations started on it may still be
+     * forking tasks - it finishes them, and its (daemon) workers exit once idle.
+     */
+    static synchronized ForkJoinPool getPool(int nParallelism)
+    {
+        if (pool_ == null || pool_.getParallelism() != nParallelism)
+        {
+            pool_ = new ForkJoinPool(nParallelism);
+        }
+        return pool_;
+    }
+
+    /**
+     * State shared between calling thread and workers
+     */
+    private static class Context
+    {
+        final int nParallelism;
+        final AtomicLong done = new AtomicLong();
+        volatile boolean stop;
+
+        Context(int nParallelism)
+        {
+            this.nParallelism = nParallelism;
+        }
+    }
+
+    /**
+     * win/lose/tie counts
+     */
+    private static class Tally
+    {
+        int win;
+        int lose;
+        int tie;
+
+        void add(Tally t)
+        {
+            win += t.win;
+            lose += t.lose;
+            tie += t.tie;
+        }
+
+        void add(StatResult r)
+        {
+            win += r.win_;
+            lose += r.lose_;
+            tie += r.tie_;
+        }
+    }
+
+    /**
+     * Simulate hole/community against all hand groups and random hands, using given number of threads.
+     * Same results as serial version, except simulated (random) results vary as usual.
+     */
+    static StatResults simulate(Hand hole, Hand community, int precision, DDProgressFeedback progress, int nParallelism)
+    {
+        ForkJoinPool pool = getPool(nParallelism);
+        Context ctx = new Context(nParallelism);
+        StatResults results = new StatResults();
+        List<BaseProfile> handGroups = HandGroup.getProfileList();
+        int nSize = community.size();
+        HandList list;
+
+        // warm fingerprints here so workers only read them
+        hole.fingerprint();
+        community.fingerprint();
+
+        // create a task for each group (and random hands)
+        List<Object> keys = new ArrayList<Object>();
+        List<String> names = new ArrayList<String>();
+        List<ForkJoinTask<Tally>> tasks = new ArrayList<ForkJoinTask<Tally>>();
+        List<HandList> lists = new ArrayList<HandList>();
+        long total = 0;
+
+        for (BaseProfile profile : handGroups)
+        {
+            HandGroup group = (HandGroup) profile;
+            list = group.expand();
+            keys.add(group);
+            names.add(group.getName());
+            lists.add(list);
+            total += addTask(ctx, tasks, hole, community, precision, list, nSize >= 3);
+        }
+
+        // random hands only done when there is progress feedback (same as serial version)
+        if (progress != null)
+        {
+            list = nSize >= 4 ? HandGroup.getAllHands().expand() : null;
+            keys.add(RANDOM_HANDS_KEY);
+            names.add(HoldemSimulator.RANDOM_HANDS);
+            lists.add(list);
+            total += addTask(ctx, tasks, hole, community, precision, list, nSize >= 4);
+        }
+
+        for (ForkJoinTask<Tally> task : tasks)
+        {
+            pool.execute(task);
+        }
+
+        // gather results in order
+        for (int i = 0; i < tasks.size(); i++)
+        {
+            if (progress != null)
+            {
+                progress.setMessage(PropertyConfig.getMessage("msg.sim.running", names.get(i)));
+            }
+
+            Tally tally = waitFor(tasks.get(i), ctx, progress, total);
+            if (ctx.stop) break;
+
+            Object key = keys.get(i);
+            results.put(key == RANDOM_HANDS_KEY ? HoldemSimulator.RANDOM_HANDS : key,
+                        new StatResult(hole, lists.get(i), tally.win, tally.lose, tally.tie));
+
+            if (progress != null && key != RANDOM_HANDS_KEY) progress.setIntermediateResult(results);
+        }
+
+        // if stopped, let workers finish up before returning
+        if (ctx.stop)
+        {
+            for (ForkJoinTask<Tally> task : tasks)
+            {
+                task.quietlyJoin();
+            }
+        }
+
+        if (progress != null)
+        {
+            progress.setPercentDone(100);
+            progress.setFinalResult(results);
+        }
+        return results;
+    }
+
+    // marker for random hands (since name is also used for the result key)
+    private static final Object RANDOM_HANDS_KEY = new Object();
+
+    /**
+     * Add task for given list (null is random hands), return number of hands it will do
+     */
+    private static long addTask(Context ctx, List<ForkJoinTask<Tally>> tasks,
+                                Hand hole, Hand community, int precision, HandList list, boolean bIterate)
+    {
+        long[] opponents = null;
+        if (list != null)
+        {
+            opponents = new long[list.size()];
+            for (int i = 0; i < opponents.length; i++)
+            {
+                opponents[i] = list.get(i).fingerprint();
+            }
+        }
+
+        int nSize = community.size();
+        if (bIterate)
+        {
+            tasks.add(new IterateTask(ctx, hole, community, opponents));
+            return (long) opponents.length * HoldemSimulator.nCm(52 - 2 - 2 - nSize, 5 - nSize).longValue();
+        }
+        else
+        {
+            int handCount = (list == null) ? 100000 : (int) (Math.pow(2, precision) * (Math.log(list.size()) + 0.5) * 1000);
+            tasks.add(new SimulateTask(ctx, hole, community, handCount, list));
+            return handCount;
+        }
+    }
+
+    /**
+     * Wait for task to finish, updating progress and looking for stop while we wait
+     */
+    private static Tally waitFor(ForkJoinTask<Tally> task, Context ctx, DDProgressFeedback progress, long total)
+    {
+        while (true)
+        {
+            try
+            {
+                return task.get(PROGRESS_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e)
+            {
+                if (progress != null)
+                {
+                    if (progress.isStopRequested())
+                    {
+                        ctx.stop = true;
+                        return null;
+                    }
+                    progress.setPercentDone((int) Math.min(99, ctx.done.get() * 100 / Math.max(total, 1)));
+                }
+            }
+            catch (InterruptedException e)
+            {
+                ctx.stop = true;
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            catch (ExecutionException e)
+            {
+                ctx.stop = true;
+                throw new ApplicationError(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Enumerate all remaining boards for one group of opponent hands, using the given number of threads
+     */
+    static StatResult iterate(Hand hole, Hand community, HandList list, int nParallelism)
+    {
+        long[] opponents = new long[list.size()];
+        for (int i = 0; i < opponents.length; i++)
+        {
+            opponents[i] = list.get(i).fingerprint();
+        }
+        Tally tally = getPool(nParallelism).invoke(new IterateTask(new Context(nParallelism), hole, community, opponents));
+        return new StatResult(hole, list, tally.win, tally.lose, tally.tie);
+    }
+
+    /**
+     * Enumerate all boards against a list of opponents.  Split into one subtask for
+     * each possible first board card (or chunks of opponents if board is complete)
+     */
+    private static class IterateTask extends RecursiveTask<Tally>
+    {
+        private final Context ctx;
+        private final long hole;
+        private final long board;
+        private final int more;
+        private final long[] cards;
+        private final long[] opponents;
+
+        IterateTask(Context ctx, Hand hole, Hand community, long[] opponents)
+        {
+            this.ctx = ctx;
+            this.hole = hole.fingerprint();
+            this.board = community.fingerprint();
+            this.opponents = opponents;
+
+            // too expensive to calculate all 5 card boards, so just estimate
+            // from the flop (same as HoldemSimulator.iterate())
+            this.more = Math.min(5 - community.size(), 3);
+
+            // remaining cards
+            long dead = this.hole | this.board;
+            cards = new long[52 - Long.bitCount(dead)];
+            int n = 0;
+            for (int i = 0; i < 52; i++)
+            {
+                if ((dead & (1L << i)) == 0) cards[n++] = 1L << i;
+            }
+        }
+
+        @Override
+        protected Tally compute()
+        {
+            List<BoardTask> subtasks = new ArrayList<BoardTask>();
+            if (more == 0)
+            {
+                int chunk = Math.max(1, opponents.length / (ctx.nParallelism * CHUNKS_PER_THREAD));
+                for (int i = 0; i < opponents.length; i += chunk)
+                {
+                    subtasks.add(new BoardTask(this, -1, i, Math.min(i + chunk, opponents.length)));
+                }
+            }
+            else
+            {
+                for (int first = 0; first <= cards.length - more; first++)
+                {
+                    subtasks.add(new BoardTask(this, first, 0, opponents.length));
+                }
+            }
+
+            Tally tally = new Tally();
+            for (BoardTask task : invokeAll(subtasks))
+            {
+                tally.add(task.join());
+            }
+            return tally;
+        }
+    }
+
+    /**
+     * Enumerate all boards starting with a given card for a range of opponents
+     */
+    private static class BoardTask extends RecursiveTask<Tally>
+    {
+        private final IterateTask parent;
+        private final int first;
+        private final int start;
+        private final int end;
+
+        BoardTask(IterateTask parent, int first, int start, int end)
+        {
+            this.parent = parent;
+            this.first = first;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Tally compute()
+        {
+            HandInfoFastest fast = new HandInfoFastest();
+            Tally tally = new Tally();
+            long dead = parent.hole | parent.board;
+            long firstCard = (first < 0) ? 0 : parent.cards[first];
+            int more = (first < 0) ? 0 : parent.more - 1;
+
+            for (int i = start; i < end && !parent.ctx.stop; i++)
+            {
+                long opponent = parent.opponents[i];
+
+                // skip opponent hands using cards already in use
+                if ((opponent & (dead | firstCard)) != 0) continue;
+
+                int before = tally.win + tally.lose + tally.tie;
+                enumerate(fast, parent.hole | parent.board | firstCard, opponent | parent.board | firstCard,
+                          parent.cards, first + 1, more, opponent, tally);
+                parent.ctx.done.addAndGet(tally.win + tally.lose + tally.tie - before);
+            }
+            return tally;
+        }
+    }
+
+    /**
+     * Recursively add remaining board cards and score
+     */
+    private static void enumerate(HandInfoFastest fast, long hole, long opponent, long[] cards,
+                                  int start, int more, long skip, Tally tally)
+    {
+        if (more == 0)
+        {
+            int result = fast.getScore(hole) - fast.getScore(opponent);
+            if (result == 0) ++tally.tie;
+            else if (result < 0) ++tally.lose;
+            else ++tally.win;
+            return;
+        }
+
+        for (int i = start; i <= cards.length - more; i++)
+        {
+            long card = cards[i];
+            if ((card & skip) != 0) continue;
+            enumerate(fast, hole | card, opponent | card, cards, i + 1, more - 1, skip, tally);
+        }
+    }
+
+    /**
+     * Enumerate every way to fill in the blank cards in the given hands and community
+     * (all hands must be non-null), using the given number of threads.  Same results as
+     * {@link HoldemSimulator#iterate(Hand[], Hand, DDProgressFeedback)}, but cards are
+     * handled as masks, so the given hands and the deck's cards aren't modified.  Split
+     * into one task for each card dealt to the first blank - the first board card when
+     * all hole cards are known.  Progress, intermediate results and checking for stop
+     * happen on the calling thread.
+     */
+    static StatResult[] iterate(Hand[] hands, Hand community, DDProgressFeedback progress, int nParallelism)
+    {
+        ForkJoinPool pool = getPool(nParallelism);
+        Context ctx = new Context(nParallelism);
+        Showdown showdown = new Showdown(ctx, hands, community);
+        double total = HoldemSimulator.getNumberIterations(hands, community).doubleValue();
+
+        StatResult[] results = new StatResult[hands.length];
+        for (int i = 0; i < results.length; i++)
+        {
+            results[i] = new StatResult();
+        }
+
+        // one task per first card (or just one if nothing to deal)
+        List<ForkJoinTask<ShowdownTally>> tasks = new ArrayList<ForkJoinTask<ShowdownTally>>();
+        if (showdown.first == -1)
+        {
+            tasks.add(pool.submit(new DealTask(showdown, -1)));
+        }
+        else
+        {
+            for (int i = 0; i < showdown.cards.length; i++)
+            {
+                tasks.add(pool.submit(new DealTask(showdown, i)));
+            }
+        }
+
+        // gather results as tasks finish
+        boolean[] merged = new boolean[tasks.size()];
+        int nMerged = 0;
+        int nNext = 0;
+        while (nMerged < tasks.size())
+        {
+            try
+            {
+                tasks.get(nNext).get(PROGRESS_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException ignored)
+            {
+            }
+            catch (InterruptedException e)
+            {
+                ctx.stop = true;
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (ExecutionException e)
+            {
+                ctx.stop = true;
+                throw new ApplicationError(e.getCause());
+            }
+
+            boolean bChanged = false;
+            for (int i = 0; i < tasks.size(); i++)
+            {
+                if (merged[i] || !tasks.get(i).isDone()) continue;
+                if (tasks.get(i).isCompletedAbnormally())
+                {
+                    ctx.stop = true;
+                    throw new ApplicationError(tasks.get(i).getException());
+                }
+                tasks.get(i).join().addTo(results);
+                merged[i] = true;
+                nMerged++;
+                bChanged = true;
+            }
+            while (nNext < merged.length - 1 && merged[nNext]) nNext++;
+
+            if (progress != null && nMerged < tasks.size())
+            {
+                if (progress.isStopRequested())
+                {
+                    ctx.stop = true;
+                    break;
+                }
+                progress.setPercentDone((int) Math.min(99, ctx.done.get() * 100 / Math.max(total, 1)));
+                if (bChanged)
+                {
+                    calcTotals(results);
+                    progress.setIntermediateResult(results);
+                }
+            }
+        }
+
+        // if stopped, let workers finish up before returning
+        if (ctx.stop)
+        {
+            for (ForkJoinTask<ShowdownTally> task : tasks)
+            {
+                task.quietlyJoin();
+            }
+        }
+
+        calcTotals(results);
+        if (progress != null)
+        {
+            if (!ctx.stop) progress.setPercentDone(100);
+            progress.setFinalResult(results);
+        }
+        return results;
+    }
+
+    /**
+     * Calc totals/percents of each result
+     */
+    private static void calcTotals(StatResult[] results)
+    {
+        for (StatResult result : results)
+        {
+            result.calcTotal();
+        }
+    }
+
+    /**
+     * Known cards and blanks to fill in for the showdown calculator.  Groups are
+     * each hand followed by the community; blanks are dealt a group at a time, in
+     * that order (same as HoldemSimulator.iterate()).
+     */
+    private static class Showdown
+    {
+        final Context ctx;
+        final int nHands;
+        final long[] known;
+        final int[] blanks;
+        final long[] cards;
+        final int first;
+
+        Showdown(Context ctx, Hand[] hands, Hand community)
+        {
+            this.ctx = ctx;
+            nHands = hands.length;
+            known = new long[nHands + 1];
+            blanks = new int[nHands + 1];
+
+            long dead = 0;
+            for (int i = 0; i <= nHands; i++)
+            {
+                Hand hand = (i < nHands) ? hands[i] : community;
+                for (int j = 0; j < hand.size(); j++)
+                {
+                    Card card = hand.getCard(j);
+                    if (card.isBlank()) blanks[i]++;
+                    else known[i] |= 1L << card.getIndex();
+                }
+                dead |= known[i];
+            }
+
+            // remaining cards
+            cards = new long[52 - Long.bitCount(dead)];
+            int n = 0;
+            for (int i = 0; i < 52; i++)
+            {
+                if ((dead & (1L << i)) == 0) cards[n++] = 1L << i;
+            }
+
+            first = nextGroup(-1);
+        }
+
+        /**
+         * Next group after the given one with blanks, -1 if none
+         */
+        int nextGroup(int group)
+        {
+            for (int i = group + 1; i < blanks.length; i++)
+            {
+                if (blanks[i] > 0) return i;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * win/lose/tie counts for each hand
+     */
+    private static class ShowdownTally
+    {
+        final int[] win;
+        final int[] lose;
+        final int[] tie;
+
+        ShowdownTally(int nHands)
+        {
+            win = new int[nHands];
+            lose = new int[nHands];
+            tie = new int[nHands];
+        }
+
+        void addTo(StatResult[] results)
+        {
+            for (int i = 0; i < results.length; i++)
+            {
+                results[i].win_ += win[i];
+                results[i].lose_ += lose[i];
+                results[i].tie_ += tie[i];
+            }
+        }
+    }
+
+    /**
+     * Enumerate all deals starting with a given card dealt to the first blank
+     */
+    private static class DealTask extends RecursiveTask<ShowdownTally>
+    {
+        // how many deals between progress updates
+        private static final int PROGRESS_DEALS = 4096;
+
+        private final Showdown showdown;
+        private final int firstCard;
+        private final HandInfoFastest fast = new HandInfoFastest();
+        private final long[] dealt;
+        private final int[] scores;
+        private ShowdownTally tally;
+        private int nDeals;
+
+        DealTask(Showdown showdown, int firstCard)
+        {
+            this.showdown = showdown;
+            this.firstCard = firstCard;
+            dealt = new long[showdown.known.length];
+            scores = new int[showdown.nHands];
+        }
+
+        @Override
+        protected ShowdownTally compute()
+        {
+            tally = new ShowdownTally(showdown.nHands);
+            if (firstCard == -1)
+            {
+                score();
+            }
+            else
+            {
+                long card = showdown.cards[firstCard];
+                int group = showdown.first;
+                dealt[group] = card;
+                deal(group, showdown.blanks[group] - 1, firstCard + 1, card);
+            }
+            showdown.ctx.done.addAndGet(nDeals);
+            return tally;
+        }
+
+        /**
+         * Deal need more cards to group (from start in cards), then the remaining groups
+         */
+        private void deal(int group, int need, int start, long used)
+        {
+            if (showdown.ctx.stop) return;
+
+            if (need == 0)
+            {
+                int next = showdown.nextGroup(group);
+                if (next == -1) score();
+                else deal(next, showdown.blanks[next], 0, used);
+                return;
+            }
+
+            long[] cards = showdown.cards;
+            for (int i = start; i <= cards.length - need; i++)
+            {
+                long card = cards[i];
+                if ((card & used) != 0) continue;
+                dealt[group] |= card;
+                deal(group, need - 1, i + 1, used | card);
+                dealt[group] &= ~card;
+            }
+        }
+
+        /**
+         * Score current deal (same as HoldemSimulator.score())
+         */
+        private void score()
+        {
+            int nHands = showdown.nHands;
+            long board = showdown.known[nHands] | dealt[nHands];
+            int winningScore = 0;
+            int winnerCount = 0;
+            for (int j = 0; j < nHands; j++)
+            {
+                scores[j] = fast.getScore(showdown.known[j] | dealt[j] | board);
+                if (scores[j] > winningScore)
+                {
+                    winningScore = scores[j];
+                    winnerCount = 1;
+                }
+                else if (scores[j] == winningScore)
+                {
+                    ++winnerCount;
+                }
+            }
+
+            for (int j = 0; j < nHands; j++)
+            {
+                if (scores[j] != winningScore) ++tally.lose[j];
+                else if (winnerCount > 1) ++tally.tie[j];
+                else ++tally.win[j];
+            }
+
+            if (++nDeals == PROGRESS_DEALS)
+            {
+                showdown.ctx.done.addAndGet(nDeals);
+                nDeals = 0;
+            }
+        }
+    }
+
+    /**
+     * Simulate random boards against a list of opponents (or random opponents if list is null),
+     * split into chunks each run by HoldemSimulator.simulate() with its own deck.
+     */
+    private static class SimulateTask extends RecursiveTask<Tally>
+    {
+        private final Context ctx;
+        private final Hand hole;
+        private final Hand community;
+        private final int handCount;
+        private final HandList list;
+
+        SimulateTask(Context ctx, Hand hole, Hand community, int handCount, HandList list)
+        {
+            this.ctx = ctx;
+            this.hole = hole;
+            this.community = community;
+            this.handCount = handCount;
+            this.list = list;
+
+            // warm fingerprints here so workers only read them
+            if (list != null)
+            {
+                for (int i = 0; i < list.size(); i++)
+                {
+                    list.get(i).fingerprint();
+                }
+            }
+        }
+
+        @Override
+        protected Tally compute()
+        {
+            int nChunks = ctx.nParallelism * CHUNKS_PER_THREAD;
+            List<ChunkTask> subtasks = new ArrayList<ChunkTask>();
+
+            if (list == null)
+            {
+                int chunk = Math.max(1, handCount / nChunks);
+                for (int i = 0; i < handCount; i += chunk)
+                {
+                    subtasks.add(new ChunkTask(this, Math.min(chunk, handCount - i), null));
+                }
+            }
+            else
+            {
+                // same number of hands per opponent as serial version
+                int handsPerOpponent = Math.max(handCount / list.size(), 1);
+                int chunk = Math.max(1, list.size() / nChunks);
+                for (int i = 0; i < list.size(); i += chunk)
+                {
+                    HandList sublist = new HandList(list.getName());
+                    for (int j = i; j < Math.min(i + chunk, list.size()); j++)
+                    {
+                        sublist.add(list.get(j));
+                    }
+                    subtasks.add(new ChunkTask(this, handsPerOpponent * sublist.size(), sublist));
+                }
+            }
+
+            Tally tally = new Tally();
+            for (ChunkTask task : invokeAll(subtasks))
+            {
+                tally.add(task.join());
+            }
+            return tally;
+        }
+    }
+
+    /**
+     * One chunk of simulated hands
+     */
+    private static class ChunkTask extends RecursiveTask<Tally>
+    {
+        private final SimulateTask parent;
+        private final int handCount;
+        private final HandList list;
+
+        ChunkTask(SimulateTask parent, int handCount, HandList list)
+        {
+            this.parent = parent;
+            this.handCount = handCount;
+            this.list = list;
+        }
+
+        @Override
+        protected Tally compute()
+        {
+            Tally tally = new Tally();
+            if (parent.ctx.stop) return tally;
+
+            Deck deck = new Deck(true);
+            deck.setRandom(new MersenneTwisterFast(ThreadLocalRandom.current().nextInt()));
+            deck.removeCards(parent.hole);
+            deck.removeCards(parent.community);
+
+            tally.add(HoldemSimulator.simulate(parent.hole, parent.community, handCount, deck, list, null, 0, 0));
+            parent.ctx.done.addAndGet(handCount);
+            return tally;
+        }
+    }
+}
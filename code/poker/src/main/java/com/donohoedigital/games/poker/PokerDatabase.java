@@ -77,17 +77,23 @@ public class PokerDatabase
 
     static
     {
-        Runtime.getRuntime().addShutdownHook(new Thread()
+        ShutdownManager.install(false);
+        ShutdownManager.addShutdownListener(new ShutdownListener()
         {
-            public void run()
+            public void shutdown(ShutdownManager.Type type, String details)
             {
-                setName("PokerDatabase-Shutdown");
                 if (DatabaseManager.isInitialized())
                 {
                     logger.debug("Shutting down...");
                     shutdownDatabase();
                 }
             }
+
+            @Override
+            public String toString()
+            {
+                return "PokerDatabase";
+            }
         });
     }
 
@@ -142,7 +148,7 @@ public class PokerDatabase
         profile_ = profile;
     }
 
-    private static void initSchema(Connection conn) throws SQLException
+    static void initSchema(Connection conn) throws SQLException
     {
         Statement stmt = conn.createStatement();
 
@@ -313,7 +319,7 @@ public class PokerDatabase
         }
     }
 
-    private static int identity(Connection conn) throws SQLException
+    static int identity(Connection conn) throws SQLException
     {
         Statement stmt = conn.createStatement();
 
@@ -338,380 +344,35 @@ public class PokerDatabase
         }
     }
 
+    /**
+     * Store history of a finished hand.  The hand is copied and written
+     * in the background (see HandHistoryWriter).
+     */
     public static void storeHandHistory(HoldemHand hhand)
     {
-/*
-        for (int i = 0; i < 100; ++i)
-        {
-            storeHandHistory2(hhand);
-        }
+        HandHistoryWriter.getWriter().add(new HandHistoryWriter.HandRecord(hhand));
     }
-    public static void storeHandHistory2(HoldemHand hhand)
-    {
-*/
-        PokerTable table = hhand.getTable();
-        PokerGame game = table.getGame();
-
-        List<HandAction> history = hhand.getHistoryCopy();
-
-        int numPlayers = hhand.getNumPlayers();
-
-        byte act[][] = new byte[PokerConstants.SEATS][4];
-
-        boolean bRaised = false;
-
-        int lastRound[] = new int[PokerConstants.SEATS];
-
-        byte communityCardsDealt = 0;
-
-        for (HandAction action : history)
-        {
-            int seat = action.getPlayer().getSeat();
-            int round = action.getRound();
-
-            switch (action.getAction())
-            {
-                case HandAction.ACTION_OVERBET:
-                case HandAction.ACTION_WIN:
-                case HandAction.ACTION_LOSE:
-                    break;
-                default:
-                    lastRound[seat] = action.getRound();
-                    switch (round)
-                    {
-                        case HoldemHand.ROUND_FLOP:
-                            communityCardsDealt = 3;
-                            break;
-                        case HoldemHand.ROUND_TURN:
-                            communityCardsDealt = 4;
-                            break;
-                        case HoldemHand.ROUND_RIVER:
-                            communityCardsDealt = 5;
-                            break;
-                    }
-                    break;
-            }
-
-            if (hhand.isAllInShowdown())
-            {
-                communityCardsDealt = 5;
-            }
-
-            switch (action.getAction())
-            {
-                case HandAction.ACTION_CHECK:
-                case HandAction.ACTION_CHECK_RAISE:
-                    // wins are applied to the round in which the player last acted
-                    act[seat][round] |= BIT_CHECK;
-                    break;
-                case HandAction.ACTION_CALL:
-                    act[seat][round] |= BIT_CALL;
-                    break;
-                case HandAction.ACTION_BET:
-                    act[seat][round] |= BIT_BET;
-                    break;
-                case HandAction.ACTION_RAISE:
-                    act[seat][round] |= BIT_RAISE;
-                    if (bRaised)
-                    {
-                        act[seat][round] |= BIT_RERAISE;
-                    }
-                    else
-                    {
-                        bRaised = true;
-                    }
-                    break;
-                case HandAction.ACTION_FOLD:
-                    act[seat][round] |= BIT_FOLD;
-                    break;
-                case HandAction.ACTION_WIN:
-                    // wins are applied to the round in which the player last acted
-                    act[seat][lastRound[seat]] |= BIT_WIN;
-                    break;
-            }
-        }
-
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
-
-        try
-        {
-            PreparedStatement pstmt;
-
-            int tournamentID = storeTournament(conn, game);
-
-            if (game.isDeleteHandsAfterSaveDate())
-            {
-                int lastHand = game.getLastHandSaved();
-
-                if (lastHand != 0)
-                {
-                    pstmt = conn.prepareStatement(
-                            "DELETE FROM PLAYER_ACTION\n" +
-                            "WHERE ACT_HAND_ID > ?\n" +
-                            "AND EXISTS (SELECT * FROM HAND WHERE HND_ID=ACT_HAND_ID AND HND_TOURNAMENT_ID=?)"
-                    );
-
-                    try
-                    {
-                        pstmt.setInt(1, lastHand);
-                        pstmt.setInt(2, tournamentID);
-                        pstmt.executeUpdate();
-                    }
-                    finally
-                    {
-                        pstmt.close();
-                    }
-
-                    pstmt = conn.prepareStatement(
-                            "DELETE FROM PLAYER_HAND\n" +
-                            "WHERE PLH_HAND_ID > ?\n" +
-                            "AND PLH_PLAYER_ID IN (SELECT TPL_ID FROM TOURNAMENT_PLAYER WHERE TPL_TOURNAMENT_ID=?)"
-                    );
-
-                    try
-                    {
-                        pstmt.setInt(1, lastHand);
-                        pstmt.setInt(2, tournamentID);
-                        pstmt.executeUpdate();
-                    }
-                    finally
-                    {
-                        pstmt.close();
-                    }
 
-                    pstmt = conn.prepareStatement(
-                            "DELETE FROM HAND\n" +
-                            "WHERE HND_ID > ?\n" +
-                            "AND HND_TOURNAMENT_ID=?"
-                    );
-
-                    try
-                    {
-                        pstmt.setInt(1, lastHand);
-                        pstmt.setInt(2, tournamentID);
-                        pstmt.executeUpdate();
-                    }
-                    finally
-                    {
-                        pstmt.close();
-                    }
-                }
-
-                game.setDeleteHandsAfterSaveDate(false);
-            }
-
-            // record results of the human
-            PokerPlayer human = game.getHumanPlayer();
-            storeTournamentFinish(conn, game, human);
-
-            // insert hand info
-
-            pstmt = conn.prepareStatement(
-                    "INSERT INTO HAND (\n" +
-                    "HND_NUMBER,\n" +
-                    "HND_TABLE,\n" +
-                    "HND_TOURNAMENT_ID,\n" +
-                    "HND_GAME_STYLE,\n" +
-                    "HND_GAME_TYPE,\n" +
-                    "HND_START_DATE,\n" +
-                    "HND_END_DATE,\n" +
-                    "HND_ANTE,\n" +
-                    "HND_SMALL_BLIND,\n" +
-                    "HND_BIG_BLIND,\n" +
-                    "HND_COMMUNITY_CARDS_DEALT,\n" +
-                    "HND_COMMUNITY_CARD_1,\n" +
-                    "HND_COMMUNITY_CARD_2,\n" +
-                    "HND_COMMUNITY_CARD_3,\n" +
-                    "HND_COMMUNITY_CARD_4,\n" +
-                    "HND_COMMUNITY_CARD_5\n" +
-                    ") VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
-
-            try
-            {
-                pstmt.setString(1, Integer.toString(hhand.getTable().getHandNum()));
-                pstmt.setString(2, Integer.toString(hhand.getTable().getNumber()));
-                pstmt.setInt(3, tournamentID);
-                pstmt.setString(4, "HOLDEM");
-                pstmt.setString(5, hhand.isNoLimit() ? "NOLIMIT" : hhand.isPotLimit() ? "POTLIMIT" : "LIMIT");
-                long startDate = hhand.getStartDate();
-                if (startDate > 0)
-                {
-                    pstmt.setTimestamp(6, new Timestamp(startDate));
-                }
-                else
-                {
-                    pstmt.setNull(6, Types.TIMESTAMP);
-                }
-                long endDate = hhand.getEndDate();
-                if (startDate > 0)
-                {
-                    pstmt.setTimestamp(7, new Timestamp(endDate));
-                }
-                else
-                {
-                    pstmt.setNull(7, Types.TIMESTAMP);
-                }
-                pstmt.setBigDecimal(8, new BigDecimal(hhand.getAnte()));
-                pstmt.setBigDecimal(9, new BigDecimal(hhand.getSmallBlind()));
-                pstmt.setBigDecimal(10, new BigDecimal(hhand.getBigBlind()));
-                pstmt.setByte(11, (byte) communityCardsDealt);
-
-                Hand community = hhand.getCommunity();
-
-                for (int i = 0; i < 5; ++i)
-                {
-                    if (i < community.size())
-                    {
-                        pstmt.setString(i + 12, toString(community.getCard(i)));
-                    }
-                    else
-                    {
-                        pstmt.setNull(i + 12, Types.VARCHAR);
-                    }
-                }
-
-                pstmt.executeUpdate();
-            }
-            finally
-            {
-                pstmt.close();
-            }
-
-            int handID = identity(conn);
-
-            // insert hand info
-
-            pstmt = conn.prepareStatement(
-                    "INSERT INTO PLAYER_HAND (\n" +
-                    "PLH_HAND_ID,\n" +
-                    "PLH_PLAYER_ID,\n" +
-                    "PLH_SEAT_NUMBER,\n" +
-                    "PLH_START_CHIPS,\n" +
-                    "PLH_END_CHIPS,\n" +
-                    "PLH_CARD_1,\n" +
-                    "PLH_CARD_2,\n" +
-                    "PLH_CARD_3,\n" +
-                    "PLH_CARD_4,\n" +
-                    "PLH_PREFLOP_ACTIONS,\n" +
-                    "PLH_FLOP_ACTIONS,\n" +
-                    "PLH_TURN_ACTIONS,\n" +
-                    "PLH_RIVER_ACTIONS,\n" +
-                    "PLH_CARDS_EXPOSED\n" +
-                    ") VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
-
-            int playerID[] = new int[PokerConstants.SEATS];
-
-            try
-            {
-                // since players at table may not have been in hand.  I
-                // added the pocket == null check to catch this, so current
-                // code may be okay, but semantically, should go by HoldemHand player list
-                for (int p = 0; p < numPlayers; ++p)
-                {
-                    PokerPlayer player = hhand.getPlayerAt(p);
-                    Hand pocket = player.getHand();
-                    int seat = player.getSeat();
-
-                    playerID[seat] = storePlayer(conn, tournamentID, player);
-
-                    pstmt.setInt(1, handID);
-                    pstmt.setInt(2, playerID[seat]);
-                    pstmt.setInt(3, seat);
-                    pstmt.setBigDecimal(4, new BigDecimal(player.getChipCountAtStart()));
-                    pstmt.setBigDecimal(5, new BigDecimal(player.getChipCount()));
-
-                    for (int i = 0; i < 4 && i < pocket.size(); ++i)
-                    {
-                        pstmt.setString(i + 6, toString(pocket.getCard(i)));
-                    }
-
-                    pstmt.setByte(10, act[seat][HoldemHand.ROUND_PRE_FLOP]);
-                    pstmt.setByte(11, act[seat][HoldemHand.ROUND_FLOP]);
-                    pstmt.setByte(12, act[seat][HoldemHand.ROUND_TURN]);
-                    pstmt.setByte(13, act[seat][HoldemHand.ROUND_RIVER]);
-                    pstmt.setBoolean(14, player.isCardsExposed() || (player.isHuman() && player.isLocallyControlled()));
-
-                    pstmt.executeUpdate();
-                }
-            }
-            finally
-            {
-                pstmt.close();
-            }
-
-            pstmt = conn.prepareStatement(
-                    "INSERT INTO PLAYER_ACTION (\n" +
-                    "ACT_HAND_ID,\n" +
-                    "ACT_PLAYER_ID,\n" +
-                    "ACT_SEQUENCE,\n" +
-                    "ACT_ROUND,\n" +
-                    "ACT_TYPE,\n" +
-                    "ACT_AMOUNT,\n" +
-                    "ACT_SUB_AMOUNT,\n" +
-                    "ACT_ALL_IN,\n" +
-                    "ACT_INTENT\n" +
-                    ") VALUES (?,?,?,?,?,?,?,?,?)");
-
-            try
-            {
-                for (int i = 0; i < history.size(); ++i)
-                {
-                    HandAction action = (HandAction) history.get(i);
-
-                    pstmt.setInt(1, handID);
-                    pstmt.setInt(2, playerID[action.getPlayer().getSeat()]);
-                    pstmt.setInt(3, i);
-                    pstmt.setInt(4, action.getRound());
-                    pstmt.setString(5, action.getActionCode());
-                    pstmt.setBigDecimal(6, new BigDecimal(action.getAmount()));
-                    pstmt.setBigDecimal(7, new BigDecimal(action.getSubAmount()));
-                    pstmt.setBoolean(8, action.isAllIn());
-                    String intent = action.getDebug();
-                    if ((intent != null) && intent.length() > INTENT_LENGTH)
-                    {
-                        logger.warn(
-                                "Value of action.getDebug() is longer than " + INTENT_LENGTH + " characters.  Truncating.\n" +
-                                intent);
-                        intent = intent.substring(0, INTENT_LENGTH);
-                    }
-                    pstmt.setString(9, intent);
-
-                    pstmt.executeUpdate();
-                }
-            }
-            finally
-            {
-                pstmt.close();
-            }
-
-            game.setLastHandSaved(handID);
-        }
-        catch (SQLException e)
-        {
-            throw new ApplicationError(e);
-        }
-
-        finally
-        {
-            try
-            {
-                conn.close();
-            }
-            catch (SQLException e)
-            {
-            }
-        }
+    /**
+     * Store player's finish in the tournament.  Queued behind any hands
+     * stored so far (see HandHistoryWriter).
+     */
+    public static void storeTournamentFinish(PokerGame game, PokerPlayer player)
+    {
+        HandHistoryWriter.getWriter().add(new HandHistoryWriter.HandRecord(game, player));
+        HandHistoryWriter.wakeWriter();
     }
 
-    public static int storeTournament(PokerGame game)
+    /**
+     * Get id of game's tournament, -1 if none of it has been written yet
+     */
+    public static int getTournamentID(PokerGame game)
     {
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         try
         {
-            return storeTournament(conn, game);
+            return getTournamentID(conn, game);
         }
         catch (SQLException e)
         {
@@ -729,12 +390,10 @@ public class PokerDatabase
         }
     }
 
-    private static int storeTournament(Connection conn, PokerGame game) throws SQLException
+    private static int getTournamentID(Connection conn, PokerGame game) throws SQLException
     {
         int tournamentID = -1;
 
-        // insert tournament info
-
         PreparedStatement pstmt = conn.prepareStatement(
                 "SELECT TRN_ID FROM TOURNAMENT\n" +
                 "WHERE TRN_START_DATE=?"
@@ -763,129 +422,15 @@ public class PokerDatabase
             pstmt.close();
         }
 
-        if (tournamentID == -1)
-        {
-            pstmt = conn.prepareStatement(
-                    "INSERT INTO TOURNAMENT (\n" +
-                    "TRN_TYPE,\n" +
-                    "TRN_NAME,\n" +
-                    "TRN_TOTAL_PLAYERS,\n" +
-                    "TRN_START_DATE\n" +
-                    ") VALUES (?,?,?,?)");
-
-            try
-            {
-                pstmt.setString(1, game.isOnlineGame() ? "ONLINE" : "PRACTICE");
-                pstmt.setString(2, game.getProfile().getName());
-                pstmt.setInt(3, game.getNumPlayers());
-                pstmt.setTimestamp(4, new Timestamp(game.getStartDate()));
-
-                pstmt.executeUpdate();
-            }
-            finally
-            {
-                pstmt.close();
-            }
-
-            tournamentID = identity(conn);
-        }
-
         return tournamentID;
     }
 
-    public static int storeTournamentFinish(PokerGame game, PokerPlayer player)
-    {
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
-
-        try
-        {
-            return storeTournamentFinish(conn, game, player);
-        }
-        catch (SQLException e)
-        {
-            throw new ApplicationError(e);
-        }
-        finally
-        {
-            try
-            {
-                conn.close();
-            }
-            catch (SQLException e)
-            {
-            }
-        }
-    }
-
-    private static int storeTournamentFinish(Connection conn, PokerGame game, PokerPlayer player) throws SQLException
-    {
-        int tournamentID = storeTournament(conn, game);
-
-        int finishID = -1;
-
-        PreparedStatement pstmt;
-
-        // delete pre-existing row
-        pstmt = conn.prepareStatement(
-                "DELETE FROM TOURNAMENT_FINISH\n" +
-                "WHERE TRF_PROFILE_CREATE_DATE=? AND\n" +
-                "TRF_TOURNAMENT_ID IN (SELECT TRN_ID FROM TOURNAMENT WHERE TRN_START_DATE=?)"
-        );
-
-        try
-        {
-            pstmt.setTimestamp(1, new Timestamp(player.getProfile().getCreateDate()));
-            pstmt.setTimestamp(2, new Timestamp(game.getStartDate()));
-
-            pstmt.executeUpdate();
-        }
-        finally
-        {
-            pstmt.close();
-        }
-
-        pstmt = conn.prepareStatement(
-                "INSERT INTO TOURNAMENT_FINISH (\n" +
-                "TRF_PROFILE_CREATE_DATE,\n" +
-                "TRF_TOURNAMENT_ID,\n" +
-                "TRF_END_DATE,\n" +
-                "TRF_FINISH_PLACE,\n" +
-                "TRF_PRIZE,\n" +
-                "TRF_BUY_IN,\n" +
-                "TRF_TOTAL_REBUY,\n" +
-                "TRF_TOTAL_ADD_ON,\n" +
-                "TRF_PLAYERS_REMAINING\n" +
-                ") VALUES (?,?,?,?,?,?,?,?,?)");
-
-        try
-        {
-            pstmt.setTimestamp(1, new Timestamp(player.getProfile().getCreateDate()));
-            pstmt.setInt(2, tournamentID);
-            pstmt.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
-            pstmt.setInt(4, player.getPlace());
-            pstmt.setBigDecimal(5, new BigDecimal(player.getPrize()));
-            pstmt.setBigDecimal(6, new BigDecimal(player.getBuyin()));
-            pstmt.setBigDecimal(7, new BigDecimal(player.getRebuy()));
-            pstmt.setBigDecimal(8, new BigDecimal(player.getAddon()));
-            pstmt.setInt(9, game.getNumPlayers() - game.getNumPlayersOut());
-
-            pstmt.executeUpdate();
-        }
-        finally
-        {
-            pstmt.close();
-        }
-
-        finishID = identity(conn);
-
-        return finishID;
-    }
-
     public static void deleteTournament(TournamentHistory hist)
     {
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        // hands still queued would otherwise be written after the delete
+        HandHistoryWriter.flushWriter();
+
+        Connection conn = getConnection();
 
         try
         {
@@ -1012,8 +557,10 @@ public class PokerDatabase
 
     public static void deleteAllTournaments(PlayerProfile profile)
     {
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        // hands still queued would otherwise be written after the delete
+        HandHistoryWriter.flushWriter();
+
+        Connection conn = getConnection();
 
         try
         {
@@ -1063,8 +610,7 @@ public class PokerDatabase
             return hist;
         }
 
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         try
         {
@@ -1152,8 +698,7 @@ public class PokerDatabase
             return null;
         }
 
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         try
         {
@@ -1230,8 +775,7 @@ public class PokerDatabase
 
     public static void playerNameChanged(PokerGame game, PokerPlayer player)
     {
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         try
         {
@@ -1414,15 +958,14 @@ public class PokerDatabase
     /**
      * Boy would I like to change the return from Card.toString() but I'm afraid to.
      */
-    private static String toString(Card card)
+    static String toString(Card card)
     {
         return card.getRankDisplaySingle() + card.getSuitDisplay();
     }
 
     public static boolean isPracticeHand(int handID)
     {
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         try
         {
@@ -1476,8 +1019,7 @@ public class PokerDatabase
 
     public static int getHandCount(String where, BindArray bindArray)
     {
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         try
         {
@@ -1552,8 +1094,7 @@ public class PokerDatabase
             first = 0;
         }
 
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         List<Integer> hands = new ArrayList<Integer>();
 
@@ -1618,8 +1159,7 @@ public class PokerDatabase
 
     public static int getTournamentCount(String where, BindArray bindArray)
     {
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         ArrayList hands = new ArrayList();
 
@@ -1678,8 +1218,7 @@ public class PokerDatabase
 
     public static int getPreviousHandID(PokerGame game, int handID)
     {
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         int foundID = 0;
 
@@ -1687,7 +1226,7 @@ public class PokerDatabase
         {
             PreparedStatement pstmt;
 
-            int tournamentID = storeTournament(conn, game);
+            int tournamentID = getTournamentID(conn, game);
 
             pstmt = conn.prepareStatement(
                     "SELECT MAX(HND_ID) FROM HAND\n" +
@@ -1739,8 +1278,7 @@ public class PokerDatabase
 
     public static int getNextHandID(PokerGame game, int handID)
     {
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         int foundID = 0;
 
@@ -1748,7 +1286,7 @@ public class PokerDatabase
         {
             PreparedStatement pstmt;
 
-            int tournamentID = storeTournament(conn, game);
+            int tournamentID = getTournamentID(conn, game);
 
             pstmt = conn.prepareStatement(
                     "SELECT MIN(HND_ID) FROM HAND\n" +
@@ -1805,8 +1343,7 @@ public class PokerDatabase
      */
     public static String[] getHandAsHTML(int handID, boolean bShowAll, boolean bShowReason)
     {
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         String title;
         String summary;
@@ -2114,8 +1651,7 @@ public class PokerDatabase
         ieHand.profileNumber = profile.getFileNumber(profile.getFile());
         ieHand.handID = handID;
 
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         try
         {
@@ -2502,6 +2038,16 @@ public class PokerDatabase
         return DatabaseManager.getDatabase(CLIENT_DATABASE_NAME);
     }
 
+    /**
+     * Get a connection.  Hands still queued aren't waited for, but the
+     * writer is woken so they show up shortly.
+     */
+    private static Connection getConnection()
+    {
+        HandHistoryWriter.wakeWriter();
+        return getDatabase().getConnection();
+    }
+
     private static String getActualDatabaseName(String databaseName, PlayerProfile profile)
     {
         GameEngine gameEngine = GameEngine.getGameEngine();
@@ -2531,13 +2077,14 @@ public class PokerDatabase
 
         // Add the database.
         Map<String, String> htParams = new HashMap<String, String>();
+        htParams.put(DatabaseManager.PARAM_CLASS, PooledDatabase.class.getName());
         htParams.put(DatabaseManager.PARAM_DRIVER_CLASS, DATABASE_DRIVER_CLASS);
         htParams.put(DatabaseManager.PARAM_DRIVER_URL, driverURL);
         htParams.put(DatabaseManager.PARAM_USERNAME, DATABASE_USERNAME);
         htParams.put(DatabaseManager.PARAM_PASSWORD, DATABASE_PASSWORD);
         DatabaseManager.addDatabase(CLIENT_DATABASE_NAME, htParams);
 
-        Connection conn = getDatabase().getConnection();
+        Connection conn = getConnection();
         try
         {
             Statement stmt = conn.createStatement();
@@ -2571,7 +2118,10 @@ public class PokerDatabase
 
     public static void shutdownDatabase()
     {
-        Connection conn = getDatabase().getConnection();
+        // write queued hand history before database is shut down
+        HandHistoryWriter.stopWriter();
+
+        Connection conn = getConnection();
         try
         {
             conn.createStatement().executeUpdate("SHUTDOWN");
@@ -2589,6 +2139,7 @@ public class PokerDatabase
             catch (SQLException e)
             {
             }
+            getDatabase().closeConnections();
         }
     }
 
@@ -2596,8 +2147,7 @@ public class PokerDatabase
     {
         Timestamp playerCreateDate = new Timestamp(PlayerProfileOptions.getDefaultProfile().getCreateDate());
 
-        Database database = getDatabase();
-        Connection conn = database.getConnection();
+        Connection conn = getConnection();
 
         try
         {
@@ -122,7 +122,7 @@ public class PokerGame extends Game implements PlayerActionListener
     private int nPort_;
     private int nOnlineMode_ = MODE_NONE;
     private PokerTable currentTable_;
-    private int lastHandSaved_ = 0;
+    private volatile int lastHandSaved_ = 0; // set by HandHistoryWriter when hand queued
     private int nNumOut_ = 0;
 
     // clock object used to store seconds remaining, used in tournament/poker night manager
@@ -923,7 +923,8 @@ public class PokerGame extends Game implements PlayerActionListener
     private int getSecondsPerHandAction()
     {
         GameEngine engine = GameEngine.getGameEngine();
-        int nHandsPerHour = engine.getPrefsNode().getInt(PokerConstants.OPTION_HANDS_PER_HOUR, 30);
+        // engine is null when run headless (BatchTournament)
+        int nHandsPerHour = engine == null ? 30 : engine.getPrefsNode().getInt(PokerConstants.OPTION_HANDS_PER_HOUR, 30);
         int nSecondsPerHand = 3600 / nHandsPerHour;
         return nSecondsPerHand / 5;
     }
@@ -1869,6 +1870,34 @@ public class PokerGame extends Game implements PlayerActionListener
         super.saveGame(state);
     }
 
+    /**
+     * Return true if a save for the player in the given details (if any)
+     * includes tables other than that player's table.  Also used by
+     * OnlineManager when one save is shared by several players.
+     */
+    public boolean isOtherTableUpdate(PokerSaveDetails pdetails)
+    {
+        int nPlayerID = pdetails.getPlayerID();
+        if (nPlayerID == PokerSaveDetails.NO_PLAYER) return false;
+
+        PokerTable tableForPlayer = getPokerPlayerFromID(nPlayerID).getTable();
+        switch (pdetails.getSaveTables())
+        {
+            case SaveDetails.SAVE_ALL:
+                return true;
+
+            case SaveDetails.SAVE_DIRTY:
+                PokerTable table;
+                for (int i = 0; i < getNumTables(); i++)
+                {
+                    table = getTable(i);
+                    if (table.isDirty() && table != tableForPlayer) return true;
+                }
+                break;
+        }
+        return false;
+    }
+
     /**
      * save poker specific data
      */
@@ -1906,37 +1935,20 @@ public class PokerGame extends Game implements PlayerActionListener
             }
         }
 
-        // player saving for
-        PokerTable table;
-        PokerPlayer playerForSave = null;
-        boolean bSaveOtherTable = false;
-        PokerTable tableForPlayer = null;
-        int nPlayerID = pdetails.getPlayerID();
-        if (nPlayerID != PokerSaveDetails.NO_PLAYER)
-        {
-            playerForSave = getPokerPlayerFromID(nPlayerID);
-            tableForPlayer = playerForSave.getTable();
-        }
-
         // num tables
+        PokerTable table;
         int nNum = 0;
         int nNumTables = getNumTables();
         switch (pdetails.getSaveTables())
         {
             case SaveDetails.SAVE_ALL:
                 nNum = nNumTables;
-                if (playerForSave != null) bSaveOtherTable = true;
                 break;
 
             case SaveDetails.SAVE_DIRTY:
                 for (int i = 0; i < nNumTables; i++)
                 {
-                    table = getTable(i);
-                    if (table.isDirty())
-                    {
-                        nNum++;
-                        if (playerForSave != null && table != tableForPlayer) bSaveOtherTable = true;
-                    }
+                    if (getTable(i).isDirty()) nNum++;
                 }
                 break;
 
@@ -1950,7 +1962,7 @@ public class PokerGame extends Game implements PlayerActionListener
         // this is used to indicate that when saving for a particular player
         // if the playerForSave file includes table information for tables other
         // than the player's table
-        pdetails.setOtherTableUpdate(bSaveOtherTable);
+        pdetails.setOtherTableUpdate(isOtherTableUpdate(pdetails));
 
         // home game cash
         entry.addToken(nClockCash_);
@@ -44,6 +44,7 @@ import com.donohoedigital.config.*;
 import static com.donohoedigital.config.DebugConfig.*;
 import com.donohoedigital.games.config.*;
 import com.donohoedigital.games.engine.*;
+import com.donohoedigital.games.poker.ai.*;
 import com.donohoedigital.games.poker.engine.*;
 import com.donohoedigital.games.poker.model.*;
 import com.donohoedigital.games.poker.network.*;
@@ -156,6 +157,10 @@ public class PokerMain extends GameEngine implements Peer2PeerControllerInterfac
 
         // init
         GameState.setDelegate(new PokerGameStateDelegate());
+        DDMessage.setBinaryVersion(PokerConstants.VERSION_BINARY_MESSAGES_ADDED);
+
+        // client runs long enough to write the flop ranks table (once) if missing
+        if (!bHeadless_) FlopRanks.setGenerateIfMissing(true);
 
         // get args
         String[] otherargs = CommandLine.getRemainingArgs();
@@ -110,7 +110,6 @@ public class PokerPlayer extends GamePlayer
     private boolean bLoadProfileNeeded_ = false;
     private String sAllInPerc_ = null;
     private int nAllInWin_ = 0;
-    private int nAllInScore_ = 0;
     private int nSimulatedBet_ = 0;
     private long nThinkTankAccessed_ = 0;
     private int nTimeoutMsgSent_ = 0;
@@ -987,11 +986,11 @@ public class PokerPlayer extends GamePlayer
     }
 
     /**
-     * increment all-in win
+     * Set all-in win
      */
-    public void addAllInWin()
+    public void setAllInWin(int n)
     {
-        nAllInWin_++;
+        nAllInWin_ = n;
     }
 
     /**
@@ -1010,22 +1009,6 @@ public class PokerPlayer extends GamePlayer
         nAllInWin_ = 0;
     }
 
-    /**
-     * Set all-in score
-     */
-    public void setAllInScore(int n)
-    {
-        nAllInScore_ = n;
-    }
-
-    /**
-     * Get all-in score
-     */
-    public int getAllInScore()
-    {
-        return nAllInScore_;
-    }
-
     /**
      * Fold
      */
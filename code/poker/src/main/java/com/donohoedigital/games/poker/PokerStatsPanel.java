@@ -266,7 +266,7 @@ public class PokerStatsPanel extends DDTabPanel
                     break;
 
                 default:
-                    potential_ = new HandPotential(pocket_, community_);
+                    potential_ = HandPotential.getInstance(pocket_, community_);
             }
 
             SwingUtilities.invokeLater(new Thread("PokerStatsPanel")
@@ -982,7 +982,8 @@ public class PokerTable implements ObjectID
     {
         // get deck, with set seed if demo
         long seed = 0;
-        if (GameEngine.getGameEngine().isDemo())
+        GameEngine engine = GameEngine.getGameEngine();
+        if (engine != null && engine.isDemo())
         {
             seed = 149399;//with current seeds, causes button to be placed such that human gets AA on 1st deal
         }
@@ -1179,7 +1180,8 @@ public class PokerTable implements ObjectID
             Card card;
 
             long seed = 0;
-            if (GameEngine.getGameEngine().isDemo())
+            GameEngine engine = GameEngine.getGameEngine();
+            if (engine != null && engine.isDemo())
             {
                 seed = 94876564;
             }
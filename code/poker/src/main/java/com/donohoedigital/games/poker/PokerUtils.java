@@ -730,6 +730,9 @@ public class PokerUtils extends EngineUtils
                 return false;
         }
 
+        // no engine (headless) means no prefs
+        if (engine == null) return bDefault;
+
         return engine.getPrefsNode().getBoolean(sName, bDefault);
     }
 
@@ -0,0 +1,346 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.ai;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.engine.*;
+import com.donohoedigital.games.poker.model.*;
+import org.apache.log4j.*;
+
+import java.util.*;
+
+/**
+ * Plays a tournament of computer players to completion without a UI - no
+ * TournamentDirector, phases or display pauses.  Table handling follows what the
+ * TournamentDirector does for the current table in practice mode (rebuys,
+ * cleanup/consolidation, levels, color ups, breaks), except every table plays its hands
+ * out using the player's AI instead of PokerTable.simulateHand().
+ * <p/>
+ * Not thread safe, but separate instances can be run on separate threads.
+ */
+public class BatchTournament
+{
+    static Logger logger = Logger.getLogger(BatchTournament.class);
+
+    // key used for players (no GameEngine, so nobody is locally controlled)
+    private static final String PLAYER_KEY = "batch";
+
+    private final int nNumber_;
+    private final PokerGame game_;
+    private final List<PokerPlayer> players_;
+    private final int nChipInterval_;
+    private final List<int[]> chips_ = new ArrayList<int[]>();
+    private int nHands_ = 0;
+
+    /**
+     * Create tournament with number (used in results), given profile, player types
+     * (assigned round robin to players, which are then randomly seated) and interval
+     * (in hands) to record chip counts, 0 to not record chips.
+     */
+    public BatchTournament(int nNumber, TournamentProfile profile, List<PlayerType> types, int nChipInterval)
+    {
+        ApplicationError.assertTrue(!types.isEmpty(), "No player types");
+        nNumber_ = nNumber;
+        nChipInterval_ = nChipInterval;
+
+        // profile set directly - initTournament() creates players using names from PokerMain
+        game_ = new PokerGame(null);
+        game_.setProfile(profile);
+
+        // players
+        int nNumPlayers = profile.getNumPlayers();
+        players_ = new ArrayList<PokerPlayer>(nNumPlayers);
+        PokerPlayer player;
+        PlayerType type;
+        for (int i = 0; i < nNumPlayers; i++)
+        {
+            type = types.get(i % types.size());
+            player = new PokerPlayer(PLAYER_KEY, i, type.getName() + ' ' + (i + 1), false);
+            player.setPlayerType(type);
+            player.setChipCount(profile.getBuyinChips());
+            player.setBuyin(profile.getBuyinCost());
+            game_.addPlayer(player);
+            players_.add(player);
+        }
+
+        // tables - distribute evenly, seating randomly
+        List<PokerPlayer> seating = new ArrayList<PokerPlayer>(players_);
+        Collections.shuffle(seating);
+        int nSeats = profile.getSeats();
+        int nNumTables = (nNumPlayers + nSeats - 1) / nSeats;
+        PokerTable table;
+        for (int i = 0; i < nNumTables; i++)
+        {
+            table = new PokerTable(game_, i + 1);
+            for (int j = i; j < nNumPlayers; j += nNumTables)
+            {
+                table.addPlayer(seating.get(j));
+            }
+            game_.addTable(table);
+        }
+
+        // first level (needs chips set)
+        game_.computeTotalChipsInPlay();
+        game_.nextLevel();
+        for (int i = 0; i < nNumTables; i++)
+        {
+            table = game_.getTable(i);
+            table.setMinChip(game_.getMinChip());
+            table.setButton();
+        }
+    }
+
+    /**
+     * Get game
+     */
+    public PokerGame getGame()
+    {
+        return game_;
+    }
+
+    /**
+     * Get tournament number
+     */
+    public int getNumber()
+    {
+        return nNumber_;
+    }
+
+    /**
+     * Get players (in id order)
+     */
+    public List<PokerPlayer> getPlayers()
+    {
+        return players_;
+    }
+
+    /**
+     * Get number of hands played (across all tables)
+     */
+    public int getNumHands()
+    {
+        return nHands_;
+    }
+
+    /**
+     * Chip counts recorded every chip interval - first entry is the round
+     * (one hand at each table), then each player's chips in id order.
+     */
+    public List<int[]> getChipCounts()
+    {
+        return chips_;
+    }
+
+    /**
+     * Play until there is a winner
+     */
+    public void play()
+    {
+        List<PokerTable> tables;
+        PokerTable table;
+        int nRound = 0;
+        recordChips(0);
+        while (true)
+        {
+            tables = new ArrayList<PokerTable>(game_.getTables());
+
+            // start of hand - done at each table in TD for practice
+            // mode (current table does all computer tables)
+            doLevelCheck(tables);
+            if (game_.getProfile().isBreak(game_.getLevel()))
+            {
+                doBreak(tables);
+                continue;
+            }
+
+            // play a hand at each table, clock moves with the first table
+            // (like the human's table in practice mode)
+            for (int i = 0; i < tables.size(); i++)
+            {
+                table = tables.get(i);
+                if (table.getNumOccupiedSeats() < 2) continue;
+                playHand(table, i == 0);
+                nHands_++;
+            }
+            nRound++;
+
+            // end of hand
+            if (doEndHand(tables)) break;
+
+            if (nChipInterval_ > 0 && nRound % nChipInterval_ == 0) recordChips(nRound);
+        }
+        recordChips(nRound);
+    }
+
+    /**
+     * New level - rebuys, addons and color up (TD NEW_LEVEL_CHECK and COLOR_UP)
+     */
+    private void doLevelCheck(List<PokerTable> tables)
+    {
+        int nMinNow = game_.getLastMinChip();
+        int nMinNext = game_.getMinChip();
+        for (PokerTable table : tables)
+        {
+            if (game_.getLevel() == table.getLevel()) continue;
+
+            table.aiRebuy();
+            table.aiAddOn();
+
+            if (nMinNext > nMinNow)
+            {
+                table.setNextMinChip(nMinNext);
+                table.doColorUpDetermination();
+                if (table.isColoringUp())
+                {
+                    table.colorUp();
+                    table.colorUpFinish();
+                }
+            }
+        }
+    }
+
+    /**
+     * Break - runs clock until next level (TD STATE_BREAK)
+     */
+    private void doBreak(List<PokerTable> tables)
+    {
+        for (PokerTable table : tables)
+        {
+            table.startBreak();
+        }
+
+        int nLevel = game_.getLevel();
+        while (game_.getLevel() == nLevel)
+        {
+            game_.advanceClockBreak();
+            if (game_.isLevelExpired()) game_.nextLevel();
+        }
+    }
+
+    /**
+     * Play a hand at the given table, asking each player's AI for their actions
+     */
+    private void playHand(PokerTable table, boolean bClock)
+    {
+        // create AI for players new to this table (PokerTable doesn't do
+        // so for all-computer tables not being displayed)
+        PokerPlayer player;
+        for (int i = 0; i < PokerConstants.SEATS; i++)
+        {
+            player = table.getPlayer(i);
+            if (player != null && player.getGameAI() == null)
+            {
+                player.setPokerAI(PokerAI.createPokerAI(player.getPlayerType()));
+            }
+        }
+
+        table.startNewHand();
+        if (bClock) game_.advanceClock();
+
+        HoldemHand hhand = table.getHoldemHand();
+        while (true)
+        {
+            while (!hhand.isDone())
+            {
+                player = hhand.getCurrentPlayerInitIndex();
+                player.processAction(player.getAction(false));
+            }
+            if (hhand.getRound() == HoldemHand.ROUND_RIVER) break;
+
+            hhand.advanceRound();
+            if (bClock) game_.advanceClock();
+        }
+
+        // showdown
+        hhand.preResolve(false);
+        hhand.advanceRound();
+        hhand.resolve();
+        if (bClock) game_.advanceClock();
+    }
+
+    /**
+     * Rebuys, level change, removal of busted players and table
+     * consolidation (TD CHECK_END_HAND and CLEAN).  Returns true if
+     * tournament is over.
+     */
+    private boolean doEndHand(List<PokerTable> tables)
+    {
+        for (PokerTable table : tables)
+        {
+            table.aiRebuy();
+            table.addPendingRebuys();
+        }
+        if (game_.isLevelExpired()) game_.nextLevel();
+
+        // clean
+        boolean bOneLeft = game_.isOnePlayerLeft();
+        List<PokerPlayer> removed = new ArrayList<PokerPlayer>();
+        for (PokerTable table : tables)
+        {
+            OtherTables.cleanTable(table, removed, !bOneLeft);
+        }
+        OtherTables.recordPlayerPlacement(null, game_, removed);
+        OtherTables.consolidateTables(game_, game_.getTables());
+
+        if (!bOneLeft) return false;
+
+        // winner gets the rest
+        for (PokerPlayer player : players_)
+        {
+            if (!player.isEliminated())
+            {
+                game_.playerOut(player);
+                break;
+            }
+        }
+        game_.setGameOver(true);
+        return true;
+    }
+
+    /**
+     * record chips
+     */
+    private void recordChips(int nRound)
+    {
+        if (nChipInterval_ <= 0) return;
+
+        int[] chips = new int[players_.size() + 1];
+        chips[0] = nRound;
+        for (int i = 0; i < players_.size(); i++)
+        {
+            chips[i + 1] = players_.get(i).getChipCount();
+        }
+        chips_.add(chips);
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.ai;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.poker.engine.*;
+import org.apache.log4j.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Precomputed raw hand strength (as stored by PocketRanks) for every flop.  Flops
+ * that differ only by a renaming of suits have the same ranks, so only the 1,755
+ * suit-canonical flops (out of 22,100, see SuitIsomorphism) are stored.  A lookup maps the actual flop
+ * and pocket cards onto the canonical flop.
+ * <p>
+ * The table is memory-mapped read-only when first used.  Until it is there, PocketRanks
+ * computes flop ranks as it always has.  The table is written once, by FlopRanksGenerator
+ * in gametools or, if setGenerateIfMissing() was called (the client does), in the
+ * background, which takes about a minute.  Short-lived processes (batch runners) don't
+ * generate it.  Generating is done under a lock file, so only one process at a time
+ * writes the table, and temp files left by an earlier process that exited mid-way are
+ * removed.
+ * <p>
+ * File layout (big-endian): magic, version, flop count, sorted canonical flop
+ * fingerprints (longs), then 1326 shorts per flop in PocketMatrixShort order.
+ */
+public class FlopRanks
+{
+    static Logger logger = Logger.getLogger(FlopRanks.class);
+
+    public static final String FILE_NAME = "flopranks.dat";
+    private static final String TEMP_PREFIX = "flopranks";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private static final int MAGIC = 0x44444652; // DDFR
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int NUM_POCKETS = 1326; // 52 choose 2
+
+    // default instance
+    private static FlopRanks instance_ = null;
+    private static boolean bLoaded_ = false;
+    private static boolean bGenerateIfMissing_ = false;
+
+    // data
+    private final long[] flops_;
+    private final ByteBuffer data_;
+    private final int dataStart_;
+
+    /**
+     * Set whether getInstance() generates the default table in the background if there
+     * is no usable file.  Only for long-running processes - default is false.
+     */
+    public static synchronized void setGenerateIfMissing(boolean b)
+    {
+        bGenerateIfMissing_ = b;
+    }
+
+    /**
+     * Get table from the default file (FILE_NAME in the user's config directory), loading
+     * it on first call.  If there is no usable file, null is returned (and, if
+     * setGenerateIfMissing() was called, one is generated in the background).
+     */
+    public static synchronized FlopRanks getInstance()
+    {
+        if (!bLoaded_)
+        {
+            bLoaded_ = true;
+            File file = getDefaultFile();
+            if (file != null)
+            {
+                deleteStaleTempFiles(file);
+                if (file.exists())
+                {
+                    instance_ = loadDefault(file);
+                }
+                if (instance_ == null)
+                {
+                    if (bGenerateIfMissing_)
+                    {
+                        generateInBackground(file);
+                    }
+                    else
+                    {
+                        logger.info("No flop ranks in " + file.getAbsolutePath() + " (run FlopRanksGenerator to create)");
+                    }
+                }
+            }
+        }
+        return instance_;
+    }
+
+    /**
+     * Load default table, null if it can't be
+     */
+    private static FlopRanks loadDefault(File file)
+    {
+        try
+        {
+            FlopRanks ranks = load(file);
+            logger.info("Loaded flop ranks from " + file.getAbsolutePath());
+            return ranks;
+        }
+        catch (Exception e)
+        {
+            logger.warn("Unable to load flop ranks from " + file.getAbsolutePath() + ": " + Utils.formatExceptionText(e));
+            return null;
+        }
+    }
+
+    /**
+     * Generate default table in a background thread, making it the instance when done
+     */
+    private static void generateInBackground(final File file)
+    {
+        Thread generator = new Thread("FlopRanks")
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    FlopRanks ranks = generate(file);
+                    if (ranks == null)
+                    {
+                        logger.info("Flop ranks being generated by another process");
+                        return;
+                    }
+                    synchronized (FlopRanks.class)
+                    {
+                        instance_ = ranks;
+                    }
+                }
+                catch (Throwable t)
+                {
+                    logger.warn("Unable to generate flop ranks in " + file.getAbsolutePath() + ": " + Utils.formatExceptionText(t));
+                }
+            }
+        };
+        generator.setDaemon(true);
+        generator.setPriority(Thread.MIN_PRIORITY);
+        generator.start();
+    }
+
+    /**
+     * Write the table to the given file and load it.  Returns null if another process is
+     * generating it (holds the lock file).  Written to a temp file in the same directory
+     * first so a partial table is never seen.  Temp files left by a process that exited
+     * before finishing are removed first.  If the table was written by another process
+     * while we waited, it is just loaded.
+     */
+    public static FlopRanks generate(File file) throws IOException
+    {
+        file = file.getAbsoluteFile();
+        File lockFile = new File(file.getPath() + LOCK_SUFFIX);
+        RandomAccessFile raf = new RandomAccessFile(lockFile, "rw");
+        try
+        {
+            FileLock lock = raf.getChannel().tryLock();
+            if (lock == null) return null;
+
+            deleteTempFiles(file.getParentFile());
+            if (file.exists())
+            {
+                FlopRanks ranks = loadDefault(file);
+                if (ranks != null) return ranks;
+            }
+
+            long time = System.currentTimeMillis();
+            File temp = new File(file.getParentFile(), TEMP_PREFIX + TEMP_SUFFIX);
+            try
+            {
+                write(temp);
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally
+            {
+                temp.delete();
+            }
+            logger.info("Generated flop ranks in " + (System.currentTimeMillis() - time) + " millis");
+
+            return load(file);
+        }
+        catch (OverlappingFileLockException e)
+        {
+            // another thread in this process is generating
+            return null;
+        }
+        finally
+        {
+            raf.close(); // releases lock
+        }
+    }
+
+    /**
+     * Delete temp files left next to the given table, unless another process is
+     * generating it
+     */
+    private static void deleteStaleTempFiles(File file)
+    {
+        file = file.getAbsoluteFile();
+        File lockFile = new File(file.getPath() + LOCK_SUFFIX);
+        try
+        {
+            RandomAccessFile raf = new RandomAccessFile(lockFile, "rw");
+            try
+            {
+                if (raf.getChannel().tryLock() != null) deleteTempFiles(file.getParentFile());
+            }
+            finally
+            {
+                raf.close();
+            }
+        }
+        catch (IOException e)
+        {
+            logger.warn("Unable to check flop ranks temp files: " + Utils.formatExceptionText(e));
+        }
+        catch (OverlappingFileLockException ignored)
+        {
+            // generating in this process
+        }
+    }
+
+    /**
+     * Delete temp files (ours or, from older versions, flopranks*.tmp) in the given directory
+     */
+    private static void deleteTempFiles(File dir)
+    {
+        File[] temps = dir.listFiles(new FilenameFilter()
+        {
+            public boolean accept(File dir, String name)
+            {
+                return name.startsWith(TEMP_PREFIX) && name.endsWith(TEMP_SUFFIX);
+            }
+        });
+        if (temps == null) return;
+
+        for (File temp : temps)
+        {
+            if (temp.delete()) logger.info("Deleted stale " + temp.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Default table location, null if config not yet initialized
+     */
+    public static File getDefaultFile()
+    {
+        if (ConfigManager.getConfigManager() == null) return null;
+        return new File(ConfigManager.getUserHome(), FILE_NAME);
+    }
+
+    /**
+     * Memory-map the given table
+     */
+    public static FlopRanks load(File file) throws IOException
+    {
+        FileInputStream fis = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = fis.getChannel();
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new FlopRanks(data, file.getAbsolutePath());
+        }
+        finally
+        {
+            fis.close();
+        }
+    }
+
+    /**
+     * Verify header and read the flop index
+     */
+    private FlopRanks(ByteBuffer data, String sName) throws IOException
+    {
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION)
+        {
+            throw new IOException(sName + " is not a version " + VERSION + " flop ranks file");
+        }
+
+        int nNum = data.getInt(8);
+        dataStart_ = HEADER_SIZE + nNum * 8;
+        if (data.capacity() != dataStart_ + nNum * NUM_POCKETS * 2)
+        {
+            throw new IOException(sName + " has wrong size");
+        }
+
+        flops_ = new long[nNum];
+        for (int i = 0; i < nNum; i++)
+        {
+            flops_[i] = data.getLong(HEADER_SIZE + i * 8);
+        }
+        data_ = data;
+    }
+
+    /**
+     * Get ranks for the given flop, or null if it is not in the table.
+     */
+    public PocketMatrixShort getRanks(Hand flop)
+    {
+        return getRanks(flop.fingerprint());
+    }
+
+    /**
+     * Get ranks for the given flop fingerprint, or null if it is not in the table.
+     */
+    public PocketMatrixShort getRanks(long flop)
+    {
+        SuitIsomorphism.Permutation perm = SuitIsomorphism.getPermutation(flop);
+        int nIndex = Arrays.binarySearch(flops_, perm.apply(flop));
+        if (nIndex < 0) return null;
+
+        // read in PocketMatrixShort order (i > j)
+        PocketMatrixShort ranks = new PocketMatrixShort();
+        int start = dataStart_ + nIndex * NUM_POCKETS * 2;
+        int x, ci, cj;
+        for (int i = 1; i < 52; i++)
+        {
+            for (int j = 0; j < i; j++)
+            {
+                ci = perm.apply(i);
+                cj = perm.apply(j);
+                x = (ci > cj) ? (ci * (ci - 1)) / 2 + cj : (cj * (cj - 1)) / 2 + ci;
+                ranks.set(i, j, data_.getShort(start + x * 2));
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * Number of flops in table
+     */
+    public int getNumFlops()
+    {
+        return flops_.length;
+    }
+
+    /**
+     * Get sorted fingerprints of all canonical flops
+     */
+    static long[] getCanonicalFlops()
+    {
+        TreeSet<Long> flops = new TreeSet<Long>();
+        for (int i = 2; i < 52; i++)
+        {
+            for (int j = 1; j < i; j++)
+            {
+                for (int k = 0; k < j; k++)
+                {
+                    long flop = (1L << i) | (1L << j) | (1L << k);
+                    flops.add(SuitIsomorphism.getCanonical(flop));
+                }
+            }
+        }
+
+        long[] result = new long[flops.size()];
+        int n = 0;
+        for (Long flop : flops)
+        {
+            result[n++] = flop;
+        }
+        return result;
+    }
+
+    /**
+     * Compute ranks for every canonical flop and write them to the given file.
+     */
+    public static void write(File file) throws IOException
+    {
+        long[] flops = getCanonicalFlops();
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(flops.length);
+            for (long flop : flops)
+            {
+                out.writeLong(flop);
+            }
+
+            for (int n = 0; n < flops.length; n++)
+            {
+                PocketMatrixShort ranks = PocketRanks.computeRanks(getHand(flops[n]));
+                for (int i = 1; i < 52; i++)
+                {
+                    for (int j = 0; j < i; j++)
+                    {
+                        out.writeShort(ranks.get(i, j));
+                    }
+                }
+
+                if ((n + 1) % 100 == 0) logger.info("Computed " + (n + 1) + " of " + flops.length + " flops");
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Hand from fingerprint
+     */
+    private static Hand getHand(long cards)
+    {
+        Hand hand = new Hand(Long.bitCount(cards));
+        for (int i = 0; i < 52; i++)
+        {
+            if ((cards & (1L << i)) != 0) hand.addCard(Card.getCard(i));
+        }
+        return hand;
+    }
+}
@@ -42,6 +42,7 @@ import com.donohoedigital.config.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class PlayerType extends BaseProfile
 {
@@ -61,6 +62,15 @@ public class PlayerType extends BaseProfile
     private static PlayerType defaultProfile_ = null;
     private static List<BaseProfile> cached_ = null;
 
+    // hand groups for strategy values (see getStratValue(String, Hand, int))
+    private static final String[] HAND_GROUPS = new String[] {
+        "small_pair", "medium_pair", "big_pair", "suited_high_cards", "unsuited_high_cards",
+        "suited_ace", "unsuited_ace", "suited_connectors", "unsuited_connectors", "other"
+    };
+
+    // strategy map keys by name, cached since the AI looks them up for every decision
+    private static final ConcurrentHashMap<String, StratName> stratNames_ = new ConcurrentHashMap<String, StratName>();
+
     public PlayerType()
     {
         super("");
@@ -538,67 +548,46 @@ public class PlayerType extends BaseProfile
     {
         if (hand == null) return getStratValue(name, defval);
 
-        String key;
+        int group;
 
         if (hand.isPair())
         {
             int rank = hand.getHighestRank();
 
-            if (rank < 7) key = "small_pair";
-            else if (rank > 10) key = "big_pair";
-            else key = "medium_pair";
+            if (rank < 7) group = 0;
+            else if (rank > 10) group = 2;
+            else group = 1;
         }
         else
         {
             if (hand.getLowestRank() > 9)
             {
-                if (hand.isSuited())
-                {
-                    key = "suited_high_cards";
-                }
-                else
-                {
-                    key = "unsuited_high_cards";
-                }
+                group = hand.isSuited() ? 3 : 4;
             }
             else
             {
                 if (hand.getHighestRank() == Card.ACE)
                 {
-                    if (hand.isSuited())
-                    {
-                        key = "suited_ace";
-                    }
-                    else
-                    {
-                        key = "unsuited_ace";
-                    }
+                    group = hand.isSuited() ? 5 : 6;
                 }
                 else
                 {
                     if (hand.isConnectors(Card.TWO, Card.TEN))
                     {
-                        if (hand.isSuited())
-                        {
-                            key = "suited_connectors";
-                        }
-                        else
-                        {
-                            key = "unsuited_connectors";
-                        }
+                        group = hand.isSuited() ? 7 : 8;
                     }
                     else
                     {
-                        key = "other";
+                        group = 9;
                     }
                 }
             }
         }
 
-        //System.out.println("getStratValue(" + name + "." + key + ", " + defval + ") returns " +
-        //        getStratValue(name + "." + key, defval));
+        //System.out.println("getStratValue(" + name + "." + HAND_GROUPS[group] + ", " + defval + ") returns " +
+        //        getStratValue(name + "." + HAND_GROUPS[group], defval));
 
-        return getStratValue(name + "." + key, defval);
+        return getStratValue(getStratName(name).getGroup(group), defval);
     }
 
     public int getStratValue(String name)
@@ -608,19 +597,15 @@ public class PlayerType extends BaseProfile
 
     public int getStratValue(String name, int defval)
     {
-        int value = -1;
+        StratName strat = getStratName(name);
 
-        value = getMap().getInteger("strat." + name, -1, 0, 100);
+        int value = getMap().getInteger(strat.key, -1, 0, 100);
 
         if (value < 0)
         {
-            int chop = name.lastIndexOf(".");
-
-            if (chop > 0)
+            if (strat.parent != null)
             {
-                name = name.substring(0, chop);
-
-                return getStratValue(name);
+                return getStratValue(strat.parent);
             }
             else
             {
@@ -633,9 +618,60 @@ public class PlayerType extends BaseProfile
         }
     }
 
+    /**
+     * Get map key for strategy value of given name
+     */
+    static String getStratKey(String name)
+    {
+        return getStratName(name).key;
+    }
+
+    private static StratName getStratName(String name)
+    {
+        StratName strat = stratNames_.get(name);
+        if (strat == null)
+        {
+            strat = new StratName(name);
+            StratName existing = stratNames_.putIfAbsent(name, strat);
+            if (existing != null) strat = existing;
+        }
+        return strat;
+    }
+
+    /**
+     * Strategy name with its map key, parent name (before the last '.', used if
+     * there is no value) and names for each hand group
+     */
+    private static class StratName
+    {
+        private final String name;
+        private final String key;
+        private final String parent;
+        private final String[] groups = new String[HAND_GROUPS.length];
+
+        private StratName(String name)
+        {
+            this.name = name;
+            key = "strat." + name;
+            int chop = name.lastIndexOf(".");
+            parent = chop > 0 ? name.substring(0, chop) : null;
+        }
+
+        private String getGroup(int group)
+        {
+            String grouped = groups[group];
+            if (grouped == null)
+            {
+                grouped = name + "." + HAND_GROUPS[group];
+                groups[group] = grouped;
+            }
+            return grouped;
+        }
+    }
+
     public void setStratValue(String name, int value)
     {
-        getMap().setInteger("strat." + name, new Integer(value));
+        getMap().setInteger(getStratKey(name), new Integer(value));
     }
 
     public ArrayList getSummaryNodes(boolean bIncludeDisabled)
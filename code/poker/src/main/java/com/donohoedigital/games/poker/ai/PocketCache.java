@@ -0,0 +1,314 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.ai;
+
+import java.util.*;
+
+/**
+ * Thread-safe, size-bounded LRU cache keyed on long card fingerprints, shared by
+ * PocketScores, PocketRanks and PocketOdds so that several AI tables in one JVM can
+ * reuse each other's results.  Entries are split across independently locked segments;
+ * each segment evicts its least recently used entry when full.  Keys are stored as
+ * primitive longs (no boxing) in an open hash table with a linked LRU list over slot
+ * indexes.
+ * <p>
+ * Values must not be modified once put in the cache.  Two threads missing on the
+ * same key at once may both compute the value; the last one put wins.
+ */
+public class PocketCache<V>
+{
+    private static final int NUM_SEGMENTS = 16;
+
+    private final String sName_;
+    private final Segment[] segments_ = new Segment[NUM_SEGMENTS];
+
+    /**
+     * Create cache holding at most (about) nMaxSize entries
+     */
+    public PocketCache(String sName, int nMaxSize)
+    {
+        sName_ = sName;
+        int nSegmentSize = Math.max(1, (nMaxSize + NUM_SEGMENTS - 1) / NUM_SEGMENTS);
+        for (int i = 0; i < NUM_SEGMENTS; i++)
+        {
+            segments_[i] = new Segment(nSegmentSize);
+        }
+    }
+
+    /**
+     * Get value for key, or null if not cached
+     */
+    @SuppressWarnings({"unchecked"})
+    public V get(long key)
+    {
+        int hash = hash(key);
+        return (V) segments_[hash & (NUM_SEGMENTS - 1)].get(key, hash >>> 4);
+    }
+
+    /**
+     * Cache value for key, evicting the least recently used entry if needed
+     */
+    public void put(long key, V value)
+    {
+        int hash = hash(key);
+        segments_[hash & (NUM_SEGMENTS - 1)].put(key, hash >>> 4, value);
+    }
+
+    /**
+     * Remove all entries (counters are kept)
+     */
+    public void clear()
+    {
+        for (Segment segment : segments_) segment.clear();
+    }
+
+    /**
+     * Name given at construction
+     */
+    public String getName()
+    {
+        return sName_;
+    }
+
+    /**
+     * Maximum number of entries
+     */
+    public int getMaxSize()
+    {
+        return segments_[0].keys.length * NUM_SEGMENTS;
+    }
+
+    /**
+     * Current number of entries
+     */
+    public int size()
+    {
+        int n = 0;
+        for (Segment segment : segments_) synchronized (segment) { n += segment.size; }
+        return n;
+    }
+
+    /**
+     * Number of get() calls which found a value
+     */
+    public long getHits()
+    {
+        long n = 0;
+        for (Segment segment : segments_) synchronized (segment) { n += segment.hits; }
+        return n;
+    }
+
+    /**
+     * Number of get() calls which did not find a value
+     */
+    public long getMisses()
+    {
+        long n = 0;
+        for (Segment segment : segments_) synchronized (segment) { n += segment.misses; }
+        return n;
+    }
+
+    /**
+     * Number of entries removed to make room for new ones
+     */
+    public long getEvictions()
+    {
+        long n = 0;
+        for (Segment segment : segments_) synchronized (segment) { n += segment.evictions; }
+        return n;
+    }
+
+    /**
+     * Stats for logging
+     */
+    @Override
+    public String toString()
+    {
+        return sName_ + " cache: size=" + size() + '/' + getMaxSize() + " hits=" + getHits() +
+               " misses=" + getMisses() + " evictions=" + getEvictions();
+    }
+
+    /**
+     * Spread fingerprint bits (cards tend to cluster in the low bits)
+     */
+    private static int hash(long key)
+    {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        return (int) key;
+    }
+
+    /**
+     * One independently locked LRU
+     */
+    private static class Segment
+    {
+        private static final int NONE = -1;
+
+        // entries by slot
+        final long[] keys;
+        final Object[] values;
+        final int[] chain;  // next slot in same bucket
+        final int[] newer;  // LRU list
+        final int[] older;
+
+        // bucket -> first slot
+        final int[] table;
+
+        int size;
+        int newest = NONE;
+        int oldest = NONE;
+
+        long hits;
+        long misses;
+        long evictions;
+
+        Segment(int nSize)
+        {
+            keys = new long[nSize];
+            values = new Object[nSize];
+            chain = new int[nSize];
+            newer = new int[nSize];
+            older = new int[nSize];
+            table = new int[Integer.highestOneBit(nSize * 2 - 1) << 1];
+            clear();
+        }
+
+        synchronized void clear()
+        {
+            Arrays.fill(table, NONE);
+            Arrays.fill(values, null);
+            size = 0;
+            newest = NONE;
+            oldest = NONE;
+        }
+
+        synchronized Object get(long key, int hash)
+        {
+            int slot = find(key, hash);
+            if (slot == NONE)
+            {
+                misses++;
+                return null;
+            }
+
+            hits++;
+            touch(slot);
+            return values[slot];
+        }
+
+        synchronized void put(long key, int hash, Object value)
+        {
+            int slot = find(key, hash);
+            if (slot != NONE)
+            {
+                values[slot] = value;
+                touch(slot);
+                return;
+            }
+
+            if (size < keys.length)
+            {
+                slot = size++;
+            }
+            else
+            {
+                // reuse least recently used slot
+                slot = oldest;
+                unlinkBucket(slot);
+                unlinkList(slot);
+                evictions++;
+            }
+
+            int bucket = hash & (table.length - 1);
+            keys[slot] = key;
+            values[slot] = value;
+            chain[slot] = table[bucket];
+            table[bucket] = slot;
+            linkNewest(slot);
+        }
+
+        private int find(long key, int hash)
+        {
+            int slot = table[hash & (table.length - 1)];
+            while (slot != NONE && keys[slot] != key)
+            {
+                slot = chain[slot];
+            }
+            return slot;
+        }
+
+        private void touch(int slot)
+        {
+            if (slot == newest) return;
+            unlinkList(slot);
+            linkNewest(slot);
+        }
+
+        private void linkNewest(int slot)
+        {
+            newer[slot] = NONE;
+            older[slot] = newest;
+            if (newest != NONE) newer[newest] = slot;
+            newest = slot;
+            if (oldest == NONE) oldest = slot;
+        }
+
+        private void unlinkList(int slot)
+        {
+            if (newer[slot] != NONE) older[newer[slot]] = older[slot];
+            else newest = older[slot];
+
+            if (older[slot] != NONE) newer[older[slot]] = newer[slot];
+            else oldest = newer[slot];
+        }
+
+        private void unlinkBucket(int slot)
+        {
+            int bucket = hash(keys[slot]) >>> 4 & (table.length - 1);
+            if (table[bucket] == slot)
+            {
+                table[bucket] = chain[slot];
+                return;
+            }
+
+            int prev = table[bucket];
+            while (chain[prev] != slot)
+            {
+                prev = chain[prev];
+            }
+            chain[prev] = chain[slot];
+        }
+    }
+}
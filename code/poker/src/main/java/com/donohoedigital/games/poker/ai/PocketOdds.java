@@ -36,8 +36,6 @@ import com.donohoedigital.games.poker.*;
 import com.donohoedigital.games.poker.engine.*;
 import com.donohoedigital.base.*;
 
-import java.util.*;
-
 /**
  * Reusable computation of odds of winning (Effective Hand Strength) with a given pocket hand, board, and cards to come.
  *
@@ -45,22 +43,23 @@ import java.util.*;
  */
 public class PocketOdds
 {
-    private static long fpBoard_ = 0;
+    private static final PocketCache<PocketOdds> cache_ = new PocketCache<PocketOdds>("PocketOdds", 2048);
 
-    private static HashMap cache_ = new HashMap();
+    private final PocketMatrixShort ehs_;
 
-    private PocketMatrixShort ehs_ = new PocketMatrixShort();
+    // maps caller's cards to those used in ehs_
+    private final SuitIsomorphism.Permutation perm_;
 
     private float ehsAverage_ = 0.0f;
 
     /**
      * PocketScores is a wrapper on PocketMatrixShort, and stores a win/tie probability for a
      * pocket hand, with a given board.  Instances are returned only by PocketOdds.getInstance()
-     * so that they can be cached (constructor is private).  The cache is maintained as long as
-     * every call is for the same board cards.  This means that while a hand is in play, at most
-     * one instance is cached for each combination of the 49 cards not in the flop, or 1176 1128 1081instances.
+     * so that they can be cached (constructor is private).  The cache is shared by all threads
+     * and keeps the most recently used board/pocket combinations.
      *
-     * When a call is made to getInstance() with a different flop, the cache is cleared.
+     * Odds are computed and cached for the suit-canonical form of the board and pocket (see
+     * SuitIsomorphism); combinations which differ only by suits share one matrix.
      *
      * @param community The cards currently on the board; cannot be null or empty.
      * @param pocket The pocket cards to compute odds for.
@@ -93,29 +92,57 @@ public class PocketOdds
             throw new ApplicationError("PocketOdds.getInstance() called with empty pocket hand.");
         }
 
-        // compute fingerprint for board - change triggers cache flush
-        long fpBoard = community.fingerprint();
-
-        if (fpBoard != fpBoard_)
-        {
-            cache_.clear();
-            fpBoard_ = fpBoard;
-        }
+        long board = community.fingerprint();
+        long hole = pocket.getCard(0).fingerprint() | pocket.getCard(1).fingerprint();
+        SuitIsomorphism.Permutation perm = SuitIsomorphism.getPermutation(hole, board);
+        board = perm.apply(board);
+        hole = perm.apply(hole);
 
-        Object key = new Long(pocket.fingerprint());
+        long key = getKey(board, hole);
 
-        PocketOdds odds = (PocketOdds)cache_.get(key);
+        PocketOdds odds = cache_.get(key);
 
         if (odds == null)
         {
             //long before = System.currentTimeMillis();
-            odds = new PocketOdds(community, pocket);
+            odds = new PocketOdds(new CardSet(board).toHand(), new CardSet(hole).toHand());
             //long after = System.currentTimeMillis();
             //System.out.println("PocketOdds constructed in " + (after-before) + " milliseconds.");
             cache_.put(key, odds);
         }
 
-        return odds;
+        return perm.isIdentity() ? odds : new PocketOdds(odds, perm);
+    }
+
+    /**
+     * Shared cache of instances, exposed for stats
+     */
+    public static PocketCache<PocketOdds> getCache()
+    {
+        return cache_;
+    }
+
+    /**
+     * Cache key - board fingerprint uses the low 52 bits, the pocket's
+     * PocketMatrix index (0-1325) goes in the top 12.
+     */
+    private static long getKey(long board, long hole)
+    {
+        int i = 63 - Long.numberOfLeadingZeros(hole);
+        int j = Long.numberOfTrailingZeros(hole);
+        long x = (i*(i-1))/2+j;
+
+        return board | (x << 52);
+    }
+
+    /**
+     * View of canonical odds for a suit-permuted board and pocket
+     */
+    private PocketOdds(PocketOdds canonical, SuitIsomorphism.Permutation perm)
+    {
+        ehs_ = canonical.ehs_;
+        ehsAverage_ = canonical.ehsAverage_;
+        perm_ = perm;
     }
 
     /**
@@ -123,6 +150,9 @@ public class PocketOdds
      */
     private PocketOdds(Hand community, Hand pocket)
     {
+        ehs_ = new PocketMatrixShort();
+        perm_ = SuitIsomorphism.IDENTITY;
+
         int index = community.size();
 
         long divisor = PokerUtils.nChooseK(50-index, 2);
@@ -184,7 +214,7 @@ public class PocketOdds
      */
     public float getEffectiveHandStrength(Hand hand)
     {
-        return ((float)ehs_.get(hand)) / 10000.0f;
+        return getEffectiveHandStrength(hand.getCard(0).getIndex(), hand.getCard(1).getIndex());
     }
 
     /**
@@ -194,7 +224,7 @@ public class PocketOdds
      */
     public float getEffectiveHandStrength(Card card1, Card card2)
     {
-        return ((float)ehs_.get(card1, card2)) / 10000.0f;
+        return getEffectiveHandStrength(card1.getIndex(), card2.getIndex());
     }
 
     /**
@@ -204,6 +234,6 @@ public class PocketOdds
      */
     public float getEffectiveHandStrength(int card1, int card2)
     {
-        return ((float)ehs_.get(card1, card2)) / 10000.0f;
+        return ((float)ehs_.get(perm_.apply(card1), perm_.apply(card2))) / 10000.0f;
     }
 }
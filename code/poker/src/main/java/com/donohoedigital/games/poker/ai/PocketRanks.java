@@ -35,28 +35,30 @@ package com.donohoedigital.games.poker.ai;
 import com.donohoedigital.games.poker.engine.*;
 import com.donohoedigital.base.*;
 
-import java.util.*;
-
 /**
  * Reusable computation of relative ranking of hands (Raw Hand Strength) with a given board.
  */
 public class PocketRanks
 {
-    private static long fpFlop_ = 0;
+    private static final PocketCache<PocketRanks> cache_ = new PocketCache<PocketRanks>("PocketRanks", 1024);
 
-    private static HashMap cache_ = new HashMap();
+    private final PocketMatrixShort rhs_;
 
-    private PocketMatrixShort rhs_ = new PocketMatrixShort();
+    // maps caller's cards to those used in rhs_
+    private final SuitIsomorphism.Permutation perm_;
 
     /**
      * PocketRanks is a wrapper on PocketMatrixShort, and stores a ranking for each possible
      * pocket hand, with a given board.  Instances are returned only by PocketRanks.getInstance()
-     * so that they can be cached (constructor is private).  The cache is maintained as long as
-     * every call is for the same flop cards.  Even when two-card lookahead is performed, this
-     * means that while a hand is in play, at most one instance is cached for the flop, one for
-     * each possible turn card, and one for each possible river card, for a total of 98 instances.
+     * so that they can be cached (constructor is private).  The cache is shared by all threads
+     * and keeps the most recently used boards.  Even when two-card lookahead is performed, a hand
+     * in play uses at most one instance for the flop, one for each possible turn card, and one
+     * for each possible river card, for a total of 98 instances.
      *
-     * When a call is made to PocketRanks.getInstance() with a different flop, the cache is cleared.
+     * Ranks are computed and cached for the suit-canonical form of the board (see
+     * SuitIsomorphism); boards which differ only by suits share one matrix.  Flop ranks
+     * come from the precomputed FlopRanks table when it is available; only turn and river
+     * ranks are computed.
      *
      * @param community The cards currently on the board; cannot be null or empty.
      * @return An instance of PocketRanks for the specified board.
@@ -73,23 +75,27 @@ public class PocketRanks
             throw new ApplicationError("PocketRanks.getInstance() called with pre-flop community hand.");
         }
 
-        // compute fingerprint for flop - change triggers cache flush
-        long fpFlop = community.fingerprint(3);
+        long board = community.fingerprint();
+        SuitIsomorphism.Permutation perm = SuitIsomorphism.getPermutation(board);
+        long key = perm.apply(board);
+
+        PocketRanks ranks = cache_.get(key);
 
-        if (fpFlop != fpFlop_)
+        if (ranks == null && community.size() == 3)
         {
-            cache_.clear();
-            fpFlop_ = fpFlop;
+            FlopRanks table = FlopRanks.getInstance();
+            PocketMatrixShort rhs = (table == null) ? null : table.getRanks(key);
+            if (rhs != null)
+            {
+                ranks = new PocketRanks(rhs, SuitIsomorphism.IDENTITY);
+                cache_.put(key, ranks);
+            }
         }
 
-        Object key = new Long(community.fingerprint());
-
-        PocketRanks ranks = (PocketRanks)cache_.get(key);
-
         if (ranks == null)
         {
             // long before = System.currentTimeMillis();
-            ranks = new PocketRanks(community);
+            ranks = new PocketRanks(new CardSet(key).toHand());
             // long after = System.currentTimeMillis();
             // System.out.println(
             //         "PocketRanks constructed for " + community +
@@ -97,7 +103,33 @@ public class PocketRanks
             cache_.put(key, ranks);
         }
 
-        return ranks;
+        return perm.isIdentity() ? ranks : new PocketRanks(ranks.rhs_, perm);
+    }
+
+    /**
+     * Shared cache of instances, exposed for stats
+     */
+    public static PocketCache<PocketRanks> getCache()
+    {
+        return cache_;
+    }
+
+    /**
+     * Compute ranks for the given board, bypassing the cache and flop table.
+     * Used by FlopRanks to build the table.
+     */
+    static PocketMatrixShort computeRanks(Hand community)
+    {
+        return new PocketRanks(community).rhs_;
+    }
+
+    /**
+     * Private to force use of caching getInstance method.
+     */
+    private PocketRanks(PocketMatrixShort rhs, SuitIsomorphism.Permutation perm)
+    {
+        rhs_ = rhs;
+        perm_ = perm;
     }
 
     /**
@@ -105,6 +137,9 @@ public class PocketRanks
      */
     private PocketRanks(Hand community)
     {
+        rhs_ = new PocketMatrixShort();
+        perm_ = SuitIsomorphism.IDENTITY;
+
         PocketScores scores = PocketScores.getInstance(community);
 
         int score;
@@ -156,7 +191,7 @@ public class PocketRanks
      */
     public float getRawHandStrength(Hand hand)
     {
-        return ((float)rhs_.get(hand)) / 10000.0f;
+        return getRawHandStrength(hand.getCard(0).getIndex(), hand.getCard(1).getIndex());
     }
 
     /**
@@ -166,7 +201,7 @@ public class PocketRanks
      */
     public float getRawHandStrength(Card card1, Card card2)
     {
-        return ((float)rhs_.get(card1, card2)) / 10000.0f;
+        return getRawHandStrength(card1.getIndex(), card2.getIndex());
     }
 
     /**
@@ -176,6 +211,6 @@ public class PocketRanks
      */
     public float getRawHandStrength(int card1, int card2)
     {
-        return ((float)rhs_.get(card1, card2)) / 10000.0f;
+        return ((float)rhs_.get(perm_.apply(card1), perm_.apply(card2))) / 10000.0f;
     }
 }
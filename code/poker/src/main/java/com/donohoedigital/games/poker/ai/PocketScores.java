@@ -36,28 +36,28 @@ import com.donohoedigital.games.poker.*;
 import com.donohoedigital.games.poker.engine.*;
 import com.donohoedigital.base.*;
 
-import java.util.*;
-
 /**
  * Reusable computation of hand scores with a given board.
  */
 public class PocketScores
 {
-    private static long fpFlop_ = 0;
+    private static final PocketCache<PocketScores> cache_ = new PocketCache<PocketScores>("PocketScores", 1024);
 
-    private static HashMap cache_ = new HashMap();
+    private final PocketMatrixInt score_;
 
-    private PocketMatrixInt score_ = new PocketMatrixInt();
+    // maps caller's cards to those used in score_
+    private final SuitIsomorphism.Permutation perm_;
 
     /**
      * PocketScores is a wrapper on PocketMatrixInt, and stores a raw hand score for each possible
      * pocket hand, with a given board.  Instances are returned only by PocketScores.getInstance()
-     * so that they can be cached (constructor is private).  The cache is maintained as long as
-     * every call is for the same flop cards.  Even when two-card lookahead is performed, this
-     * means that while a hand is in play, at most one instance is cached for the flop, one for
-     * each possible turn card, and one for each possible river card, for a total of 98 instances.
+     * so that they can be cached (constructor is private).  The cache is shared by all threads
+     * and keeps the most recently used boards.  Even when two-card lookahead is performed, a hand
+     * in play uses at most one instance for the flop, one for each possible turn card, and one
+     * for each possible river card, for a total of 98 instances.
      *
-     * When a call is made to getInstance() with a different flop, the cache is cleared.
+     * Scores are computed and cached for the suit-canonical form of the board (see
+     * SuitIsomorphism); boards which differ only by suits share one matrix.
      *
      * @param community The cards currently on the board; cannot be null or empty.
      * @return An instance of PocketRanks for the specified board.
@@ -74,60 +74,59 @@ public class PocketScores
             throw new ApplicationError("PocketScores.getInstance() called with pre-flop community hand.");
         }
 
-        // compute fingerprint for flop - change triggers cache flush
-        long fpFlop = (community.size() == 0) ? 0 :
-                      1L << community.getCard(0).getIndex() |
-                      1L << community.getCard(1).getIndex() |
-                      1L << community.getCard(2).getIndex();
-
-        if (fpFlop != fpFlop_)
-        {
-            cache_.clear();
-            fpFlop_ = fpFlop;
-        }
-
-        Object key = new Long(community.fingerprint());
+        long board = community.fingerprint();
+        SuitIsomorphism.Permutation perm = SuitIsomorphism.getPermutation(board);
+        long key = perm.apply(board);
 
-        PocketScores scores = (PocketScores)cache_.get(key);
+        PocketScores scores = cache_.get(key);
 
         if (scores == null)
         {
-            scores = new PocketScores(community);
+            scores = new PocketScores(key);
             cache_.put(key, scores);
         }
 
-        return scores;
+        return perm.isIdentity() ? scores : new PocketScores(scores.score_, perm);
     }
 
     /**
-     * Private to force use of caching getInstance method.
+     * Shared cache of instances, exposed for stats
      */
-    private PocketScores(Hand community)
+    public static PocketCache<PocketScores> getCache()
     {
-        HandInfoFaster info = new HandInfoFaster();
+        return cache_;
+    }
 
-        Card card1;
-        Card card2;
+    /**
+     * View of canonical scores for a suit-permuted board
+     */
+    private PocketScores(PocketMatrixInt score, SuitIsomorphism.Permutation perm)
+    {
+        score_ = score;
+        perm_ = perm;
+    }
 
-        Hand pocket = new Hand(Card.BLANK, Card.BLANK);
+    /**
+     * Private to force use of caching getInstance method.
+     */
+    private PocketScores(long board)
+    {
+        score_ = new PocketMatrixInt();
+        perm_ = SuitIsomorphism.IDENTITY;
+
+        HandInfoFastest info = new HandInfoFastest();
 
         for (int i = 1; i < 52; ++i)
         {
-            if (community.containsCard(i)) continue;
-
-            card1 = Card.getCard(i);
+            if ((board & (1L << i)) != 0) continue;
 
-            pocket.setCard(0, card1);
+            long card1 = board | (1L << i);
 
             for (int j = 0; j < i; ++j)
             {
-                if (community.containsCard(j)) continue;
-
-                card2 = Card.getCard(j);
-
-                pocket.setCard(1, card2);
+                if ((board & (1L << j)) != 0) continue;
 
-                score_.set(i, j, info.getScore(pocket, community));
+                score_.set(i, j, info.getScore(card1 | (1L << j)));
             }
         }
     }
@@ -138,7 +137,7 @@ public class PocketScores
      */
     public int getScore(Hand hand)
     {
-        return score_.get(hand);
+        return getScore(hand.getCard(0).getIndex(), hand.getCard(1).getIndex());
     }
 
     /**
@@ -148,7 +147,7 @@ public class PocketScores
      */
     public int getScore(Card card1, Card card2)
     {
-        return score_.get(card1, card2);
+        return getScore(card1.getIndex(), card2.getIndex());
     }
 
     /**
@@ -158,6 +157,6 @@ public class PocketScores
      */
     public int getScore(int card1, int card2)
     {
-        return score_.get(card1, card2);
+        return score_.get(perm_.apply(card1), perm_.apply(card2));
     }
 }
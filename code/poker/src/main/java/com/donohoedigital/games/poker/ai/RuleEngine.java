@@ -49,9 +49,30 @@ public class RuleEngine implements AIConstants
 
     static Logger logger = Logger.getLogger(RuleEngine.class);
 
-    private static ArrayList outcomeNames_ = new ArrayList();
-    private static ArrayList factorNames_ = new ArrayList();
-    private static ArrayList curveNames_ = new ArrayList();
+    private static final String[] outcomeNames_ =
+    {
+        "fold", "check", "limp", "steal", "openpot", "call", "raisevalue", "semibluff", "trap",
+        "slowplay", "checkraise", "bet", "allin", "continuationbet", "bluff"
+    };
+
+    private static final String[] factorNames_ =
+    {
+        "default", "handselection", "blindstealing", "lefttoact", "blindssmall", "bbshortstack",
+        "potraised", "earlyraiser", "position", "stacksize", "limptendency", "potodds",
+        "rawhandstrength", "biasedhandstrength", "handpotential", "bettocall", "potreraised",
+        "tightness", "aggression", "tableaggression", "stealsuspected", "lasttoact", "straightdraw",
+        "flushdraw", "playersdealt", "probebet", "playersleft", "firstpreflopraiser",
+        "lastpreflopraiser", "onlypreflopraiser", "preflopposition", "raiserstacksize",
+        "impliedodds", "raiserposition", "reraiserposition", "boredom", "steam", "firstaction",
+        "outdrawrisk", "checkedaround", "blindsclosing", "opponentbetfrequency",
+        "opponentraisefrequency", "opponentoverbetfrequency", "opponentbetfoldfrequency",
+        "stealpotential"
+    };
+
+    private static final String[] curveNames_ =
+    {
+        "none", "linear", "square", "cube"
+    };
 
     public static final int OUTCOME_NONE = -1;
     public static final int OUTCOME_FOLD = 0;
@@ -124,7 +145,16 @@ public class RuleEngine implements AIConstants
     private float score_[];
     private boolean eligible_[];
     private float weights_[];
-    private OutcomeAdjustment adjustments_[][];
+
+    // factor adjustments in the order applied (outcome, factor, weighted f(x)) - only
+    // recorded when explaining, for getReasoningHTML(), getResultsTable() and logging
+    private static boolean bExplainDefault_ = true;
+    private boolean bExplain_ = bExplainDefault_;
+    private boolean bRecord_;
+    private int nAdjustments_;
+    private int adjOutcome_[] = new int[64];
+    private int adjFactor_[] = new int[64];
+    private float adjValue_[] = new float[64];
 
     private int strongestOutcome_;
 
@@ -151,89 +181,16 @@ public class RuleEngine implements AIConstants
 
     AIOutcome outcome_ = null;
 
-    static
-    {
-        outcomeNames_.add("fold");
-        outcomeNames_.add("check");
-        outcomeNames_.add("limp");
-        outcomeNames_.add("steal");
-        outcomeNames_.add("openpot");
-        outcomeNames_.add("call");
-        outcomeNames_.add("raisevalue");
-        outcomeNames_.add("semibluff");
-        outcomeNames_.add("trap");
-        outcomeNames_.add("slowplay");
-        outcomeNames_.add("checkraise");
-        outcomeNames_.add("bet");
-        outcomeNames_.add("allin");
-        outcomeNames_.add("continuationbet");
-        outcomeNames_.add("bluff");
-
-        factorNames_.add("default");
-        factorNames_.add("handselection");
-        factorNames_.add("blindstealing");
-        factorNames_.add("lefttoact");
-        factorNames_.add("blindssmall");
-        factorNames_.add("bbshortstack");
-        factorNames_.add("potraised");
-        factorNames_.add("earlyraiser");
-        factorNames_.add("position");
-        factorNames_.add("stacksize");
-        factorNames_.add("limptendency");
-        factorNames_.add("potodds");
-        factorNames_.add("rawhandstrength");
-        factorNames_.add("biasedhandstrength");
-        factorNames_.add("handpotential");
-        factorNames_.add("bettocall");
-        factorNames_.add("potreraised");
-        factorNames_.add("tightness");
-        factorNames_.add("aggression");
-        factorNames_.add("tableaggression");
-        factorNames_.add("stealsuspected");
-        factorNames_.add("lasttoact");
-        factorNames_.add("straightdraw");
-        factorNames_.add("flushdraw");
-        factorNames_.add("playersdealt");
-        factorNames_.add("probebet");
-        factorNames_.add("playersleft");
-        factorNames_.add("firstpreflopraiser");
-        factorNames_.add("lastpreflopraiser");
-        factorNames_.add("onlypreflopraiser");
-        factorNames_.add("preflopposition");
-        factorNames_.add("raiserstacksize");
-        factorNames_.add("impliedodds");
-        factorNames_.add("raiserposition");
-        factorNames_.add("reraiserposition");
-        factorNames_.add("boredom");
-        factorNames_.add("steam");
-        factorNames_.add("firstaction");
-        factorNames_.add("outdrawrisk");
-        factorNames_.add("checkedaround");
-        factorNames_.add("blindsclosing");
-        factorNames_.add("opponentbetfrequency");
-        factorNames_.add("opponentraisefrequency");
-        factorNames_.add("opponentoverbetfrequency");
-        factorNames_.add("opponentbetfoldfrequency");
-        factorNames_.add("stealpotential");
-
-        curveNames_.add("none");
-        curveNames_.add("linear");
-        curveNames_.add("square");
-        curveNames_.add("cube");
-    }
-
     public void init(V2Player ai)
     {
-        for (int i = outcomeNames_.size()-1; i >= 0; --i)
+        for (int i = outcomeNames_.length-1; i >= 0; --i)
         {
             score_[i] = 0.0f;
             weights_[i] = 0.0f;
             eligible_[i] = false;
-            for (int j = factorNames_.size()-1; j >= 0; --j)
-            {
-                adjustments_[i][j] = null;
-            }
         }
+        nAdjustments_ = 0;
+        bRecord_ = bExplain_ || TESTING(PokerConstants.TESTING_LOG_AI);
 
         probeBet_ = false;
 
@@ -288,10 +245,32 @@ public class RuleEngine implements AIConstants
 
     public RuleEngine()
     {
-        score_ = new float[outcomeNames_.size()];
-        weights_ = new float[outcomeNames_.size()];
-        eligible_ = new boolean[outcomeNames_.size()];
-        adjustments_ = new OutcomeAdjustment[outcomeNames_.size()][factorNames_.size()];
+        score_ = new float[outcomeNames_.length];
+        weights_ = new float[outcomeNames_.length];
+        eligible_ = new boolean[outcomeNames_.length];
+    }
+
+    /**
+     * Set whether factor adjustments are recorded for getReasoningHTML() and
+     * getResultsTable().  Defaults to the value from setExplainDefault().
+     */
+    public void setExplain(boolean b)
+    {
+        bExplain_ = b;
+    }
+
+    public boolean isExplain()
+    {
+        return bExplain_;
+    }
+
+    /**
+     * Set whether rule engines created from now on explain their results (true
+     * by default).  Bulk simulation turns this off since nobody looks at the reasons.
+     */
+    public static void setExplainDefault(boolean b)
+    {
+        bExplainDefault_ = b;
     }
 
     public void execute(V2Player player)
@@ -377,14 +356,17 @@ public class RuleEngine implements AIConstants
         float potOdds = (float)potTotal / (float)nAmountToCall_;
         float breakEvenPercent = 1.0f / (potOdds + 1);
 
-        if (nAmountToCall_ > 0)
+        if (ai_.debugEnabled())
         {
-            ai_.appendDebug("Pot odds " + PokerConstants.formatPercent(potOdds) + " to 1.<br>");
-            ai_.appendDebug("Break even percent: " + PokerConstants.formatPercent(breakEvenPercent*100) + "%<br>");
-        }
+            if (nAmountToCall_ > 0)
+            {
+                ai_.appendDebug("Pot odds " + PokerConstants.formatPercent(potOdds) + " to 1.<br>");
+                ai_.appendDebug("Break even percent: " + PokerConstants.formatPercent(breakEvenPercent*100) + "%<br>");
+            }
 
-        ai_.appendDebug("Probable Strength: " + PokerConstants.formatPercent(probableStrength_*100) + "%<br>");
-        ai_.appendDebug("Draw Strength: " + PokerConstants.formatPercent(drawStrength_*100) + "%<br>");
+            ai_.appendDebug("Probable Strength: " + PokerConstants.formatPercent(probableStrength_*100) + "%<br>");
+            ai_.appendDebug("Draw Strength: " + PokerConstants.formatPercent(drawStrength_*100) + "%<br>");
+        }
 
         AIOutcome outcome = new AIOutcome(self_.getHoldemHand(), self_);
 
@@ -707,7 +689,10 @@ public class RuleEngine implements AIConstants
 
         int betAmount = (int)(amountRatio * hhand_.getTotalPotChipCount());
 
-        ai_.appendDebug("Bet amount: " + betAmount + " (" + PokerConstants.formatPercent(amountRatio*100) + "% of the pot).<br>");
+        if (ai_.debugEnabled())
+        {
+            ai_.appendDebug("Bet amount: " + betAmount + " (" + PokerConstants.formatPercent(amountRatio*100) + "% of the pot).<br>");
+        }
 
         betRange_ = new BetRange(BetRange.ALL_IN);
 
@@ -758,7 +743,7 @@ public class RuleEngine implements AIConstants
         }
         */
         ai_.appendDebug("<br>");
-        ai_.appendDebug(outcome.toHTML());
+        if (ai_.debugEnabled()) ai_.appendDebug(outcome.toHTML());
 
         strongestOutcome_ = outcome.selectOutcome(hhand_.getPotStatus());
 
@@ -839,7 +824,7 @@ public class RuleEngine implements AIConstants
             outdrawRisk = (float)Math.pow(1.0 + ai.getBiasedNegativePotential(), numWithCards - 1) - 1.0f;
         }
 
-        HandPotential potential = new HandPotential(pocket, community);
+        HandPotential potential = HandPotential.getInstance(pocket, community);
 
         int pNutFlush = potential.getHandCount(HandPotential.NUT_FLUSH, 0);
         int pNonNutFlush = potential.getHandCount(HandPotential.FLUSH, 0) - pNutFlush;
@@ -1574,8 +1559,11 @@ public class RuleEngine implements AIConstants
                 positionAdjustment += (1f-xBasicsPosition) * .8f;
             }
 
-            player.appendDebug("Start Order: " + (startingOrder + 1) + " of " + numPlayers + "<br>");
-            player.appendDebug("Position Adjust: " + positionAdjustment + "<br>");
+            if (player.debugEnabled())
+            {
+                player.appendDebug("Start Order: " + (startingOrder + 1) + " of " + numPlayers + "<br>");
+                player.appendDebug("Position Adjust: " + positionAdjustment + "<br>");
+            }
 
             if (adjustedHandStrength + positionAdjustment >= 1f)
             {
@@ -2238,7 +2226,7 @@ public class RuleEngine implements AIConstants
 
         float ehs = player.getBiasedEffectiveHandStrength(xBasicsPotOdds * potOdds);
 
-        HandPotential potential = new HandPotential(pocket, community);
+        HandPotential potential = HandPotential.getInstance(pocket, community);
 
         int pNutFlush = potential.getHandCount(HandPotential.NUT_FLUSH, 0);
         int pNonNutFlush = potential.getHandCount(HandPotential.FLUSH, 0) - pNutFlush;
@@ -2749,20 +2737,20 @@ public class RuleEngine implements AIConstants
         }
         if (eligible_[outcome])
         {
-            OutcomeAdjustment adjustment = new OutcomeAdjustment
-                    (outcome, factor, curve, invert, weight, min, max, value);
+            float fx = getFx(curve, invert, min, max, value);
 
-            score_[outcome] += adjustment.fx * weight;
+            score_[outcome] += fx * weight;
             weights_[outcome] += weight;
-            addAdjustment(outcome, adjustment);
+            if (bRecord_) addAdjustment(outcome, factor, fx * weight);
+            determineStrongestOutcome();
 
             /*
-            System.out.println("Factor " + factorNames_.get(factor) + " applied to outcome " +
-                               outcomeNames_.get(outcome) + " (" +
-                               min + " - " + value + " - " + max + ") x=" + adjustment.x +
-                               " curve " + curveNames_.get(curve) +
+            System.out.println("Factor " + factorNames_[factor] + " applied to outcome " +
+                               outcomeNames_[outcome] + " (" +
+                               min + " - " + value + " - " + max + ")" +
+                               " curve " + curveNames_[curve] +
                                (invert ? " (inverted) " : "") +
-                               " f(x)=" + adjustment.fx +
+                               " f(x)=" + fx +
                                " weight " + weight);
                                */
         }
@@ -2826,96 +2814,76 @@ public class RuleEngine implements AIConstants
         return PlayerAction.fold().reason("default");
     }
 
-    private void addAdjustment(int outcome, OutcomeAdjustment adjustment)
-    {
-        adjustment.next = adjustments_[outcome][adjustment.factor];
-
-        adjustments_[outcome][adjustment.factor] = adjustment;
-
-        determineStrongestOutcome();
-    }
-
-    private String getDebug(int outcome)
-    {
-        // for now, just store outcome name
-        return (outcome != OUTCOME_NONE) ? (String)outcomeNames_.get(outcome) : null;
-    }
-
-    private class OutcomeAdjustment
+    /**
+     * f(x) for value, where x is value scaled from min/max to 0-1 (unless min == max)
+     */
+    private static float getFx(int curve, boolean invert, float min, float max, float value)
     {
-        OutcomeAdjustment next = null;
-
-        public int outcome;
-        public int factor;
-        public int curve;
-        public boolean invert;
-        public float weight;
-        public float min;
-        public float max;
-        public float value;
-        public float x;
-        public float fx;
-
-        private String display_ = null;
+        float x;
 
-        public OutcomeAdjustment
-            (int outcome, int factor, int curve, boolean invert, float weight, float min, float max, float value)
+        if (min != max)
         {
-            this.outcome = outcome;
-            this.factor = factor;
-            this.curve = curve;
-            this.invert = invert;
-            this.weight = weight;
-            this.min = min;
-            this.max = max;
-            this.value = value;
-
-            if (min != max)
+            if (value > max)
             {
-                if (value > max)
-                {
-                    value = max;
-                }
-                else if (value < min)
-                {
-                    value = min;
-                }
-
-                x = (value - min) / (max - min);
+                value = max;
             }
-            else
+            else if (value < min)
             {
-                x = value;
+                value = min;
             }
 
-            fx = (float)Math.pow(x, curve);
-
-            if (invert)
-            {
-                fx = 1.0f - fx;
-            }
+            x = (value - min) / (max - min);
         }
+        else
+        {
+            x = value;
+        }
+
+        float fx = (float)Math.pow(x, curve);
 
-        public String getDisplay()
+        if (invert)
         {
-            Object[] oParams = null;
+            fx = 1.0f - fx;
+        }
 
-            if (display_ == null)
-            {
-                switch (factor)
-                {
-                    case FACTOR_HAND_SELECTION :
-                    case FACTOR_LEFT_TO_ACT:
-                    case FACTOR_POSITION:
-                        break;
-                }
+        return fx;
+    }
 
-                display_ = PropertyConfig.getMessage
-                        ("msg.aireason." + factorNames_.get(factor), oParams);
-            }
+    /**
+     * record adjustment (weighted f(x)) for explaining
+     */
+    private void addAdjustment(int outcome, int factor, float value)
+    {
+        if (nAdjustments_ == adjValue_.length)
+        {
+            adjOutcome_ = Arrays.copyOf(adjOutcome_, nAdjustments_ * 2);
+            adjFactor_ = Arrays.copyOf(adjFactor_, nAdjustments_ * 2);
+            adjValue_ = Arrays.copyOf(adjValue_, nAdjustments_ * 2);
+        }
+
+        adjOutcome_[nAdjustments_] = outcome;
+        adjFactor_[nAdjustments_] = factor;
+        adjValue_[nAdjustments_] = value;
+        nAdjustments_++;
+    }
 
-            return display_;
+    /**
+     * index of the latest adjustment to outcome for factor recorded before the given index,
+     * -1 if none
+     */
+    private int getPriorAdjustment(int outcome, int factor, int index)
+    {
+        for (int i = index - 1; i >= 0; --i)
+        {
+            if (adjOutcome_[i] == outcome && adjFactor_[i] == factor) return i;
         }
+        return -1;
+    }
+
+    private String getDebug(int outcome)
+    {
+        // for now, just store outcome name
+        return (outcome != OUTCOME_NONE) ? outcomeNames_[outcome] : null;
     }
 
     public boolean isBetting()
@@ -2938,7 +2906,7 @@ public class RuleEngine implements AIConstants
 
             buf.append("<TR><TD>&nbsp;</TD>");
 
-            for (int outcome = 0; outcome < outcomeNames_.size(); ++outcome)
+            for (int outcome = 0; outcome < outcomeNames_.length; ++outcome)
             {
                 if (!isEligible(outcome)) continue;
 
@@ -2949,7 +2917,7 @@ public class RuleEngine implements AIConstants
 
             buf.append("</TR>");
 
-            for (int factor = 0; factor < factorNames_.size(); ++factor)
+            for (int factor = 0; factor < factorNames_.length; ++factor)
             {
                 int position = buf.length();
                 boolean bVal = false;
@@ -2957,11 +2925,11 @@ public class RuleEngine implements AIConstants
                 buf.append("<TR><TD><B>");
                 buf.append(getFactorLabel(factor));
                 buf.append("</B></TD>");
-                for (int outcome = 0; outcome < outcomeNames_.size(); ++outcome)
+                for (int outcome = 0; outcome < outcomeNames_.length; ++outcome)
                 {
                     if (!isEligible(outcome)) continue;
 
-                    OutcomeAdjustment adjustment = adjustments_[outcome][factor];
+                    int adjustment = getPriorAdjustment(outcome, factor, nAdjustments_);
 
                     buf.append("<TD ALIGN=\"RIGHT\">");
 
@@ -2969,9 +2937,9 @@ public class RuleEngine implements AIConstants
 
                     int count = 0;
 
-                    while (adjustment != null)
+                    while (adjustment >= 0)
                     {
-                        float diff = adjustment.fx * adjustment.weight;
+                        float diff = adjValue_[adjustment];
                         if (Math.abs(diff) >= 0.01d)
                         {
                             if (diff > 0.0f)
@@ -2983,8 +2951,8 @@ public class RuleEngine implements AIConstants
                             ++count;
                             bVal = true;
                         }
-                        adjustment = adjustment.next;
-                        if ((Math.abs(diff) >= 0.01d) && (adjustment != null))
+                        adjustment = getPriorAdjustment(outcome, factor, adjustment);
+                        if ((Math.abs(diff) >= 0.01d) && (adjustment >= 0))
                         {
                             buf.append("<br>");
                         }
@@ -3021,7 +2989,7 @@ public class RuleEngine implements AIConstants
 
             buf.append("<TR><TD>&nbsp;</TD>");
 
-            for (int outcome = 0; outcome < outcomeNames_.size(); ++outcome)
+            for (int outcome = 0; outcome < outcomeNames_.length; ++outcome)
             {
                 if (!isEligible(outcome)) continue;
 
@@ -3064,8 +3032,8 @@ public class RuleEngine implements AIConstants
                     Utils.encodeHTML(playerType.getName()),
                     (bBreak ? "<br>" : " "),
                     (strongestOutcome_ == OUTCOME_ALL_IN && isLimitGame) ?
-                        getOutcomeLabel((String) outcomeNames_.get(canCheck ? OUTCOME_BET : OUTCOME_RAISE)) :
-                        getOutcomeLabel((String) outcomeNames_.get(strongestOutcome_)),
+                        getOutcomeLabel(outcomeNames_[canCheck ? OUTCOME_BET : OUTCOME_RAISE]) :
+                        getOutcomeLabel(outcomeNames_[strongestOutcome_]),
                     (bBreak ? "<br>" : " "),
                     ((isBetting() && !isLimitGame) ?  betRange_.toString(player, bBreak) : ""));
             else
@@ -3087,11 +3055,11 @@ public class RuleEngine implements AIConstants
     {
         ArrayList list = new ArrayList();
 
-        for (int i = 0; i < outcomeNames_.size(); ++i)
+        for (int i = 0; i < outcomeNames_.length; ++i)
         {
             if (eligible_[i])
             {
-                list.add(outcomeNames_.get(i));
+                list.add(outcomeNames_[i]);
             }
         }
 
@@ -3105,7 +3073,7 @@ public class RuleEngine implements AIConstants
 
     public String getStrongestOutcomeName()
     {
-        return (String) outcomeNames_.get(strongestOutcome_);
+        return outcomeNames_[strongestOutcome_];
     }
 
     public static String getOutcomeLabel(String outcomeName)
@@ -3115,7 +3083,7 @@ public class RuleEngine implements AIConstants
 
     public static String getOutcomeLabel(int outcome)
     {
-        return getOutcomeLabel((String) outcomeNames_.get(outcome));
+        return getOutcomeLabel(outcomeNames_[outcome]);
     }
 
     public static String getFactorLabel(String factorName)
@@ -3125,7 +3093,7 @@ public class RuleEngine implements AIConstants
 
     private static String getFactorLabel(int factor)
     {
-        return getFactorLabel((String)factorNames_.get(factor));
+        return getFactorLabel(factorNames_[factor]);
     }
 
     public BetRange getBetRange()
@@ -3143,7 +3111,7 @@ public class RuleEngine implements AIConstants
         // sort outcomes
         ArrayList outcomes = new ArrayList();
 
-        for (int i = 0; i < outcomeNames_.size(); ++i)
+        for (int i = 0; i < outcomeNames_.length; ++i)
         {
             // if (i == strongestOutcome_) continue;
 
@@ -3172,7 +3140,7 @@ public class RuleEngine implements AIConstants
         /*
         buf.append(getReasoningHTML(strongestOutcome_));
 
-        for (int i = 0; i < outcomeNames_.size(); ++i)
+        for (int i = 0; i < outcomeNames_.length; ++i)
         {
             if (i == strongestOutcome_) continue;
 
@@ -3195,19 +3163,16 @@ public class RuleEngine implements AIConstants
         // figure out order (simple insertion sort)
         ArrayList adjustments = new ArrayList();
 
-        for (int i = 0; i < factorNames_.size(); ++i)
+        for (int i = 0; i < factorNames_.length; ++i)
         {
             // if (i == FACTOR_DEFAULT) continue;
 
-            OutcomeAdjustment adjustment = (OutcomeAdjustment)adjustments_[outcome][i];
-            OutcomeAdjustment head = adjustment;
-
             float total = 0.0f;
 
-            while (adjustment != null)
+            for (int adjustment = getPriorAdjustment(outcome, i, nAdjustments_); adjustment >= 0;
+                 adjustment = getPriorAdjustment(outcome, i, adjustment))
             {
-                total += adjustment.weight * adjustment.fx;
-                adjustment = adjustment.next;
+                total += adjValue_[adjustment];
             }
 
             if (Math.abs(total) < 0.01d) continue;
@@ -3238,7 +3203,7 @@ public class RuleEngine implements AIConstants
             float value = ((Float)(adjustments.get(i+1))).floatValue();
 
             String display = PropertyConfig.getMessage
-                        ("msg.aireason." + factorNames_.get(factor));
+                        ("msg.aireason." + factorNames_[factor]);
 
             if (display != null)
             {
@@ -3290,30 +3255,30 @@ public class RuleEngine implements AIConstants
     {
         logger.debug("RuleEngine results for " + player.getPokerPlayer().getName());
 
-        for (int outcome = 0; outcome < outcomeNames_.size(); ++outcome)
+        for (int outcome = 0; outcome < outcomeNames_.length; ++outcome)
         {
             if (!isEligible(outcome)) continue;
 
             logger.debug(getOutcomeLabel(outcome));
 
-            for (int factor = 0; factor < factorNames_.size(); ++factor)
+            for (int factor = 0; factor < factorNames_.length; ++factor)
             {
                 boolean bVal = false;
 
-                OutcomeAdjustment adjustment = adjustments_[outcome][factor];
+                int adjustment = getPriorAdjustment(outcome, factor, nAdjustments_);
 
                 float sum = 0.0f;
 
-                while (adjustment != null)
+                while (adjustment >= 0)
                 {
-                    float diff = adjustment.fx * adjustment.weight;
+                    float diff = adjValue_[adjustment];
 
                     if (Math.abs(diff) >= 0.01d)
                     {
                         sum += diff;
                         bVal = true;
                     }
-                    adjustment = adjustment.next;
+                    adjustment = getPriorAdjustment(outcome, factor, adjustment);
                 }
                 if ((sum * 100.0) > 0.0f)
                 {
@@ -367,7 +367,7 @@ public class V2Player extends V1Player implements AIConstants
 
         Hand hand = new Hand(Card.BLANK, Card.BLANK);
 
-        HandInfoFaster info = new HandInfoFaster();
+        HandInfoFastest info = new HandInfoFastest();
 
         PocketRanks ranks = PocketRanks.getInstance(community);
 
@@ -1908,13 +1908,14 @@ public class V2Player extends V1Player implements AIConstants
         if (!getPokerPlayer().isHuman())
         {
             DMTypedHashMap map = getMap();
-            Integer mod = map.getInteger("strat." + name);
+            String key = PlayerType.getStratKey(name);
+            Integer mod = map.getInteger(key);
             if (mod == null)
             {
                 //Random rand = new Random(seed);
                 SecureRandom rand = SecurityUtils.getSecureRandom();
                 mod = rand.nextInt(21) - 10;
-                map.setInteger("strat." + name, mod);
+                map.setInteger(key, mod);
             }
 
             iMod = mod;
@@ -57,6 +57,12 @@ public class FindGames extends ListGames
 
     private OnlineGame selected_;
 
+    // last list fetched, re-used if server says it hasn't changed
+    private OnlineGameList lastList_;
+    private int lastOffset_;
+    private int lastCount_;
+    private long lastVersion_;
+
 
     /**
      * Creates a new instance of TournamentOptions
@@ -457,6 +463,10 @@ public class FindGames extends ListGames
         hmParams.setInteger(GetWanList.PARAM_OFFSET, offset);
         hmParams.setInteger(GetWanList.PARAM_COUNT, count);
         hmParams.setInteger(GetWanList.PARAM_MODE, OnlineGame.FETCH_MODE_REG_PLAY);
+        if (lastList_ != null && offset == lastOffset_ && count == lastCount_)
+        {
+            hmParams.setLong(GetWanList.PARAM_VERSION, lastVersion_);
+        }
 
         if (faceless)
         {
@@ -499,6 +509,12 @@ public class FindGames extends ListGames
                 }
             }
 
+            // unchanged since last fetch
+            if (resOnlineMsg.isWanListNotModified() && lastList_ != null)
+            {
+                return lastList_;
+            }
+
             clients.setTotalSize(resOnlineMsg.getCount());
 
             if (games != null)
@@ -508,6 +524,11 @@ public class FindGames extends ListGames
                     clients.add(new OnlineGame(game));
                 }
             }
+
+            lastList_ = clients;
+            lastOffset_ = offset;
+            lastCount_ = count;
+            lastVersion_ = resOnlineMsg.getWanListVersion();
         }
         else
         {
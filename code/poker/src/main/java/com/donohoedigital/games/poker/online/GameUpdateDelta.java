@@ -0,0 +1,334 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.online;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.comms.*;
+import com.donohoedigital.games.config.*;
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.engine.*;
+import com.donohoedigital.games.poker.network.*;
+import org.apache.log4j.*;
+
+import java.util.*;
+
+/**
+ * Delta encoding of the game updates (CAT_GAME_UPDATE) sent to one player.
+ * Each side keeps the binary encoding of every save entry last sent/received.
+ * The host remembers which slot holds the entry for a given type and object,
+ * and sends each entry as unchanged, new, or a patch (the bytes between the
+ * unchanged prefix and suffix - typically a chip count or bet).  The client
+ * rebuilds the full binary game data from its slots and loads it as usual.
+ * <p>
+ * Each update has a sequence number and the sequence it is based on.  Updates
+ * go over an ordered connection, so the last update sent is what the client
+ * builds on next.  A keyframe (all entries new, base of zero) is sent every
+ * KEYFRAME_INTERVAL updates and after reset(), which is called on join,
+ * rejoin and when the client asks for a resync (CAT_RESYNC) because an
+ * update did not match the last one it applied.
+ */
+class GameUpdateDelta
+{
+    static Logger logger = Logger.getLogger(GameUpdateDelta.class);
+
+    static final int KEYFRAME_INTERVAL = 100;
+
+    // how an entry is sent
+    private static final byte OP_NEW = 0;
+    private static final byte OP_SAME = 1;
+    private static final byte OP_PATCH = 2;
+
+    // entries last sent/received, slots for each key (host only)
+    private final List<byte[]> entries_ = new ArrayList<byte[]>();
+    private final Map<Object, Integer> slots_ = new HashMap<Object, Integer>();
+
+    private int nSeq_ = 0;
+    private int nSinceKeyframe_ = 0;
+    private boolean bKeyframe_ = true;
+    private boolean bOutOfSync_ = false;
+    private boolean bResyncRequested_ = false;
+
+    /**
+     * Can given player's client handle delta updates?
+     */
+    static boolean isSupported(PokerPlayer player)
+    {
+        Version version = player.getVersion();
+        return version != null && !version.isBefore(PokerConstants.VERSION_DELTA_UPDATES_ADDED);
+    }
+
+    /**
+     * Get key for each entry in the state - type plus the object saved or,
+     * for entries without an object, the n-th such entry of that type
+     */
+    static Object[] getKeys(GameState state)
+    {
+        Object[] keys = new Object[state.getNumEntries()];
+        Map<Character, Integer> counts = new HashMap<Character, Integer>();
+        GameStateEntry entry;
+        for (int i = 0; i < keys.length; i++)
+        {
+            entry = state.getEntry(i);
+            Object o = entry.getObject();
+            int n = 0;
+            if (o == null)
+            {
+                Integer count = counts.get(entry.getType());
+                n = count == null ? 0 : count;
+                counts.put(entry.getType(), n + 1);
+            }
+            keys[i] = new EntryKey(entry.getType(), o, n);
+        }
+        return keys;
+    }
+
+    /**
+     * Encode each entry of the state in binary
+     */
+    static byte[][] encode(GameState state)
+    {
+        byte[][] entries = new byte[state.getNumEntries()][];
+        for (int i = 0; i < entries.length; i++)
+        {
+            entries[i] = state.encodeEntryBinary(state.getEntry(i));
+        }
+        return entries;
+    }
+
+    /**
+     * Next update sent is a keyframe
+     */
+    synchronized void reset()
+    {
+        bKeyframe_ = true;
+    }
+
+    /**
+     * Host - store entries (keys from getKeys()) in the message as a delta
+     * from those last sent
+     */
+    synchronized void store(OnlineMessage msg, Object[] keys, byte[][] entries)
+    {
+        int nBase = nSeq_;
+        if (bKeyframe_ || nSinceKeyframe_ >= KEYFRAME_INTERVAL)
+        {
+            entries_.clear();
+            slots_.clear();
+            nSinceKeyframe_ = 0;
+            bKeyframe_ = false;
+            nBase = 0;
+        }
+        nSeq_ = nextSequence(nSeq_);
+        nSinceKeyframe_++;
+
+        DDByteArrayOutputStream out = new DDByteArrayOutputStream(1024);
+        BinaryMarshaller.writeVarInt(out, entries.length);
+        byte[] entry, old;
+        Integer slot;
+        for (int i = 0; i < entries.length; i++)
+        {
+            entry = entries[i];
+            slot = slots_.get(keys[i]);
+            if (slot == null)
+            {
+                slot = entries_.size();
+                slots_.put(keys[i], slot);
+                entries_.add(entry);
+
+                out.write(OP_NEW);
+                BinaryMarshaller.writeVarInt(out, slot);
+                BinaryMarshaller.writeVarInt(out, entry.length);
+                out.write(entry, 0, entry.length);
+                continue;
+            }
+
+            old = entries_.set(slot, entry);
+            if (Arrays.equals(old, entry))
+            {
+                out.write(OP_SAME);
+                BinaryMarshaller.writeVarInt(out, slot);
+                continue;
+            }
+
+            // unchanged prefix/suffix (which can't overlap in either)
+            int nMax = Math.min(old.length, entry.length);
+            int nPrefix = 0;
+            while (nPrefix < nMax && old[nPrefix] == entry[nPrefix]) nPrefix++;
+            int nSuffix = 0;
+            while (nSuffix < nMax - nPrefix &&
+                   old[old.length - 1 - nSuffix] == entry[entry.length - 1 - nSuffix]) nSuffix++;
+            int nMiddle = entry.length - nPrefix - nSuffix;
+
+            out.write(OP_PATCH);
+            BinaryMarshaller.writeVarInt(out, slot);
+            BinaryMarshaller.writeVarInt(out, nPrefix);
+            BinaryMarshaller.writeVarInt(out, nSuffix);
+            BinaryMarshaller.writeVarInt(out, nMiddle);
+            out.write(entry, nPrefix, nMiddle);
+        }
+
+        msg.setGameData(out.toByteArray());
+        msg.setDeltaSequence(nSeq_);
+        msg.setDeltaBase(nBase);
+    }
+
+    /**
+     * Client - rebuild the full binary game data from the delta in the message.
+     * Returns null if the update isn't based on the last one applied (the
+     * sender should be asked to resync).
+     */
+    synchronized byte[] apply(OnlineMessage msg)
+    {
+        int nBase = msg.getDeltaBase();
+        if (nBase == 0)
+        {
+            entries_.clear();
+            bOutOfSync_ = false;
+            bResyncRequested_ = false;
+        }
+        else if (bOutOfSync_ || nBase != nSeq_)
+        {
+            logger.warn("Game update " + msg.getDeltaSequence() + " based on " + nBase +
+                        ", but last applied is " + nSeq_);
+            bOutOfSync_ = true;
+            return null;
+        }
+
+        BinaryMarshaller.Input in = new BinaryMarshaller.Input(msg.getGameData());
+        int nNum = BinaryMarshaller.readVarInt(in);
+        DDByteArrayOutputStream out = new DDByteArrayOutputStream(4096);
+        out.write(BinaryMarshaller.BINARY_MARKER);
+        byte op;
+        int slot;
+        byte[] entry, old;
+        for (int i = 0; i < nNum; i++)
+        {
+            op = in.readByte();
+            slot = BinaryMarshaller.readVarInt(in);
+            switch (op)
+            {
+                case OP_NEW:
+                    entry = new byte[BinaryMarshaller.readVarInt(in)];
+                    in.readBytes(entry, 0, entry.length);
+                    break;
+
+                case OP_SAME:
+                    entry = getSlot(slot);
+                    break;
+
+                case OP_PATCH:
+                    old = getSlot(slot);
+                    int nPrefix = BinaryMarshaller.readVarInt(in);
+                    int nSuffix = BinaryMarshaller.readVarInt(in);
+                    int nMiddle = BinaryMarshaller.readVarInt(in);
+                    ApplicationError.assertTrue(nPrefix + nSuffix <= old.length, "Bad patch", slot);
+                    entry = new byte[nPrefix + nMiddle + nSuffix];
+                    System.arraycopy(old, 0, entry, 0, nPrefix);
+                    in.readBytes(entry, nPrefix, nMiddle);
+                    System.arraycopy(old, old.length - nSuffix, entry, nPrefix + nMiddle, nSuffix);
+                    break;
+
+                default:
+                    throw new ApplicationError(ErrorCodes.ERROR_INVALID, "Unknown delta op " + op, null);
+            }
+
+            if (slot == entries_.size()) entries_.add(entry);
+            else entries_.set(slot, entry);
+
+            BinaryMarshaller.writeVarInt(out, entry.length);
+            out.write(entry, 0, entry.length);
+        }
+
+        nSeq_ = msg.getDeltaSequence();
+        return out.toByteArray();
+    }
+
+    /**
+     * Client - after apply() returns null, returns true the first time it is
+     * called, so the sender is asked to resync once until the keyframe arrives
+     */
+    synchronized boolean isResyncNeeded()
+    {
+        if (!bOutOfSync_ || bResyncRequested_) return false;
+        bResyncRequested_ = true;
+        return true;
+    }
+
+    /**
+     * get entry in slot
+     */
+    private byte[] getSlot(int slot)
+    {
+        ApplicationError.assertTrue(slot < entries_.size(), "Unknown slot", slot);
+        return entries_.get(slot);
+    }
+
+    /**
+     * next sequence (skips zero, which means keyframe/no delta)
+     */
+    private static int nextSequence(int nSeq)
+    {
+        return nSeq == Integer.MAX_VALUE ? 1 : nSeq + 1;
+    }
+
+    /**
+     * Key for an entry - object is compared by identity
+     */
+    private static class EntryKey
+    {
+        private final char cType;
+        private final Object o;
+        private final int n;
+
+        EntryKey(char cType, Object o, int n)
+        {
+            this.cType = cType;
+            this.o = o;
+            this.n = n;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof EntryKey)) return false;
+            EntryKey key = (EntryKey) other;
+            return key.cType == cType && key.o == o && key.n == n;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * (31 * System.identityHashCode(o) + cType) + n;
+        }
+    }
+}
@@ -55,11 +55,13 @@ public class GetWanList extends SendMessageDialog
     public static final String PARAM_COUNT = "count";
     public static final String PARAM_MODE = "mode";
     public static final String PARAM_AUTH = "auth";
+    public static final String PARAM_VERSION = "version";
 
     private int offset_ = 0;
     private int count_ = -1;
     private int mode_ = -1;
     private OnlineProfile auth_ = null;
+    private long version_ = 0;
 
 
     /**
@@ -72,6 +74,7 @@ public class GetWanList extends SendMessageDialog
         count_ = gamephase.getInteger(PARAM_COUNT, count_);
         mode_ = gamephase.getInteger(PARAM_MODE, mode_);
         auth_ = (OnlineProfile) gamephase.getObject(PARAM_AUTH);
+        version_ = gamephase.getLong(PARAM_VERSION, version_);
 
         super.init(engine, context, gamephase);
     }
@@ -88,6 +91,7 @@ public class GetWanList extends SendMessageDialog
         reqOnlineMsg.setCount(count_);
         if (mode_ > 0) reqOnlineMsg.setMode(mode_);
         if (auth_ != null) reqOnlineMsg.setWanAuth(auth_.getData());
+        if (version_ != 0) reqOnlineMsg.setWanListVersion(version_);
         EngineMessage reqEngineMsg = new EngineMessage();
         reqOnlineMsg.getData().copyTo(reqEngineMsg);
 
@@ -91,6 +91,10 @@ public class OnlineManager implements ChatManager
     private PokerPrefsPlayerList banned_;
     private Set<String> sentMessageAboutRejectedPlayer = new HashSet<String>();
 
+    // delta encoded game updates (host - per player id, client - from host)
+    private final Map<Integer, GameUpdateDelta> deltas_ = new HashMap<Integer, GameUpdateDelta>();
+    private final GameUpdateDelta hostDelta_ = new GameUpdateDelta();
+
     /**
      * Creates a new instance of OnlineManager
      */
@@ -362,6 +366,10 @@ public class OnlineManager implements ChatManager
                 processChangeTable(omsg);
                 break;
 
+            case OnlineMessage.CAT_RESYNC:
+                processResync(omsg);
+                break;
+
             case DDMessage.CAT_APPL_ERROR:
                 logger.warn("OnlineManager app error: " + omsg.getApplicationErrorMessage());
                 break;
@@ -892,7 +900,8 @@ public class OnlineManager implements ChatManager
         pdetails.setPlayerID(player.getID());
         reply.setInReplyTo(omsg.getMessageID());
         reply.setPhaseName(sPhase);
-        storeGame(reply, game_, details);
+        storeGame(reply, game_, details, player);
+        resetGameUpdateDelta(player);
         sendMessage(reply, player);
         player.clearMessageReceived(); // clear message received time when sending client join message
     }
@@ -1095,7 +1104,7 @@ public class OnlineManager implements ChatManager
         SaveDetails details = game_.getSaveDetails(SaveDetails.SAVE_NONE);
         details.setSavePlayers(SaveDetails.SAVE_ALL);
         details.setSaveObservers(SaveDetails.SAVE_ALL);
-        storeGame(omsg, game_, details);
+        storeGame(omsg, game_, details, null);
 
         sendMessageAll(omsg);
     }
@@ -1110,7 +1119,7 @@ public class OnlineManager implements ChatManager
         SaveDetails details = game_.getSaveDetails(SaveDetails.SAVE_NONE);
         details.setSavePlayers(SaveDetails.SAVE_DIRTY);
         details.setSaveObservers(SaveDetails.SAVE_DIRTY);
-        storeGame(omsg, game_, details);
+        storeGame(omsg, game_, details, null);
         player.setDirty(false);
 
         sendMessageAllExcept(omsg, player, false);
@@ -1136,16 +1145,18 @@ public class OnlineManager implements ChatManager
             pdetails.setSaveTables(SaveDetails.SAVE_ALL);
             pdetails.setSetCurrentTableToLocal(true);
         }
-        storeGame(omsg, game_, details);
+        storeGame(omsg, game_, details, null);
 
         sendMessageAll(omsg);
     }
 
     /**
-     * Send update of table to all players at table (and observers).
+     * Send update of table to all players at table (and observers).  The game is
+     * saved once for all of them (see SharedTableUpdate).
      */
     public void sendTableUpdate(PokerTable table, DMArrayList<PokerTableEvent> events, boolean bOnlySendToWaitList, boolean bRunProcessTable)
     {
+        List<PokerPlayer> to = new ArrayList<PokerPlayer>();
         PokerPlayer player;
 
         if (bOnlySendToWaitList)
@@ -1154,9 +1165,8 @@ public class OnlineManager implements ChatManager
             for (int i = 0; i < nNum; i++)
             {
                 player = table.getWaitPlayer(i);
-                if (player.isRejoining()) continue;
-                sendTableUpdate(table, player, events, PokerSaveDetails.NO_OVERRIDE, bRunProcessTable,
-                                null, false, null, null, null);
+                if (player.isRejoining() || player.isHost()) continue;
+                to.add(player);
             }
         }
         else
@@ -1164,9 +1174,8 @@ public class OnlineManager implements ChatManager
             for (int i = 0; i < PokerConstants.SEATS; i++)
             {
                 player = table.getPlayer(i);
-                if (player == null || player.isComputer() || player.isRejoining()) continue;
-                sendTableUpdate(table, player, events, PokerSaveDetails.NO_OVERRIDE, bRunProcessTable,
-                                null, false, null, null, null);
+                if (player == null || player.isComputer() || player.isRejoining() || player.isHost()) continue;
+                to.add(player);
             }
 
             // send in reverse order since error causes observer to get removed
@@ -1174,12 +1183,47 @@ public class OnlineManager implements ChatManager
             for (int i = nNum - 1; i >= 0; i--)
             {
                 player = table.getObserver(i);
-                if (player.isRejoining()) continue;
-                sendTableUpdate(table, player, events, PokerSaveDetails.NO_OVERRIDE, bRunProcessTable,
-                                null, false, null, null, null);
+                if (player.isRejoining() || player.isHost()) continue;
+                to.add(player);
             }
         }
 
+        if (to.isEmpty()) return;
+
+        // mark dirty players on this table
+        table.setPlayersObserversDirty(true);
+        table.setDirty(true);
+
+        // save once, then store data for each player (only their own
+        // entries are encoded separately)
+        SaveDetails details = game_.getSaveDetails(SaveDetails.SAVE_NONE);
+        PokerSaveDetails pdetails = (PokerSaveDetails) details.getCustomInfo();
+        details.setSavePlayers(SaveDetails.SAVE_DIRTY);
+        details.setSaveObservers(SaveDetails.SAVE_DIRTY);
+        details.setSaveGameSubclassData(SaveDetails.SAVE_ALL);
+        pdetails.setSaveTables(SaveDetails.SAVE_DIRTY);
+        pdetails.setOverrideState(PokerSaveDetails.NO_OVERRIDE);
+        pdetails.setSetCurrentTableToLocal(false);
+        SharedTableUpdate update = new SharedTableUpdate(game_, details);
+
+        OnlineMessage[] msgs = new OnlineMessage[to.size()];
+        for (int i = 0; i < msgs.length; i++)
+        {
+            msgs[i] = prepareMessage(OnlineMessage.CAT_GAME_UPDATE);
+            update.storeGame(msgs[i], to.get(i), getGameUpdateDelta(to.get(i)));
+            msgs[i].setRunProcessTable(bRunProcessTable);
+            msgs[i].setPokerTableEvents(events);
+        }
+
+        // unset dirty flag
+        table.setPlayersObserversDirty(false);
+        table.setDirty(false);
+
+        // send
+        for (int i = 0; i < msgs.length; i++)
+        {
+            sendMessage(msgs[i], to.get(i));
+        }
     }
 
     /**
@@ -1221,7 +1265,7 @@ public class OnlineManager implements ChatManager
         pdetails.setOverrideState(nOverrideState);
         pdetails.setSetCurrentTableToLocal(bSetCurrentTableToLocal);
         pdetails.setRemovedTables(getTableIds(removedTables));
-        storeGame(omsg, game_, details);
+        storeGameUpdate(omsg, details, playerTo);
 
         // unset dirty flag
         // mark dirty players on this players table
@@ -1767,8 +1811,21 @@ public class OnlineManager implements ChatManager
     {
         ApplicationError.assertTrue(!isHost(), "should not run processGameUpdate() as host", omsg);
 
-        // load game data
-        loadGame(omsg, game_);
+        // load game data (rebuilt from delta if need be)
+        byte[] data = omsg.getGameData();
+        if (omsg.getDeltaSequence() != 0)
+        {
+            data = hostDelta_.apply(omsg);
+
+            // out of sync - skip the whole update (events, phase and table
+            // processing would run on stale data) until the keyframe arrives
+            if (data == null)
+            {
+                if (hostDelta_.isResyncNeeded()) requestResync();
+                return;
+            }
+        }
+        loadGame(data, game_);
 
         // resync
         if (bSyncNextUpdate_)
@@ -2009,16 +2066,27 @@ public class OnlineManager implements ChatManager
 
     /**
      * Marshal the game into a string and store it with this message.
-     * Only store the game data and the components marked "dirty"
+     * Only store the game data and the components marked "dirty".
+     * If the message is only going to the given player and that player's
+     * version reads binary, the more compact binary form is used.
      */
-    private void storeGame(OnlineMessage msg, Game game, SaveDetails details)
+    private void storeGame(OnlineMessage msg, Game game, SaveDetails details, PokerPlayer to)
     {
         GameState state = game.newGameState("OnlineManager");
         game.saveGame(state, details);
 
-        StringWriter writer = new StringWriter();
-        state.write(writer);
-        msg.setGameData(writer.toString());
+        if (to != null && DDMessage.isBinarySupported(to.getVersion()))
+        {
+            DDByteArrayOutputStream out = new DDByteArrayOutputStream(4096);
+            state.write(out);
+            msg.setGameData(out.toByteArray());
+        }
+        else
+        {
+            StringWriter writer = new StringWriter();
+            state.write(writer);
+            msg.setGameData(writer.toString());
+        }
     }
 
     /**
@@ -2026,10 +2094,91 @@ public class OnlineManager implements ChatManager
      */
     private void loadGame(OnlineMessage msg, Game game)
     {
-        GameState state = GameStateFactory.createGameState(msg.getGameData());
+        loadGame(msg.getGameData(), game);
+    }
+
+    /**
+     * Load the given game data into given game
+     */
+    private void loadGame(byte[] data, Game game)
+    {
+        GameState state = GameStateFactory.createGameState(data);
         game.loadGame(state, false);
     }
 
+    /**
+     * Save game and store it in message for a game update to given player,
+     * delta encoded if the player supports it
+     */
+    private void storeGameUpdate(OnlineMessage msg, SaveDetails details, PokerPlayer to)
+    {
+        GameUpdateDelta delta = getGameUpdateDelta(to);
+        if (delta == null)
+        {
+            storeGame(msg, game_, details, to);
+            return;
+        }
+
+        GameState state = game_.newGameState("OnlineManager");
+        game_.saveGame(state, details);
+        delta.store(msg, GameUpdateDelta.getKeys(state), GameUpdateDelta.encode(state));
+    }
+
+    ////
+    //// delta game updates
+    ////
+
+    /**
+     * Get delta state for game updates to given player, null if
+     * player doesn't support them
+     */
+    private GameUpdateDelta getGameUpdateDelta(PokerPlayer to)
+    {
+        if (!GameUpdateDelta.isSupported(to) || !DDMessage.isBinarySupported(to.getVersion())) return null;
+
+        synchronized (deltas_)
+        {
+            GameUpdateDelta delta = deltas_.get(to.getID());
+            if (delta == null)
+            {
+                delta = new GameUpdateDelta();
+                deltas_.put(to.getID(), delta);
+            }
+            return delta;
+        }
+    }
+
+    /**
+     * Next game update to given player is sent in full (join, rejoin, resync)
+     */
+    public void resetGameUpdateDelta(PokerPlayer player)
+    {
+        synchronized (deltas_)
+        {
+            GameUpdateDelta delta = deltas_.get(player.getID());
+            if (delta != null) delta.reset();
+        }
+    }
+
+    /**
+     * Client - ask host to resync game updates (send a keyframe next)
+     */
+    private void requestResync()
+    {
+        OnlineMessage resync = prepareMessage(OnlineMessage.CAT_RESYNC);
+        resync.setFromPlayerID(getLocalPlayer().getID());
+        sendMessage(resync, getHost());
+    }
+
+    /**
+     * Host - process resync request from client
+     */
+    private void processResync(OnlineMessage omsg)
+    {
+        PokerPlayer player = getPlayer(omsg, false);
+        if (player != null) resetGameUpdateDelta(player);
+    }
+
     ////
     //// chat
     ////
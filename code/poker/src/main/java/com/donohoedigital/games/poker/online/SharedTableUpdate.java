@@ -0,0 +1,168 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.online;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.comms.*;
+import com.donohoedigital.games.config.*;
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.engine.*;
+import com.donohoedigital.games.poker.network.*;
+
+/**
+ * A table update saved once and sent to every player and observer at a table.
+ * The game is saved a single time with everyone's cards hidden, and each entry
+ * is encoded once per format (text/binary).  For a given recipient, only the
+ * entries that differ are encoded again:  the first entry (which holds the
+ * save details naming the recipient) and the recipient's own player entry
+ * (so they see their own cards).
+ * <p>
+ * Game data for all recipients must be fetched before the dirty flags used
+ * in the save are cleared.
+ */
+class SharedTableUpdate
+{
+    private final PokerGame game_;
+    private final GameState state_;
+    private final PokerSaveDetails pdetails_;
+
+    // lazily encoded entries
+    private String[] text_;
+    private byte[][] binary_;
+    private Object[] keys_;
+
+    /**
+     * Save game using given details (player id is cleared and others' cards hidden)
+     */
+    SharedTableUpdate(PokerGame game, SaveDetails details)
+    {
+        game_ = game;
+        pdetails_ = (PokerSaveDetails) details.getCustomInfo();
+        pdetails_.setPlayerID(PokerSaveDetails.NO_PLAYER);
+        pdetails_.setHideOthersCards(true);
+
+        state_ = game.newGameState("OnlineManager");
+        game.saveGame(state_, details);
+    }
+
+    /**
+     * Store game data for given player in the message, delta
+     * encoded if delta is non-null (see GameUpdateDelta)
+     */
+    void storeGame(OnlineMessage msg, PokerPlayer to, GameUpdateDelta delta)
+    {
+        // details name the recipient
+        pdetails_.setPlayerID(to.getID());
+        pdetails_.setOtherTableUpdate(game_.isOtherTableUpdate(pdetails_));
+        GameStateEntry details = state_.getEntry(0);
+
+        // recipient's own entry, if saved, is re-created so their cards show
+        int nPlayerIndex = getPlayerIndex(to);
+        GameStateEntry player = null;
+        if (nPlayerIndex >= 0)
+        {
+            player = to.addGameStateEntry(state_);
+            state_.removeLastEntry();
+        }
+
+        if (delta != null)
+        {
+            if (binary_ == null) binary_ = GameUpdateDelta.encode(state_);
+            if (keys_ == null) keys_ = GameUpdateDelta.getKeys(state_);
+
+            byte[][] entries = binary_.clone();
+            entries[0] = state_.encodeEntryBinary(details);
+            if (nPlayerIndex >= 0) entries[nPlayerIndex] = state_.encodeEntryBinary(player);
+            delta.store(msg, keys_, entries);
+        }
+        else if (DDMessage.isBinarySupported(to.getVersion()))
+        {
+            if (binary_ == null) binary_ = GameUpdateDelta.encode(state_);
+
+            DDByteArrayOutputStream out = new DDByteArrayOutputStream(4096);
+            out.write(BinaryMarshaller.BINARY_MARKER);
+            for (int i = 0; i < binary_.length; i++)
+            {
+                byte[] entry;
+                if (i == 0) entry = state_.encodeEntryBinary(details);
+                else if (i == nPlayerIndex) entry = state_.encodeEntryBinary(player);
+                else entry = binary_[i];
+
+                BinaryMarshaller.writeVarInt(out, entry.length);
+                out.write(entry, 0, entry.length);
+            }
+            msg.setGameData(out.toByteArray());
+        }
+        else
+        {
+            if (text_ == null) text_ = encodeText();
+
+            StringBuilder sb = new StringBuilder(4096);
+            for (int i = 0; i < text_.length; i++)
+            {
+                if (i == 0) sb.append(state_.encodeEntryText(i, details));
+                else if (i == nPlayerIndex) sb.append(state_.encodeEntryText(i, player));
+                else sb.append(text_[i]);
+            }
+            msg.setGameData(sb.toString());
+        }
+    }
+
+    /**
+     * Index of player's entry in the save, -1 if not saved
+     */
+    private int getPlayerIndex(PokerPlayer player)
+    {
+        GameStateEntry entry;
+        int nNum = state_.getNumEntries();
+        for (int i = 1; i < nNum; i++)
+        {
+            entry = state_.getEntry(i);
+            if (entry.getObject() == player && entry.getType() == ConfigConstants.SAVE_PLAYER) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * encode all entries as text
+     */
+    private String[] encodeText()
+    {
+        String[] text = new String[state_.getNumEntries()];
+        for (int i = 0; i < text.length; i++)
+        {
+            text[i] = state_.encodeEntryText(i, state_.getEntry(i));
+        }
+        return text;
+    }
+}
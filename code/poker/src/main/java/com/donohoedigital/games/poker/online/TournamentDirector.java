@@ -53,6 +53,7 @@ import org.apache.log4j.*;
 
 import javax.swing.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Class which handles tournament.
@@ -86,7 +87,8 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
     // time to wait before clearing a pending rejoin
     public static final int REJOIN_TIMEOUT_MILLIS = 20 * 1000;
 
-    // TD default sleep between checking for things to do
+    // TD time between checks during a break, also the window in which
+    // timed waits send their countdown chat (see getWholeSeconds())
     private static final int SLEEP_MILLIS = 250;
 
     // AI pause in tenths for online games
@@ -94,9 +96,8 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
 
     // member data
     private Thread thread_;
-    private Thread threadAlive_;
     private static int nThreadSeq_ = 0;
-    private boolean bDone_ = false;
+    private volatile boolean bDone_ = false;
     private PokerGame game_;
     private OnlineManager mgr_;
     private ChatHandler chat_;
@@ -207,9 +208,7 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
 
             startWanGame();
             setStartPause();
-            //noinspection AssignmentToStaticFieldFromInstanceMethod
-            thread_ = new Thread(this, "TournamentDirector-" + (nThreadSeq_++));
-            thread_.start();
+            startThread();
         }
         // client
         else if (bOnline_)
@@ -218,14 +217,52 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
             game_.getHost().clearMessageReceived();
         }
 
-        // alive thread for online games (only needed for non-UDP transport since UDP layer handles that)
+        // alive check for online games (only needed for non-UDP transport since UDP layer handles that)
         if (bOnline_ && !mgr_.isUDP())
         {
-            threadAlive_ = new TDAlive();
-            threadAlive_.start();
+            timer_.scheduleWithFixedDelay(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        if (!bDone_)
+                        {
+                            mgr_.alive(true);
+                        }
+                    }
+                    catch (Throwable t)
+                    {
+                        logger.error("TD alive check caught an unexcepted exception: " + Utils.formatExceptionText(t));
+                    }
+                }
+            }, OnlineManager.ALIVE_SLEEP_MILLIS, OnlineManager.ALIVE_SLEEP_MILLIS, TimeUnit.MILLISECONDS);
         }
     }
 
+    /**
+     * Start TD thread
+     */
+    private void startThread()
+    {
+        //noinspection AssignmentToStaticFieldFromInstanceMethod
+        thread_ = new Thread(this, "TournamentDirector-" + (nThreadSeq_++));
+        thread_.start();
+    }
+
+    /**
+     * Start as practice mode host for given game, without a phase context
+     * (used by tests, so only suitable for table states which run no phases)
+     */
+    void startHost(PokerGame game)
+    {
+        game_ = game;
+        bOnline_ = false;
+        bClient_ = false;
+        bHost_ = true;
+        startThread();
+    }
+
     /**
      * on startup, if table is in state waiting to deal for button,
      * force a pause in online games so there is a delay between
@@ -266,38 +303,174 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
         return bClient_;
     }
 
+    ////
+    //// work queue - the TD thread blocks until there is something to do.  Work comes
+    //// from outside calls (player actions, messages from clients, UI) via wake() and
+    //// from timers (table pauses, timed waits) scheduled after each pass via wakeIn()
+    ////
+
+    // wakes TD thread
+    private static final Runnable WAKE = new Runnable()
+    {
+        public void run()
+        {
+        }
+    };
+
+    private final BlockingQueue<Runnable> work_ = new LinkedBlockingQueue<Runnable>();
+    private final ScheduledThreadPoolExecutor timer_ = new ScheduledThreadPoolExecutor(2, new ThreadFactory()
+    {
+        private int nNum = 0;
+
+        public synchronized Thread newThread(Runnable r)
+        {
+            Thread t = new Thread(r, "TDTimer-" + (nNum++));
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    private ScheduledFuture<?> wake_;
+    private long nWakeAt_;
+    private volatile int nPasses_ = 0;
+
+    /**
+     * Number of passes (process() calls) made by TD thread
+     */
+    int getNumPasses()
+    {
+        return nPasses_;
+    }
+
     /**
-     * alive thread
+     * Have TD thread run a pass (no-op if one is already queued)
      */
-    private class TDAlive extends Thread
+    private void wake()
     {
-        TDAlive()
+        if (work_.isEmpty()) work_.offer(WAKE);
+    }
+
+    /**
+     * Have TD thread run a pass in given millis (unless already scheduled sooner)
+     */
+    private void wakeIn(long nMillis)
+    {
+        synchronized (work_)
         {
-            super("TDAlive");
+            long nAt = System.currentTimeMillis() + nMillis;
+            if (wake_ != null && !wake_.isDone())
+            {
+                if (nWakeAt_ <= nAt) return;
+                wake_.cancel(false);
+            }
+            nWakeAt_ = nAt;
+            wake_ = timer_.schedule(new Runnable()
+            {
+                public void run()
+                {
+                    wake();
+                }
+            }, nMillis, TimeUnit.MILLISECONDS);
         }
+    }
 
-        @Override
-        public void run()
+    /**
+     * Block until there is work, then run everything queued
+     */
+    private void waitForWork()
+    {
+        try
         {
-            while (!bDone_)
+            Runnable work = work_.take();
+            do
             {
-                try
-                {
-                    Utils.sleepMillis(OnlineManager.ALIVE_SLEEP_MILLIS);
+                work.run();
+            }
+            while ((work = work_.poll()) != null);
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.interrupted();
+        }
+    }
 
-                    if (!bDone_)
-                    {
-                        mgr_.alive(true);
-                    }
-                }
-                catch (Throwable t)
-                {
-                    logger.error("TDAlive caught an unexcepted exception: " + Utils.formatExceptionText(t));
-                }
+    /**
+     * Millis until some table needs processing without outside input -
+     * a pause (AI, auto deal) ending, a break (clock checked each pass) or
+     * a timed wait in online games (see getTimedWaitMillis()).  Returns -1 if none.
+     */
+    private long getTimerMillis()
+    {
+        long nNow = System.currentTimeMillis();
+        long nWait = -1;
+        long nTable;
+        PokerTable table;
+        for (int i = 0; i < game_.getNumTables(); i++)
+        {
+            table = game_.getTable(i);
+            if (table.getPause() > nNow)
+            {
+                nTable = table.getPause() - nNow;
+            }
+            else if (table.getTableState() == PokerTable.STATE_BREAK)
+            {
+                nTable = SLEEP_MILLIS;
+            }
+            else if (bOnline_)
+            {
+                nTable = getTimedWaitMillis(table, nNow);
             }
+            else
+            {
+                nTable = -1;
+            }
+
+            if (nTable > 0 && (nWait == -1 || nTable < nWait)) nWait = nTable;
         }
+        return nWait;
     }
 
+    /**
+     * Millis until the next thing checkRejoin() or doPendingTimeoutCheck() does
+     * for the table on its own - rejoin timeout, non-betting timeout, or for the
+     * player betting, the 5 second warning, the timeout and then the think bank's
+     * warning and end.  Returns -1 if none.
+     */
+    private long getTimedWaitMillis(PokerTable table, long nNow)
+    {
+        long nMillis;
+        if (table.getRejoinState() == PokerTable.REJOIN_START)
+        {
+            nMillis = REJOIN_TIMEOUT_MILLIS - (nNow - table.getLastRejoinStateChangeTime()) + 1;
+        }
+        else if (table.getTableState() != PokerTable.STATE_PENDING || table.getWaitSize() == 0)
+        {
+            return -1;
+        }
+        else if (table.getPreviousTableState() != PokerTable.STATE_BETTING)
+        {
+            int nTimeout = (table.getPreviousTableState() == PokerTable.STATE_NEW_LEVEL_CHECK) ? NEWLEVEL_TIMEOUT_MILLIS : NON_BETTING_TIMEOUT_MILLIS;
+            nMillis = nTimeout - table.getMillisSinceLastStateChange() + 1;
+        }
+        else
+        {
+            PokerPlayer player = table.getWaitPlayer();
+            if (!player.isHumanControlled()) return -1;
+
+            long nDiff = game_.getProfile().getTimeoutSeconds() * 1000 + SLEEP_MILLIS - table.getMillisSinceLastStateChange();
+            nMillis = nDiff > 0 ? getWarningMillis(nDiff) : getWarningMillis(player.getThinkBankMillis());
+        }
+        return Math.max(1, nMillis);
+    }
+
+    /**
+     * Millis until given time left is in the window where getWholeSeconds()
+     * returns 5 (when warning chat is sent), or until it runs out if past that
+     */
+    private static long getWarningMillis(long nLeft)
+    {
+        long nWarning = nLeft - (5000 + SLEEP_MILLIS / 2);
+        return nWarning > 0 ? nWarning : nLeft;
+    }
 
     /**
      * thread start
@@ -305,13 +478,13 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
     public void run()
     {
         boolean bSleep = false;
-        // wait while clients display;
-        int nSleep;
         while (!bDone_)
         {
             try
             {
                 bSleep = process();
+                //noinspection NonAtomicOperationOnVolatileField
+                nPasses_++;
             }
             catch (Throwable t)
             {
@@ -348,13 +521,11 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
                 );
             }
 
-            // if not done, sleep
-            if (!bDone_)
+            // if not done and nothing left to do now, wait for work
+            if (!bDone_ && bSleep)
             {
-                nSleep = SLEEP_MILLIS;
-                if (!bSleep) nSleep = 5; // if not sleeping, sleep very small amount to avoid reving up CPU
-                if (DEBUG_SLEEP) logger.debug("Sleeping " + nSleep);
-                Utils.sleepMillis(nSleep);
+                if (DEBUG_SLEEP) logger.debug("Waiting for work");
+                waitForWork();
             }
         }
     }
@@ -364,22 +535,24 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
      */
     public void cleanup()
     {
-        // stop thread
-        bDone_ = true;
+        stop();
 
-        // wait for alive to finish
-        try
-        {
-            if (threadAlive_ != null)
-            {
-                threadAlive_.interrupt();
-                threadAlive_.join();
-            }
-        }
-        catch (InterruptedException ie)
-        {
-            Thread.interrupted();
-        }
+        // clear us from OnlineManager
+        if (mgr_ != null) mgr_.setTournamentDirector(null);
+
+        // have engine restart to menu (and clear GameManager)
+        context_.setGameManager(null);
+        context_.restartNormal();
+    }
+
+    /**
+     * Stop thread and timers, waiting for thread to finish
+     */
+    void stop()
+    {
+        bDone_ = true;
+        wake();
+        timer_.shutdownNow();
 
         // wait for TD to finish
         try
@@ -396,14 +569,6 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
 
         // nullify
         thread_ = null;
-        threadAlive_ = null;
-
-        // clear us from OnlineManager
-        if (mgr_ != null) mgr_.setTournamentDirector(null);
-
-        // have engine restart to menu (and clear GameManager)
-        context_.setGameManager(null);
-        context_.restartNormal();
     }
 
     /**
@@ -504,6 +669,11 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
             return bSleep;
         }
 
+        public boolean isStateChanged()
+        {
+            return nState != -1 || nPendingState != -1;
+        }
+
         public void setSave(boolean b)
         {
             bSave = b;
@@ -630,10 +800,12 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
 
         bPaused_ = nPauseCnt_ > 0;
         //logger.debug((bPaused_? "TD paused":"TD unpaused")+" cnt: "+ nPauseCnt_);
+        if (!bPaused_) wake();
     }
 
     /**
-     * tournament director core logic.  Return true if action taken.
+     * tournament director core logic.  Return true if nothing more to do
+     * until woken (outside input or a timer).
      */
     private synchronized boolean process()
     {
@@ -655,7 +827,16 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
             // handle return data
             bSave |= ret_.isSave(); // save if anybody wants to save
             bAutoSave |= ret_.isAutoSave(); // autosave if anybody wants to autosave
-            bSleep &= ret_.isSleep(); // sleep only if everyone wants to sleep
+            // run again right away only if a table moved to a new state - other tables
+            // are waiting on a phase, player or timer, which wakes us when done
+            bSleep &= !ret_.isStateChanged();
+        }
+
+        // if waiting, make sure we wake for pauses/timeouts
+        if (bSleep)
+        {
+            long nWait = getTimerMillis();
+            if (nWait > 0) wakeIn(nWait);
         }
 
         // save at end if directed to
@@ -675,6 +856,10 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
         // check here since we can enter process table from places other than the above process()
         if (bPaused_) return;
 
+        // called from outside TD thread (player action, message), so have TD
+        // run a pass once we are done
+        if (Thread.currentThread() != thread_) wake();
+
         // init return data
         ret_.init();
 
@@ -1017,6 +1202,7 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
                         logger.info("   setRejoining(false) for " + player.getName());
                         player.setRejoining(false);
                         table.removeWait(player);
+                        mgr_.resetGameUpdateDelta(player);
                     }
                 }
                 table.setRejoinState(PokerTable.REJOIN_NONE);
@@ -2561,6 +2747,7 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
      */
     public synchronized void notifyPlayerRejoinStart(PokerPlayer p)
     {
+        wake();
         PokerTable table = p.getTable();
         if (!p.isObserver())
         {
@@ -2568,6 +2755,7 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
             table.setRejoinState(PokerTable.REJOIN_START);
         }
         p.setRejoining(true);
+        mgr_.resetGameUpdateDelta(p);
     }
 
     /**
@@ -2576,6 +2764,7 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
      */
     public synchronized void notifyPlayerRejoinDone(PokerPlayer p)
     {
+        wake();
         PokerTable table = p.getTable();
         // if this is a player and we are waiting on that player to act,
         // process them
@@ -2810,6 +2999,7 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
      */
     public synchronized void changeTable(PokerPlayer player, PokerTable table)
     {
+        wake();
         if (bHost_)
         {
             PokerTable old = player.getTable();
@@ -2850,6 +3040,7 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
      */
     public synchronized void setGameOver()
     {
+        wake();
         // end each table
         PokerTable table;
         int nNumTables = game_.getNumTables();
@@ -2878,6 +3069,7 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
      */
     public synchronized void doRebuy(PokerPlayer player, int nLevel, int nAmount, int nChips, boolean bPending)
     {
+        wake();
         PokerTable table = player.getTable();
         if (table == null) return; // safety
 
@@ -2908,6 +3100,7 @@ public class TournamentDirector extends BasePhase implements Runnable, GameManag
      */
     public synchronized void doAddon(PokerPlayer player, int nAmount, int nChips)
     {
+        wake();
         if (bClient_)
         {
             player.addAddon(nAmount, nChips);
@@ -0,0 +1,175 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker;
+
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.poker.engine.*;
+import junit.framework.*;
+
+/**
+ * Verify AllInEquity against straightforward enumeration
+ */
+public class AllInEquityTest extends TestCase
+{
+    @Override
+    protected void setUp()
+    {
+        if (ConfigManager.getConfigManager() == null) new ConfigManager("poker", ApplicationType.COMMAND_LINE);
+    }
+
+    public void testTurn()
+    {
+        verify(new Hand(Card.SPADES_A, Card.HEARTS_K, Card.CLUBS_9, Card.DIAMONDS_9),
+               new Hand(Card.SPADES_Q, Card.SPADES_J),
+               new Hand(Card.CLUBS_A, Card.DIAMONDS_Q),
+               new Hand(Card.HEARTS_9, Card.HEARTS_8));
+    }
+
+    public void testFlop()
+    {
+        verify(new Hand(Card.HEARTS_T, Card.HEARTS_4, Card.CLUBS_2),
+               new Hand(Card.HEARTS_A, Card.SPADES_5),
+               new Hand(Card.CLUBS_T, Card.DIAMONDS_T),
+               new Hand(Card.SPADES_3, Card.DIAMONDS_6),
+               new Hand(Card.SPADES_K, Card.CLUBS_4));
+    }
+
+    public void testParallel()
+    {
+        int nParallelism = HoldemSimulator.getParallelism();
+        HoldemSimulator.setParallelism(4);
+        try
+        {
+            verify(new Hand(Card.DIAMONDS_J, Card.HEARTS_6, Card.SPADES_2),
+                   new Hand(Card.DIAMONDS_A, Card.DIAMONDS_K),
+                   new Hand(Card.CLUBS_J, Card.HEARTS_T),
+                   new Hand(Card.SPADES_6, Card.CLUBS_6));
+        }
+        finally
+        {
+            HoldemSimulator.setParallelism(nParallelism);
+        }
+    }
+
+    public void testRiver()
+    {
+        verify(new Hand(Card.HEARTS_T, Card.HEARTS_4, Card.CLUBS_2, Card.SPADES_7, Card.DIAMONDS_8),
+               new Hand(Card.HEARTS_A, Card.SPADES_5),
+               new Hand(Card.CLUBS_A, Card.DIAMONDS_5));
+    }
+
+    public void testPreflop()
+    {
+        long aces = new Hand(Card.SPADES_A, Card.HEARTS_A).fingerprint();
+        long kings = new Hand(Card.SPADES_K, Card.HEARTS_K).fingerprint();
+        AllInEquity.Result result = AllInEquity.calculate(new long[] {aces, kings}, 0);
+        assertEquals(1712304, result.getNumBoards());
+        assertTrue(result.getPercent(0) > 80 && result.getPercent(0) < 84);
+
+        // same hands with suits renamed and players swapped come from cache
+        long aces2 = new Hand(Card.DIAMONDS_A, Card.CLUBS_A).fingerprint();
+        long kings2 = new Hand(Card.DIAMONDS_K, Card.CLUBS_K).fingerprint();
+        AllInEquity.Result result2 = AllInEquity.calculate(new long[] {kings2, aces2}, 0);
+        assertEquals(result.getWins(0), result2.getWins(1));
+        assertEquals(result.getWins(1), result2.getWins(0));
+
+        // full table
+        Deck deck = new Deck(true, 42);
+        long[] holes = new long[10];
+        for (int i = 0; i < holes.length; i++)
+        {
+            holes[i] = new Hand(deck.nextCard(), deck.nextCard()).fingerprint();
+        }
+        AllInEquity.Result result10 = AllInEquity.calculate(holes, 0);
+        assertEquals(201376, result10.getNumBoards()); // 32 choose 5
+        int nWins = 0;
+        for (int i = 0; i < holes.length; i++)
+        {
+            nWins += result10.getWins(i);
+        }
+        assertTrue(nWins >= result10.getNumBoards());
+    }
+
+    private void verify(Hand community, Hand... hands)
+    {
+        long[] holes = new long[hands.length];
+        for (int i = 0; i < hands.length; i++)
+        {
+            holes[i] = hands[i].fingerprint();
+        }
+        AllInEquity.Result result = AllInEquity.calculate(holes, community.fingerprint());
+
+        // enumerate boards the slow way
+        Deck deck = new Deck(false);
+        deck.removeCards(community);
+        for (Hand hand : hands) deck.removeCards(hand);
+
+        int[] wins = new int[hands.length];
+        int[] boards = {0};
+        enumerate(deck, 0, new Hand(community), hands, wins, boards);
+
+        assertEquals(boards[0], result.getNumBoards());
+        for (int i = 0; i < hands.length; i++)
+        {
+            assertEquals(wins[i], result.getWins(i));
+        }
+    }
+
+    private void enumerate(Deck deck, int start, Hand board, Hand[] hands, int[] wins, int[] boards)
+    {
+        if (board.size() == 5)
+        {
+            HandInfoFast fast = new HandInfoFast();
+            int[] scores = new int[hands.length];
+            int max = 0;
+            for (int i = 0; i < hands.length; i++)
+            {
+                scores[i] = fast.getScore(hands[i], board);
+                max = Math.max(max, scores[i]);
+            }
+            for (int i = 0; i < hands.length; i++)
+            {
+                if (scores[i] == max) wins[i]++;
+            }
+            boards[0]++;
+            return;
+        }
+
+        for (int i = start; i < deck.size(); i++)
+        {
+            board.addCard(deck.getCard(i));
+            enumerate(deck, i + 1, board, hands, wins, boards);
+            board.removeCard(board.size() - 1);
+        }
+    }
+}
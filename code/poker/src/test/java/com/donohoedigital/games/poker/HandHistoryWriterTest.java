@@ -0,0 +1,391 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.config.*;
+import com.donohoedigital.db.*;
+import com.donohoedigital.games.poker.model.*;
+import junit.framework.*;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Tests for HandHistoryWriter, using an in-memory hsqldb database.
+ */
+public class HandHistoryWriterTest extends TestCase
+{
+    private static final int PLAYERS = 4;
+
+    private static int seq_ = 0;
+
+    private Database database_;
+    private HandHistoryWriter writer_;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        if (ConfigManager.getConfigManager() == null)
+        {
+            new ConfigManager("poker", ApplicationType.COMMAND_LINE).loadGuiConfig();
+        }
+
+        // client database, as PokerDatabase.init() would create it
+        Map<String, String> params = new HashMap<String, String>();
+        params.put(DatabaseManager.PARAM_CLASS, PooledDatabase.class.getName());
+        params.put(DatabaseManager.PARAM_DRIVER_CLASS, "org.hsqldb.jdbcDriver");
+        params.put(DatabaseManager.PARAM_DRIVER_URL, "jdbc:hsqldb:mem:handhistorytest" + (seq_++));
+        params.put(DatabaseManager.PARAM_USERNAME, "sa");
+        params.put(DatabaseManager.PARAM_PASSWORD, "");
+        DatabaseManager.addDatabase("poker", params);
+        database_ = PokerDatabase.getDatabase();
+
+        Connection conn = database_.getConnection();
+        try
+        {
+            conn.createStatement().executeUpdate("SET PROPERTY \"sql.enforce_strict_size\" true");
+            PokerDatabase.initSchema(conn);
+        }
+        finally
+        {
+            conn.close();
+        }
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        if (writer_ != null) writer_.stop();
+    }
+
+    /**
+     * hands are written when the batch fills, the rest on flush
+     */
+    public void testBatch() throws SQLException
+    {
+        writer_ = new HandHistoryWriter(100, 5, 60000);
+        PokerGame game = createGame("batch");
+
+        int nActions = 0;
+        for (int i = 0; i < 12; i++)
+        {
+            HoldemHand hhand = playHand(game);
+            nActions += hhand.getHistorySize();
+            writer_.add(new HandHistoryWriter.HandRecord(hhand));
+        }
+
+        waitForWritten(10);
+        assertEquals(2, writer_.getNumBatches());
+
+        writer_.flush();
+        assertEquals(12, writer_.getNumAdded());
+        assertEquals(12, writer_.getNumWritten());
+        assertEquals(0, writer_.getNumFailed());
+        assertEquals(3, writer_.getNumBatches());
+
+        assertEquals(1, count("SELECT COUNT(*) FROM TOURNAMENT"));
+        assertEquals(PLAYERS, count("SELECT COUNT(*) FROM TOURNAMENT_PLAYER"));
+        assertEquals(12, count("SELECT COUNT(*) FROM HAND"));
+        assertEquals(12 * PLAYERS, count("SELECT COUNT(*) FROM PLAYER_HAND"));
+        assertEquals(nActions, count("SELECT COUNT(*) FROM PLAYER_ACTION"));
+    }
+
+    /**
+     * a partial batch is written once batch.millis have passed
+     */
+    public void testBatchMillis() throws SQLException
+    {
+        writer_ = new HandHistoryWriter(100, 100, 50);
+        PokerGame game = createGame("millis");
+
+        writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+
+        waitForWritten(2);
+        assertEquals(1, writer_.getNumBatches());
+        assertEquals(2, count("SELECT COUNT(*) FROM HAND"));
+    }
+
+    /**
+     * HND_IDs are assigned when queued, following those already in the database
+     */
+    public void testHandIDs() throws SQLException
+    {
+        PokerGame game = createGame("ids");
+
+        writer_ = new HandHistoryWriter(100, 100, 60000);
+        HandHistoryWriter.HandRecord first = new HandHistoryWriter.HandRecord(playHand(game));
+        writer_.add(first);
+        writer_.stop();
+        assertEquals(1, first.getHandID());
+
+        // new writer starts after highest id written
+        writer_ = new HandHistoryWriter(100, 100, 60000);
+        for (int i = 2; i <= 4; i++)
+        {
+            HandHistoryWriter.HandRecord hand = new HandHistoryWriter.HandRecord(playHand(game));
+            writer_.add(hand);
+            assertEquals(i, hand.getHandID());
+            assertEquals(i, game.getLastHandSaved());
+        }
+
+        // recorded as saved before being written
+        assertEquals(0, writer_.getNumWritten());
+        assertEquals(1, count("SELECT COUNT(*) FROM HAND"));
+
+        writer_.flush();
+        assertEquals(4, count("SELECT MAX(HND_ID) FROM HAND"));
+        assertEquals(4, count("SELECT COUNT(DISTINCT ACT_HAND_ID) FROM PLAYER_ACTION"));
+    }
+
+    /**
+     * a failed batch is retried one hand at a time
+     */
+    public void testRetry() throws SQLException
+    {
+        writer_ = new HandHistoryWriter(100, 3, 60000);
+        PokerGame good = createGame("good");
+        PokerGame bad = createGame(repeat('x', 200)); // longer than TRN_NAME
+
+        HandHistoryWriter.HandRecord hand1 = new HandHistoryWriter.HandRecord(playHand(good));
+        HandHistoryWriter.HandRecord hand2 = new HandHistoryWriter.HandRecord(playHand(bad));
+        HandHistoryWriter.HandRecord hand3 = new HandHistoryWriter.HandRecord(playHand(good));
+        writer_.add(hand1);
+        writer_.add(hand2);
+        writer_.add(hand3);
+        writer_.flush();
+
+        assertEquals(2, writer_.getNumWritten());
+        assertEquals(1, writer_.getNumFailed());
+        assertEquals(1, writer_.getNumBatches());
+        assertEquals(2, count("SELECT COUNT(*) FROM HAND"));
+        assertEquals(1, count("SELECT COUNT(*) FROM HAND WHERE HND_ID=" + hand1.getHandID()));
+        assertEquals(0, count("SELECT COUNT(*) FROM HAND WHERE HND_ID=" + hand2.getHandID()));
+        assertEquals(1, count("SELECT COUNT(*) FROM HAND WHERE HND_ID=" + hand3.getHandID()));
+        assertEquals(1, count("SELECT COUNT(*) FROM TOURNAMENT"));
+    }
+
+    /**
+     * hands after the one recorded in a reloaded save are removed, including
+     * those still queued, using the last hand saved as of when the hand was queued
+     */
+    public void testDeleteAfterReload() throws SQLException
+    {
+        writer_ = new HandHistoryWriter(100, 100, 60000);
+        PokerGame game = createGame("reload");
+
+        for (int i = 0; i < 3; i++)
+        {
+            writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        }
+        int saved = game.getLastHandSaved();
+        writer_.flush();
+
+        // played on past save (two written, one still queued)
+        for (int i = 0; i < 2; i++)
+        {
+            writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        }
+        writer_.flush();
+        writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        assertEquals(6, game.getLastHandSaved());
+
+        // reload save (as PokerGame.loadGame() does)
+        game.setLastHandSaved(saved);
+        game.setDeleteHandsAfterSaveDate(true);
+
+        HandHistoryWriter.HandRecord replay = new HandHistoryWriter.HandRecord(playHand(game));
+        assertFalse(game.isDeleteHandsAfterSaveDate());
+        game.setLastHandSaved(0); // changes after queueing don't matter
+        writer_.add(replay);
+        writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        writer_.flush();
+
+        assertEquals(0, writer_.getNumFailed());
+        assertEquals(5, count("SELECT COUNT(*) FROM HAND"));
+        assertEquals(3, count("SELECT COUNT(*) FROM HAND WHERE HND_ID <= " + saved));
+        assertEquals(0, count("SELECT COUNT(*) FROM HAND WHERE HND_ID > " + saved + " AND HND_ID < " + replay.getHandID()));
+        assertEquals(0, count("SELECT COUNT(*) FROM PLAYER_HAND WHERE PLH_HAND_ID > " + saved + " AND PLH_HAND_ID < " + replay.getHandID()));
+        assertEquals(0, count("SELECT COUNT(*) FROM PLAYER_ACTION WHERE ACT_HAND_ID > " + saved + " AND ACT_HAND_ID < " + replay.getHandID()));
+    }
+
+    /**
+     * tournament finish is written in order with hands
+     */
+    public void testFinish() throws SQLException
+    {
+        writer_ = new HandHistoryWriter(100, 100, 60000);
+        PokerGame game = createGame("finish");
+        PokerPlayer human = new PokerPlayer(null, 99, new PlayerProfile("Human"), true);
+
+        writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        human.setPlace(3);
+        writer_.add(new HandHistoryWriter.HandRecord(game, human));
+        writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        human.setPlace(2);
+        writer_.add(new HandHistoryWriter.HandRecord(game, human));
+        assertEquals(2, game.getLastHandSaved());
+        writer_.flush();
+
+        assertEquals(4, writer_.getNumWritten());
+        assertEquals(2, count("SELECT COUNT(*) FROM HAND"));
+        assertEquals(1, count("SELECT COUNT(*) FROM TOURNAMENT_FINISH"));
+        assertEquals(2, count("SELECT TRF_FINISH_PLACE FROM TOURNAMENT_FINISH"));
+    }
+
+    /**
+     * flush waits for hands queued so far, stop writes the rest and later
+     * hands are written by the caller
+     */
+    public void testFlushStop() throws SQLException
+    {
+        writer_ = new HandHistoryWriter(100, 100, 60000);
+        PokerGame game = createGame("stop");
+
+        for (int i = 0; i < 3; i++)
+        {
+            writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        }
+        assertEquals(0, writer_.getNumWritten());
+        writer_.flush();
+        assertEquals(3, writer_.getNumWritten());
+        assertEquals(3, count("SELECT COUNT(*) FROM HAND"));
+
+        // nothing queued - returns without writing
+        writer_.flush();
+        assertEquals(1, writer_.getNumBatches());
+
+        // wake doesn't wait
+        writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        writer_.wake();
+        waitForWritten(4);
+
+        writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        writer_.stop();
+        assertEquals(6, writer_.getNumWritten());
+        assertEquals(6, count("SELECT COUNT(*) FROM HAND"));
+
+        writer_.add(new HandHistoryWriter.HandRecord(playHand(game)));
+        assertEquals(7, writer_.getNumWritten());
+        assertEquals(7, count("SELECT COUNT(*) FROM HAND"));
+        writer_.flush();
+    }
+
+    ////
+    //// helpers
+    ////
+
+    /**
+     * Practice game with one table of computer players (so no human finish per hand)
+     */
+    private PokerGame createGame(String name)
+    {
+        // tournament is identified by start date (millis)
+        Utils.sleepMillis(2);
+
+        TournamentProfile profile = new TournamentProfile(name);
+        PokerGame game = new PokerGame(null);
+        // initialized as online game so computer players aren't created
+        game.setOnlineGameID("n-1");
+        game.initTournament(profile);
+        game.setOnlineGameID(null);
+
+        PokerTable table = new PokerTable(game, 1);
+        game.addTable(table);
+        for (int i = 0; i < PLAYERS; i++)
+        {
+            PokerPlayer player = new PokerPlayer(i + 1, "Player " + i, false);
+            game.addPlayer(player);
+            table.setPlayer(player, i);
+            player.setChipCount(profile.getBuyinChips());
+        }
+        game.computeTotalChipsInPlay();
+        game.nextLevel();
+        table.setMinChip(game.getMinChip());
+        table.setButton(0);
+        return game;
+    }
+
+    /**
+     * Deal a hand everyone folds to the big blind
+     */
+    private HoldemHand playHand(PokerGame game)
+    {
+        PokerTable table = game.getTable(0);
+
+        HoldemHand hhand = new HoldemHand(table);
+        table.setHoldemHand(hhand);
+        hhand.deal();
+        hhand.getCurrentPlayerInitIndex();
+        for (int i = 0; i < hhand.getNumPlayers() - 1; i++)
+        {
+            hhand.fold(hhand.getCurrentPlayer(), "fold " + i, HandAction.FOLD_NORMAL);
+        }
+        hhand.wins(hhand.getCurrentPlayer(), hhand.getTotalPotChipCount(), 0);
+        return hhand;
+    }
+
+    private void waitForWritten(long n)
+    {
+        long end = System.currentTimeMillis() + 10000;
+        while (writer_.getNumWritten() + writer_.getNumFailed() < n)
+        {
+            assertTrue("hands not written: " + writer_, System.currentTimeMillis() < end);
+            Utils.sleepMillis(10);
+        }
+    }
+
+    private int count(String sql) throws SQLException
+    {
+        Connection conn = database_.getConnection();
+        try
+        {
+            ResultSet rs = conn.createStatement().executeQuery(sql);
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+        finally
+        {
+            conn.close();
+        }
+    }
+
+    private static String repeat(char c, int n)
+    {
+        char[] chars = new char[n];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
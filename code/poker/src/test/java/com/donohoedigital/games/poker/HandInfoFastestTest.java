@@ -0,0 +1,196 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker;
+
+import com.donohoedigital.games.poker.engine.*;
+import junit.framework.*;
+
+/**
+ * Verify HandInfoFastest scores match HandInfoFast for every possible hand
+ */
+public class HandInfoFastestTest extends TestCase
+{
+    static final String EXHAUSTIVE = "poker.test.exhaustive";
+
+    private final HandInfoFast fast = new HandInfoFast();
+    private final HandInfoFastest fastest = new HandInfoFastest();
+
+    /**
+     * All 133,784,560 seven card hands.  This takes about half a minute, so it only
+     * runs when the EXHAUSTIVE system property is set
+     * (<code>mvn test -Dpoker.test.exhaustive=true</code>).
+     */
+    public void testAllSevenCardHands()
+    {
+        if (!Boolean.getBoolean(EXHAUSTIVE))
+        {
+            return;
+        }
+
+        Hand hole = new Hand(Card.BLANK, Card.BLANK);
+        Hand community = new Hand(Card.BLANK, Card.BLANK, Card.BLANK, Card.BLANK, Card.BLANK);
+        long count = 0;
+
+        for (int a = 0; a < 52; a++)
+        {
+            hole.setCard(0, Card.getCard(a));
+            for (int b = a + 1; b < 52; b++)
+            {
+                hole.setCard(1, Card.getCard(b));
+                long holeMask = hole.fingerprint();
+                for (int c = b + 1; c < 52; c++)
+                {
+                    community.setCard(0, Card.getCard(c));
+                    for (int d = c + 1; d < 52; d++)
+                    {
+                        community.setCard(1, Card.getCard(d));
+                        for (int e = d + 1; e < 52; e++)
+                        {
+                            community.setCard(2, Card.getCard(e));
+                            for (int f = e + 1; f < 52; f++)
+                            {
+                                community.setCard(3, Card.getCard(f));
+                                for (int g = f + 1; g < 52; g++)
+                                {
+                                    community.setCard(4, Card.getCard(g));
+                                    long mask = holeMask | (1L << c) | (1L << d) | (1L << e) | (1L << f) | (1L << g);
+                                    int expected = fast.getScore(hole, community);
+                                    int actual = fastest.getScore(mask);
+                                    if (expected != actual)
+                                    {
+                                        assertEquals(describe(mask), expected, actual);
+                                    }
+                                    count++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(133784560L, count);
+    }
+
+    /**
+     * All 2,598,960 five card hands, scored from Hand objects
+     */
+    public void testAllFiveCardHands()
+    {
+        Hand hole = new Hand(Card.BLANK, Card.BLANK);
+        Hand community = new Hand(Card.BLANK, Card.BLANK, Card.BLANK);
+
+        for (int a = 0; a < 52; a++)
+        {
+            hole.setCard(0, Card.getCard(a));
+            for (int b = a + 1; b < 52; b++)
+            {
+                hole.setCard(1, Card.getCard(b));
+                for (int c = b + 1; c < 52; c++)
+                {
+                    community.setCard(0, Card.getCard(c));
+                    for (int d = c + 1; d < 52; d++)
+                    {
+                        community.setCard(1, Card.getCard(d));
+                        for (int e = d + 1; e < 52; e++)
+                        {
+                            community.setCard(2, Card.getCard(e));
+                            int expected = fast.getScore(hole, community);
+                            int actual = fastest.getScore(hole, community);
+                            if (expected != actual)
+                            {
+                                assertEquals(describe(hole.fingerprint() | community.fingerprint()), expected, actual);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * All two, three and four card hands (kickers are limited to the cards present).
+     * Four card quads are skipped since HandInfoFast can't score them.
+     */
+    public void testShortHands()
+    {
+        Hand hole = new Hand(Card.BLANK, Card.BLANK);
+
+        for (int a = 0; a < 52; a++)
+        {
+            hole.setCard(0, Card.getCard(a));
+            for (int b = a + 1; b < 52; b++)
+            {
+                hole.setCard(1, Card.getCard(b));
+                verify(hole, null);
+                for (int c = b + 1; c < 52; c++)
+                {
+                    Hand three = new Hand(1);
+                    three.addCard(Card.getCard(c));
+                    verify(hole, three);
+                    for (int d = c + 1; d < 52; d++)
+                    {
+                        Hand four = new Hand(Card.getCard(c), Card.getCard(d));
+                        if (hole.isPair() && four.isPair() && hole.getCard(0).isSameRank(four.getCard(0))) continue;
+                        verify(hole, four);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * compare scores of given hands
+     */
+    private void verify(Hand hole, Hand community)
+    {
+        int expected = fast.getScore(hole, community);
+        int actual = fastest.getScore(hole, community);
+        if (expected != actual)
+        {
+            assertEquals(describe(hole.fingerprint() | (community == null ? 0 : community.fingerprint())), expected, actual);
+        }
+    }
+
+    /**
+     * card indexes in mask (Card.toString() needs PropertyConfig)
+     */
+    private static String describe(long mask)
+    {
+        StringBuilder sb = new StringBuilder("cards");
+        for (int i = 0; i < 52; i++)
+        {
+            if ((mask & (1L << i)) != 0) sb.append(' ').append(i);
+        }
+        return sb.toString();
+    }
+}
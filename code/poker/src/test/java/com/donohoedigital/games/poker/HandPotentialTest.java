@@ -0,0 +1,78 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker;
+
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.poker.engine.*;
+import junit.framework.*;
+
+/**
+ * Verify turn HandPotential derived from the flop matches a full calculation
+ */
+public class HandPotentialTest extends TestCase
+{
+    @Override
+    protected void setUp()
+    {
+        if (ConfigManager.getConfigManager() == null) new ConfigManager("poker", ApplicationType.COMMAND_LINE);
+        HandPotential.getCache().clear();
+    }
+
+    public void testTurnFromFlop()
+    {
+        Hand pocket = new Hand(Card.HEARTS_A, Card.HEARTS_Q);
+        Hand flop = new Hand(Card.HEARTS_T, Card.SPADES_9, Card.HEARTS_4);
+
+        HandPotential flopPotential = HandPotential.getInstance(pocket, flop);
+        assertSame(flopPotential, HandPotential.getInstance(new Hand(pocket), new Hand(flop)));
+
+        Card turns[] = { Card.CLUBS_K, Card.HEARTS_2, Card.SPADES_T, Card.DIAMONDS_J };
+        for (Card turn : turns)
+        {
+            Hand board = new Hand(flop);
+            board.addCard(turn);
+
+            HandPotential derived = HandPotential.getInstance(pocket, board);
+            HandPotential full = new HandPotential(pocket, board);
+            assertNotSame(derived, full);
+
+            for (int type = HandPotential.ROYAL_FLUSH; type <= HandPotential.STRAIGHT_DRAW_3_OUTS; type++)
+            {
+                assertEquals(turn + " " + type, full.getHandCount(type, 0), derived.getHandCount(type, 0));
+            }
+        }
+
+        // flop and the four turns
+        assertEquals(5, HandPotential.getCache().size());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker;
+
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.poker.engine.*;
+import junit.framework.*;
+
+/**
+ * Verify simulated (random) results agree with exact enumeration
+ */
+public class HoldemSimulatorTest extends TestCase
+{
+    // simulated percentages must be this close to exact ones (over 10 std deviations)
+    private static final double TOLERANCE = 1.0d;
+
+    @Override
+    protected void setUp()
+    {
+        if (ConfigManager.getConfigManager() == null) new ConfigManager("poker", ApplicationType.COMMAND_LINE);
+    }
+
+    /**
+     * random boards against a list of hands
+     */
+    public void testSimulateList()
+    {
+        Hand hole = new Hand(Card.SPADES_A, Card.SPADES_K);
+        Hand community = new Hand(Card.SPADES_Q, Card.HEARTS_7, Card.CLUBS_2);
+
+        HandList list = new HandList("test");
+        list.addAllPairs(Card.TWO, Card.ACE);
+        list.addAll(Card.QUEEN, Card.SEVEN);
+        list.addAll(Card.ACE, Card.QUEEN);
+
+        verify(hole, community, list, list, list.size() * 2000);
+    }
+
+    /**
+     * random boards against random hands
+     */
+    public void testSimulateRandom()
+    {
+        Hand hole = new Hand(Card.HEARTS_9, Card.DIAMONDS_8);
+        Hand community = new Hand(Card.SPADES_7, Card.HEARTS_T, Card.CLUBS_K, Card.CLUBS_5);
+
+        HandList all = new HandList("all");
+        for (int rank1 = Card.TWO; rank1 <= Card.ACE; rank1++)
+        {
+            all.addAllPairs(rank1);
+            for (int rank2 = Card.TWO; rank2 < rank1; rank2++)
+            {
+                all.addAll(rank1, rank2);
+            }
+        }
+
+        verify(hole, community, all, null, 200000);
+    }
+
+    private void verify(Hand hole, Hand community, HandList exactList, HandList simList, int handCount)
+    {
+        Deck deck = new Deck(true);
+        deck.removeCards(hole);
+        deck.removeCards(community);
+        int deckSize = deck.size();
+
+        StatResult exact = HoldemSimulator.iterate(hole, community, 0, deck, exactList, null, 0, 0);
+        StatResult sim = HoldemSimulator.simulate(hole, community, handCount, deck, simList, null, 0, 0);
+
+        assertEquals(deckSize, deck.size());
+        assertTrue(sim.getHandCount() > handCount / 2);
+        assertEquals(exact.getWinPercent(), sim.getWinPercent(), TOLERANCE);
+        assertEquals(exact.getLosePercent(), sim.getLosePercent(), TOLERANCE);
+        assertEquals(exact.getTiePercent(), sim.getTiePercent(), TOLERANCE);
+    }
+}
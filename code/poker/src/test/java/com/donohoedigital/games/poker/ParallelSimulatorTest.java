@@ -0,0 +1,201 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker;
+
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.poker.engine.*;
+import junit.framework.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Verify multi-threaded simulator gets same results as single-threaded version
+ */
+public class ParallelSimulatorTest extends TestCase
+{
+    private static final int THREADS = 4;
+
+    @Override
+    protected void setUp()
+    {
+        if (ConfigManager.getConfigManager() == null) new ConfigManager("poker", ApplicationType.COMMAND_LINE);
+    }
+
+    public void testFlop()
+    {
+        verify(new Hand(Card.SPADES_A, Card.SPADES_K),
+               new Hand(Card.SPADES_Q, Card.HEARTS_7, Card.CLUBS_2));
+    }
+
+    public void testTurn()
+    {
+        verify(new Hand(Card.HEARTS_9, Card.DIAMONDS_9),
+               new Hand(Card.SPADES_9, Card.HEARTS_T, Card.HEARTS_J, Card.CLUBS_5));
+    }
+
+    public void testRiver()
+    {
+        verify(new Hand(Card.CLUBS_A, Card.DIAMONDS_4),
+               new Hand(Card.CLUBS_3, Card.CLUBS_5, Card.HEARTS_K, Card.SPADES_K, Card.DIAMONDS_2));
+    }
+
+    /**
+     * changing parallelism while a simulation is running doesn't break it
+     */
+    public void testChangeParallelism() throws Exception
+    {
+        final Hand hole = new Hand(Card.SPADES_A, Card.SPADES_K);
+        final Hand community = new Hand(Card.SPADES_Q, Card.HEARTS_7, Card.CLUBS_2);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread sim = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    for (int i = 0; i < 20; i++)
+                    {
+                        verify(hole, community);
+                    }
+                }
+                catch (Throwable t)
+                {
+                    error.set(t);
+                }
+                finally
+                {
+                    done.set(true);
+                }
+            }
+        });
+        sim.start();
+
+        ForkJoinPool old = ParallelSimulator.getPool(THREADS);
+        for (int n = 2; !done.get(); n = n == 2 ? 3 : 2)
+        {
+            ParallelSimulator.getPool(n);
+        }
+        sim.join();
+
+        assertNull(String.valueOf(error.get()), error.get());
+        assertFalse(old.isShutdown());
+    }
+
+    /**
+     * showdown calculator - known hands, rest of board
+     */
+    public void testShowdownBoard()
+    {
+        verifyShowdown(new Hand[] {new Hand(Card.SPADES_A, Card.SPADES_K),
+                                   new Hand(Card.HEARTS_Q, Card.DIAMONDS_Q),
+                                   new Hand(Card.CLUBS_T, Card.CLUBS_9)},
+                       new Hand(Card.SPADES_Q, Card.HEARTS_7, Card.CLUBS_2, blank(), blank()));
+    }
+
+    /**
+     * showdown calculator - unknown hole card and rest of board
+     */
+    public void testShowdownHole()
+    {
+        verifyShowdown(new Hand[] {new Hand(Card.SPADES_A, blank()),
+                                   new Hand(Card.HEARTS_9, Card.DIAMONDS_9)},
+                       new Hand(Card.SPADES_9, Card.HEARTS_T, Card.HEARTS_J, blank(), blank()));
+    }
+
+    /**
+     * compare serial and parallel showdown enumeration
+     */
+    private void verifyShowdown(Hand[] hands, Hand community)
+    {
+        StatResult[] parallel = ParallelSimulator.iterate(hands, community, null, THREADS);
+
+        // serial version fills in blanks in place
+        int nSaved = HoldemSimulator.getParallelism();
+        StatResult[] serial;
+        try
+        {
+            HoldemSimulator.setParallelism(1);
+            serial = HoldemSimulator.iterate(hands, community, null);
+        }
+        finally
+        {
+            HoldemSimulator.setParallelism(nSaved);
+        }
+
+        assertEquals(serial.length, parallel.length);
+        for (int i = 0; i < serial.length; i++)
+        {
+            assertTrue(serial[i].getHandCount() > 0);
+            assertEquals(serial[i].getHandCount(), parallel[i].getHandCount());
+            assertEquals(serial[i].win_, parallel[i].win_);
+            assertEquals(serial[i].lose_, parallel[i].lose_);
+            assertEquals(serial[i].tie_, parallel[i].tie_);
+        }
+    }
+
+    /**
+     * new blank card (serial showdown calculator modifies it)
+     */
+    private static Card blank()
+    {
+        Card card = new Card();
+        card.setValue(Card.BLANK);
+        return card;
+    }
+
+    /**
+     * compare serial and parallel enumeration against a few groups of hands
+     */
+    private void verify(Hand hole, Hand community)
+    {
+        HandList list = new HandList("test");
+        list.addAllPairs(Card.TWO, Card.ACE);
+        list.addAll(Card.ACE, Card.KING);
+        list.addAll(Card.QUEEN, Card.SEVEN);
+        list.addAll(Card.TEN, Card.NINE);
+
+        Deck deck = new Deck(true);
+        deck.removeCards(hole);
+        deck.removeCards(community);
+
+        StatResult serial = HoldemSimulator.iterate(hole, community, 0, deck, list, null, 0, 0);
+        StatResult parallel = ParallelSimulator.iterate(hole, community, list, THREADS);
+
+        assertTrue(serial.getHandCount() > 0);
+        assertEquals(serial.win_, parallel.win_);
+        assertEquals(serial.lose_, parallel.lose_);
+        assertEquals(serial.tie_, parallel.tie_);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ *
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images,
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials)
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ *
+ * For inquiries regarding commercial licensing of this source code or
+ * the use of names, logos, images, text, or other assets, please contact
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.ai;
+
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.config.*;
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.model.*;
+import junit.framework.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Smoke test BatchTournament - a multi-table AI tournament (with rebuys and
+ * addons) plays to completion, placing every player once and keeping all chips
+ */
+public class BatchTournamentTest extends TestCase
+{
+    private static final int NUM_PLAYERS = 20;
+
+    @Override
+    protected void setUp()
+    {
+        if (ConfigManager.getConfigManager() == null)
+        {
+            // save files (player types, hand selection) go under target/home
+            System.setProperty("user.home", new File("target/home").getAbsolutePath());
+            new ConfigManager("poker", ApplicationType.COMMAND_LINE).loadGuiConfig();
+        }
+        ConfigManager.getConfigManager().loadClientMessages();
+        ConfigUtils.copyURLs("save/poker", "**/*.*", GameConfigUtils.getSaveDir());
+        RuleEngine.setExplainDefault(false);
+    }
+
+    public void testPlay()
+    {
+        TournamentProfile profile = new TournamentProfile("batch");
+        profile.setNumPlayers(NUM_PLAYERS);
+        profile.setRebuys(true);
+        profile.setAddons(true);
+        profile.fixAll();
+        assertTrue("multi-table", NUM_PLAYERS > profile.getSeats());
+
+        List<PlayerType> types = new ArrayList<PlayerType>();
+        for (BaseProfile type : PlayerType.getProfileListCached())
+        {
+            types.add((PlayerType) type);
+        }
+        assertFalse("player types", types.isEmpty());
+
+        BatchTournament tournament = new BatchTournament(1, profile, types, 5);
+        tournament.play();
+
+        PokerGame game = tournament.getGame();
+        assertTrue(game.isGameOver());
+        assertTrue(tournament.getNumHands() > 0);
+
+        // places 1..N, each once
+        boolean[] placed = new boolean[NUM_PLAYERS + 1];
+        int nChips = 0;
+        int nWinners = 0;
+        for (PokerPlayer player : tournament.getPlayers())
+        {
+            int nPlace = player.getPlace();
+            assertTrue("place " + nPlace, nPlace >= 1 && nPlace <= NUM_PLAYERS);
+            assertFalse("place " + nPlace + " twice", placed[nPlace]);
+            placed[nPlace] = true;
+
+            nChips += player.getChipCount();
+            if (player.getChipCount() > 0) nWinners++;
+        }
+
+        // winner has all chips bought (buyins, rebuys, addons - less
+        // any removed in color ups)
+        assertEquals(1, nWinners);
+        game.computeTotalChipsInPlay();
+        assertEquals(game.getTotalChipsInPlay(), nChips);
+
+        // chip counts recorded, last at end
+        List<int[]> counts = tournament.getChipCounts();
+        assertTrue(counts.size() >= 2);
+        assertEquals(NUM_PLAYERS + 1, counts.get(0).length);
+        int nLast = 0;
+        int[] last = counts.get(counts.size() - 1);
+        for (int i = 1; i < last.length; i++) nLast += last[i];
+        assertEquals(nChips, nLast);
+    }
+}
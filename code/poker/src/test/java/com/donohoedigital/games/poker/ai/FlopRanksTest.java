@@ -0,0 +1,142 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.ai;
+
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.poker.engine.*;
+import junit.framework.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Verify flop ranks table matches computed ranks
+ */
+public class FlopRanksTest extends TestCase
+{
+    @Override
+    protected void setUp()
+    {
+        if (ConfigManager.getConfigManager() == null) new ConfigManager("poker", ApplicationType.COMMAND_LINE);
+    }
+
+    public void testTable() throws IOException
+    {
+        File dir = File.createTempFile("flopranks", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        File file = new File(dir, FlopRanks.FILE_NAME);
+
+        // left by a process that exited while generating
+        File stale = new File(dir, "flopranks1234.tmp");
+        assertTrue(stale.createNewFile());
+
+        FlopRanks table;
+        try
+        {
+            table = FlopRanks.generate(file);
+
+            // only the table (and lock file) are left behind
+            assertEquals(new HashSet<String>(Arrays.asList(FlopRanks.FILE_NAME, FlopRanks.FILE_NAME + ".lock")),
+                         new HashSet<String>(Arrays.asList(dir.list())));
+
+            // already there - just loaded
+            assertEquals(1755, FlopRanks.generate(file).getNumFlops());
+        }
+        finally
+        {
+            deleteDir(dir);
+        }
+        assertEquals(1755, table.getNumFlops());
+
+        // random flops, plus ones where several suit permutations are equivalent
+        List<Hand> flops = new ArrayList<Hand>();
+        flops.add(new Hand(Card.CLUBS_A, Card.DIAMONDS_K, Card.HEARTS_Q));
+        flops.add(new Hand(Card.SPADES_7, Card.HEARTS_7, Card.DIAMONDS_7));
+        flops.add(new Hand(Card.HEARTS_2, Card.HEARTS_3, Card.HEARTS_4));
+        flops.add(new Hand(Card.SPADES_T, Card.SPADES_J, Card.CLUBS_T));
+        Random random = new Random(1234);
+        while (flops.size() < 25)
+        {
+            Deck deck = new Deck(true, random.nextInt());
+            flops.add(new Hand(deck.nextCard(), deck.nextCard(), deck.nextCard()));
+        }
+
+        for (Hand flop : flops)
+        {
+            PocketMatrixShort expected = PocketRanks.computeRanks(flop);
+            PocketMatrixShort actual = table.getRanks(flop);
+            assertNotNull(actual);
+            for (int i = 1; i < 52; i++)
+            {
+                for (int j = 0; j < i; j++)
+                {
+                    if (expected.get(i, j) != actual.get(i, j))
+                    {
+                        fail(flop + " " + Card.getCard(i) + Card.getCard(j) + " expected " + expected.get(i, j) + " got " + actual.get(i, j));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testLocked() throws IOException
+    {
+        File dir = File.createTempFile("flopranks", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        File file = new File(dir, FlopRanks.FILE_NAME);
+
+        // another process generating - returns right away without writing
+        RandomAccessFile lock = new RandomAccessFile(new File(dir, FlopRanks.FILE_NAME + ".lock"), "rw");
+        try
+        {
+            lock.getChannel().lock();
+            assertNull(FlopRanks.generate(file));
+            assertEquals(1, dir.list().length);
+        }
+        finally
+        {
+            lock.close();
+            deleteDir(dir);
+        }
+    }
+
+    private static void deleteDir(File dir)
+    {
+        File[] files = dir.listFiles();
+        if (files != null)
+        {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+}
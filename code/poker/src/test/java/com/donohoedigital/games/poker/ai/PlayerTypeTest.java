@@ -0,0 +1,77 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.ai;
+
+import com.donohoedigital.games.poker.engine.*;
+import junit.framework.*;
+
+/**
+ * Test PlayerType strategy values
+ */
+public class PlayerTypeTest extends TestCase
+{
+    public void testStratValue()
+    {
+        PlayerType type = new PlayerType("test");
+        type.setStratValue("basics", 30);
+        type.setStratValue("basics.aggression", 80);
+
+        assertEquals(80, type.getStratValue("basics.aggression", 10));
+        assertEquals(30, type.getStratValue("basics.tightness", 10));
+        assertEquals(10, type.getStratValue("other", 10));
+
+        // missing parent uses 50, not the given default
+        assertEquals(50, type.getStratValue("other.value", 10));
+    }
+
+    public void testStratValueByHand()
+    {
+        PlayerType type = new PlayerType("test");
+        type.setStratValue("handselection", 40);
+        type.setStratValue("handselection.big_pair", 90);
+        type.setStratValue("handselection.suited_ace", 70);
+
+        Hand aces = new Hand(Card.SPADES_A, Card.HEARTS_A);
+        Hand suitedAce = new Hand(Card.HEARTS_A, Card.HEARTS_7);
+        Hand offsuitAce = new Hand(Card.DIAMONDS_A, Card.HEARTS_7);
+
+        // twice to use cached names
+        for (int i = 0; i < 2; i++)
+        {
+            assertEquals(90, type.getStratValue("handselection", aces, 10));
+            assertEquals(70, type.getStratValue("handselection", suitedAce, 10));
+            assertEquals(40, type.getStratValue("handselection", offsuitAce, 10));
+            assertEquals(50, type.getStratValue("other", aces, 10));
+        }
+    }
+}
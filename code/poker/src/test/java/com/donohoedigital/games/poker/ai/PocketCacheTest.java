@@ -0,0 +1,120 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.ai;
+
+import junit.framework.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Test PocketCache
+ */
+public class PocketCacheTest extends TestCase
+{
+    public void testCounters()
+    {
+        PocketCache<String> cache = new PocketCache<String>("test", 64);
+        assertNull(cache.get(1L));
+        cache.put(1L, "one");
+        cache.put(1L << 51, "high");
+        assertEquals("one", cache.get(1L));
+        assertEquals("high", cache.get(1L << 51));
+        cache.put(1L, "uno");
+        assertEquals("uno", cache.get(1L));
+
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(1L));
+    }
+
+    public void testEviction()
+    {
+        PocketCache<Long> cache = new PocketCache<Long>("test", 1024);
+        int max = cache.getMaxSize();
+
+        // fill well past capacity, touching key 0 each time so it stays recent
+        cache.put(0L, 0L);
+        for (long key = 1; key < max * 4; key++)
+        {
+            cache.put(key, key);
+            assertEquals(Long.valueOf(0), cache.get(0L));
+        }
+
+        assertTrue(cache.size() <= max);
+        assertEquals(max * 4 - cache.size(), cache.getEvictions());
+        assertNull(cache.get(1L));
+        for (long key = max * 4 - 8; key < max * 4; key++)
+        {
+            assertEquals(Long.valueOf(key), cache.get(key));
+        }
+    }
+
+    public void testThreads() throws Exception
+    {
+        final PocketCache<Long> cache = new PocketCache<Long>("test", 256);
+        final AtomicInteger errors = new AtomicInteger();
+        int nThreads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        for (int t = 0; t < nThreads; t++)
+        {
+            final long seed = t;
+            pool.execute(new Runnable()
+            {
+                public void run()
+                {
+                    long key;
+                    Long value;
+                    for (int i = 0; i < 100000; i++)
+                    {
+                        key = ((seed * 31 + i) % 1000) << 20;
+                        value = cache.get(key);
+                        if (value == null) cache.put(key, key);
+                        else if (value != key) errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(0, errors.get());
+        assertEquals(800000, cache.getHits() + cache.getMisses());
+        assertTrue(cache.size() <= cache.getMaxSize());
+    }
+}
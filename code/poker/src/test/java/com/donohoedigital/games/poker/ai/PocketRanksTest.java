@@ -0,0 +1,105 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.ai;
+
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.engine.*;
+import junit.framework.*;
+
+/**
+ * Verify cached (suit-canonical) pocket matrices give the same answers as computing
+ * directly for the board asked for
+ */
+public class PocketRanksTest extends TestCase
+{
+    @Override
+    protected void setUp()
+    {
+        if (ConfigManager.getConfigManager() == null) new ConfigManager("poker", ApplicationType.COMMAND_LINE);
+    }
+
+    public void testScoresAndRanks()
+    {
+        Hand turn = new Hand(Card.HEARTS_A, Card.SPADES_7, Card.SPADES_2, Card.DIAMONDS_J);
+        Hand swapped = new Hand(Card.CLUBS_A, Card.HEARTS_7, Card.HEARTS_2, Card.SPADES_J);
+
+        PocketScores.getCache().clear();
+        PocketRanks.getCache().clear();
+
+        PocketScores scores = PocketScores.getInstance(turn);
+        PocketRanks ranks = PocketRanks.getInstance(turn);
+        PocketMatrixShort expected = PocketRanks.computeRanks(turn);
+        HandInfoFastest fast = new HandInfoFastest();
+
+        for (int i = 1; i < 52; i++)
+        {
+            if (turn.containsCard(i)) continue;
+            for (int j = 0; j < i; j++)
+            {
+                if (turn.containsCard(j)) continue;
+                assertEquals(fast.getScore(turn.fingerprint() | (1L << i) | (1L << j)), scores.getScore(i, j));
+                assertEquals(expected.get(i, j) / 10000.0f, ranks.getRawHandStrength(i, j));
+            }
+        }
+
+        // suit-swapped board uses the same cache entry
+        PocketRanks.getInstance(swapped);
+        assertEquals(1, PocketScores.getCache().size());
+        assertEquals(1, PocketRanks.getCache().size());
+        assertEquals(ranks.getRawHandStrength(Card.HEARTS_K, Card.SPADES_Q),
+                     PocketRanks.getInstance(swapped).getRawHandStrength(Card.CLUBS_K, Card.HEARTS_Q));
+    }
+
+    public void testOdds()
+    {
+        ConfigManager.getConfigManager().loadGuiConfig(); // PokerUtils
+
+        Hand flop = new Hand(Card.HEARTS_T, Card.SPADES_9, Card.HEARTS_4);
+        Hand pocket = new Hand(Card.HEARTS_A, Card.HEARTS_Q);
+        Hand flop2 = new Hand(Card.DIAMONDS_T, Card.CLUBS_9, Card.DIAMONDS_4);
+        Hand pocket2 = new Hand(Card.DIAMONDS_A, Card.DIAMONDS_Q);
+
+        PocketOdds.getCache().clear();
+        PocketOdds odds = PocketOdds.getInstance(flop, pocket);
+        PocketOdds odds2 = PocketOdds.getInstance(flop2, pocket2);
+        assertEquals(1, PocketOdds.getCache().size());
+        assertEquals(odds.getEffectiveHandStrength(), odds2.getEffectiveHandStrength());
+        assertEquals(odds.getEffectiveHandStrength(Card.SPADES_T, Card.CLUBS_J),
+                     odds2.getEffectiveHandStrength(Card.CLUBS_T, Card.SPADES_J));
+        assertEquals(odds.getEffectiveHandStrength(Card.HEARTS_K, Card.HEARTS_J),
+                     odds2.getEffectiveHandStrength(Card.DIAMONDS_K, Card.DIAMONDS_J));
+        assertTrue(odds.getEffectiveHandStrength(Card.SPADES_T, Card.CLUBS_J) !=
+                   odds.getEffectiveHandStrength(Card.HEARTS_K, Card.HEARTS_J));
+    }
+}
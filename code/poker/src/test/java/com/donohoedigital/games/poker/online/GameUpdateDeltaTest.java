@@ -0,0 +1,158 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.online;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.comms.*;
+import com.donohoedigital.games.poker.network.*;
+import junit.framework.*;
+
+import java.util.*;
+
+/**
+ * Tests for GameUpdateDelta
+ */
+public class GameUpdateDeltaTest extends TestCase
+{
+    private final GameUpdateDelta host = new GameUpdateDelta();
+    private final GameUpdateDelta client = new GameUpdateDelta();
+
+    public void testKeyframeThenDeltas()
+    {
+        Object[] keys = {"details", "player1", "player2"};
+        byte[][] entries = {bytes("details"), bytes("player1 chips 1500 bet 0"), bytes("player2 chips 1500 bet 0")};
+
+        OnlineMessage msg = send(keys, entries);
+        assertEquals(0, msg.getDeltaBase());
+        assertEquals(1, msg.getDeltaSequence());
+
+        // one bet changes, which grows the entry
+        entries = new byte[][] {bytes("details"), bytes("player1 chips 1400 bet 100"), bytes("player2 chips 1500 bet 0")};
+        msg = send(keys, entries);
+        assertEquals(1, msg.getDeltaBase());
+        assertTrue(msg.getGameData().length < size(entries) / 2);
+
+        // entry shrinks, new entry added, entry removed
+        keys = new Object[] {"details", "player1", "player3"};
+        entries = new byte[][] {bytes("details"), bytes("player1 out"), bytes("player3 chips 3000 bet 0")};
+        send(keys, entries);
+    }
+
+    public void testSameKeyTwice()
+    {
+        Object[] keys = {"a", "a"};
+        send(keys, new byte[][] {bytes("first"), bytes("second")});
+        send(keys, new byte[][] {bytes("second"), bytes("first")});
+    }
+
+    public void testOutOfSync()
+    {
+        Object[] keys = {"a"};
+        send(keys, new byte[][] {bytes("one")});
+        assertFalse(client.isResyncNeeded());
+
+        // client misses an update - resync asked for once
+        host.store(new OnlineMessage(OnlineMessage.CAT_GAME_UPDATE), keys, new byte[][] {bytes("two")});
+        OnlineMessage msg = new OnlineMessage(OnlineMessage.CAT_GAME_UPDATE);
+        host.store(msg, keys, new byte[][] {bytes("three")});
+        assertNull(client.apply(msg));
+        assertTrue(client.isResyncNeeded());
+        assertFalse(client.isResyncNeeded());
+
+        // updates sent before the host handles the resync are skipped too
+        msg = new OnlineMessage(OnlineMessage.CAT_GAME_UPDATE);
+        host.store(msg, keys, new byte[][] {bytes("four")});
+        assertNull(client.apply(msg));
+        assertFalse(client.isResyncNeeded());
+
+        // resync
+        host.reset();
+        msg = send(keys, new byte[][] {bytes("five")});
+        assertEquals(0, msg.getDeltaBase());
+        assertFalse(client.isResyncNeeded());
+        send(keys, new byte[][] {bytes("six")});
+
+        // out of sync again - resync asked for again
+        host.store(new OnlineMessage(OnlineMessage.CAT_GAME_UPDATE), keys, new byte[][] {bytes("seven")});
+        msg = new OnlineMessage(OnlineMessage.CAT_GAME_UPDATE);
+        host.store(msg, keys, new byte[][] {bytes("eight")});
+        assertNull(client.apply(msg));
+        assertTrue(client.isResyncNeeded());
+    }
+
+    public void testKeyframeInterval()
+    {
+        Object[] keys = {"a"};
+        int nKeyframes = 0;
+        for (int i = 0; i < GameUpdateDelta.KEYFRAME_INTERVAL * 2; i++)
+        {
+            if (send(keys, new byte[][] {bytes("entry " + i)}).getDeltaBase() == 0) nKeyframes++;
+        }
+        assertEquals(2, nKeyframes);
+    }
+
+    /**
+     * send entries from host to client, verify client rebuilds them
+     */
+    private OnlineMessage send(Object[] keys, byte[][] entries)
+    {
+        OnlineMessage msg = new OnlineMessage(OnlineMessage.CAT_GAME_UPDATE);
+        host.store(msg, keys, entries);
+
+        byte[] data = client.apply(msg);
+        assertNotNull(data);
+
+        BinaryMarshaller.Input in = new BinaryMarshaller.Input(data);
+        assertEquals(BinaryMarshaller.BINARY_MARKER, in.readByte());
+        for (byte[] entry : entries)
+        {
+            byte[] rebuilt = new byte[BinaryMarshaller.readVarInt(in)];
+            in.readBytes(rebuilt, 0, rebuilt.length);
+            assertTrue(Arrays.equals(entry, rebuilt));
+        }
+        assertFalse(in.hasMore());
+        return msg;
+    }
+
+    private static int size(byte[][] entries)
+    {
+        int nSize = 0;
+        for (byte[] entry : entries) nSize += entry.length;
+        return nSize;
+    }
+
+    private static byte[] bytes(String s)
+    {
+        return Utils.encode(s);
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.online;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.comms.*;
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.config.*;
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.engine.*;
+import com.donohoedigital.games.poker.model.*;
+import com.donohoedigital.games.poker.network.*;
+import junit.framework.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Verify SharedTableUpdate stores the same game data, byte for byte, as saving
+ * the game separately for each recipient (as the single-recipient sendTableUpdate() does)
+ */
+public class SharedTableUpdateTest extends TestCase
+{
+    private static final Version OLD_VERSION = new Version(3, 1, 0, true);
+
+    private PokerGame game_;
+    private PokerTable table1_;
+    private PokerTable table2_;
+    private PokerPlayer seated_;
+    private PokerPlayer observer_;
+    private PokerPlayer other_;
+
+    @Override
+    protected void setUp()
+    {
+        if (ConfigManager.getConfigManager() == null)
+        {
+            new ConfigManager("poker", ApplicationType.COMMAND_LINE).loadGuiConfig();
+        }
+        DDMessage.setBinaryVersion(PokerConstants.VERSION_BINARY_MESSAGES_ADDED);
+
+        TournamentProfile profile = new TournamentProfile("shared");
+        game_ = new PokerGame(null)
+        {
+            // settings.save.gamestate.class is only in client config
+            @Override
+            public GameState newGameState(String sName)
+            {
+                return new PokerGameState(sName, getDescription());
+            }
+        };
+        // initialized as online game so computer players aren't created
+        game_.setOnlineGameID("n-1");
+        game_.initTournament(profile);
+        game_.setOnlineGameID(null);
+
+        table1_ = new PokerTable(game_, 1);
+        table2_ = new PokerTable(game_, 2);
+        game_.addTable(table1_);
+        game_.addTable(table2_);
+        for (int i = 0; i < 8; i++)
+        {
+            PokerPlayer player = new PokerPlayer(i + 1, "Player " + i, true);
+            game_.addPlayer(player);
+            (i < 4 ? table1_ : table2_).setPlayer(player, i % 4);
+            player.setChipCount(profile.getBuyinChips());
+        }
+        PokerPlayer host = new PokerPlayer(PokerConstants.PLAYER_ID_HOST, "Host", true);
+        game_.addPlayer(host);
+        table2_.setPlayer(host, 4);
+        host.setChipCount(profile.getBuyinChips());
+
+        observer_ = new PokerPlayer(20, "Observer", true);
+        observer_.setObserver(true);
+        game_.addObserver(observer_);
+        table1_.addObserver(observer_);
+
+        seated_ = table1_.getPlayer(1);
+        other_ = table2_.getPlayer(2);
+
+        // deal, so hidden and shown cards differ by recipient
+        game_.computeTotalChipsInPlay();
+        game_.nextLevel();
+        table1_.setMinChip(game_.getMinChip());
+        table1_.setButton(0);
+        HoldemHand hhand = new HoldemHand(table1_);
+        table1_.setHoldemHand(hhand);
+        hhand.deal();
+        assertEquals(2, seated_.getHand().size());
+    }
+
+    public void testText()
+    {
+        verify(OLD_VERSION, false, false);
+    }
+
+    public void testBinary()
+    {
+        verify(PokerConstants.VERSION_BINARY_MESSAGES_ADDED, false, false);
+    }
+
+    public void testDelta()
+    {
+        verify(PokerConstants.VERSION_BINARY_MESSAGES_ADDED, true, false);
+    }
+
+    public void testTextOtherTableDirty()
+    {
+        verify(OLD_VERSION, false, true);
+    }
+
+    public void testBinaryOtherTableDirty()
+    {
+        verify(PokerConstants.VERSION_BINARY_MESSAGES_ADDED, false, true);
+    }
+
+    /**
+     * Compare shared update of table 1 to a save for each recipient, with each
+     * recipient using given version.  A player at table 2 is included, so their
+     * update is always an other table update.  If bOtherDirty, table 2 is dirty
+     * too, so it is an other table update for everyone.
+     */
+    private void verify(Version version, boolean bDelta, boolean bOtherDirty)
+    {
+        List<PokerPlayer> to = Arrays.asList(seated_, observer_, other_);
+        for (PokerPlayer player : to)
+        {
+            player.setVersion(version);
+        }
+
+        // as sendTableUpdate() does
+        table1_.setPlayersObserversDirty(true);
+        table1_.setDirty(true);
+        if (bOtherDirty) table2_.setDirty(true);
+
+        SharedTableUpdate update = new SharedTableUpdate(game_, getSaveDetails(PokerSaveDetails.NO_PLAYER));
+        for (PokerPlayer player : to)
+        {
+            OnlineMessage shared = new OnlineMessage(OnlineMessage.CAT_GAME_UPDATE);
+            update.storeGame(shared, player, bDelta ? new GameUpdateDelta() : null);
+
+            // otherwise, as the single-recipient sendTableUpdate() does
+            SaveDetails details = getSaveDetails(player.getID());
+            GameState state = game_.newGameState("OnlineManager");
+            game_.saveGame(state, details);
+            assertEquals(bOtherDirty || player == other_, ((PokerSaveDetails) details.getCustomInfo()).isOtherTableUpdate());
+
+            OnlineMessage single = new OnlineMessage(OnlineMessage.CAT_GAME_UPDATE);
+            if (bDelta)
+            {
+                new GameUpdateDelta().store(single, GameUpdateDelta.getKeys(state), GameUpdateDelta.encode(state));
+            }
+            else if (DDMessage.isBinarySupported(version))
+            {
+                DDByteArrayOutputStream out = new DDByteArrayOutputStream(4096);
+                state.write(out);
+                single.setGameData(out.toByteArray());
+            }
+            else
+            {
+                StringWriter writer = new StringWriter();
+                state.write(writer);
+                single.setGameData(writer.toString());
+            }
+
+            assertTrue("data differs for " + player.getName(),
+                       Arrays.equals(single.getGameData(), shared.getGameData()));
+        }
+    }
+
+    /**
+     * details used by sendTableUpdate()
+     */
+    private SaveDetails getSaveDetails(int nPlayerID)
+    {
+        SaveDetails details = game_.getSaveDetails(SaveDetails.SAVE_NONE);
+        PokerSaveDetails pdetails = (PokerSaveDetails) details.getCustomInfo();
+        details.setSavePlayers(SaveDetails.SAVE_DIRTY);
+        details.setSaveObservers(SaveDetails.SAVE_DIRTY);
+        details.setSaveGameSubclassData(SaveDetails.SAVE_ALL);
+        pdetails.setSaveTables(SaveDetails.SAVE_DIRTY);
+        pdetails.setPlayerID(nPlayerID);
+        pdetails.setHideOthersCards(true);
+        pdetails.setOverrideState(PokerSaveDetails.NO_OVERRIDE);
+        pdetails.setSetCurrentTableToLocal(false);
+        return details;
+    }
+}
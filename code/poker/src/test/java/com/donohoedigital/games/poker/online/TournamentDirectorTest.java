@@ -0,0 +1,177 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.online;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.model.*;
+import junit.framework.*;
+
+/**
+ * Test TournamentDirector thread wakes for outside calls and table pauses (and
+ * otherwise waits without ticking), and that stopping ends its thread and timers
+ */
+public class TournamentDirectorTest extends TestCase
+{
+    private PokerGame game_;
+    private PokerTable table_;
+    private PokerPlayer player_;
+    private TournamentDirector td_;
+
+    @Override
+    protected void setUp()
+    {
+        if (ConfigManager.getConfigManager() == null)
+        {
+            new ConfigManager("poker", ApplicationType.COMMAND_LINE).loadGuiConfig();
+        }
+
+        game_ = new PokerGame(null);
+        game_.setProfile(new TournamentProfile("td"));
+        table_ = new PokerTable(game_, 1);
+        game_.addTable(table_);
+        for (int i = 0; i < 2; i++)
+        {
+            PokerPlayer player = new PokerPlayer(i + 1, "Player " + i, true);
+            game_.addPlayer(player);
+            table_.setPlayer(player, i);
+        }
+        player_ = table_.getPlayer(0);
+
+        // waiting, then moves to a state which needs no phase or players
+        table_.setTableState(PokerTable.STATE_PENDING);
+        table_.setPendingTableState(PokerTable.STATE_BEGIN_WAIT);
+
+        td_ = new TournamentDirector();
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        td_.stop();
+    }
+
+    public void testWakeFromOutside()
+    {
+        table_.addWait(player_);
+        td_.startHost(game_);
+        waitForPasses(1);
+
+        // nothing to do - no passes (no polling)
+        int nPasses = td_.getNumPasses();
+        Utils.sleepMillis(600);
+        assertEquals(nPasses, td_.getNumPasses());
+        assertEquals(PokerTable.STATE_PENDING, table_.getTableState());
+
+        // player responds (as from a phase or client message)
+        long nStart = System.nanoTime();
+        td_.removeFromWaitList(player_);
+        while (td_.getNumPasses() == nPasses && System.nanoTime() - nStart < 5000000000L)
+        {
+            Thread.yield();
+        }
+        long nMicros = (System.nanoTime() - nStart) / 1000;
+        assertTrue("no pass", td_.getNumPasses() > nPasses);
+        assertTrue("pass took " + nMicros + " micros", nMicros < 100000);
+        assertEquals(PokerTable.STATE_BEGIN_WAIT, table_.getTableState());
+    }
+
+    public void testWakeAfterPause()
+    {
+        long nStart = System.currentTimeMillis();
+        table_.setPause(400);
+        td_.startHost(game_);
+        waitForPasses(1);
+
+        // still paused
+        int nPasses = td_.getNumPasses();
+        Utils.sleepMillis(100);
+        assertEquals(PokerTable.STATE_PENDING, table_.getTableState());
+
+        // timer wakes TD once pause ends
+        while (table_.getTableState() == PokerTable.STATE_PENDING && System.currentTimeMillis() - nStart < 5000)
+        {
+            Utils.sleepMillis(5);
+        }
+        long nElapsed = System.currentTimeMillis() - nStart;
+        assertEquals(PokerTable.STATE_BEGIN_WAIT, table_.getTableState());
+        assertTrue("woke after " + nElapsed, nElapsed >= 400 && nElapsed < 1000);
+        assertTrue(td_.getNumPasses() > nPasses);
+
+        // then nothing more to do - no passes
+        Utils.sleepMillis(100);
+        nPasses = td_.getNumPasses();
+        Utils.sleepMillis(600);
+        assertEquals(nPasses, td_.getNumPasses());
+    }
+
+    public void testStop()
+    {
+        table_.setPause(60000);
+        td_.startHost(game_);
+        waitForPasses(1);
+        assertTrue(isThreadRunning("TournamentDirector-"));
+        assertTrue(isThreadRunning("TDTimer-"));
+
+        td_.stop();
+
+        long nStart = System.currentTimeMillis();
+        while ((isThreadRunning("TournamentDirector-") || isThreadRunning("TDTimer-")) &&
+               System.currentTimeMillis() - nStart < 5000)
+        {
+            Utils.sleepMillis(10);
+        }
+        assertFalse(isThreadRunning("TournamentDirector-"));
+        assertFalse(isThreadRunning("TDTimer-"));
+    }
+
+    private void waitForPasses(int nPasses)
+    {
+        long nStart = System.currentTimeMillis();
+        while (td_.getNumPasses() < nPasses && System.currentTimeMillis() - nStart < 5000)
+        {
+            Utils.sleepMillis(5);
+        }
+        assertTrue(td_.getNumPasses() >= nPasses);
+    }
+
+    private static boolean isThreadRunning(String sPrefix)
+    {
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+        {
+            if (thread.isAlive() && thread.getName().startsWith(sPrefix)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.bench;
+
+import com.donohoedigital.comms.*;
+import com.donohoedigital.games.poker.engine.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Marshal / demarshal round trips of a typical message payload, in the
+ * text format and the binary format (see BinaryMarshaller)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataMarshallerBenchmark
+{
+    private DMTypedHashMap map;
+    private String marshalled;
+    private byte[] binary;
+
+    @Setup
+    public void setup()
+    {
+        PokerBenchmarks.init();
+
+        map = new DMTypedHashMap();
+        map.setString("name", "Tournament of Champions");
+        map.setInteger("level", 12);
+        map.setLong("time", System.currentTimeMillis());
+        map.setBoolean("online", Boolean.TRUE);
+        map.setDouble("avg", 1234.5d);
+        List<Integer> chips = new DMArrayList<Integer>();
+        for (int i = 0; i < 10; i++) chips.add(1000 * i);
+        map.setList("chips", chips);
+        map.setObject("hand", new Hand(Card.SPADES_A, Card.HEARTS_K));
+        map.setObject("board", new Hand(Card.CLUBS_2, Card.DIAMONDS_7, Card.SPADES_J, Card.HEARTS_3, Card.CLUBS_Q));
+
+        marshalled = DataMarshaller.marshal(map);
+        binary = BinaryMarshaller.marshal(null, map);
+    }
+
+    @Benchmark
+    public String marshal()
+    {
+        return DataMarshaller.marshal(map);
+    }
+
+    @Benchmark
+    public DataMarshal demarshal()
+    {
+        return DataMarshaller.demarshal(marshalled);
+    }
+
+    @Benchmark
+    public DataMarshal roundTrip()
+    {
+        return DataMarshaller.demarshal(DataMarshaller.marshal(map));
+    }
+
+    @Benchmark
+    public byte[] marshalBinary()
+    {
+        return BinaryMarshaller.marshal(null, map);
+    }
+
+    @Benchmark
+    public DataMarshal demarshalBinary()
+    {
+        return BinaryMarshaller.demarshal(null, binary);
+    }
+
+    @Benchmark
+    public DataMarshal roundTripBinary()
+    {
+        return BinaryMarshaller.demarshal(null, BinaryMarshaller.marshal(null, map));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.bench;
+
+import com.donohoedigital.base.*;
+import com.donohoedigital.games.config.*;
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.engine.*;
+import com.donohoedigital.games.poker.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * Encode / decode of a PokerGame save (as sent in online game updates) in the
+ * text format and the binary format (see BinaryMarshaller).  Payload sizes of
+ * each format are printed during setup.  Decode covers reading and parsing all
+ * entries, not applying them to a game (that needs the full GameEngine).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameStateBenchmark
+{
+    @Param({"10", "100"})
+    public int playerCount;
+
+    private PokerGame game;
+    private GameState state;
+    private Integer gameId;
+    private byte[] text;
+    private byte[] binary;
+
+    @Setup
+    @SuppressWarnings({"UseOfSystemOutOrSystemErr"})
+    public void setup()
+    {
+        PokerBenchmarks.init();
+        GameState.setDelegate(new PokerGameStateDelegate());
+
+        // online game with players seated, as the host has just after starting
+        TournamentProfile profile = new TournamentProfile("bench");
+        game = new PokerGame(null);
+        game.setOnlineGameID("n-1");
+        game.initTournament(profile);
+
+        PokerTable table = null;
+        PokerPlayer player;
+        for (int i = 0; i < playerCount; i++)
+        {
+            if (i % PokerConstants.SEATS == 0)
+            {
+                table = new PokerTable(game, game.getNumTables() + 1);
+                game.addTable(table);
+            }
+            player = new PokerPlayer(i, "Player " + i, i == 0);
+            game.addPlayer(player);
+            table.addPlayer(player);
+            player.setChipCount(profile.getBuyinChips());
+        }
+        game.computeTotalChipsInPlay();
+        game.nextLevel();
+
+        SaveDetails details = game.getSaveDetails(SaveDetails.SAVE_ALL);
+        details.setSaveCurrentPhase(SaveDetails.SAVE_NONE);
+        state = new GameState("bench", "bench");
+        game.saveGame(state, details);
+        gameId = state.getId(game);
+
+        text = encodeText();
+        binary = encodeBinary();
+        System.out.println();
+        System.out.println("PokerGame save with " + playerCount + " players: text " + text.length +
+                           " bytes, binary " + binary.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encodeText()
+    {
+        StringWriter writer = new StringWriter();
+        state.write(writer);
+        return Utils.encode(writer.toString());
+    }
+
+    @Benchmark
+    public byte[] encodeBinary()
+    {
+        DDByteArrayOutputStream out = new DDByteArrayOutputStream(4096);
+        state.write(out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public GameState decodeText()
+    {
+        return decode(text);
+    }
+
+    @Benchmark
+    public GameState decodeBinary()
+    {
+        return decode(binary);
+    }
+
+    /**
+     * Read entries with game's objects already known, as Game.loadGame() does
+     */
+    private GameState decode(byte[] data)
+    {
+        GameState load = new GameState(data);
+        load.setId(game, gameId);
+        load.prepopulateIds(game, null, game, game);
+        load.read(true);
+        load.finishParsing();
+        return load;
+    }
+}
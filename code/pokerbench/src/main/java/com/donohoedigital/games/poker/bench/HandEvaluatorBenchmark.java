@@ -0,0 +1,141 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.bench;
+
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.engine.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Score 7 card hands with each evaluator.  Each invocation scores the same
+ * NUM_HANDS random hands so branch prediction can't learn a single hand.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(HandEvaluatorBenchmark.NUM_HANDS)
+public class HandEvaluatorBenchmark
+{
+    static final int NUM_HANDS = 1024;
+
+    private Hand[] holes;
+    private Hand[] communities;
+    private HandSorted[] sortedHoles;
+    private HandSorted[] sortedCommunities;
+    private long[] masks;
+
+    private final HandInfoFast fast = new HandInfoFast();
+    private final HandInfoFaster faster = new HandInfoFaster();
+    private final HandInfoFastest fastest = new HandInfoFastest();
+
+    @Setup
+    public void setup()
+    {
+        PokerBenchmarks.init();
+
+        holes = new Hand[NUM_HANDS];
+        communities = new Hand[NUM_HANDS];
+        sortedHoles = new HandSorted[NUM_HANDS];
+        sortedCommunities = new HandSorted[NUM_HANDS];
+        masks = new long[NUM_HANDS];
+        for (int i = 0; i < NUM_HANDS; i++)
+        {
+            Deck deck = new Deck(true, i);
+            holes[i] = new Hand(deck.nextCard(), deck.nextCard());
+            communities[i] = new Hand(deck.nextCard(), deck.nextCard(), deck.nextCard(), deck.nextCard(), deck.nextCard());
+            sortedHoles[i] = new HandSorted(holes[i]);
+            sortedCommunities[i] = new HandSorted(communities[i]);
+            masks[i] = holes[i].fingerprint() | communities[i].fingerprint();
+        }
+    }
+
+    @Benchmark
+    public int handInfo()
+    {
+        int sum = 0;
+        for (int i = 0; i < NUM_HANDS; i++)
+        {
+            sum += new HandInfo(sortedHoles[i], sortedCommunities[i]).getScore();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int handInfoFast()
+    {
+        int sum = 0;
+        for (int i = 0; i < NUM_HANDS; i++)
+        {
+            sum += fast.getScore(holes[i], communities[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int handInfoFaster()
+    {
+        int sum = 0;
+        for (int i = 0; i < NUM_HANDS; i++)
+        {
+            sum += faster.getScore(holes[i], communities[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int handInfoFastest()
+    {
+        int sum = 0;
+        for (int i = 0; i < NUM_HANDS; i++)
+        {
+            sum += fastest.getScore(holes[i], communities[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int handInfoFastestMask()
+    {
+        int sum = 0;
+        for (int i = 0; i < NUM_HANDS; i++)
+        {
+            sum += fastest.getScore(masks[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.bench;
+
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.engine.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Monte Carlo loop of HoldemSimulator, against random hands and against a hand list,
+ * and exact enumeration against a hand list.
+ * Run with the GC profiler (see PokerBenchmarks) to see allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HoldemSimulatorBenchmark
+{
+    @Param({"1000"})
+    public int handCount;
+
+    private Hand hole;
+    private Hand community;
+    private Deck deck;
+    private HandList list;
+
+    @Setup
+    public void setup()
+    {
+        PokerBenchmarks.init();
+
+        hole = new Hand(Card.SPADES_A, Card.SPADES_K);
+        community = new Hand(Card.SPADES_Q, Card.HEARTS_7, Card.CLUBS_2);
+
+        deck = new Deck(true);
+        deck.removeCards(hole);
+        deck.removeCards(community);
+
+        list = new HandList("bench");
+        list.addAllPairs(Card.TWO, Card.ACE);
+        list.addAll(Card.ACE, Card.QUEEN);
+        list.addAll(Card.QUEEN, Card.SEVEN);
+    }
+
+    @Benchmark
+    public StatResult simulateRandom()
+    {
+        return HoldemSimulator.simulate(hole, community, handCount, deck, null, null, 0, 0);
+    }
+
+    @Benchmark
+    public StatResult simulateList()
+    {
+        return HoldemSimulator.simulate(hole, community, handCount, deck, list, null, 0, 0);
+    }
+
+    @Benchmark
+    public StatResult iterateList()
+    {
+        return HoldemSimulator.iterate(hole, community, 0, deck, list, null, 0, 0);
+    }
+}
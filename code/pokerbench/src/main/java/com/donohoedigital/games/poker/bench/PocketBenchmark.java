@@ -0,0 +1,115 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.bench;
+
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.ai.*;
+import com.donohoedigital.games.poker.engine.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Construction of the AI's per-board matrices and of HandPotential.  Pocket caches
+ * are cleared before each call so construction (not lookup) is measured.  The
+ * HandPotential cache is left holding only the flop, so the incremental turn
+ * case measures deriving the turn from the flop's tallies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PocketBenchmark
+{
+    private Hand pocket;
+    private Hand flop;
+    private Hand turn;
+
+    @Setup
+    public void setup()
+    {
+        PokerBenchmarks.init();
+
+        pocket = new Hand(Card.HEARTS_A, Card.HEARTS_Q);
+        flop = new Hand(Card.HEARTS_T, Card.SPADES_9, Card.HEARTS_4);
+        turn = new Hand(Card.HEARTS_T, Card.SPADES_9, Card.HEARTS_4, Card.CLUBS_K);
+    }
+
+    @Setup(Level.Invocation)
+    public void clear()
+    {
+        PocketScores.getCache().clear();
+        PocketRanks.getCache().clear();
+        PocketOdds.getCache().clear();
+        HandPotential.getCache().clear();
+        HandPotential.getInstance(pocket, flop);
+    }
+
+    @Benchmark
+    public PocketScores pocketScores()
+    {
+        return PocketScores.getInstance(turn);
+    }
+
+    @Benchmark
+    public PocketRanks pocketRanks()
+    {
+        return PocketRanks.getInstance(turn);
+    }
+
+    @Benchmark
+    public PocketOdds pocketOdds()
+    {
+        return PocketOdds.getInstance(flop, pocket);
+    }
+
+    @Benchmark
+    public HandPotential handPotentialFlop()
+    {
+        return new HandPotential(pocket, flop);
+    }
+
+    @Benchmark
+    public HandPotential handPotentialTurn()
+    {
+        return new HandPotential(pocket, turn);
+    }
+
+    @Benchmark
+    public HandPotential handPotentialTurnIncremental()
+    {
+        return HandPotential.getInstance(pocket, turn);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.bench;
+
+import com.donohoedigital.config.*;
+import org.openjdk.jmh.profile.*;
+import org.openjdk.jmh.results.format.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * Runs the poker JMH benchmarks.  Optional arguments are regular expressions
+ * limiting which benchmarks run (e.g. <code>HoldemSimulator</code>), and a file
+ * name ending in <code>.json</code> for results (default is RESULTS_FILE), so
+ * runs from different releases can be compared.  The GC profiler is always on,
+ * so <code>gc.alloc.rate</code> and <code>gc.alloc.rate.norm</code> are reported
+ * next to the timings.
+ */
+public class PokerBenchmarks
+{
+    public static final String RESULTS_FILE = "pokerbench.json";
+
+    /**
+     * Load poker config, needed by hand lists, cards toString(), etc.  Styles are
+     * loaded too since PokerUtils (used by PocketOdds) needs them.  Called from
+     * benchmark setup since each benchmark runs in a forked JVM.
+     */
+    static synchronized void init()
+    {
+        if (ConfigManager.getConfigManager() == null)
+        {
+            new ConfigManager("poker", ApplicationType.COMMAND_LINE).loadGuiConfig();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        ChainedOptionsBuilder options = new OptionsBuilder().addProfiler(GCProfiler.class);
+
+        String sResults = RESULTS_FILE;
+        boolean bIncluded = false;
+        for (String arg : args)
+        {
+            if (arg.endsWith(".json"))
+            {
+                sResults = arg;
+            }
+            else
+            {
+                options.include(arg);
+                bIncluded = true;
+            }
+        }
+        if (!bIncluded)
+        {
+            options.include(PokerBenchmarks.class.getPackage().getName() + ".*");
+        }
+
+        options.resultFormat(ResultFormatType.JSON).result(sResults);
+
+        new Runner(options.build()).run();
+    }
+}
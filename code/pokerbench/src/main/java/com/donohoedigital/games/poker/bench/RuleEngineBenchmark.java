@@ -0,0 +1,115 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.bench;
+
+import com.donohoedigital.config.*;
+import com.donohoedigital.games.config.*;
+import com.donohoedigital.games.poker.*;
+import com.donohoedigital.games.poker.ai.*;
+import com.donohoedigital.games.poker.engine.*;
+import com.donohoedigital.games.poker.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * V2Player decisions per second - one RuleEngine evaluation for the first player
+ * to act pre-flop or on the flop at a 10 player table, with and without the
+ * reasoning recorded for getReasoningHTML() and getResultsTable().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleEngineBenchmark
+{
+    @Param({"true", "false"})
+    public boolean explain;
+
+    @Param({"preflop", "flop"})
+    public String round;
+
+    private V2Player ai;
+    private RuleEngine re;
+
+    @Setup
+    public void setup()
+    {
+        PokerBenchmarks.init();
+
+        // player types come from save dir (copied like GameEngine does)
+        ConfigUtils.copyURLs("save/poker", "**/*.*", GameConfigUtils.getSaveDir());
+
+        TournamentProfile profile = new TournamentProfile("RuleEngineBenchmark");
+        profile.setNumPlayers(10);
+        profile.fixAll();
+        List<PlayerType> types = Collections.singletonList(PlayerType.getDefaultProfile());
+        PokerTable table = new BatchTournament(1, profile, types, 0).getGame().getTable(0);
+
+        for (int i = 0; i < PokerConstants.SEATS; i++)
+        {
+            PokerPlayer player = table.getPlayer(i);
+            if (player != null) player.setPokerAI(PokerAI.createPokerAI(player.getPlayerType()));
+        }
+
+        // deal hands until the round we want has a player to act
+        int nRound = round.equals("flop") ? HoldemHand.ROUND_FLOP : HoldemHand.ROUND_PRE_FLOP;
+        HoldemHand hhand;
+        while (true)
+        {
+            table.startNewHand();
+            hhand = table.getHoldemHand();
+            while (hhand.getRound() < nRound && !hhand.isDone())
+            {
+                PokerPlayer player = hhand.getCurrentPlayerInitIndex();
+                player.processAction(player.getAction(false));
+                if (hhand.isDone() && !hhand.isUncontested()) hhand.advanceRound();
+            }
+            if (hhand.getRound() == nRound && !hhand.isDone()) break;
+        }
+
+        ai = (V2Player) hhand.getCurrentPlayerInitIndex().getPokerAI();
+        re = ai.getRuleEngine();
+        re.setExplain(explain);
+    }
+
+    @Benchmark
+    public int decision()
+    {
+        re.execute(ai);
+        return re.getStrongestOutcome();
+    }
+}
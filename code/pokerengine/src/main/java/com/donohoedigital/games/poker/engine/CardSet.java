@@ -0,0 +1,335 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.engine;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Set of cards stored as a bitmask - bit <code>Card.getIndex()</code> is set for each
+ * card in the set (the same layout as <code>Hand.fingerprint()</code>).  All operations
+ * are O(1) and allocation free, so this is meant for simulator and AI loops where
+ * walking a Hand's list of Card objects is too slow.
+ * <p>
+ * The static methods work on raw masks, for code that keeps masks in local longs.
+ */
+public class CardSet implements Serializable, Iterable<Card>
+{
+    /**
+     * Mask of all 52 cards in a deck
+     */
+    public static final long DECK_MASK = (1L << 52) - 1;
+
+    private long cards_;
+
+    /**
+     * Empty set
+     */
+    public CardSet()
+    {
+    }
+
+    /**
+     * Set from mask
+     */
+    public CardSet(long cards)
+    {
+        cards_ = cards;
+    }
+
+    /**
+     * Set with cards in given hand
+     */
+    public CardSet(Hand hand)
+    {
+        cards_ = hand.fingerprint();
+    }
+
+    /**
+     * Copy
+     */
+    public CardSet(CardSet copy)
+    {
+        cards_ = copy.cards_;
+    }
+
+    /**
+     * Full deck
+     */
+    public static CardSet deck()
+    {
+        return new CardSet(DECK_MASK);
+    }
+
+    /**
+     * Get mask
+     */
+    public long getMask()
+    {
+        return cards_;
+    }
+
+    /**
+     * Set mask
+     */
+    public void setMask(long cards)
+    {
+        cards_ = cards;
+    }
+
+    public int size()
+    {
+        return Long.bitCount(cards_);
+    }
+
+    public boolean isEmpty()
+    {
+        return cards_ == 0;
+    }
+
+    public void clear()
+    {
+        cards_ = 0;
+    }
+
+    public boolean contains(Card card)
+    {
+        return (cards_ & card.fingerprint()) != 0;
+    }
+
+    public boolean contains(int index)
+    {
+        return (cards_ & (1L << index)) != 0;
+    }
+
+    /**
+     * Does this set have any card in the given set?
+     */
+    public boolean containsAny(CardSet cards)
+    {
+        return (cards_ & cards.cards_) != 0;
+    }
+
+    /**
+     * Does this set have any card in the given mask?
+     */
+    public boolean containsAny(long cards)
+    {
+        return (cards_ & cards) != 0;
+    }
+
+    /**
+     * Does this set have every card in the given set?
+     */
+    public boolean containsAll(CardSet cards)
+    {
+        return (cards_ & cards.cards_) == cards.cards_;
+    }
+
+    public void add(Card card)
+    {
+        cards_ |= card.fingerprint();
+    }
+
+    public void add(int index)
+    {
+        cards_ |= (1L << index);
+    }
+
+    public void addAll(CardSet cards)
+    {
+        cards_ |= cards.cards_;
+    }
+
+    public void addAll(Hand hand)
+    {
+        cards_ |= hand.fingerprint();
+    }
+
+    public void remove(Card card)
+    {
+        cards_ &= ~card.fingerprint();
+    }
+
+    public void remove(int index)
+    {
+        cards_ &= ~(1L << index);
+    }
+
+    public void removeAll(CardSet cards)
+    {
+        cards_ &= ~cards.cards_;
+    }
+
+    public void removeAll(Hand hand)
+    {
+        cards_ &= ~hand.fingerprint();
+    }
+
+    /**
+     * Keep only cards also in the given set
+     */
+    public void retainAll(CardSet cards)
+    {
+        cards_ &= cards.cards_;
+    }
+
+    /**
+     * Return new set with cards in both this and the given set
+     */
+    public CardSet intersect(CardSet cards)
+    {
+        return new CardSet(cards_ & cards.cards_);
+    }
+
+    /**
+     * Return new set with cards in this or the given set
+     */
+    public CardSet union(CardSet cards)
+    {
+        return new CardSet(cards_ | cards.cards_);
+    }
+
+    /**
+     * Index of the first card at or after the given index, or -1 if none.  Use to loop
+     * without allocating:
+     * <pre>
+     * for (int i = set.nextIndex(0); i >= 0; i = set.nextIndex(i + 1))
+     * </pre>
+     */
+    public int nextIndex(int from)
+    {
+        return nextIndex(cards_, from);
+    }
+
+    /**
+     * Cards as a new Hand, lowest index first
+     */
+    public Hand toHand()
+    {
+        Hand hand = new Hand(size());
+        for (int i = nextIndex(0); i >= 0; i = nextIndex(i + 1))
+        {
+            hand.addCard(Card.getCard(i));
+        }
+        return hand;
+    }
+
+    /**
+     * Iterate cards, lowest index first
+     */
+    public Iterator<Card> iterator()
+    {
+        return new Iterator<Card>()
+        {
+            private long left_ = cards_;
+
+            public boolean hasNext()
+            {
+                return left_ != 0;
+            }
+
+            public Card next()
+            {
+                if (left_ == 0) throw new NoSuchElementException();
+                int index = Long.numberOfTrailingZeros(left_);
+                left_ &= left_ - 1;
+                return Card.getCard(index);
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o instanceof CardSet && ((CardSet) o).cards_ == cards_;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (int) (cards_ ^ (cards_ >>> 32));
+    }
+
+    @Override
+    public String toString()
+    {
+        return toHand().toString();
+    }
+
+    ////
+    //// mask helpers
+    ////
+
+    /**
+     * Mask of given card indexes
+     */
+    public static long mask(int... indexes)
+    {
+        long cards = 0;
+        for (int index : indexes)
+        {
+            cards |= (1L << index);
+        }
+        return cards;
+    }
+
+    /**
+     * Index of the first card in mask at or after the given index, or -1 if none.
+     */
+    public static int nextIndex(long cards, int from)
+    {
+        if (from >= 64) return -1;
+        long left = cards & (-1L << from);
+        return left == 0 ? -1 : Long.numberOfTrailingZeros(left);
+    }
+
+    /**
+     * Card indexes in mask, lowest first
+     */
+    public static int[] toIndexes(long cards)
+    {
+        int[] indexes = new int[Long.bitCount(cards)];
+        int n = 0;
+        for (int i = nextIndex(cards, 0); i >= 0; i = nextIndex(cards, i + 1))
+        {
+            indexes[n++] = i;
+        }
+        return indexes;
+    }
+}
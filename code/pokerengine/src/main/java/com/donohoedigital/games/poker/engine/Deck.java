@@ -59,6 +59,9 @@ public class Deck extends DMArrayList<Card>
     // quick random for calc tool
     private static MersenneTwisterFast qrandom = new MersenneTwisterFast();
 
+    // random used by this deck for shuffle() and addRandom()
+    private MersenneTwisterFast qrandom_ = qrandom;
+
     /**
      * Empty deck for loading (please use the constructor with a boolean)
      */
@@ -143,6 +146,23 @@ public class Deck extends DMArrayList<Card>
         }
     }
 
+    /**
+     * Use the given random for shuffle() and addRandom() instead of the shared
+     * one, which is not thread safe.  Used when decks are used by worker threads.
+     */
+    public void setRandom(MersenneTwisterFast random)
+    {
+        qrandom_ = random;
+    }
+
+    /**
+     * Get random used by this deck for shuffle() and addRandom()
+     */
+    public MersenneTwisterFast getRandom()
+    {
+        return qrandom_;
+    }
+
     ////
     //// shuffle logic borrowed from Collections
     ////
@@ -154,7 +174,7 @@ public class Deck extends DMArrayList<Card>
     {
         for (int i = size(); i > 1; i--)
         {
-            set(i - 1, set(qrandom.nextInt(i), get(i - 1)));
+            set(i - 1, set(qrandom_.nextInt(i), get(i - 1)));
         }
     }
 
@@ -165,7 +185,7 @@ public class Deck extends DMArrayList<Card>
     {
         for (int i = Math.min(26, size()); i > 1; i--)
         {
-            set(i - 1, set(qrandom.nextInt(i), get(i - 1)));
+            set(i - 1, set(qrandom_.nextInt(i), get(i - 1)));
         }
     }
 
@@ -235,9 +255,16 @@ public class Deck extends DMArrayList<Card>
     {
         if (hand == null) return; // BUG 340
 
-        for (int i = 0; i < hand.size(); i++)
+        // one pass over the deck, checking each card against the hand's mask
+        long remove = hand.fingerprint();
+        for (int i = size() - 1; i >= 0 && remove != 0; i--)
         {
-            removeCard(hand.getCard(i));
+            long card = getCard(i).fingerprint();
+            if ((remove & card) != 0)
+            {
+                remove(i);
+                remove &= ~card;
+            }
         }
     }
 
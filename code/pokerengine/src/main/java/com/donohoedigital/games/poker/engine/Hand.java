@@ -56,7 +56,7 @@ public class Hand extends DMArrayList<Card>
     
     private char cType_;
 
-    private long fingerprint_ = 0;
+    private final CardSet cardSet_ = new CardSet();
     private int fingerprintModCount_ = -1;
 
     /**
@@ -515,21 +515,28 @@ public class Hand extends DMArrayList<Card>
      * Does hand contain the given card?
      */
     public boolean containsCard(Card card) {
-        return (card.fingerprint() & fingerprint()) != 0L;
+        return getCardSet().contains(card);
     }
 
     /**
      * Does hand contain the given card?
      */
     public boolean containsCard(int index) {
-        return ((1L << index) & fingerprint()) != 0L;
+        return getCardSet().contains(index);
     }
 
     /**
      * Does hand contain any cards of given hand?
      */
     public boolean containsAny(Hand hand) {
-        return (hand.fingerprint() & fingerprint()) != 0L;
+        return getCardSet().containsAny(hand.getCardSet());
+    }
+
+    /**
+     * Does hand contain any cards of given set?
+     */
+    public boolean containsAny(CardSet cards) {
+        return getCardSet().containsAny(cards);
     }
 
     /**
@@ -754,26 +761,38 @@ public class Hand extends DMArrayList<Card>
      */
     public long fingerprint()
     {
-        // recalculate if modified
+        return getCardSet().getMask();
+    }
+
+    /**
+     * Get cards as a new CardSet
+     */
+    public CardSet toCardSet()
+    {
+        return new CardSet(fingerprint());
+    }
+
+    /**
+     * Get cached set of cards, recalculated if modified
+     */
+    private CardSet getCardSet()
+    {
         if (modCount != fingerprintModCount_)
         {
             int size = size();
 
-            Card card;
-
             long fingerprint = 0;
 
             for (int i = 0; i < size; ++i)
             {
-                card = getCard(i);
-                fingerprint |= (1L << card.getIndex());
+                fingerprint |= getCard(i).fingerprint();
             }
 
-            fingerprint_ = fingerprint;
+            cardSet_.setMask(fingerprint);
             fingerprintModCount_ = modCount;
         }
 
-        return fingerprint_;
+        return cardSet_;
     }
 
     /**
@@ -73,6 +73,8 @@ public class PokerConstants
     public static final Version VERSION_ALIVE_LOBBY_ADDED = new Version(2, 0, 8, true);
     public static final Version VERSION_COUNTDOWN_CHANGED = new Version(2, 5, 0, true);
     public static final Version VERSION_HOST_CHECK_ADDED = new Version(3, 0, 0, true);
+    public static final Version VERSION_BINARY_MESSAGES_ADDED = new Version(3, 2, 0, true);
+    public static final Version VERSION_DELTA_UPDATES_ADDED = new Version(3, 2, 0, true);
 
     // earliest version compat with current version
     // Was 2.1.1 until introduced profile validation
@@ -0,0 +1,239 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.engine;
+
+/**
+ * Canonical forms of card sets under renaming of suits.  Hand values depend only on how
+ * cards share suits, not on which suit is which, so any board (and hole cards) can be
+ * mapped by one of the 24 suit permutations onto a canonical form - the one with the
+ * lowest fingerprint.  Results computed for the canonical form apply to the original
+ * by mapping each card through the same permutation, e.g.
+ * <pre>
+ * SuitIsomorphism.Permutation perm = SuitIsomorphism.getPermutation(board);
+ * long canonical = perm.apply(board);
+ * ... value(board, card) == canonicalValue(canonical, perm.apply(card))
+ * </pre>
+ * There are 1,755 canonical flops out of 22,100, 16,432 turns out of 270,725 and
+ * 134,459 rivers out of 2,598,960.
+ */
+public class SuitIsomorphism
+{
+    // lowest bit of each rank (i.e., clubs), used to move a suit's cards to another suit
+    private static final long SUIT_MASK = 0x1111111111111L;
+
+    /**
+     * Number of suit permutations
+     */
+    public static final int NUM_PERMUTATIONS = 24;
+
+    // all permutations of the 4 suits, identity first
+    private static final Permutation[] PERMS = new Permutation[NUM_PERMUTATIONS];
+
+    static
+    {
+        int n = 0;
+        for (int a = 0; a < 4; a++)
+            for (int b = 0; b < 4; b++)
+                for (int c = 0; c < 4; c++)
+                {
+                    int d = 6 - a - b - c;
+                    if (a == b || a == c || b == c || d == a || d == b || d == c) continue;
+                    PERMS[n] = new Permutation(n, new int[]{a, b, c, d});
+                    n++;
+                }
+    }
+
+    /**
+     * Permutation which leaves every card as is
+     */
+    public static final Permutation IDENTITY = PERMS[0];
+
+    /**
+     * A renaming of suits: cards of suit s become suit getSuit(s).  Instances are
+     * shared and immutable.
+     */
+    public static final class Permutation
+    {
+        private final int index_;
+        private final int[] suits_;
+        private final int[] cards_ = new int[52];
+
+        private Permutation(int index, int[] suits)
+        {
+            index_ = index;
+            suits_ = suits;
+            for (int i = 0; i < 52; i++)
+            {
+                cards_[i] = (i & ~3) | suits[i & 3];
+            }
+        }
+
+        /**
+         * Index 0-23 (0 is the identity)
+         */
+        public int getIndex()
+        {
+            return index_;
+        }
+
+        public boolean isIdentity()
+        {
+            return index_ == 0;
+        }
+
+        /**
+         * Suit (CardSuit rank) that cards of the given suit map to
+         */
+        public int getSuit(int suit)
+        {
+            return suits_[suit];
+        }
+
+        /**
+         * Map card index
+         */
+        public int apply(int card)
+        {
+            return cards_[card];
+        }
+
+        /**
+         * Map card mask
+         */
+        public long apply(long cards)
+        {
+            return (((cards) & SUIT_MASK) << suits_[0]) |
+                   (((cards >>> 1) & SUIT_MASK) << suits_[1]) |
+                   (((cards >>> 2) & SUIT_MASK) << suits_[2]) |
+                   (((cards >>> 3) & SUIT_MASK) << suits_[3]);
+        }
+
+        /**
+         * Map card
+         */
+        public Card apply(Card card)
+        {
+            return Card.getCard(cards_[card.getIndex()]);
+        }
+
+        /**
+         * Permutation which undoes this one
+         */
+        public Permutation inverse()
+        {
+            for (Permutation perm : PERMS)
+            {
+                if (perm.suits_[suits_[0]] == 0 && perm.suits_[suits_[1]] == 1 &&
+                    perm.suits_[suits_[2]] == 2 && perm.suits_[suits_[3]] == 3) return perm;
+            }
+            throw new IllegalStateException("no inverse");
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Permutation " + index_ + " [" + suits_[0] + suits_[1] + suits_[2] + suits_[3] + ']';
+        }
+    }
+
+    /**
+     * Get permutation by index (0-23)
+     */
+    public static Permutation getPermutationAt(int index)
+    {
+        return PERMS[index];
+    }
+
+    /**
+     * Permutation giving the lowest fingerprint for these cards (the first such, when
+     * several give the same result)
+     */
+    public static Permutation getPermutation(long cards)
+    {
+        Permutation best = PERMS[0];
+        long min = cards;
+        long permuted;
+        for (int i = 1; i < PERMS.length; i++)
+        {
+            permuted = PERMS[i].apply(cards);
+            if (permuted < min)
+            {
+                min = permuted;
+                best = PERMS[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Permutation giving the lowest board fingerprint, and among those the lowest
+     * hole fingerprint
+     */
+    public static Permutation getPermutation(long hole, long board)
+    {
+        Permutation best = PERMS[0];
+        long minBoard = board;
+        long minHole = hole;
+        long permutedBoard, permutedHole;
+        for (int i = 1; i < PERMS.length; i++)
+        {
+            permutedBoard = PERMS[i].apply(board);
+            if (permutedBoard > minBoard) continue;
+
+            permutedHole = PERMS[i].apply(hole);
+            if (permutedBoard < minBoard || permutedHole < minHole)
+            {
+                minBoard = permutedBoard;
+                minHole = permutedHole;
+                best = PERMS[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Canonical form of cards
+     */
+    public static long getCanonical(long cards)
+    {
+        return getPermutation(cards).apply(cards);
+    }
+
+    /**
+     * Is this set of cards in canonical form?
+     */
+    public static boolean isCanonical(long cards)
+    {
+        return getCanonical(cards) == cards;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.engine;
+
+import junit.framework.*;
+
+/**
+ * Test CardSet and Hand's use of it
+ */
+public class CardSetTest extends TestCase
+{
+    public void testBasics()
+    {
+        CardSet set = new CardSet();
+        assertTrue(set.isEmpty());
+
+        set.add(Card.SPADES_A);
+        set.add(Card.CLUBS_2.getIndex());
+        set.add(Card.HEARTS_T);
+        assertEquals(3, set.size());
+        assertTrue(set.contains(Card.SPADES_A));
+        assertTrue(set.contains(Card.CLUBS_2.getIndex()));
+        assertFalse(set.contains(Card.DIAMONDS_A));
+
+        set.remove(Card.HEARTS_T);
+        assertEquals(2, set.size());
+        assertFalse(set.contains(Card.HEARTS_T));
+
+        CardSet other = new CardSet(new Hand(Card.SPADES_A, Card.DIAMONDS_K));
+        assertTrue(set.containsAny(other));
+        assertFalse(set.containsAll(other));
+        assertEquals(new CardSet(Card.SPADES_A.fingerprint()), set.intersect(other));
+        assertEquals(3, set.union(other).size());
+
+        set.removeAll(other);
+        assertEquals(1, set.size());
+        assertFalse(set.containsAny(other));
+
+        assertEquals(52, CardSet.deck().size());
+    }
+
+    public void testIteration()
+    {
+        Hand hand = new Hand(Card.HEARTS_K, Card.CLUBS_2, Card.SPADES_A, Card.DIAMONDS_7);
+        CardSet set = hand.toCardSet();
+        assertEquals(hand.fingerprint(), set.getMask());
+
+        int last = -1;
+        int n = 0;
+        for (Card card : set)
+        {
+            assertTrue(card.getIndex() > last);
+            assertTrue(hand.containsCard(card));
+            last = card.getIndex();
+            n++;
+        }
+        assertEquals(4, n);
+
+        Hand copy = set.toHand();
+        assertEquals(4, copy.size());
+        assertEquals(hand.fingerprint(), copy.fingerprint());
+
+        int[] indexes = CardSet.toIndexes(set.getMask());
+        assertEquals(4, indexes.length);
+        assertEquals(Card.CLUBS_2.getIndex(), indexes[0]);
+        assertEquals(Card.SPADES_A.getIndex(), indexes[3]);
+        assertEquals(-1, set.nextIndex(Card.SPADES_A.getIndex() + 1));
+    }
+
+    public void testHand()
+    {
+        Hand hand = new Hand(Card.HEARTS_K, Card.CLUBS_2);
+        assertTrue(hand.containsCard(Card.HEARTS_K));
+        assertFalse(hand.containsCard(Card.SPADES_A.getIndex()));
+
+        // fingerprint follows changes to the hand
+        hand.addCard(Card.SPADES_A);
+        assertTrue(hand.containsCard(Card.SPADES_A.getIndex()));
+        hand.setCard(0, Card.DIAMONDS_3);
+        assertFalse(hand.containsCard(Card.HEARTS_K));
+        assertTrue(hand.containsAny(new Hand(Card.DIAMONDS_3, Card.CLUBS_4)));
+        assertFalse(hand.containsAny(new CardSet(Card.HEARTS_K.fingerprint())));
+        assertEquals(CardSet.mask(Card.DIAMONDS_3.getIndex(), Card.CLUBS_2.getIndex(), Card.SPADES_A.getIndex()),
+                     hand.fingerprint());
+    }
+
+    public void testDeck()
+    {
+        Deck deck = new Deck(true, 99);
+        deck.removeCards(new Hand(Card.SPADES_A, Card.HEARTS_A, Card.CLUBS_9));
+        assertEquals(49, deck.size());
+        CardSet left = new CardSet();
+        for (int i = 0; i < deck.size(); i++)
+        {
+            left.add(deck.getCard(i));
+        }
+        assertEquals(CardSet.DECK_MASK & ~CardSet.mask(Card.SPADES_A.getIndex(), Card.HEARTS_A.getIndex(), Card.CLUBS_9.getIndex()),
+                     left.getMask());
+    }
+}
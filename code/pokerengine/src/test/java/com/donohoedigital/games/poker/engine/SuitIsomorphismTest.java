@@ -0,0 +1,118 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.engine;
+
+import junit.framework.*;
+
+import java.util.*;
+
+/**
+ * Test SuitIsomorphism
+ */
+public class SuitIsomorphismTest extends TestCase
+{
+    public void testCounts()
+    {
+        assertEquals(1755, countCanonical(3));
+        assertEquals(16432, countCanonical(4));
+        assertEquals(134459, countCanonical(5));
+    }
+
+    private int countCanonical(int nCards)
+    {
+        Set<Long> canonical = new HashSet<Long>();
+        addCanonical(canonical, 0, nCards, 0L);
+        return canonical.size();
+    }
+
+    private void addCanonical(Set<Long> canonical, int start, int nLeft, long cards)
+    {
+        if (nLeft == 0)
+        {
+            long result = SuitIsomorphism.getCanonical(cards);
+            assertTrue(SuitIsomorphism.isCanonical(result));
+            canonical.add(result);
+            return;
+        }
+        for (int i = start; i <= 52 - nLeft; i++)
+        {
+            addCanonical(canonical, i + 1, nLeft - 1, cards | (1L << i));
+        }
+    }
+
+    public void testPermutations()
+    {
+        Set<String> seen = new HashSet<String>();
+        for (int p = 0; p < SuitIsomorphism.NUM_PERMUTATIONS; p++)
+        {
+            SuitIsomorphism.Permutation perm = SuitIsomorphism.getPermutationAt(p);
+            assertEquals(p, perm.getIndex());
+            assertTrue(seen.add(perm.toString().substring(perm.toString().indexOf('['))));
+
+            // card, mask and Card mapping agree; inverse undoes
+            SuitIsomorphism.Permutation inverse = perm.inverse();
+            for (int i = 0; i < 52; i++)
+            {
+                int mapped = perm.apply(i);
+                assertEquals(i >> 2, mapped >> 2);
+                assertEquals(perm.getSuit(i & 3), mapped & 3);
+                assertEquals(1L << mapped, perm.apply(1L << i));
+                assertSame(Card.getCard(mapped), perm.apply(Card.getCard(i)));
+                assertEquals(i, inverse.apply(mapped));
+            }
+        }
+        assertTrue(SuitIsomorphism.IDENTITY.isIdentity());
+        assertSame(SuitIsomorphism.IDENTITY, SuitIsomorphism.IDENTITY.inverse());
+    }
+
+    public void testHoleAndBoard()
+    {
+        // suits swapped on board and hole map to same canonical form
+        long board1 = new Hand(Card.HEARTS_A, Card.SPADES_7, Card.SPADES_2).fingerprint();
+        long hole1 = new Hand(Card.HEARTS_K, Card.CLUBS_K).fingerprint();
+        long board2 = new Hand(Card.CLUBS_A, Card.DIAMONDS_7, Card.DIAMONDS_2).fingerprint();
+        long hole2 = new Hand(Card.CLUBS_K, Card.SPADES_K).fingerprint();
+
+        SuitIsomorphism.Permutation perm1 = SuitIsomorphism.getPermutation(hole1, board1);
+        SuitIsomorphism.Permutation perm2 = SuitIsomorphism.getPermutation(hole2, board2);
+        assertEquals(perm1.apply(board1), perm2.apply(board2));
+        assertEquals(perm1.apply(hole1), perm2.apply(hole2));
+        assertEquals(SuitIsomorphism.getCanonical(board1), perm1.apply(board1));
+
+        // different hole (suited to board flush draw or not) stays different
+        long hole3 = new Hand(Card.SPADES_K, Card.CLUBS_K).fingerprint();
+        SuitIsomorphism.Permutation perm3 = SuitIsomorphism.getPermutation(hole3, board1);
+        assertEquals(perm1.apply(board1), perm3.apply(board1));
+        assertFalse(perm1.apply(hole1) == perm3.apply(hole3));
+    }
+}
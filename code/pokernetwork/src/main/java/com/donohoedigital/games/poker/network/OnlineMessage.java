@@ -90,6 +90,7 @@ public class OnlineMessage
     public static final int CAT_CHAT_HELLO = 20030;
     public static final int CAT_CHAT_ADMIN = 20031;
     public static final int CAT_WAN_PROFILE_SYNC_PASSWORD = 20032;
+    public static final int CAT_RESYNC = 20033;
 
     // server to client messages
     public static final int CAT_CLIENT_JOIN = 21001;
@@ -164,6 +165,8 @@ public class OnlineMessage
                 return "change-table";
             case CAT_ALIVE:
                 return "alive";
+            case CAT_RESYNC:
+                return "resync id " + getFromPlayerID();
 
             case CAT_CLIENT_JOIN:
                 return "client-join";
@@ -218,12 +221,16 @@ public class OnlineMessage
     public static final String ON_WAN_GAME = "game";
     public static final String ON_WAN_GAMES = "games";
     public static final String ON_WAN_HISTORIES = "histories";
+    public static final String ON_WAN_LIST_VERSION = "listversion";
+    public static final String ON_WAN_LIST_NOT_MODIFIED = "notmodified";
     public static final String ON_PLAYER_SETTINGS = "settings";
     public static final String ON_DEMO = "demo";
     public static final String ON_ONLINE_ACTIVATED = "online";
     public static final String ON_CONNECTED = "connected";
     public static final String ON_PAUSE_CLOCK = "pauseclock";
     public static final String ON_RECONNECT = "reconnect";
+    public static final String ON_DELTA_SEQ = "dseq";
+    public static final String ON_DELTA_BASE = "dbase";
 
     // no table/player set
     public static final int NO_TABLE = -1;
@@ -306,11 +313,42 @@ public class OnlineMessage
         data_.addData(data);
     }
 
+    public void setGameData(byte[] data)
+    {
+        data_.addData(data);
+    }
+
     public byte[] getGameData()
     {
         return data_.getData();
     }
 
+    /**
+     * sequence of a delta encoded game update (0 if game data isn't a delta)
+     */
+    public int getDeltaSequence()
+    {
+        return data_.getInteger(ON_DELTA_SEQ, 0);
+    }
+
+    public void setDeltaSequence(int n)
+    {
+        data_.setInteger(ON_DELTA_SEQ, n);
+    }
+
+    /**
+     * sequence of update a delta is based on (0 for a keyframe)
+     */
+    public int getDeltaBase()
+    {
+        return data_.getInteger(ON_DELTA_BASE, 0);
+    }
+
+    public void setDeltaBase(int n)
+    {
+        data_.setInteger(ON_DELTA_BASE, n);
+    }
+
     public String getKey()
     {
         return data_.getKey();
@@ -715,6 +753,32 @@ public class OnlineMessage
         data_.setList(ON_WAN_GAMES, l);
     }
 
+    /**
+     * version of the WAN game list returned (or, in a request, the version the client has)
+     */
+    public long getWanListVersion()
+    {
+        return data_.getLong(ON_WAN_LIST_VERSION, 0);
+    }
+
+    public void setWanListVersion(long version)
+    {
+        data_.setLong(ON_WAN_LIST_VERSION, version);
+    }
+
+    /**
+     * WAN game list is unchanged from version sent in request, so no games returned
+     */
+    public boolean isWanListNotModified()
+    {
+        return data_.getBoolean(ON_WAN_LIST_NOT_MODIFIED, false);
+    }
+
+    public void setWanListNotModified(boolean b)
+    {
+        data_.setBoolean(ON_WAN_LIST_NOT_MODIFIED, b ? Boolean.TRUE : Boolean.FALSE);
+    }
+
     public DMArrayList<? extends DataMarshal> getWanHistories()
     {
         return (DMArrayList<? extends DataMarshal>) data_.getList(ON_WAN_HISTORIES);
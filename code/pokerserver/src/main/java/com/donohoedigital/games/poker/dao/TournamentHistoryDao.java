@@ -62,4 +62,8 @@ public interface TournamentHistoryDao extends BaseDao<TournamentHistory, Long>
 
     LeaderboardSummaryList getLeaderboard(Integer count, int offset, int pagesize, boolean sortByROI,
                                           int games_limit, String nameSearch, Date begin, Date end);
+
+    void updateLeaderboard(OnlineGame game, boolean add);
+
+    int rebuildLeaderboard();
 }
\ No newline at end of file
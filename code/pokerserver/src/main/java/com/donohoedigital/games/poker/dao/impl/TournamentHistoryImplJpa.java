@@ -177,29 +177,43 @@ public class TournamentHistoryImplJpa extends JpaBaseDao<TournamentHistory, Long
         return list;
     }
 
+    ////
+    //// Leaderboard
+    ////
+    //// Leaderboard queries read wan_leaderboard, which holds per-profile, per-day
+    //// totals of ended online/ai histories, instead of grouping all of wan_history.
+    //// Only partial days at either end of the requested range (e.g., a begin date
+    //// with a time other than midnight) are read from wan_history.  The summary is
+    //// maintained via updateLeaderboard() whenever a game's histories change.
+    ////
+
+    // histories that count towards the leaderboard
+    private static final String LEADERBOARD_HISTORIES =
+            "whi_player_type in (:type1, :type2) AND whi_is_ended = TRUE ";
+
+    // columns summed into wan_leaderboard
+    private static final String LEADERBOARD_INSERT =
+            "INSERT INTO wan_leaderboard (wlb_profile_id, wlb_day, wlb_games_played, wlb_rank_1_total, " +
+            "                             wlb_buy_in, wlb_total_rebuy, wlb_total_add_on, wlb_prize) ";
+
     public int getLeaderboardCount(int games_limit, String nameSearch, Date begin, Date end)
     {
         boolean empty = Utils.isEmpty(nameSearch);
+        LeaderboardRange range = new LeaderboardRange(begin, end);
 
         // use native query since JPA Query doesn't support subclause in FROM
         Query countQuery = entityManager.createNativeQuery(
                 "select count(*) from " +
-                "  (select count(1) " +
-                "   FROM wan_history, wan_profile " +
-                "   WHERE wan_history.whi_profile_id = wan_profile.wpr_id " +
-                "     AND whi_player_type in (:type1, :type2) " +
-                "     AND whi_is_ended = TRUE " +
+                "  (select 1 " +
+                "   FROM " + range.getSource() + ", wan_profile " +
+                "   WHERE lb.profile_id = wan_profile.wpr_id " +
                 "     AND wpr_is_retired = FALSE " +
-                "     AND whi_end_date >= :begin AND whi_end_date <= :end " +
                 (!empty ? " AND wpr_name like :name " : "") +
                 "   GROUP BY wpr_name " +
-                "   HAVING count(whi_profile_id) >= :game_limit" +
+                "   HAVING sum(lb.games) >= :game_limit" +
                 "  ) foo"
         );
-        countQuery.setParameter("type1", TournamentHistory.PLAYER_TYPE_ONLINE);
-        countQuery.setParameter("type2", TournamentHistory.PLAYER_TYPE_AI);
-        countQuery.setParameter("begin", begin);
-        countQuery.setParameter("end", end);
+        range.setParameters(countQuery);
         countQuery.setParameter("game_limit", (long) games_limit);
         if (!empty) countQuery.setParameter("name", DBUtils.sqlWildcard(nameSearch));
         BigInteger countResult = (BigInteger) countQuery.getSingleResult();
@@ -212,6 +226,7 @@ public class TournamentHistoryImplJpa extends JpaBaseDao<TournamentHistory, Long
                                                  String nameSearch, Date begin, Date end)
     {
         boolean empty = Utils.isEmpty(nameSearch);
+        LeaderboardRange range = new LeaderboardRange(begin, end);
 
         if (count == null)
         {
@@ -221,32 +236,26 @@ public class TournamentHistoryImplJpa extends JpaBaseDao<TournamentHistory, Long
         // user native query since a pain in the ass in JPA Query Language
         // note: need to join with wan_profile to get correct profile name (e.g., for AI players)
         Query query = entityManager.createNativeQuery(
-                "SELECT count(whi_profile_id) 'gamesplayed', " +
-                "       whi_profile_id, " +
+                "SELECT sum(lb.games) 'gamesplayed', " +
+                "       wpr_id, " +
                 "       wpr_name, \n" +
-                "       avg(whi_rank_1) 'rank1', \n" +
-                "       sum(whi_prize-(whi_buy_in+whi_total_rebuy+whi_total_add_on)) / \n" +
-                "           sum(whi_buy_in+whi_total_rebuy+whi_total_add_on)*100 'roi', \n" +
-                "       sum(whi_total_add_on), \n" +
-                "       sum(whi_total_rebuy), \n" +
-                "       sum(whi_buy_in),\n" +
-                "       sum(whi_prize) \n" +
-                "FROM wan_history, wan_profile\n" +
-                "WHERE wan_history.whi_profile_id = wan_profile.wpr_id \n" +
-                "  AND whi_player_type in (:type1, :type2) " +
-                "  AND whi_is_ended = TRUE " +
+                "       sum(lb.rank1) / sum(lb.games) 'rank1', \n" +
+                "       sum(lb.prize-(lb.buyin+lb.rebuy+lb.addon)) / \n" +
+                "           sum(lb.buyin+lb.rebuy+lb.addon)*100 'roi', \n" +
+                "       sum(lb.buyin), \n" +
+                "       sum(lb.addon), \n" +
+                "       sum(lb.rebuy),\n" +
+                "       sum(lb.prize) \n" +
+                "FROM " + range.getSource() + ", wan_profile\n" +
+                "WHERE lb.profile_id = wan_profile.wpr_id \n" +
                 "  AND wpr_is_retired = FALSE " +
-                "  AND whi_end_date >= :begin AND whi_end_date <= :end " +
                 (!empty ? " AND wpr_name like :name " : "") +
                 "GROUP BY wpr_name " +
-                "HAVING count(whi_profile_id) >= :game_limit " +
+                "HAVING sum(lb.games) >= :game_limit " +
                 (sortByROI ? "ORDER BY roi DESC, wpr_name" :
                  "ORDER BY rank1 DESC, wpr_name")
         );
-        query.setParameter("type1", TournamentHistory.PLAYER_TYPE_ONLINE);
-        query.setParameter("type2", TournamentHistory.PLAYER_TYPE_AI);
-        query.setParameter("begin", begin);
-        query.setParameter("end", end);
+        range.setParameters(query);
         query.setParameter("game_limit", (long) games_limit);
         if (!empty) query.setParameter("name", DBUtils.sqlWildcard(nameSearch));
         query.setFirstResult(offset);
@@ -263,7 +272,7 @@ public class TournamentHistoryImplJpa extends JpaBaseDao<TournamentHistory, Long
         {
             LeaderboardSummary sum = new LeaderboardSummary();
             sum.setGamesPlayed(((Number) a[0]).intValue());
-            sum.setProfileId((Integer) a[1]);
+            sum.setProfileId(((Number) a[1]).longValue());
             sum.setPlayerName((String) a[2]);
             sum.setDdr1(((Number) a[3]).intValue());
             // ignore roi a[4]
@@ -284,4 +293,147 @@ public class TournamentHistoryImplJpa extends JpaBaseDao<TournamentHistory, Long
 
         return list;
     }
+
+    /**
+     * Add (or remove) a game's ended histories to (from) the leaderboard summary.
+     * Call after saving or before deleting a game's histories.
+     */
+    public void updateLeaderboard(OnlineGame game, boolean add)
+    {
+        String sign = add ? "" : "-";
+
+        Query query = entityManager.createNativeQuery(
+                LEADERBOARD_INSERT +
+                "SELECT whi_profile_id, DATE(whi_end_date), " +
+                sign + "count(*), " + sign + "sum(whi_rank_1), " +
+                sign + "sum(whi_buy_in), " + sign + "sum(whi_total_rebuy), " +
+                sign + "sum(whi_total_add_on), " + sign + "sum(whi_prize) " +
+                "FROM wan_history " +
+                "WHERE whi_game_id = :id AND " + LEADERBOARD_HISTORIES +
+                "GROUP BY whi_profile_id, DATE(whi_end_date) " +
+                "ON DUPLICATE KEY UPDATE " +
+                "  wlb_games_played = wlb_games_played + VALUES(wlb_games_played), " +
+                "  wlb_rank_1_total = wlb_rank_1_total + VALUES(wlb_rank_1_total), " +
+                "  wlb_buy_in = wlb_buy_in + VALUES(wlb_buy_in), " +
+                "  wlb_total_rebuy = wlb_total_rebuy + VALUES(wlb_total_rebuy), " +
+                "  wlb_total_add_on = wlb_total_add_on + VALUES(wlb_total_add_on), " +
+                "  wlb_prize = wlb_prize + VALUES(wlb_prize)"
+        );
+        query.setParameter("id", game.getId());
+        setLeaderboardTypes(query);
+        int updated = query.executeUpdate();
+
+        // remove days no longer having any games
+        if (!add && updated > 0)
+        {
+            query = entityManager.createNativeQuery(
+                    "DELETE FROM wan_leaderboard " +
+                    "WHERE wlb_games_played = 0 " +
+                    "  AND wlb_profile_id IN (SELECT whi_profile_id FROM wan_history WHERE whi_game_id = :id)"
+            );
+            query.setParameter("id", game.getId());
+            query.executeUpdate();
+        }
+    }
+
+    /**
+     * Recreate the leaderboard summary from all of wan_history (e.g., after a purge)
+     *
+     * @return number of summary rows
+     */
+    public int rebuildLeaderboard()
+    {
+        entityManager.createNativeQuery("DELETE FROM wan_leaderboard").executeUpdate();
+
+        Query query = entityManager.createNativeQuery(
+                LEADERBOARD_INSERT +
+                "SELECT whi_profile_id, DATE(whi_end_date), count(*), sum(whi_rank_1), " +
+                "       sum(whi_buy_in), sum(whi_total_rebuy), sum(whi_total_add_on), sum(whi_prize) " +
+                "FROM wan_history " +
+                "WHERE " + LEADERBOARD_HISTORIES +
+                "GROUP BY whi_profile_id, DATE(whi_end_date)"
+        );
+        setLeaderboardTypes(query);
+        return query.executeUpdate();
+    }
+
+    private static void setLeaderboardTypes(Query query)
+    {
+        query.setParameter("type1", TournamentHistory.PLAYER_TYPE_ONLINE);
+        query.setParameter("type2", TournamentHistory.PLAYER_TYPE_AI);
+    }
+
+    /**
+     * Splits a date range into whole days, read from wan_leaderboard, and
+     * leftover partial days at the start and end, read from wan_history.
+     * Dates are stored to the second, so an end of 23:59:59 covers the whole day.
+     */
+    private static class LeaderboardRange
+    {
+        private final Date begin;
+        private final Date end;
+        private Date firstDay = null; // first whole day
+        private Date afterLastDay = null; // day after last whole day
+
+        LeaderboardRange(Date begin, Date end)
+        {
+            this.begin = begin;
+            this.end = end;
+
+            Date first = Utils.getDateZeroTime(begin);
+            if (first.before(begin)) first = Utils.getDateDays(first, 1);
+
+            Date after = Utils.getDateDays(Utils.getDateZeroTime(end), 1);
+            if (end.getTime() < after.getTime() - 1000) after = Utils.getDateZeroTime(end);
+
+            if (first.before(after))
+            {
+                firstDay = first;
+                afterLastDay = after;
+            }
+        }
+
+        /**
+         * sub-select (aliased "lb") of profile_id, games, rank1, buyin, rebuy, addon, prize
+         */
+        String getSource()
+        {
+            StringBuilder sb = new StringBuilder("(");
+            if (firstDay != null)
+            {
+                sb.append("SELECT wlb_profile_id profile_id, wlb_games_played games, wlb_rank_1_total rank1, " +
+                          "       wlb_buy_in buyin, wlb_total_rebuy rebuy, wlb_total_add_on addon, wlb_prize prize " +
+                          "FROM wan_leaderboard " +
+                          "WHERE wlb_day >= :first_day AND wlb_day < :after_last_day AND wlb_games_played > 0 " +
+                          "UNION ALL ");
+            }
+            sb.append("SELECT whi_profile_id profile_id, 1 games, whi_rank_1 rank1, " +
+                      "       whi_buy_in buyin, whi_total_rebuy rebuy, whi_total_add_on addon, whi_prize prize " +
+                      "FROM wan_history " +
+                      "WHERE " + LEADERBOARD_HISTORIES);
+            if (firstDay != null)
+            {
+                sb.append("AND ((whi_end_date >= :begin AND whi_end_date < :first_day) " +
+                          "  OR (whi_end_date >= :after_last_day AND whi_end_date <= :end)) ");
+            }
+            else
+            {
+                sb.append("AND whi_end_date >= :begin AND whi_end_date <= :end ");
+            }
+            sb.append(") lb");
+            return sb.toString();
+        }
+
+        void setParameters(Query query)
+        {
+            setLeaderboardTypes(query);
+            query.setParameter("begin", begin);
+            query.setParameter("end", end);
+            if (firstDay != null)
+            {
+                query.setParameter("first_day", firstDay);
+                query.setParameter("after_last_day", afterLastDay);
+            }
+        }
+    }
 }
@@ -66,7 +66,6 @@ import java.util.*;
 
 import static com.donohoedigital.config.DebugConfig.*;
 import static com.donohoedigital.games.config.EngineConstants.*;
-import static com.donohoedigital.games.poker.service.OnlineGameService.OrderByType.*;
 
 /**
  * @author donohoe
@@ -78,6 +77,8 @@ public class PokerServlet extends EngineServlet
     @Autowired
     private OnlineProfileService onlineProfileService;
 
+    private WanGameListCache wanGameListCache;
+
     /**
      * init from gameserver
      */
@@ -85,6 +86,9 @@ public class PokerServlet extends EngineServlet
     public void afterConfigInit()
     {
         super.afterConfigInit();
+        DDMessage.setBinaryVersion(PokerConstants.VERSION_BINARY_MESSAGES_ADDED);
+        wanGameListCache = new WanGameListCache(onlineGameService,
+                                                PropertyConfig.getIntegerProperty("settings.server.wanlist.maxage.seconds", 60));
     }
 
     /**
@@ -511,6 +515,7 @@ public class PokerServlet extends EngineServlet
         else
         {
             onlineGameService.saveOnlineGame(game);
+            wanGameListCache.invalidate();
 
             // Send an empty response.
             resMsg = new OnlineMessage(ddreceived.getCategory());
@@ -538,6 +543,10 @@ public class PokerServlet extends EngineServlet
         {
             //logger.info("Did not update: " + ddreceived);
         }
+        else
+        {
+            wanGameListCache.invalidate();
+        }
 
         // Send an empty response.
         OnlineMessage resMsg = new OnlineMessage(ddreceived.getCategory());
@@ -567,6 +576,10 @@ public class PokerServlet extends EngineServlet
         {
             logger.error("Unable to save ended game because it didn't exist in database: " + game + ";   histories:  " + histories);
         }
+        else
+        {
+            wanGameListCache.invalidate();
+        }
 
         // Send an empty response.
         OnlineMessage resMsg = new OnlineMessage(ddreceived.getCategory());
@@ -583,6 +596,7 @@ public class PokerServlet extends EngineServlet
 
         // Delete from the database.
         onlineGameService.deleteOnlineGame(game);
+        wanGameListCache.invalidate();
 
         // Send an empty response.
         OnlineMessage resMsg = new OnlineMessage(ddreceived.getCategory());
@@ -590,7 +604,8 @@ public class PokerServlet extends EngineServlet
     }
 
     /**
-     * Get a list of available WAN games.
+     * Get a list of available WAN games.  Games are served from an in-memory snapshot
+     * which is invalidated by the add/update/start/stop/end/remove messages above.
      */
     private DDMessage getWanGames(DDMessage ddreceived)
     {
@@ -619,29 +634,8 @@ public class PokerServlet extends EngineServlet
             }
         }
 
-        // Select from the database.
-        int nMode = reqMsg.getMode();
-        Integer[] modes;
-
-        // in 2.5, if we see combo mode, treat accordingly
-        if (nMode == OnlineGame.FETCH_MODE_REG_PLAY)
-        {
-            modes = new Integer[]{OnlineGame.MODE_REG, OnlineGame.MODE_PLAY};
-        }
-        // pre 2.5 - passed down a single mode
-        else
-        {
-            modes = new Integer[]{nMode};
-        }
-
-        // get games
-        OnlineGameList clients = onlineGameService.getOnlineGames(null, reqMsg.getOffset(), reqMsg.getCount(),
-                                                                  modes, null, null, null, mode);
-        DMArrayList<DMTypedHashMap> games = clients.getAsDMList();
-
-        // Return the list
-        resMsg.setCount(clients.getTotalSize());
-        resMsg.setWanGames(games);
+        // get games from snapshot
+        wanGameListCache.getGames(reqMsg, resMsg);
 
         return resMsg.getData();
     }
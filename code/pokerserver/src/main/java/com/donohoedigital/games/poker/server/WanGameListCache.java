@@ -0,0 +1,264 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.server;
+
+import com.donohoedigital.comms.*;
+import com.donohoedigital.games.poker.model.*;
+import com.donohoedigital.games.poker.model.util.*;
+import com.donohoedigital.games.poker.network.*;
+import com.donohoedigital.games.poker.service.*;
+import org.apache.log4j.*;
+
+import java.util.*;
+
+/**
+ * Versioned, in-memory snapshot of the WAN game lists clients poll from the lobby.
+ * Each page (fetch mode, offset, count) is read from the database once and kept,
+ * with its games already marshalled, until the list changes.  Callers must
+ * {@link #invalidate()} when a game is added, updated, started, stopped, ended or
+ * removed, which also changes the version so clients holding an older page
+ * know to refetch it.  Pages also expire after a max age so changes made outside
+ * this server (e.g., by {@link OnlineGamePurger}) are eventually picked up.
+ */
+class WanGameListCache
+{
+    private static Logger logger = Logger.getLogger(WanGameListCache.class);
+
+    private static final int MAX_PAGES = 100;
+
+    private final OnlineGameService service;
+    private final long maxAgeMillis;
+
+    // pages for current version, least recently used first
+    private final Map<String, Page> pages = new LinkedHashMap<String, Page>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Page> eldest)
+        {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    // start from current time so versions differ across server restarts
+    private long version = System.currentTimeMillis();
+    private long versionCreated = System.currentTimeMillis();
+
+    // stats
+    private long hits;
+    private long loads;
+
+    /**
+     * Create cache reading from given service, with pages expiring after maxAgeSeconds
+     */
+    WanGameListCache(OnlineGameService service, int maxAgeSeconds)
+    {
+        this.service = service;
+        this.maxAgeMillis = maxAgeSeconds * 1000L;
+    }
+
+    /**
+     * Discard all pages and change the version
+     */
+    synchronized void invalidate()
+    {
+        version++;
+        versionCreated = System.currentTimeMillis();
+        pages.clear();
+    }
+
+    /**
+     * Get the given page of games, loading it if not cached.  Concurrent requests
+     * for a page not yet loaded wait for a single database query.
+     *
+     * @param fetchMode an {@link OnlineGame} mode or {@link OnlineGame#FETCH_MODE_REG_PLAY}
+     */
+    Page getPage(int fetchMode, int offset, int count)
+    {
+        String key = fetchMode + ":" + offset + ":" + count;
+        Page page;
+        synchronized (this)
+        {
+            if (System.currentTimeMillis() - versionCreated > maxAgeMillis)
+            {
+                invalidate();
+            }
+
+            page = pages.get(key);
+            if (page == null)
+            {
+                page = new Page(version, fetchMode, offset, count);
+                pages.put(key, page);
+            }
+        }
+        page.load();
+        return page;
+    }
+
+    /**
+     * Fill in reply to a request for a page of games.  The games are only returned
+     * if changed since the version the client has (older clients don't send a version).
+     */
+    void getGames(OnlineMessage reqMsg, OnlineMessage resMsg)
+    {
+        Page page = getPage(reqMsg.getMode(), reqMsg.getOffset(), reqMsg.getCount());
+        resMsg.setCount(page.getTotalSize());
+        resMsg.setWanListVersion(page.getVersion());
+        if (page.getVersion() == reqMsg.getWanListVersion())
+        {
+            resMsg.setWanListNotModified(true);
+        }
+        else
+        {
+            resMsg.setWanGames(page.getGames());
+        }
+    }
+
+    /**
+     * Number of pages read from the database
+     */
+    synchronized long getLoads()
+    {
+        return loads;
+    }
+
+    /**
+     * stats for logging
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return "WanGameListCache version=" + version + " pages=" + pages.size() +
+               " hits=" + hits + " loads=" + loads;
+    }
+
+    /**
+     * A page of games in a particular version of the list
+     */
+    class Page
+    {
+        private final long pageVersion;
+        private final int fetchMode;
+        private final int offset;
+        private final int count;
+
+        private MarshalledList games;
+        private int totalSize;
+
+        private Page(long pageVersion, int fetchMode, int offset, int count)
+        {
+            this.pageVersion = pageVersion;
+            this.fetchMode = fetchMode;
+            this.offset = offset;
+            this.count = count;
+        }
+
+        /**
+         * query games if not already loaded (if an error occurs, the next
+         * request tries again)
+         */
+        private synchronized void load()
+        {
+            if (games != null)
+            {
+                synchronized (WanGameListCache.this)
+                {
+                    hits++;
+                }
+                return;
+            }
+
+            Integer[] modes;
+
+            // in 2.5, if we see combo mode, treat accordingly
+            if (fetchMode == OnlineGame.FETCH_MODE_REG_PLAY)
+            {
+                modes = new Integer[]{OnlineGame.MODE_REG, OnlineGame.MODE_PLAY};
+            }
+            // pre 2.5 - passed down a single mode
+            else
+            {
+                modes = new Integer[]{fetchMode};
+            }
+
+            OnlineGameList list = service.getOnlineGames(null, offset, count, modes, null, null, null,
+                                                         OnlineGameService.OrderByType.mode);
+            totalSize = list.getTotalSize();
+            games = new MarshalledList(list.getAsDMList());
+
+            synchronized (WanGameListCache.this)
+            {
+                loads++;
+                if (logger.isDebugEnabled()) logger.debug("Loaded page " + fetchMode + ":" + offset + ":" + count +
+                                                          " version " + pageVersion + ", " + games.size() + " games");
+            }
+        }
+
+        long getVersion()
+        {
+            return pageVersion;
+        }
+
+        synchronized int getTotalSize()
+        {
+            return totalSize;
+        }
+
+        /**
+         * games in this page - must not be modified
+         */
+        synchronized DMArrayList<DMTypedHashMap> getGames()
+        {
+            return games;
+        }
+    }
+
+    /**
+     * List which marshals its contents once, sent to clients as a regular DMArrayList
+     */
+    private static class MarshalledList extends DMArrayList<DMTypedHashMap>
+    {
+        private String marshalled;
+
+        private MarshalledList(DMArrayList<DMTypedHashMap> games)
+        {
+            super(games);
+        }
+
+        @Override
+        public synchronized String marshal(MsgState state)
+        {
+            if (marshalled == null) marshalled = super.marshal(state);
+            return marshalled;
+        }
+    }
+}
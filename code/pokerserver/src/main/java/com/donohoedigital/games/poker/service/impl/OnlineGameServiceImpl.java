@@ -142,6 +142,7 @@ public class OnlineGameServiceImpl implements OnlineGameService
         OnlineGame exist = gameDao.getByKeyAndUrl(game.getLicenseKey(), game.getUrl());
         if (exist != null)
         {
+            histDao.updateLeaderboard(exist, false);
             gameDao.delete(exist);
             gameDao.flush(); // flush otherwise we'll get a db constraint violation
         }
@@ -187,6 +188,7 @@ public class OnlineGameServiceImpl implements OnlineGameService
         OnlineGame exist = gameDao.getByKeyAndUrl(game.getLicenseKey(), game.getUrl());
         if (exist != null)
         {
+            histDao.updateLeaderboard(exist, false);
             gameDao.delete(exist);
         }
     }
@@ -194,7 +196,11 @@ public class OnlineGameServiceImpl implements OnlineGameService
     @Transactional
     public int purgeGames(Date date, Integer mode)
     {
-        return gameDao.purge(date, mode);
+        int purged = gameDao.purge(date, mode);
+
+        // bulk delete bypasses leaderboard maintenance, so recreate it
+        if (purged > 0) histDao.rebuildLeaderboard();
+        return purged;
     }
 
     ////
@@ -208,7 +214,8 @@ public class OnlineGameServiceImpl implements OnlineGameService
         // calculate rank
         histories.calculateInfo(game.getMode() == OnlineGame.MODE_END, false);
 
-        // remove existing histories
+        // remove existing histories (and their leaderboard totals)
+        histDao.updateLeaderboard(game, false);
         histDao.deleteAllForGame(game);
 
         // insert each
@@ -261,5 +268,9 @@ public class OnlineGameServiceImpl implements OnlineGameService
 
             histDao.save(history);
         }
+
+        // add new histories to leaderboard totals (flush so native update sees them)
+        histDao.flush();
+        histDao.updateLeaderboard(game, true);
     }
 }
@@ -39,6 +39,8 @@ import com.donohoedigital.games.poker.dao.TournamentHistoryDao;
 import com.donohoedigital.games.poker.model.OnlineGame;
 import com.donohoedigital.games.poker.model.OnlineProfile;
 import com.donohoedigital.games.poker.model.TournamentHistory;
+import com.donohoedigital.games.poker.model.LeaderboardSummary;
+import com.donohoedigital.games.poker.model.util.LeaderboardSummaryList;
 import com.donohoedigital.games.poker.model.util.TournamentHistoryList;
 import org.apache.log4j.Logger;
 import org.junit.Test;
@@ -49,6 +51,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 
@@ -345,4 +348,65 @@ public class TournamentHistoryTest
         int count = histDao.getLeaderboardCount(games_limit, null, begin, end);
         histDao.getLeaderboard(count, 0, 20, true, games_limit, null, begin, end);
     }
-}
\ No newline at end of file
+
+    @Test
+    @Rollback
+    public void testLeaderboardSummary()
+    {
+        OnlineProfile profile = PokerTestData.createOnlineProfile("LeaderboardSummary");
+        OnlineGame game = PokerTestData.createOnlineGame(profile.getName(), 1, "XXX-200");
+        game.setMode(OnlineGame.MODE_END);
+        profileDao.save(profile);
+        gameDao.save(game);
+
+        // dates well in the past so other data doesn't interfere
+        Date day1 = getDate(2001, 1, 3, 0);
+        Date[] ends = {getDate(2001, 1, 3, 12), getDate(2001, 1, 3, 12),
+                       getDate(2001, 1, 3, 18), getDate(2001, 1, 4, 10)};
+        for (Date endDate : ends)
+        {
+            TournamentHistory hist = PokerTestData.createTournamentHistory(game, profile, profile.getName());
+            hist.setEndDate(endDate);
+            histDao.save(hist);
+        }
+        histDao.flush();
+        histDao.updateLeaderboard(game, true);
+
+        // whole days - all from summary
+        Date end = Utils.getDateEndOfDay(Utils.getDateDays(day1, 1));
+        assertEquals(1, histDao.getLeaderboardCount(1, profile.getName(), day1, end));
+        LeaderboardSummaryList list = histDao.getLeaderboard(null, 0, 10, true, 1, profile.getName(), day1, end);
+        assertEquals(1, list.size());
+        LeaderboardSummary sum = list.get(0);
+        assertEquals(4, sum.getGamesPlayed());
+        assertEquals(profile.getId().longValue(), sum.getProfileId());
+        assertEquals(4 * 10000, sum.getTotalBuyin());
+        assertEquals(4 * 25000, sum.getTotalAddon());
+        assertEquals(4 * 5000, sum.getTotalRebuys());
+        assertEquals(4 * 100000, sum.getTotalPrizes());
+
+        // partial first day (13:00 on) - 18:00 game from history, day 2 from summary
+        list = histDao.getLeaderboard(null, 0, 10, true, 1, profile.getName(), getDate(2001, 1, 3, 13), end);
+        assertEquals(2, list.get(0).getGamesPlayed());
+
+        // partial day only
+        list = histDao.getLeaderboard(null, 0, 10, true, 1, profile.getName(), day1, getDate(2001, 1, 3, 15));
+        assertEquals(2, list.get(0).getGamesPlayed());
+
+        // game limit
+        assertEquals(0, histDao.getLeaderboardCount(5, profile.getName(), day1, end));
+
+        // removing the game's histories removes them from the summary
+        histDao.updateLeaderboard(game, false);
+        assertEquals(0, histDao.getLeaderboardCount(1, profile.getName(), day1, Utils.getDateDays(day1, 1)));
+        assertEquals(1, histDao.getLeaderboardCount(1, profile.getName(), getDate(2001, 1, 3, 13), end));
+    }
+
+    private static Date getDate(int year, int month, int day, int hour)
+    {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month, day, hour, 0);
+        return cal.getTime();
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.games.poker.server;
+
+import com.donohoedigital.db.PagedList;
+import com.donohoedigital.games.poker.model.HostSummary;
+import com.donohoedigital.games.poker.model.OnlineGame;
+import com.donohoedigital.games.poker.model.util.OnlineGameList;
+import com.donohoedigital.games.poker.model.util.TournamentHistoryList;
+import com.donohoedigital.games.poker.network.OnlineMessage;
+import com.donohoedigital.games.poker.service.OnlineGameService;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test WanGameListCache versions, not-modified replies, expiry and shared loads
+ * (uses a stub OnlineGameService, no database)
+ */
+public class WanGameListCacheTest
+{
+    private final StubService service = new StubService();
+
+    @Test
+    public void testCached()
+    {
+        WanGameListCache cache = new WanGameListCache(service, 60);
+
+        OnlineMessage res = getGames(cache, OnlineGame.MODE_REG, 0);
+        assertFalse(res.isWanListNotModified());
+        assertEquals(StubService.NUM_GAMES, res.getWanGames().size());
+        assertEquals(StubService.TOTAL_SIZE, res.getCount());
+        assertEquals(1, service.loads.get());
+
+        // same page from memory, other pages loaded separately
+        assertEquals(res.getWanListVersion(), getGames(cache, OnlineGame.MODE_REG, 0).getWanListVersion());
+        assertEquals(1, service.loads.get());
+        getGames(cache, OnlineGame.MODE_PLAY, 0);
+        assertEquals(2, service.loads.get());
+        assertEquals(2, cache.getLoads());
+    }
+
+    @Test
+    public void testNotModified()
+    {
+        WanGameListCache cache = new WanGameListCache(service, 60);
+        long version = getGames(cache, OnlineGame.MODE_REG, 0).getWanListVersion();
+
+        // client has current version - no games sent
+        OnlineMessage res = getGames(cache, OnlineGame.MODE_REG, version);
+        assertTrue(res.isWanListNotModified());
+        assertNull(res.getWanGames());
+        assertEquals(version, res.getWanListVersion());
+        assertEquals(StubService.TOTAL_SIZE, res.getCount());
+
+        // older version - games sent
+        res = getGames(cache, OnlineGame.MODE_REG, version - 1);
+        assertFalse(res.isWanListNotModified());
+        assertEquals(StubService.NUM_GAMES, res.getWanGames().size());
+    }
+
+    @Test
+    public void testInvalidate()
+    {
+        WanGameListCache cache = new WanGameListCache(service, 60);
+        long version = getGames(cache, OnlineGame.MODE_REG, 0).getWanListVersion();
+
+        cache.invalidate();
+
+        // new version, reloaded, sent to client holding old version
+        OnlineMessage res = getGames(cache, OnlineGame.MODE_REG, version);
+        assertTrue(res.getWanListVersion() > version);
+        assertFalse(res.isWanListNotModified());
+        assertEquals(StubService.NUM_GAMES, res.getWanGames().size());
+        assertEquals(2, service.loads.get());
+    }
+
+    @Test
+    public void testMaxAge() throws InterruptedException
+    {
+        // expires right away
+        WanGameListCache cache = new WanGameListCache(service, 0);
+        long version = getGames(cache, OnlineGame.MODE_REG, 0).getWanListVersion();
+        Thread.sleep(5);
+
+        OnlineMessage res = getGames(cache, OnlineGame.MODE_REG, version);
+        assertTrue(res.getWanListVersion() > version);
+        assertFalse(res.isWanListNotModified());
+        assertEquals(2, service.loads.get());
+    }
+
+    @Test
+    public void testSharedLoad() throws InterruptedException
+    {
+        final WanGameListCache cache = new WanGameListCache(service, 60);
+        service.block = new CountDownLatch(1);
+
+        final int nThreads = 8;
+        final AtomicInteger nDone = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < nThreads; i++)
+        {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    if (getGames(cache, OnlineGame.MODE_REG, 0).getWanGames().size() == StubService.NUM_GAMES)
+                    {
+                        nDone.incrementAndGet();
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+
+        // first thread is loading, wait for the rest to be waiting for it
+        assertTrue(service.loading.await(5, TimeUnit.SECONDS));
+        long stop = System.currentTimeMillis() + 5000;
+        while (countBlocked(threads) < nThreads - 1 && System.currentTimeMillis() < stop)
+        {
+            Thread.sleep(5);
+        }
+        assertEquals(nThreads - 1, countBlocked(threads));
+
+        service.block.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join(5000);
+        }
+        assertEquals(nThreads, nDone.get());
+        assertEquals(1, service.loads.get());
+    }
+
+    private static int countBlocked(List<Thread> threads)
+    {
+        int n = 0;
+        for (Thread thread : threads)
+        {
+            if (thread.getState() == Thread.State.BLOCKED) n++;
+        }
+        return n;
+    }
+
+    private static OnlineMessage getGames(WanGameListCache cache, int mode, long clientVersion)
+    {
+        OnlineMessage req = new OnlineMessage(OnlineMessage.CAT_WAN_GAME_LIST);
+        req.setMode(mode);
+        req.setOffset(0);
+        req.setCount(10);
+        if (clientVersion != 0) req.setWanListVersion(clientVersion);
+
+        OnlineMessage res = new OnlineMessage(OnlineMessage.CAT_WAN_GAME_LIST);
+        cache.getGames(req, res);
+        return res;
+    }
+
+    /**
+     * Returns a few games for any query, counting queries
+     */
+    private static class StubService implements OnlineGameService
+    {
+        static final int NUM_GAMES = 3;
+        static final int TOTAL_SIZE = 25;
+
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        volatile CountDownLatch block;
+
+        public OnlineGameList getOnlineGames(Integer count, int offset, int pagesize, Integer[] modes,
+                                             String nameSearch, Date begin, Date end, OrderByType orderByType)
+        {
+            loads.incrementAndGet();
+            loading.countDown();
+            if (block != null)
+            {
+                try
+                {
+                    block.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            OnlineGameList list = new OnlineGameList();
+            for (int i = 0; i < NUM_GAMES; i++)
+            {
+                OnlineGame game = new OnlineGame();
+                game.setHostPlayer("host" + i);
+                game.setMode(modes[0]);
+                game.setUrl("poker://192.1.1.100:11885/n-" + i + "/pass");
+                list.add(game);
+            }
+            list.setTotalSize(TOTAL_SIZE);
+            return list;
+        }
+
+        public int getOnlineGamesCount(Integer[] modes, String nameSearch, Date begin, Date end)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public OnlineGameList getOnlineGamesAndHistoriesForDay(Integer[] modes, Date begin, Date end)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public OnlineGame getOnlineGameById(Long id)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public OnlineGame getOnlineGameByTournamentHistoryId(Long id)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public int getHostSummaryCount(String nameSearch, Date begin, Date end)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public PagedList<HostSummary> getHostSummary(Integer count, int offset, int pagesize, String nameSearch, Date begin, Date end)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public void saveOnlineGame(OnlineGame game)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public OnlineGame updateOnlineGame(OnlineGame game)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public OnlineGame updateOnlineGame(OnlineGame game, TournamentHistoryList list)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public void deleteOnlineGame(OnlineGame game)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public int purgeGames(Date date, Integer mode)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -85,6 +85,15 @@ public class Peer2PeerSocketThread extends SocketThread
         return bKeepAlive_;
     }
     
+    /**
+     * Peer2PeerMessage reads its own format from the channel
+     */
+    @Override
+    protected boolean isSelectorReadSupported()
+    {
+        return false;
+    }
+
     /**
      * Handle an exception before we get to processing a valid message
      */
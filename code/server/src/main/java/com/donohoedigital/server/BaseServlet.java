@@ -189,6 +189,7 @@ public abstract class BaseServlet extends HttpServlet
 
         if (ret != null)
         {
+            ret.setBinary(DDMessage.isBinarySupported(received.getVersion()));
             returnMessage(response, ret);
         }
     }
@@ -271,6 +272,15 @@ public abstract class BaseServlet extends HttpServlet
         return new DDMessage();
     }
     
+    /**
+     * Can this servlet suspend responses (hold them open and answer
+     * later from another thread)?  Default is false.
+     */
+    public boolean isSuspendSupported()
+    {
+        return false;
+    }
+
     /**
      * Does this servlet expect dd messages in and out?
      * Default is true.
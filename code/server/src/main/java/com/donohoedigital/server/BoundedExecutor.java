@@ -0,0 +1,271 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.server;
+
+import com.donohoedigital.base.*;
+import org.apache.log4j.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Runs tasks on their own thread - a virtual thread when the JVM supports them
+ * (Java 21+), otherwise a pooled daemon thread - with a limit on how many run at
+ * once.  Tasks beyond the limit wait in a bounded queue and are picked up by the
+ * next task to finish; tasks beyond that are rejected.  Used by ThreadPool and
+ * WorkerPool in executor mode.
+ */
+public class BoundedExecutor
+{
+    static Logger logger = Logger.getLogger(BoundedExecutor.class);
+
+    private final String sName_;
+    private final ExecutorService executor_;
+    private final boolean bVirtual_;
+    private final int nMaxRunning_;
+    private final int nMaxQueued_;
+
+    // guarded by this
+    private final ArrayDeque<Runnable> queue_ = new ArrayDeque<Runnable>();
+    private int nRunning_ = 0;
+    private long nRejected_ = 0;
+    private long nCompleted_ = 0;
+    private boolean bShutdown_ = false;
+
+    /**
+     * Create executor running at most nMaxRunning tasks at once and queueing at most nMaxQueued.
+     * Threads are named sName-N.
+     */
+    public BoundedExecutor(String sName, int nMaxRunning, int nMaxQueued)
+    {
+        ApplicationError.assertTrue(nMaxRunning > 0, "Max running must be positive", nMaxRunning);
+        sName_ = sName;
+        nMaxRunning_ = nMaxRunning;
+        nMaxQueued_ = Math.max(nMaxQueued, 0);
+
+        ExecutorService virtual = newVirtualExecutor(sName);
+        bVirtual_ = virtual != null;
+        executor_ = bVirtual_ ? virtual : Executors.newCachedThreadPool(new NamedThreadFactory(sName));
+
+        logger.info(sName + " executor using " + (bVirtual_ ? "virtual" : "platform") + " threads, max running: " +
+                    nMaxRunning_ + ", max queued: " + nMaxQueued_);
+    }
+
+    /**
+     * Run task if under the limit, otherwise queue it.  Returns false
+     * if rejected because the queue is full (or we are shutdown).
+     */
+    public boolean execute(final Runnable task)
+    {
+        synchronized (this)
+        {
+            if (bShutdown_)
+            {
+                nRejected_++;
+                return false;
+            }
+            if (nRunning_ >= nMaxRunning_)
+            {
+                if (queue_.size() >= nMaxQueued_)
+                {
+                    nRejected_++;
+                    return false;
+                }
+                queue_.addLast(task);
+                return true;
+            }
+            nRunning_++;
+        }
+
+        try
+        {
+            executor_.execute(new Runnable()
+            {
+                public void run()
+                {
+                    runTasks(task);
+                }
+            });
+        }
+        catch (RejectedExecutionException ree)
+        {
+            synchronized (this)
+            {
+                nRunning_--;
+                nRejected_++;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Run task, then any queued tasks, on the current thread
+     */
+    private void runTasks(Runnable task)
+    {
+        while (task != null)
+        {
+            try
+            {
+                task.run();
+            }
+            catch (Throwable t)
+            {
+                logger.error(sName_ + " task exception: " + Utils.formatExceptionText(t));
+            }
+
+            synchronized (this)
+            {
+                nCompleted_++;
+                task = queue_.pollFirst();
+                if (task == null) nRunning_--;
+            }
+        }
+    }
+
+    /**
+     * Are tasks run on virtual threads?
+     */
+    public boolean isVirtual()
+    {
+        return bVirtual_;
+    }
+
+    /**
+     * Max tasks run at once
+     */
+    public int getMaxRunning()
+    {
+        return nMaxRunning_;
+    }
+
+    /**
+     * Number of tasks currently running
+     */
+    public synchronized int getInFlight()
+    {
+        return nRunning_;
+    }
+
+    /**
+     * Number of tasks waiting to run
+     */
+    public synchronized int getQueued()
+    {
+        return queue_.size();
+    }
+
+    /**
+     * Number of tasks rejected since creation
+     */
+    public synchronized long getRejected()
+    {
+        return nRejected_;
+    }
+
+    /**
+     * Number of tasks completed since creation
+     */
+    public synchronized long getCompleted()
+    {
+        return nCompleted_;
+    }
+
+    /**
+     * Stop accepting tasks and drop queued ones; running tasks are left to finish
+     */
+    public void shutdown()
+    {
+        synchronized (this)
+        {
+            bShutdown_ = true;
+            queue_.clear();
+        }
+        executor_.shutdown();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return sName_ + " in-flight: " + nRunning_ + ", queued: " + queue_.size() + ", rejected: " + nRejected_;
+    }
+
+    /**
+     * Thread-per-task executor using named virtual threads, null if
+     * the JVM doesn't support them.  Reflection since we build for Java 8.
+     */
+    private static ExecutorService newVirtualExecutor(String sName)
+    {
+        try
+        {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, sName + '-', 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        }
+        catch (NoSuchMethodException | ClassNotFoundException e)
+        {
+            return null;
+        }
+        catch (IllegalAccessException | InvocationTargetException e)
+        {
+            logger.warn("Unable to create virtual thread executor: " + Utils.formatExceptionText(e));
+            return null;
+        }
+    }
+
+    /**
+     * daemon threads named sName-N
+     */
+    private static class NamedThreadFactory implements ThreadFactory
+    {
+        private final String sName;
+        private final AtomicInteger nCount = new AtomicInteger();
+
+        NamedThreadFactory(String sName)
+        {
+            this.sName = sName;
+        }
+
+        public Thread newThread(Runnable r)
+        {
+            Thread thread = new Thread(r, sName + '-' + nCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
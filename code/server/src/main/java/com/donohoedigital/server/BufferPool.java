@@ -0,0 +1,178 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.server;
+
+import java.nio.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Shared pool of direct ByteBuffers used for reading requests.  Buffers come in a
+ * few size classes (4K to 1M); a request for more than the largest class gets
+ * a new direct buffer which isn't kept when released.  Each class keeps at most
+ * MAX_RETAINED_BYTES worth of idle buffers, so memory held scales with actual
+ * concurrent use rather than with the number of threads configured.
+ */
+public final class BufferPool
+{
+    private static final int[] SIZES = { 4 * 1024, 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024 };
+    private static final int MAX_RETAINED_BYTES = 4 * 1024 * 1024;
+
+    @SuppressWarnings("unchecked")
+    private static final ConcurrentLinkedQueue<ByteBuffer>[] free_ = new ConcurrentLinkedQueue[SIZES.length];
+    private static final AtomicInteger[] retained_ = new AtomicInteger[SIZES.length];
+    private static final AtomicLong nRequests_ = new AtomicLong();
+    private static final AtomicLong nAllocations_ = new AtomicLong();
+
+    static
+    {
+        for (int i = 0; i < SIZES.length; i++)
+        {
+            free_[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+            retained_[i] = new AtomicInteger();
+        }
+    }
+
+    private BufferPool()
+    {
+    }
+
+    /**
+     * Get a cleared buffer with capacity of at least nMinSize
+     */
+    public static ByteBuffer get(int nMinSize)
+    {
+        nRequests_.incrementAndGet();
+
+        int nClass = getSizeClass(nMinSize);
+        if (nClass == -1)
+        {
+            nAllocations_.incrementAndGet();
+            return ByteBuffer.allocateDirect(nMinSize);
+        }
+
+        ByteBuffer buffer = free_[nClass].poll();
+        if (buffer == null)
+        {
+            nAllocations_.incrementAndGet();
+            return ByteBuffer.allocateDirect(SIZES[nClass]);
+        }
+
+        retained_[nClass].decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Capacity of the buffer get(nMinSize) returns
+     */
+    public static int getCapacity(int nMinSize)
+    {
+        int nClass = getSizeClass(nMinSize);
+        return nClass == -1 ? nMinSize : SIZES[nClass];
+    }
+
+    /**
+     * Get a buffer of at least nMinSize containing the given buffer's data
+     * (from 0 to its position), with position set after that data.  The given
+     * buffer is released.
+     */
+    public static ByteBuffer grow(ByteBuffer buffer, int nMinSize)
+    {
+        ByteBuffer bigger = get(Math.max(nMinSize, buffer.position()));
+        buffer.flip();
+        bigger.put(buffer);
+        release(buffer);
+        return bigger;
+    }
+
+    /**
+     * Return buffer to the pool (null is ignored).  Buffers not
+     * from a size class, or beyond what we keep, are left for GC.
+     */
+    public static void release(ByteBuffer buffer)
+    {
+        if (buffer == null || !buffer.isDirect()) return;
+
+        int nClass = getSizeClass(buffer.capacity());
+        if (nClass == -1 || SIZES[nClass] != buffer.capacity()) return;
+
+        if (retained_[nClass].incrementAndGet() * SIZES[nClass] > MAX_RETAINED_BYTES)
+        {
+            retained_[nClass].decrementAndGet();
+            return;
+        }
+        free_[nClass].offer(buffer);
+    }
+
+    /**
+     * Smallest class holding nSize, -1 if larger than the largest
+     */
+    private static int getSizeClass(int nSize)
+    {
+        for (int i = 0; i < SIZES.length; i++)
+        {
+            if (nSize <= SIZES[i]) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Number of buffers requested
+     */
+    public static long getRequests()
+    {
+        return nRequests_.get();
+    }
+
+    /**
+     * Number of buffers newly allocated (requests not satisfied from the pool)
+     */
+    public static long getAllocations()
+    {
+        return nAllocations_.get();
+    }
+
+    /**
+     * Bytes held in idle buffers
+     */
+    public static long getRetainedBytes()
+    {
+        long nBytes = 0;
+        for (int i = 0; i < SIZES.length; i++)
+        {
+            nBytes += (long) retained_[i].get() * SIZES[i];
+        }
+        return nBytes;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.server;
+
+import java.io.*;
+import java.nio.*;
+
+/**
+ * InputStream over the remaining bytes of a ByteBuffer (heap or direct)
+ */
+class ByteBufferInputStream extends InputStream
+{
+    private final ByteBuffer buffer_;
+
+    ByteBufferInputStream(ByteBuffer buffer)
+    {
+        buffer_ = buffer;
+    }
+
+    @Override
+    public int read()
+    {
+        if (!buffer_.hasRemaining()) return -1;
+        return buffer_.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+    {
+        if (len == 0) return 0;
+        if (!buffer_.hasRemaining()) return -1;
+
+        len = Math.min(len, buffer_.remaining());
+        buffer_.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n)
+    {
+        int skip = (int) Math.max(0, Math.min(n, buffer_.remaining()));
+        buffer_.position(buffer_.position() + skip);
+        return skip;
+    }
+
+    @Override
+    public int available()
+    {
+        return buffer_.remaining();
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.server;
+
+import com.donohoedigital.base.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Accumulates an HTTP request from a non-blocking channel as the GameServer's
+ * selector reports data available.  Used when the server is running with
+ * selector reads, so a worker thread is only handed a channel once the
+ * entire request has arrived.
+ * <p>
+ * The buffer doubles as data arrives (up to the Content-Length once known),
+ * and all readers share a budget of buffered bytes, so clients which send
+ * headers and then stall can't tie up memory beyond that budget.
+ */
+class ChannelReader
+{
+    private static final int INITIAL_SIZE = 4 * 1024;
+    static final String BUDGET_ERROR = "Server busy, too much request data pending";
+
+    // bytes in buffers held by all readers (and SocketThreads reading)
+    private static final AtomicLong nBuffered_ = new AtomicLong();
+
+    private final int nMaxSize_;
+    private final long nMaxBuffered_;
+    private int nReserved_ = 0;
+    private ByteBuffer buffer_;
+    private int nScanned_ = 0;
+    private char last_ = '-'; // just not \r or \n
+    private int nHeaderEnd_ = -1;
+    private int nContentLength_ = 0;
+    private boolean bEOF_ = false;
+    private String sError_;
+    private long nLastRead_;
+
+    /**
+     * New reader, which will not hold more than nMaxSize bytes, nor grow
+     * once all readers hold nMaxBuffered bytes
+     */
+    ChannelReader(int nMaxSize, long nMaxBuffered)
+    {
+        nMaxSize_ = nMaxSize;
+        nMaxBuffered_ = nMaxBuffered;
+        nLastRead_ = System.currentTimeMillis();
+    }
+
+    /**
+     * Bytes in buffers held by all requests being read
+     */
+    static long getBufferedBytes()
+    {
+        return nBuffered_.get();
+    }
+
+    /**
+     * Read what is available on the channel.  Returns true if the request is
+     * complete (or can't be completed) and should be handed to a worker.
+     */
+    boolean read(SocketChannel channel) throws IOException
+    {
+        if (buffer_ == null)
+        {
+            int nSize = Math.min(INITIAL_SIZE, nMaxSize_);
+            if (!reserve(nSize)) return true;
+            buffer_ = BufferPool.get(nSize);
+        }
+
+        int count;
+        while (true)
+        {
+            if (!buffer_.hasRemaining())
+            {
+                if (isComplete()) return true;
+
+                if (buffer_.capacity() >= nMaxSize_)
+                {
+                    sError_ = "Buffer full, but data still left to read";
+                    return true;
+                }
+
+                // double, but no more than expected size once known
+                int nNeeded = buffer_.capacity() * 2;
+                if (nHeaderEnd_ != -1) nNeeded = Math.min(nNeeded, Math.max(nHeaderEnd_ + nContentLength_, buffer_.capacity() + 1));
+                nNeeded = Math.min(nNeeded, nMaxSize_);
+
+                int nOld = buffer_.capacity();
+                if (!reserve(nNeeded)) return true;
+                buffer_ = BufferPool.grow(buffer_, nNeeded);
+                unreserve(nOld);
+            }
+
+            count = channel.read(buffer_);
+            if (count < 0)
+            {
+                bEOF_ = true;
+                return true;
+            }
+            if (count == 0) break;
+            nLastRead_ = System.currentTimeMillis();
+        }
+
+        return isComplete();
+    }
+
+    /**
+     * Have we read the headers and all content they said to expect?
+     */
+    private boolean isComplete()
+    {
+        if (nHeaderEnd_ == -1)
+        {
+            // look for blank line ending headers (ISO-8859-1)
+            int end = buffer_.position();
+            char c;
+            for (; nScanned_ < end; nScanned_++)
+            {
+                c = (char) buffer_.get(nScanned_);
+                if (c == '\r') continue;
+                if (c == '\n' && last_ == '\n')
+                {
+                    nHeaderEnd_ = nScanned_ + 1;
+                    nContentLength_ = parseContentLength();
+                    if (nContentLength_ > nMaxSize_ - nHeaderEnd_)
+                    {
+                        sError_ = "Content-Length too large: " + nContentLength_;
+                        return true;
+                    }
+                    break;
+                }
+                last_ = c;
+            }
+
+            if (nHeaderEnd_ == -1) return false;
+        }
+
+        return (buffer_.position() - nHeaderEnd_) >= nContentLength_;
+    }
+
+    /**
+     * Find Content-Length in headers, 0 if missing or invalid
+     */
+    private int parseContentLength()
+    {
+        byte[] headers = new byte[nHeaderEnd_];
+        ByteBuffer all = buffer_.duplicate();
+        all.flip();
+        all.get(headers);
+        String sHeaders = Utils.decodeBasic(headers);
+        int nStart = 0;
+        int nEnd;
+        while (nStart < sHeaders.length())
+        {
+            nEnd = sHeaders.indexOf('\n', nStart);
+            if (nEnd == -1) nEnd = sHeaders.length();
+
+            String sLine = sHeaders.substring(nStart, nEnd);
+            int n = sLine.indexOf(':');
+            if (n != -1 && sLine.substring(0, n).trim().equalsIgnoreCase("Content-Length"))
+            {
+                try {
+                    return Math.max(0, Integer.parseInt(sLine.substring(n + 1).trim()));
+                } catch (NumberFormatException ignored) {
+                    return 0;
+                }
+            }
+            nStart = nEnd + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Has any data been read?
+     */
+    boolean isStarted()
+    {
+        return buffer_ != null && buffer_.position() > 0;
+    }
+
+    /**
+     * Did the read end because the client closed its side?
+     */
+    boolean isEOF()
+    {
+        return bEOF_;
+    }
+
+    /**
+     * Time of last successful read
+     */
+    long getLastRead()
+    {
+        return nLastRead_;
+    }
+
+    /**
+     * Mark as timed out
+     */
+    void setTimedOut()
+    {
+        sError_ = "Read timeout";
+    }
+
+    /**
+     * Error encountered during reading, null if none
+     */
+    String getError()
+    {
+        return sError_;
+    }
+
+    /**
+     * Get buffer holding data read (position is after data), which
+     * the caller is then responsible for returning to the BufferPool
+     */
+    ByteBuffer takeBuffer()
+    {
+        ByteBuffer buffer = buffer_;
+        buffer_ = null;
+        unreserve(nReserved_);
+        if (buffer == null) buffer = BufferPool.get(INITIAL_SIZE);
+        return buffer;
+    }
+
+    /**
+     * Return buffer to pool - used if the data isn't going to be processed
+     */
+    void release()
+    {
+        BufferPool.release(buffer_);
+        buffer_ = null;
+        unreserve(nReserved_);
+    }
+
+    /**
+     * Count a buffer of (at least) nSize against the budget shared by all
+     * readers.  Returns false (and sets error) if over budget.
+     */
+    private boolean reserve(int nSize)
+    {
+        int nBytes = BufferPool.getCapacity(nSize);
+        if (!reserveBuffered(nBytes, nMaxBuffered_))
+        {
+            sError_ = BUDGET_ERROR;
+            return false;
+        }
+        nReserved_ += nBytes;
+        return true;
+    }
+
+    /**
+     * Remove bytes from budget
+     */
+    private void unreserve(int nBytes)
+    {
+        unreserveBuffered(nBytes);
+        nReserved_ -= nBytes;
+    }
+
+    /**
+     * Count nBytes against the budget shared by all requests being read
+     * (also used by SocketThread when reading on a worker thread).  Returns
+     * false, counting nothing, if that would put the total over nMaxBuffered.
+     */
+    static boolean reserveBuffered(int nBytes, long nMaxBuffered)
+    {
+        if (nBuffered_.addAndGet(nBytes) > nMaxBuffered)
+        {
+            nBuffered_.addAndGet(-nBytes);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remove bytes counted by reserveBuffered()
+     */
+    static void unreserveBuffered(int nBytes)
+    {
+        nBuffered_.addAndGet(-nBytes);
+    }
+}
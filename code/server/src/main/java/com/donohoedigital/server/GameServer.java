@@ -53,6 +53,7 @@ public abstract class GameServer extends Thread
     private int SLEEP_UNAVAIL; // millis to sleep when no worker thread available
     private int LOG_UNAVAIL; // millis to wait before logging no worker warning
     private int LOG_STATUS; // millis to wait before logging server status
+    private static final int SWEEP_MILLIS = 1000; // millis between read timeout checks (selector reads)
     private long nLastLogTime_;
     private long nNum_ = 0;
 
@@ -81,6 +82,14 @@ public abstract class GameServer extends Thread
     private final List<Qentry> registerQ_ = new ArrayList<>();
     private ServerSocketChannel defaultChannel_;
 
+    // selector reads - requests fully read, waiting for a worker (main thread only)
+    private boolean bSelectorReads_;
+    private final ArrayDeque<Pending> pending_ = new ArrayDeque<>();
+    private volatile int nPending_ = 0;
+    private long nLastSweep_;
+    private long nLastNoWorkerLog_;
+    private int nTimeouts_;
+
     /**
      * default constructor
      */
@@ -265,9 +274,13 @@ public abstract class GameServer extends Thread
         bBindFailover_ = PropertyConfig.getBooleanProperty("settings.server.failover", false, false);
         nFailoverAttempts_ = PropertyConfig.getIntegerProperty("settings.server.failover.attempts", 2);
         String sSocketThreadClass = PropertyConfig.getStringProperty("settings.server.thread.class", SocketThread.class.getName(), false);
+        bSelectorReads_ = PropertyConfig.getBooleanProperty("settings.server.selector.reads", false, false);
+        boolean bExecutor = PropertyConfig.getBooleanProperty("settings.server.executor", false, false);
+        int nExecutorMax = PropertyConfig.getIntegerProperty("settings.server.executor.max", 500);
+        int nExecutorQueue = PropertyConfig.getIntegerProperty("settings.server.executor.queue", 5000);
 
         // display info
-        logger.info("Listening on port(s) " + sPort_ + ";  threads: " + nThreads);
+        logger.info("Listening on port(s) " + sPort_ + ";  threads: " + (bExecutor ? "executor" : nThreads));
 
         // record current time
         nLastLogTime_ = System.currentTimeMillis();
@@ -393,7 +406,31 @@ public abstract class GameServer extends Thread
         }
 
         // create pool
-        pool_ = new ThreadPool(this, nThreads, servlet_, sSocketThreadClass);
+        if (bExecutor)
+        {
+            pool_ = new ThreadPool(this, servlet_, sSocketThreadClass,
+                                   new BoundedExecutor("SocketThread", nExecutorMax, nExecutorQueue));
+        }
+        else
+        {
+            pool_ = new ThreadPool(this, nThreads, servlet_, sSocketThreadClass);
+        }
+
+        // selector reads need requests that can be read without the SocketThread
+        if (bSelectorReads_ && !pool_.isSelectorReadSupported())
+        {
+            logger.warn("Selector reads not supported by " + sSocketThreadClass + ", reading in worker threads");
+            bSelectorReads_ = false;
+        }
+        if (bSelectorReads_) logger.info("Requests read via selector");
+    }
+
+    /**
+     * Are requests read by the selector (only handed to a worker when complete)?
+     */
+    public boolean isSelectorReads()
+    {
+        return bSelectorReads_;
     }
 
     /**
@@ -473,6 +510,38 @@ public abstract class GameServer extends Thread
         return pool_.size();
     }
 
+    /**
+     * Get number of requests being processed
+     */
+    public int getNumInFlight()
+    {
+        return pool_.getInFlight();
+    }
+
+    /**
+     * Get number of requests waiting for a worker
+     */
+    public int getNumQueued()
+    {
+        return pool_.isExecutor() ? pool_.getQueued() : nPending_;
+    }
+
+    /**
+     * Get number of requests rejected since startup because too many were queued (executor mode)
+     */
+    public long getNumRejected()
+    {
+        return pool_.getRejected();
+    }
+
+    /**
+     * Set pool (for testing, normally created by init())
+     */
+    void setThreadPool(ThreadPool pool)
+    {
+        pool_ = pool;
+    }
+
     /**
      * Increase pool size by given number
      */
@@ -500,7 +569,8 @@ public abstract class GameServer extends Thread
             // selected set contains keys of the ready channels
             try
             {
-                n = selector_.select();
+                // with selector reads, wake up periodically to check for read timeouts
+                n = bSelectorReads_ ? selector_.select(SWEEP_MILLIS) : selector_.select();
             }
             catch (Throwable t)
             {
@@ -539,6 +609,13 @@ public abstract class GameServer extends Thread
 
                     }
                 }
+
+                // hand completed requests to workers
+                if (bSelectorReads_)
+                {
+                    sweepReadTimeouts();
+                    dispatchPending();
+                }
             }
             catch (Throwable t)
             {
@@ -658,7 +735,14 @@ public abstract class GameServer extends Thread
                 // is there data to read on this channel?
                 else if (key.isReadable())
                 {
-                    processChannel(key, nNum_);
+                    if (bSelectorReads_)
+                    {
+                        readChannel(key, nNum_);
+                    }
+                    else
+                    {
+                        processChannel(key, nNum_);
+                    }
                 }
                 // write (testing)
                 //else if (key.isWritable())
@@ -698,9 +782,15 @@ public abstract class GameServer extends Thread
 
         logger.info("STATUS:  available workers: " + pool_.getNumIdleWorkers() +
                     ",  hits: " + nHits_ +
-                    ",  misses: " + nRunningNoWorkerCnt_);
+                    ",  misses: " + nRunningNoWorkerCnt_ +
+                    (pool_.isExecutor() ? ",  in-flight: " + getNumInFlight() + ",  queued: " + getNumQueued() +
+                                          ",  rejected: " + getNumRejected() :
+                     bSelectorReads_ ? ",  queued: " + pending_.size() : "") +
+                    (bSelectorReads_ ? ",  read timeouts: " + nTimeouts_ +
+                                       ",  read buffered: " + ChannelReader.getBufferedBytes() : ""));
         nRunningNoWorkerCnt_ = 0;
         nHits_ = 0;
+        nTimeouts_ = 0;
     }
 
     /**
@@ -827,6 +917,15 @@ public abstract class GameServer extends Thread
         // get channel
         SocketChannel channel = (SocketChannel) key.channel();
 
+        // executor mode - run on its own thread (worker does reading)
+        if (pool_.isExecutor())
+        {
+            if (DEBUG_ONLINE) logger.debug("[" + nNum + "] EXECUTING " + Utils.getIPAddress(channel));
+            key.cancel();
+            execute(channel, null);
+            return;
+        }
+
         // get worker
         SocketThread worker = pool_.getWorker();
 
@@ -870,4 +969,177 @@ public abstract class GameServer extends Thread
         // invoking this wakes up the worker thread then returns
         worker.processChannel(channel);
     }
+
+    /**
+     * Read available data for a channel (selector reads).  The partial request is kept
+     * with the key until all of it has arrived, then it is queued for a worker.
+     */
+    private void readChannel(SelectionKey key, long nNum)
+    {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ChannelReader reader = (ChannelReader) key.attachment();
+        if (reader == null)
+        {
+            reader = new ChannelReader(SocketThread.MAX_REQUEST_SIZE, SocketThread.MAX_READ_BUFFERED);
+            key.attach(reader);
+        }
+
+        boolean bComplete;
+        try
+        {
+            bComplete = reader.read(channel);
+        }
+        catch (IOException ioe)
+        {
+            // client went away
+            if (DEBUG_ONLINE) logger.debug("[" + nNum + "] READ ERROR " + Utils.getIPAddress(channel) + ": " + Utils.getExceptionMessage(ioe));
+            key.cancel();
+            reader.release();
+            closeChannel(channel);
+            return;
+        }
+
+        if (!bComplete) return;
+
+        // need to cancel key otherwise can't change blocking for replies
+        key.cancel();
+
+        // closed before sending anything (e.g., idle keep-alive), nothing to process
+        if (reader.isEOF() && !reader.isStarted())
+        {
+            reader.release();
+            closeChannel(channel);
+            return;
+        }
+
+        if (DEBUG_ONLINE) logger.debug("[" + nNum + "] READ " + Utils.getIPAddress(channel));
+        queue(channel, reader);
+    }
+
+    /**
+     * Queue a request for the next available worker
+     */
+    private void queue(SocketChannel channel, ChannelReader reader)
+    {
+        // executor does its own queueing
+        if (pool_.isExecutor())
+        {
+            execute(channel, reader);
+            return;
+        }
+
+        pending_.addLast(new Pending(channel, reader));
+        nPending_ = pending_.size();
+    }
+
+    /**
+     * Run request via pool's executor, closing the connection if rejected
+     */
+    void execute(SocketChannel channel, ChannelReader reader)
+    {
+        nHits_++;
+        if (!pool_.execute(channel, reader))
+        {
+            nRunningNoWorkerCnt_++;
+            long nNow = System.currentTimeMillis();
+            if ((nNow - nLastNoWorkerLog_) >= LOG_UNAVAIL)
+            {
+                logger.warn("*** Request rejected, executor full (" + getNumInFlight() + " in-flight, " +
+                            getNumQueued() + " queued), current ip=" + Utils.getIPAddress(channel));
+                nLastNoWorkerLog_ = nNow;
+            }
+            if (reader != null) reader.release();
+            closeChannel(channel);
+        }
+    }
+
+    /**
+     * Hand queued requests to idle workers
+     */
+    private void dispatchPending()
+    {
+        Pending pending;
+        SocketThread worker;
+        while ((pending = pending_.peekFirst()) != null)
+        {
+            worker = pool_.getWorker();
+            if (worker == null)
+            {
+                long nNow = System.currentTimeMillis();
+                long nWait = nNow - pending.created;
+                if (!pending.bMissed)
+                {
+                    pending.bMissed = true;
+                    nRunningNoWorkerCnt_++;
+                }
+                if (nWait >= LOG_UNAVAIL && (nNow - nLastNoWorkerLog_) >= LOG_UNAVAIL)
+                {
+                    logger.warn("*** NO worker thread available for " + nWait + " millis, " +
+                                pending_.size() + " requests queued");
+                    nLastNoWorkerLog_ = nNow;
+                }
+                break;
+            }
+
+            pending_.removeFirst();
+            nPending_ = pending_.size();
+            nHits_++;
+            worker.processChannel(pending.channel, pending.reader);
+        }
+    }
+
+    /**
+     * Queue requests which started arriving, but haven't finished within
+     * the read timeout.  The worker reports the timeout to the client.
+     */
+    private void sweepReadTimeouts()
+    {
+        long nNow = System.currentTimeMillis();
+        if ((nNow - nLastSweep_) < SWEEP_MILLIS) return;
+        nLastSweep_ = nNow;
+
+        for (SelectionKey key : selector_.keys())
+        {
+            Object attachment = key.attachment();
+            if (!key.isValid() || !(attachment instanceof ChannelReader)) continue;
+
+            ChannelReader reader = (ChannelReader) attachment;
+            if (reader.isStarted() && (nNow - reader.getLastRead()) >= SocketThread.READ_TIMEOUT_MILLIS)
+            {
+                key.cancel();
+                reader.setTimedOut();
+                nTimeouts_++;
+                queue((SocketChannel) key.channel(), reader);
+            }
+        }
+    }
+
+    /**
+     * Called by the pool when a worker returns - wakes the selector
+     * if requests are waiting for one
+     */
+    void workerAvailable()
+    {
+        if (bSelectorReads_ && nPending_ > 0)
+        {
+            selector_.wakeup();
+        }
+    }
+
+    /**
+     * request waiting for a worker
+     */
+    private static class Pending
+    {
+        SocketChannel channel;
+        ChannelReader reader;
+        long created = System.currentTimeMillis();
+        boolean bMissed;
+
+        Pending(SocketChannel channel, ChannelReader reader)
+        {
+            this.channel = channel;
+            this.reader = reader;
+        }
+    }
 }
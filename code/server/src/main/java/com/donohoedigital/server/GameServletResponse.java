@@ -58,15 +58,64 @@ public class GameServletResponse implements HttpServletResponse
     String sContentType_;
     SocketChannel channel_;
     OutputStream out_;
+    GameServer server_;
+    private volatile boolean bSuspended_ = false;
     
     /** 
      * Creates a new instance of StringServletResponse 
      */
     public GameServletResponse(SocketChannel channel)
+    {
+        this(channel, null);
+    }
+
+    /**
+     * Creates a new instance which can be suspended (server is used
+     * to close the channel when a suspended response is resumed)
+     */
+    public GameServletResponse(SocketChannel channel, GameServer server)
     {
         channel_ = channel;
+        server_ = server;
         out_ = Channels.newOutputStream(channel);
     }
+
+    /**
+     * Can this response be suspended?
+     */
+    public boolean isSuspendSupported()
+    {
+        return server_ != null;
+    }
+
+    /**
+     * Suspend this response so it can be written later from another thread.
+     * The socket thread leaves the channel open and returns to the pool
+     * once the servlet returns.  The caller must write the response
+     * (or an error) and then call resume().
+     */
+    public void suspend()
+    {
+        ApplicationError.assertTrue(isSuspendSupported(), "Suspend not supported");
+        bSuspended_ = true;
+    }
+
+    /**
+     * Has this response been suspended?
+     */
+    public boolean isSuspended()
+    {
+        return bSuspended_;
+    }
+
+    /**
+     * Done with a suspended response - closes the channel
+     */
+    public void resume()
+    {
+        ApplicationError.assertTrue(bSuspended_, "Response not suspended");
+        server_.closeChannel(channel_);
+    }
     
     // HttpServletResponse implementation
     
@@ -52,13 +52,18 @@ public class SocketThread extends Thread
     
     protected static final int READ_TIMEOUT_MILLIS = PropertyConfig.getRequiredIntegerProperty("settings.server.readtimeout.millis");
     protected static final int READ_WAIT_MILLIS = PropertyConfig.getRequiredIntegerProperty("settings.server.readwait.millis");
+    protected static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+    protected static final int MAX_REQUEST_SIZE = PropertyConfig.getIntegerProperty("settings.server.maxrequest.bytes", 16 * 1024 * 1024);
+    protected static final int MAX_READ_BUFFERED = PropertyConfig.getIntegerProperty("settings.server.maxreadbuffered.bytes", 64 * 1024 * 1024);
     
     // per request stuff
     protected GameServletResponse response_;
     protected GameServletRequest request_;
     protected SocketChannel channel_;
-    protected ByteBuffer headers_ = ByteBuffer.allocate(10000);
-    protected ByteBuffer buffer_ = ByteBuffer.allocate(100000);
+    private ChannelReader reader_;
+    protected ByteBuffer headers_; // copy of headers from buffer_
+    protected ByteBuffer buffer_;  // from BufferPool, held only during a request
+    private int nReserved_ = 0;    // bytes of buffer_ counted against MAX_READ_BUFFERED
     
     // initialization stuff
     protected ThreadPool pool_;
@@ -96,12 +101,32 @@ public class SocketThread extends Thread
      * process data on channel - wakes up wait() in run() below
      */
     synchronized void processChannel(SocketChannel channel)
+    {
+        processChannel(channel, null);
+    }
+
+    /**
+     * process data on channel - if reader is non-null, the request
+     * was already read by the server's selector
+     */
+    synchronized void processChannel(SocketChannel channel, ChannelReader reader)
     {
         // store channel and say we are reading
         channel_ = channel;
-        
+        reader_ = reader;
+
         // awaken the thread
-        notify();		
+        notify();
+    }
+
+    /**
+     * Can the server read requests for this thread via its selector?
+     * True for the HTTP requests handled here; subclasses which read a
+     * different protocol in readData() should return false.
+     */
+    protected boolean isSelectorReadSupported()
+    {
+        return true;
     }
     
     // loop forever waiting for work to do
@@ -109,7 +134,6 @@ public class SocketThread extends Thread
     public synchronized void run()
     {
         if (GameServer.DEBUG_POOL) logger.info(getName() + " is ready");
-        boolean bShutDown;
         
         while (!bDone_) {
             try {
@@ -130,62 +154,100 @@ public class SocketThread extends Thread
                 continue;	
             }
 
-            // begin processing
-            if (GameServer.DEBUG_ONLINE) logger.debug(getName() + " AWAKE for " + Utils.getIPAddress(channel_));
-            bShutDown = false;
+            handleRequest();
+        }
 
-            // read post and process data
-            try {                    
-                initRequest();                    
+        if (GameServer.DEBUG_POOL) logger.info(getName() + " done.");
+    }
 
-                readData(channel_);
-                if (GameServer.DEBUG_ONLINE) logger.debug(getName() + " after read");
+    /**
+     * Process channel on the current thread (ThreadPool executor mode) - if reader
+     * is non-null, the request was already read by the server's selector.  Not
+     * synchronized: a worker is only handed out from the pool's idle list (which
+     * also publishes its fields), and holding a monitor for the whole request
+     * would pin a virtual thread to its carrier.
+     */
+    void handle(SocketChannel channel, ChannelReader reader)
+    {
+        channel_ = channel;
+        reader_ = reader;
+        handleRequest();
+    }
 
-                process();
-                if (GameServer.DEBUG_ONLINE) logger.debug(getName() + " after process");
-            }
-            // handle exceptions
-            catch (Throwable t)
+    /**
+     * read, process and then close or re-register channel_, returning to pool when done
+     */
+    private void handleRequest()
+    {
+        // begin processing
+        if (GameServer.DEBUG_ONLINE) logger.debug(getName() + " AWAKE for " + Utils.getIPAddress(channel_));
+        boolean bShutDown = false;
+
+        // read post and process data
+        try {                    
+            initRequest();                    
+
+            if (reader_ != null)
             {
-                bShutDown = handleException(t);
+                readData(reader_);
             }
-            finally
+            else
             {
-                // close channel
-                try {
-                    // keep-alive, re-register channel for read notifications
-                    // unless the channel was closed
-                    if (!bShutDown && isKeepAlive() && channel_.isOpen())
-                    {
-                        try {
-                            getServer().registerChannel(channel_, SelectionKey.OP_READ);
-                        }
-                        catch (IOException ioe)
-                        {
-                            logger.error("registerChannel error: " + Utils.formatExceptionText(ioe));
-                        }
-                    // else close socket (clears selection keys)
-                    } else {
-                        closeChannel(channel_);
-                    }
-                }
-                catch (Throwable ignored)
+                readData(channel_);
+            }
+            if (GameServer.DEBUG_ONLINE) logger.debug(getName() + " after read");
+
+            process();
+            if (GameServer.DEBUG_ONLINE) logger.debug(getName() + " after process");
+        }
+        // handle exceptions
+        catch (Throwable t)
+        {
+            bShutDown = handleException(t);
+        }
+        finally
+        {
+            // close channel
+            try {
+                // suspended response - whoever resumes it closes the channel
+                if (!bShutDown && response_ != null && response_.isSuspended())
                 {
-                    logger.warn("Ignored exception: "+ Utils.formatExceptionText(ignored));
+                    if (GameServer.DEBUG_ONLINE) logger.debug(getName() + " response suspended");
                 }
-                finally
+                // keep-alive, re-register channel for read notifications
+                // unless the channel was closed
+                else if (!bShutDown && isKeepAlive() && channel_.isOpen())
                 {
-                    // clear channel (not the radio empire)
-                    channel_ = null;
-            
-                    // done, ready for more, return to pool
-                    if (GameServer.DEBUG_ONLINE) logger.debug(getName() + " DONE - returning to pool");
-                    pool_.returnWorker (this);
+                    try {
+                        getServer().registerChannel(channel_, SelectionKey.OP_READ);
+                    }
+                    catch (IOException ioe)
+                    {
+                        logger.error("registerChannel error: " + Utils.formatExceptionText(ioe));
+                    }
+                // else close socket (clears selection keys)
+                } else {
+                    closeChannel(channel_);
                 }
             }
-        }
+            catch (Throwable ignored)
+            {
+                logger.warn("Ignored exception: "+ Utils.formatExceptionText(ignored));
+            }
+            finally
+            {
+                // clear channel (not the radio empire)
+                channel_ = null;
+                reader_ = null;
 
-        if (GameServer.DEBUG_POOL) logger.info(getName() + " done.");
+                // return buffer for use by other requests
+                releaseBuffer();
+        
+                // done, ready for more, return to pool
+                if (GameServer.DEBUG_ONLINE) logger.debug(getName() + " DONE - returning to pool");
+                pool_.returnWorker (this);
+            }
+        }
     }
 
     /**
@@ -261,10 +323,70 @@ public class SocketThread extends Thread
      */
     protected void initRequest()
     {
-        response_ = new GameServletResponse(channel_);
+        response_ = servlet_.isSuspendSupported() ? new GameServletResponse(channel_, getServer()) :
+                                                    new GameServletResponse(channel_);
         request_ = null;
+        headers_ = null;
+        if (buffer_ == null) buffer_ = BufferPool.get(INITIAL_BUFFER_SIZE);
         buffer_.clear();
-        headers_.clear();
+    }
+
+    /**
+     * Return buffer_ to the pool
+     */
+    protected void releaseBuffer()
+    {
+        BufferPool.release(buffer_);
+        buffer_ = null;
+        unreserve();
+        headers_ = null;
+        if (request_ != null) request_.setInputStream2(null);
+    }
+
+    /**
+     * Make sure buffer_ has room for more data, doubling it if needed.  Once
+     * headers are read, grows no further than the expected content.  Grown
+     * buffers count against the budget shared with selector reads (see
+     * ChannelReader), so many slow, large requests can't pin unbounded memory.
+     */
+    private void ensureRoom()
+    {
+        if (buffer_.hasRemaining()) return;
+
+        int nNeeded = buffer_.capacity() * 2;
+        if (request_ != null)
+        {
+            nNeeded = Math.min(nNeeded, Math.max(headers_.limit() + request_.getContentLength(), buffer_.capacity() + 1));
+        }
+        if (nNeeded > MAX_REQUEST_SIZE)
+        {
+            if (buffer_.capacity() >= MAX_REQUEST_SIZE)
+            {
+                throw new ApplicationError(ErrorCodes.ERROR_SERVER_IO,
+                                           "Buffer full, but data still left to read",
+                                           getBufferAsString(), null);
+            }
+            nNeeded = MAX_REQUEST_SIZE;
+        }
+
+        int nBytes = BufferPool.getCapacity(nNeeded);
+        if (!ChannelReader.reserveBuffered(nBytes, MAX_READ_BUFFERED))
+        {
+            throw new ApplicationError(ErrorCodes.ERROR_SERVER_IO, ChannelReader.BUDGET_ERROR,
+                                       getBufferAsString(), null);
+        }
+        buffer_ = BufferPool.grow(buffer_, nNeeded);
+        unreserve();
+        nReserved_ = nBytes;
+    }
+
+    /**
+     * Remove bytes of buffer_ from the shared budget
+     */
+    private void unreserve()
+    {
+        ChannelReader.unreserveBuffered(nReserved_);
+        nReserved_ = 0;
     }
 
     /**
@@ -279,8 +401,11 @@ public class SocketThread extends Thread
         int nContentExpected;
 
         // loop while data available (channel is non-blocking)
-        while ((count = channel.read(buffer_)) >= 0)
+        while (true)
         {
+            ensureRoom();
+            if ((count = channel.read(buffer_)) < 0) break;
+
             // if we read data, check out first read for invalid information
             if (count != 0)
             {
@@ -292,6 +417,7 @@ public class SocketThread extends Thread
                 {
                     processHeaders();
                     if (GameServer.DEBUG_ONLINE) logger.debug(getName() + " after process headers");
+                    if (request_ != null) checkContentLength();
                 }
 
                 // if we have a request and read data, see if we have all
@@ -319,13 +445,6 @@ public class SocketThread extends Thread
                                                "Read timeout",
                                                getBufferAsString(), null);
                 }
-                if (buffer_.position() == buffer_.capacity())
-                {
-                    throw new ApplicationError(ErrorCodes.ERROR_SERVER_IO,
-                                               "Buffer full, but data still left to read",
-                                               getBufferAsString(), null);
-                }
-
                 nSleep += READ_WAIT_MILLIS;
                 if (GameServer.DEBUG_ONLINE)
                     logger.debug("Sleeping... position is " + buffer_.position() + " capacity is " + buffer_.capacity());
@@ -334,7 +453,50 @@ public class SocketThread extends Thread
         }
         
         // at end (EOF or read enough ends loop), shut down input
-        channel.socket().shutdownInput();
+        finishRead(channel);
+    }
+
+    /**
+     * Reject request if Content-Length is more than we accept
+     */
+    private void checkContentLength()
+    {
+        int nContentLength = request_.getContentLength();
+        if (nContentLength < 0 || nContentLength > MAX_REQUEST_SIZE - headers_.limit())
+        {
+            throw new ApplicationError(ErrorCodes.ERROR_SERVER_IO,
+                                       "Content-Length too large: " + nContentLength,
+                                       getBufferAsString(), null);
+        }
+    }
+
+    /**
+     * Process data already read by the server's selector
+     */
+    private void readData(ChannelReader reader) throws IOException
+    {
+        // use reader's buffer rather than copying
+        BufferPool.release(buffer_);
+        unreserve();
+        buffer_ = reader.takeBuffer();
+
+        if (reader.getError() != null)
+        {
+            throw new ApplicationError(ErrorCodes.ERROR_SERVER_IO, reader.getError(), getBufferAsString(), null);
+        }
+
+        processHeaders();
+
+        // skip shutdown of input if client already did
+        finishRead(reader.isEOF() ? null : channel_);
+    }
+
+    /**
+     * Validate data read and create request input stream
+     */
+    private void finishRead(SocketChannel channel) throws IOException
+    {
+        if (channel != null) channel.socket().shutdownInput();
         
         if (GameServer.DEBUG_ONLINE) logger.debug(getName() + " after shutdowninput");
         
@@ -343,7 +505,7 @@ public class SocketThread extends Thread
         
         // validate that the remaining data matches
         // the content length
-        nContentExpected = request_.getContentLength();
+        int nContentExpected = request_.getContentLength();
         buffer_.flip();
         buffer_.position(headers_.limit());
         if (nContentExpected > 0 && buffer_.remaining() != nContentExpected)
@@ -356,10 +518,10 @@ public class SocketThread extends Thread
         }
 
         // create input stream with remaining data
-        InputStream in = new ByteArrayInputStream(buffer_.array(), buffer_.position(), buffer_.remaining());
+        InputStream in = new ByteBufferInputStream(buffer_.duplicate());
         request_.setInputStream2(in);
         
-        if (DEBUG) logger.debug("Data: <" + Utils.decode(buffer_.array(), buffer_.position(), buffer_.remaining()) + '>');
+        if (DEBUG) logger.debug("Data: <" + Utils.getPrintableString(Utils.decodeBasic(getRequestBytes()), Integer.MAX_VALUE) + '>');
     }
 
     /**
@@ -376,7 +538,11 @@ public class SocketThread extends Thread
             if (c == '\r') continue;
             if (c == '\n' && last == '\n')
             {
-                headers_.put(buffer_.array(), 0, i + 1);
+                byte[] headers = new byte[i + 1];
+                ByteBuffer all = buffer_.duplicate();
+                all.flip();
+                all.get(headers);
+                headers_ = ByteBuffer.wrap(headers);
                 createRequest();
                 return;
             }
@@ -398,9 +564,6 @@ public class SocketThread extends Thread
         String sRemoteAddr = Utils.getIPAddress(channel_);
         int nServerPort = channel_.socket().getLocalPort();
         
-        // start at beginning of headers
-        headers_.flip();
-        
         // request
         request_ = new GameServletRequest();
 
@@ -512,8 +675,21 @@ public class SocketThread extends Thread
      */
     protected String getBufferAsString()
     {
+        if (buffer_ == null) return "";
         return Utils.getBufferAsString(buffer_, 3000);
     }
+
+    /**
+     * Return copy of all data read (headers and content) - valid during process()
+     */
+    protected byte[] getRequestBytes()
+    {
+        ByteBuffer all = buffer_.duplicate();
+        all.position(0);
+        byte[] bytes = new byte[all.remaining()];
+        all.get(bytes);
+        return bytes;
+    }
     
     /**
      ** What the client is expecting (ok example, then error example)
@@ -36,6 +36,7 @@ import com.donohoedigital.base.*;
 import com.donohoedigital.config.*;
 import org.apache.log4j.*;
 
+import java.nio.channels.*;
 import java.util.*;
 
 /**
@@ -50,6 +51,9 @@ public class ThreadPool
     private final List<SocketThread> workers_ = new ArrayList<SocketThread>();
     private Class<?> socketClass_;
     private BaseServlet servlet_;
+    private boolean bSelectorReadSupported_;
+    private BoundedExecutor executor_;
+    private int nCreated_;
 
     public ThreadPool(GameServer server, int poolSize, BaseServlet servlet, String sSocketClass)
     {
@@ -69,6 +73,23 @@ public class ThreadPool
         if (GameServer.DEBUG_POOL) logger.debug("Thread pool ready");
     }
 
+    /**
+     * Executor mode - rather than a fixed set of threads waiting for work, each request
+     * is run on its own (virtual, if available) thread by the given executor, which limits
+     * how many run at once.  SocketThread instances are created as needed and re-used, but
+     * not started.
+     */
+    public ThreadPool(GameServer server, BaseServlet servlet, String sSocketClass, BoundedExecutor executor)
+    {
+        server_ = server;
+        servlet_ = servlet;
+        executor_ = executor;
+        socketClass_ = ConfigUtils.getClass(sSocketClass, true);
+
+        // create one to start (also determines selector read support)
+        returnWorker(createWorker());
+    }
+
     /**
      * Add nWorkers to pool
      */
@@ -86,22 +107,17 @@ public class ThreadPool
         {
             logger.info("Growing thread pool by " + nWorkers + " to " + (nWorkers + workers_.size()) + " workers.");
         }
+        if (executor_ != null)
+        {
+            logger.info("Executor mode, ignoring request to grow by " + nWorkers + " workers.");
+            return;
+        }
+
         SocketThread thread;
         for (int i = 0; i < nWorkers; i++)
         {
-            // create new thread
-            try {
-                thread = (SocketThread) socketClass_.newInstance();
-            }
-            catch (Exception e) {
-                throw new ApplicationError(e);
-            }
-
-            // initialize it
-            thread.init(this, servlet_);
-
-            // set thread name for debugging, start it
-            thread.setName("SocketThread-" + (workers_.size() + 1));
+            // create new thread, start it
+            thread = createWorker();
             thread.start();
 
             workers_.add(thread);
@@ -109,14 +125,85 @@ public class ThreadPool
         }
     }
 
+    /**
+     * create and initialize a new SocketThread
+     */
+    private synchronized SocketThread createWorker()
+    {
+        SocketThread thread;
+        try {
+            thread = (SocketThread) socketClass_.newInstance();
+        }
+        catch (Exception e) {
+            throw new ApplicationError(e);
+        }
+
+        // initialize it
+        thread.init(this, servlet_);
+        bSelectorReadSupported_ = thread.isSelectorReadSupported();
+
+        // set thread name for debugging
+        thread.setName("SocketThread-" + (++nCreated_));
+        return thread;
+    }
+
     /**
      * Get pool size
      */
     public int size()
     {
+        if (executor_ != null) return executor_.getMaxRunning();
         return workers_.size();
     }
 
+    /**
+     * Are requests run by an executor (rather than a fixed set of threads)?
+     */
+    public boolean isExecutor()
+    {
+        return executor_ != null;
+    }
+
+    /**
+     * Executor mode - run request on the given channel, returning false if rejected
+     * because the executor is at its limit.  Reader is the request already read by the
+     * server's selector, or null if the worker should read it.
+     */
+    public boolean execute(final SocketChannel channel, final ChannelReader reader)
+    {
+        return executor_.execute(new Runnable()
+        {
+            public void run()
+            {
+                getWorker().handle(channel, reader);
+            }
+        });
+    }
+
+    /**
+     * Number of requests being processed (executor mode)
+     */
+    public int getInFlight()
+    {
+        return executor_ == null ? size() - getNumIdleWorkers() : executor_.getInFlight();
+    }
+
+    /**
+     * Number of requests waiting for a thread (executor mode)
+     */
+    public int getQueued()
+    {
+        return executor_ == null ? 0 : executor_.getQueued();
+    }
+
+    /**
+     * Number of requests rejected (executor mode)
+     */
+    public long getRejected()
+    {
+        return executor_ == null ? 0 : executor_.getRejected();
+    }
+
     /**
      * Get server
      */
@@ -129,6 +216,7 @@ public class ThreadPool
      */
     public void shutdown()
     {
+        if (executor_ != null) executor_.shutdown();
         for (SocketThread worker : workers_)
         {
             worker.shutdown();
@@ -150,6 +238,12 @@ public class ThreadPool
             }
         }
 
+        // executor mode - never run out (executor limits how many are used)
+        if (worker == null && executor_ != null)
+        {
+            worker = createWorker();
+        }
+
         return worker;
     }
 
@@ -159,8 +253,23 @@ public class ThreadPool
     public void returnWorker(SocketThread worker)
     {
         synchronized (idle_) {
-            idle_.add(worker);
+            // executor mode - keep enough for max running requests
+            if (executor_ == null || idle_.size() < executor_.getMaxRunning())
+            {
+                idle_.add(worker);
+            }
         }
+
+        // server may have requests waiting for a worker
+        if (server_ != null) server_.workerAvailable();
+    }
+
+    /**
+     * Can the server read requests for our SocketThread class via its selector?
+     */
+    public boolean isSelectorReadSupported()
+    {
+        return bSelectorReadSupported_;
     }
     
     /**
@@ -168,6 +277,7 @@ public class ThreadPool
      */
     public int getNumIdleWorkers()
     {
+        if (executor_ != null) return executor_.getMaxRunning() - executor_.getInFlight();
         synchronized (idle_) {
             return idle_.size();
         }
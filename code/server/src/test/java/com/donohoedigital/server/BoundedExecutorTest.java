@@ -0,0 +1,300 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.server;
+
+import com.donohoedigital.config.*;
+import junit.framework.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Test BoundedExecutor limits and counters, and GameServer closing rejected connections
+ */
+public class BoundedExecutorTest extends TestCase
+{
+    private static final long WAIT_MILLIS = 5000;
+
+    private BoundedExecutor executor;
+
+    @Override
+    protected void tearDown()
+    {
+        if (executor != null) executor.shutdown();
+    }
+
+    public void testLimits() throws Exception
+    {
+        executor = new BoundedExecutor("test", 2, 3);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        // fill running slots
+        for (int i = 0; i < 2; i++)
+        {
+            assertTrue(executor.execute(new Blocker(release, started, running, maxRunning)));
+        }
+        assertTrue(started.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(2, executor.getInFlight());
+        assertEquals(0, executor.getQueued());
+
+        // fill queue
+        for (int i = 0; i < 3; i++)
+        {
+            assertTrue(executor.execute(new Blocker(release, null, running, maxRunning)));
+        }
+        assertEquals(2, executor.getInFlight());
+        assertEquals(3, executor.getQueued());
+        assertEquals(0, executor.getRejected());
+
+        // over the limit
+        assertFalse(executor.execute(new Blocker(release, null, running, maxRunning)));
+        assertFalse(executor.execute(new Blocker(release, null, running, maxRunning)));
+        assertEquals(2, executor.getRejected());
+        assertEquals(3, executor.getQueued());
+
+        // let everything finish
+        release.countDown();
+        waitForCompleted(5);
+        assertEquals(0, executor.getInFlight());
+        assertEquals(0, executor.getQueued());
+        assertEquals(2, executor.getRejected());
+        assertEquals(2, maxRunning.get());
+
+        // room again
+        assertTrue(executor.execute(new Blocker(release, null, running, maxRunning)));
+        waitForCompleted(6);
+    }
+
+    public void testQueueOrderAndExceptions() throws Exception
+    {
+        executor = new BoundedExecutor("test", 1, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+
+        assertTrue(executor.execute(new Blocker(release, started, new AtomicInteger(), new AtomicInteger())));
+        assertTrue(started.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 5; i++)
+        {
+            final int n = i;
+            assertTrue(executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    order.add(n);
+                    if (n == 2) throw new IllegalStateException("test exception (expected)");
+                }
+            }));
+        }
+        assertEquals(5, executor.getQueued());
+
+        // queued tasks run in order after the first finishes, an exception doesn't stop them
+        release.countDown();
+        waitForCompleted(6);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+        assertEquals(0, executor.getInFlight());
+    }
+
+    public void testShutdown() throws Exception
+    {
+        executor = new BoundedExecutor("test", 1, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger ran = new AtomicInteger();
+        Runnable counter = new Runnable()
+        {
+            public void run()
+            {
+                ran.incrementAndGet();
+            }
+        };
+
+        assertTrue(executor.execute(new Blocker(release, started, new AtomicInteger(), new AtomicInteger())));
+        assertTrue(started.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(executor.execute(counter));
+        assertEquals(1, executor.getQueued());
+
+        // queued task dropped, new ones rejected, running one finishes
+        executor.shutdown();
+        assertEquals(0, executor.getQueued());
+        assertFalse(executor.execute(counter));
+        assertEquals(1, executor.getRejected());
+        release.countDown();
+        waitForCompleted(1);
+        assertEquals(0, ran.get());
+        assertEquals(0, executor.getInFlight());
+    }
+
+    public void testThreads() throws Exception
+    {
+        executor = new BoundedExecutor("named", 1, 0);
+        final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        assertTrue(executor.execute(new Runnable()
+        {
+            public void run()
+            {
+                thread.set(Thread.currentThread());
+            }
+        }));
+        waitForCompleted(1);
+
+        assertTrue(thread.get().getName(), thread.get().getName().startsWith("named-"));
+        assertEquals(isVirtualSupported(), executor.isVirtual());
+        if (executor.isVirtual())
+        {
+            assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread.get()));
+        }
+        else
+        {
+            assertTrue(thread.get().isDaemon());
+        }
+    }
+
+    /**
+     * GameServer in executor mode closes the connection when the executor is full
+     */
+    public void testRejectedClosesConnection() throws Exception
+    {
+        // SocketThread settings
+        if (ConfigManager.getConfigManager() == null) new ConfigManager("servertest", ApplicationType.SERVER);
+
+        executor = new BoundedExecutor("test", 1, 0);
+        GameServer server = new GameServer() {};
+        server.setAppName("test");
+        server.setThreadPool(new ThreadPool(server, null, SocketThread.class.getName(), executor));
+
+        // fill executor
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        assertTrue(executor.execute(new Blocker(release, started, new AtomicInteger(), new AtomicInteger())));
+        assertTrue(started.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+
+        ServerSocketChannel listen = ServerSocketChannel.open();
+        Socket client = null;
+        try
+        {
+            listen.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            client = new Socket(InetAddress.getLoopbackAddress(), listen.socket().getLocalPort());
+            client.setSoTimeout((int) WAIT_MILLIS);
+            SocketChannel channel = listen.accept();
+
+            server.execute(channel, null);
+
+            assertEquals(1, server.getNumRejected());
+            assertEquals(1, server.getNumInFlight());
+            assertFalse(channel.isOpen());
+            assertEquals(-1, client.getInputStream().read());
+        }
+        finally
+        {
+            if (client != null) client.close();
+            listen.close();
+            release.countDown();
+        }
+    }
+
+    /**
+     * wait for executor to complete given number of tasks
+     */
+    private void waitForCompleted(long nCompleted) throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + WAIT_MILLIS;
+        while (executor.getCompleted() < nCompleted || executor.getInFlight() > 0)
+        {
+            assertTrue("timeout waiting for " + nCompleted + " completed, " + executor, System.currentTimeMillis() < end);
+            Thread.sleep(10);
+        }
+        assertEquals(nCompleted, executor.getCompleted());
+    }
+
+    private static boolean isVirtualSupported()
+    {
+        try
+        {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Task that waits for release, tracking how many run at once
+     */
+    private static class Blocker implements Runnable
+    {
+        private final CountDownLatch release;
+        private final CountDownLatch started;
+        private final AtomicInteger running;
+        private final AtomicInteger maxRunning;
+
+        Blocker(CountDownLatch release, CountDownLatch started, AtomicInteger running, AtomicInteger maxRunning)
+        {
+            this.release = release;
+            this.started = started;
+            this.running = running;
+            this.maxRunning = maxRunning;
+        }
+
+        public void run()
+        {
+            int now = running.incrementAndGet();
+            synchronized (maxRunning)
+            {
+                if (now > maxRunning.get()) maxRunning.set(now);
+            }
+            if (started != null) started.countDown();
+            try
+            {
+                release.await(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                running.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ * DD Poker - Source Code
+ * Copyright (c) 2003-2024 Doug Donohoe
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * For the full License text, please see the LICENSE.txt file
+ * in the root directory of this project.
+ * 
+ * The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+ * graphics, text, and documentation found in this repository (including but not
+ * limited to written documentation, website content, and marketing materials) 
+ * are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+ * 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+ * without explicit written permission for any uses not covered by this License.
+ * For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+ * in the root directory of this project.
+ * 
+ * For inquiries regarding commercial licensing of this source code or 
+ * the use of names, logos, images, text, or other assets, please contact 
+ * doug [at] donohoe [dot] info.
+ * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+ */
+package com.donohoedigital.server;
+
+import com.donohoedigital.base.*;
+import junit.framework.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/**
+ * Test ChannelReader buffer growth, Content-Length limit and shared budget
+ */
+public class ChannelReaderTest extends TestCase
+{
+    private static final int MAX_SIZE = 1024 * 1024;
+
+    private ServerSocketChannel listen;
+    private final List<Socket> clients = new ArrayList<Socket>();
+    private final List<SocketChannel> channels = new ArrayList<SocketChannel>();
+    private final List<ChannelReader> readers = new ArrayList<ChannelReader>();
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        listen = ServerSocketChannel.open();
+        listen.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @Override
+    protected void tearDown() throws IOException
+    {
+        for (ChannelReader reader : readers) reader.release();
+        for (SocketChannel channel : channels) channel.close();
+        for (Socket client : clients) client.close();
+        listen.close();
+        assertEquals(0, ChannelReader.getBufferedBytes());
+    }
+
+    public void testComplete() throws IOException
+    {
+        byte[] content = new byte[20000];
+        Arrays.fill(content, (byte) 'x');
+        Socket client = connect();
+        SocketChannel channel = accept();
+        ChannelReader reader = newReader(MAX_SIZE);
+
+        send(client, headers(content.length));
+        send(client, content);
+        assertTrue(readAll(reader, channel));
+        assertNull(reader.getError());
+
+        ByteBuffer buffer = reader.takeBuffer();
+        assertEquals(headers(content.length).length + content.length, buffer.position());
+        assertEquals(0, ChannelReader.getBufferedBytes());
+        BufferPool.release(buffer);
+    }
+
+    public void testGrowsAsDataArrives() throws IOException
+    {
+        // only part of the content arrives - buffer isn't sized to the Content-Length yet
+        Socket client = connect();
+        SocketChannel channel = accept();
+        ChannelReader reader = newReader(MAX_SIZE);
+        send(client, headers(MAX_SIZE / 2));
+        send(client, new byte[20000]);
+        assertFalse(readAll(reader, channel));
+        assertNull(reader.getError());
+        assertTrue(ChannelReader.getBufferedBytes() <= 64 * 1024);
+    }
+
+    public void testContentLengthTooLarge() throws IOException
+    {
+        Socket client = connect();
+        SocketChannel channel = accept();
+        ChannelReader reader = newReader(MAX_SIZE);
+        send(client, headers(MAX_SIZE));
+        assertTrue(readAll(reader, channel));
+        assertTrue(reader.getError(), reader.getError().startsWith("Content-Length too large"));
+    }
+
+    public void testBudget() throws IOException
+    {
+        // room for two initial buffers, shared by all readers
+        long nBudget = 2 * BufferPool.getCapacity(4 * 1024);
+        ChannelReader[] stalled = new ChannelReader[3];
+        for (int i = 0; i < stalled.length; i++)
+        {
+            Socket client = connect();
+            SocketChannel channel = accept();
+            stalled[i] = new ChannelReader(MAX_SIZE, nBudget);
+            readers.add(stalled[i]);
+            send(client, "POST /x".getBytes());
+            readAll(stalled[i], channel);
+        }
+        assertNull(stalled[0].getError());
+        assertNull(stalled[1].getError());
+        assertTrue(stalled[2].getError(), stalled[2].getError().startsWith("Server busy"));
+        assertEquals(nBudget, ChannelReader.getBufferedBytes());
+
+        // room again once one finishes
+        stalled[0].release();
+        assertEquals(nBudget / 2, ChannelReader.getBufferedBytes());
+    }
+
+    public void testBudgetSharedWithWorkers() throws IOException
+    {
+        // worker thread reads (SocketThread) count against the same budget
+        long nBudget = 2 * BufferPool.getCapacity(4 * 1024);
+        int nWorker = BufferPool.getCapacity(4 * 1024);
+        assertTrue(ChannelReader.reserveBuffered(nWorker, nBudget));
+
+        Socket client = connect();
+        SocketChannel channel = accept();
+        ChannelReader reader = new ChannelReader(MAX_SIZE, nBudget);
+        readers.add(reader);
+        send(client, "POST /x".getBytes());
+        readAll(reader, channel);
+        assertNull(reader.getError());
+
+        assertFalse(ChannelReader.reserveBuffered(nWorker, nBudget));
+        assertEquals(nBudget, ChannelReader.getBufferedBytes());
+        ChannelReader.unreserveBuffered(nWorker);
+    }
+
+    private ChannelReader newReader(int nMaxSize)
+    {
+        ChannelReader reader = new ChannelReader(nMaxSize, Long.MAX_VALUE);
+        readers.add(reader);
+        return reader;
+    }
+
+    private Socket connect() throws IOException
+    {
+        Socket client = new Socket(InetAddress.getLoopbackAddress(), listen.socket().getLocalPort());
+        clients.add(client);
+        return client;
+    }
+
+    private SocketChannel accept() throws IOException
+    {
+        SocketChannel channel = listen.accept();
+        channel.configureBlocking(false);
+        channels.add(channel);
+        return channel;
+    }
+
+    private static byte[] headers(int nContentLength)
+    {
+        StringBuilder sb = new StringBuilder("POST /poker/servlet HTTP/1.1\r\nHost: test\r\n");
+        for (int i = 0; i < 100; i++) sb.append("X-Padding-").append(i).append(": padding to need more than one buffer\r\n");
+        sb.append("Content-Length: ").append(nContentLength).append("\r\n\r\n");
+        return Utils.encodeBasic(sb.toString());
+    }
+
+    private static void send(Socket client, byte[] data) throws IOException
+    {
+        client.getOutputStream().write(data);
+        client.getOutputStream().flush();
+    }
+
+    /**
+     * Read until complete or nothing more arrives for a bit
+     */
+    private static boolean readAll(ChannelReader reader, SocketChannel channel) throws IOException
+    {
+        long nLastData = System.currentTimeMillis();
+        long nLastRead = -1;
+        while (System.currentTimeMillis() - nLastData < 200)
+        {
+            if (reader.read(channel)) return true;
+            if (reader.getLastRead() != nLastRead)
+            {
+                nLastRead = reader.getLastRead();
+                nLastData = System.currentTimeMillis();
+            }
+            Utils.sleepMillis(10);
+        }
+        return false;
+    }
+}
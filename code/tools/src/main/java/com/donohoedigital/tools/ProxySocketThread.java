@@ -122,7 +122,7 @@ public class ProxySocketThread extends SocketThread implements PostWriter, DDMes
     {
         // convert to string - sufficient for this test proxy since we
         // aren't dealing with binary data
-        String sData = Utils.decodeBasic(buffer_.array(), 0, buffer_.limit());
+        String sData = Utils.decodeBasic(getRequestBytes());
         
         // if sending to a proxy (non-connect), fix the output POST and Host
         if (options_.bProxyPassThru)
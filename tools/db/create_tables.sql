@@ -93,6 +93,22 @@ CREATE TABLE wan_history (
     INDEX whi_is_ended (whi_is_ended)
 ) Engine = InnoDB DEFAULT CHARSET=utf8;
 
+-- per-profile, per-day totals of ended online/ai wan_history rows (used by leaderboard),
+-- maintained by TournamentHistoryDao.updateLeaderboard() / rebuildLeaderboard()
+CREATE TABLE wan_leaderboard (
+    wlb_profile_id INT UNSIGNED NOT NULL,
+    wlb_day DATE NOT NULL,
+    wlb_games_played INT NOT NULL,
+    wlb_rank_1_total DECIMAL(20,3) NOT NULL,
+    wlb_buy_in DECIMAL(20,0) NOT NULL,
+    wlb_total_rebuy DECIMAL(20,0) NOT NULL,
+    wlb_total_add_on DECIMAL(20,0) NOT NULL,
+    wlb_prize DECIMAL(20,0) NOT NULL,
+
+    PRIMARY KEY (wlb_profile_id, wlb_day),
+    INDEX wlb_day (wlb_day)
+) Engine = InnoDB DEFAULT CHARSET=utf8;
+
 CREATE TABLE registration (
     reg_id INT UNSIGNED NOT NULL PRIMARY KEY AUTO_INCREMENT,
     reg_license_key VARCHAR(55) NOT NULL,
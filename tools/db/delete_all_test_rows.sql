@@ -32,6 +32,7 @@
 --
 use pokertest;
 
+delete from wan_leaderboard;
 delete from wan_history;
 delete from wan_game;
 delete from wan_profile;
@@ -38,6 +38,7 @@ if [ "$1" = "" ]; then
  exit 1
 fi
 
+SCRIPT_DIR=$(cd $(dirname $0) && pwd)
 cd $1
 
 ORDER="banned_key upgraded_key wan_history wan_game wan_profile registration"
@@ -54,3 +55,7 @@ for file in $ORDER; do
 	echo "Processing $file.txt..." 
     echo "load data infile '/var/lib/mysql-files/$file.txt' replace into table $file; show warnings;" | $MYSQL
 done
+
+# leaderboard summary isn't backed up, recreate it from wan_history
+echo "Rebuilding wan_leaderboard..."
+cat $SCRIPT_DIR/rebuild_leaderboard.sql | $MYSQL
@@ -0,0 +1,59 @@
+--
+-- =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+-- DD Poker - Source Code
+-- Copyright (c) 2003-2024 Doug Donohoe
+-- 
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+-- 
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+-- 
+-- For the full License text, please see the LICENSE.txt file
+-- in the root directory of this project.
+-- 
+-- The "DD Poker" and "Donohoe Digital" names and logos, as well as any images, 
+-- graphics, text, and documentation found in this repository (including but not
+-- limited to written documentation, website content, and marketing materials) 
+-- are licensed under the Creative Commons Attribution-NonCommercial-NoDerivatives 
+-- 4.0 International License (CC BY-NC-ND 4.0). You may not use these assets 
+-- without explicit written permission for any uses not covered by this License.
+-- For the full License text, please see the LICENSE-CREATIVE-COMMONS.txt file
+-- in the root directory of this project.
+-- 
+-- For inquiries regarding commercial licensing of this source code or 
+-- the use of names, logos, images, text, or other assets, please contact 
+-- doug [at] donohoe [dot] info.
+-- =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+--
+-- recreate wan_leaderboard from wan_history (e.g., after loading a backup);
+-- must match TournamentHistoryImplJpa.rebuildLeaderboard()
+--
+CREATE TABLE IF NOT EXISTS wan_leaderboard (
+    wlb_profile_id INT UNSIGNED NOT NULL,
+    wlb_day DATE NOT NULL,
+    wlb_games_played INT NOT NULL,
+    wlb_rank_1_total DECIMAL(20,3) NOT NULL,
+    wlb_buy_in DECIMAL(20,0) NOT NULL,
+    wlb_total_rebuy DECIMAL(20,0) NOT NULL,
+    wlb_total_add_on DECIMAL(20,0) NOT NULL,
+    wlb_prize DECIMAL(20,0) NOT NULL,
+
+    PRIMARY KEY (wlb_profile_id, wlb_day),
+    INDEX wlb_day (wlb_day)
+) Engine = InnoDB DEFAULT CHARSET=utf8;
+
+DELETE FROM wan_leaderboard;
+
+-- player types: 1 = ai, 2 = online (see TournamentHistory)
+INSERT INTO wan_leaderboard (wlb_profile_id, wlb_day, wlb_games_played, wlb_rank_1_total,
+                             wlb_buy_in, wlb_total_rebuy, wlb_total_add_on, wlb_prize)
+SELECT whi_profile_id, DATE(whi_end_date), count(*), sum(whi_rank_1),
+       sum(whi_buy_in), sum(whi_total_rebuy), sum(whi_total_add_on), sum(whi_prize)
+FROM wan_history
+WHERE whi_player_type in (1, 2) AND whi_is_ended = TRUE
+GROUP BY whi_profile_id, DATE(whi_end_date);